@@ -0,0 +1,12 @@
+package com.chilborne.todoapi.exception;
+
+public class VersionMismatchException extends RuntimeException {
+
+    public VersionMismatchException(String message) {
+        super(message);
+    }
+
+    public VersionMismatchException(String entity, long id, long expectedVersion) {
+        super(String.format("%s with id:%d is no longer at version %d", entity, id, expectedVersion));
+    }
+}
@@ -0,0 +1,68 @@
+package com.chilborne.todoapi.persistance.bootstrap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Restarts task_seq and list_seq above the highest id in use. The schema update creates both
+ * sequences at 1 on a database whose rows got their ids from identity columns, and the first
+ * block handed out would collide with those rows. Archived rows keep their ids, so they count too.
+ */
+@Component
+public class IdSequenceInstaller implements SmartInitializingSingleton {
+
+  private static final Map<String, String> HIGHEST_IDS =
+      Map.of(
+          "TASK_SEQ",
+          "SELECT GREATEST((SELECT COALESCE(MAX(task_id), 0) FROM tasks), "
+              + "(SELECT COALESCE(MAX(task_id), 0) FROM archived_tasks))",
+          "LIST_SEQ",
+          "SELECT GREATEST((SELECT COALESCE(MAX(list_id), 0) FROM lists), "
+              + "(SELECT COALESCE(MAX(list_id), 0) FROM archived_lists))");
+
+  private final DataSource dataSource;
+  private final Logger logger = LoggerFactory.getLogger(IdSequenceInstaller.class);
+
+  public IdSequenceInstaller(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  // runs once the entity manager factory has created the sequences, before anything is inserted
+  @Override
+  public void afterSingletonsInstantiated() {
+    try (Connection conn = dataSource.getConnection();
+        Statement statement = conn.createStatement();
+        PreparedStatement next =
+            conn.prepareStatement(
+                "SELECT CURRENT_VALUE + INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES "
+                    + "WHERE SEQUENCE_NAME = ?")) {
+      for (Map.Entry<String, String> sequence : HIGHEST_IDS.entrySet()) {
+        long highest;
+        try (ResultSet result = statement.executeQuery(sequence.getValue())) {
+          result.next();
+          highest = result.getLong(1);
+        }
+        next.setString(1, sequence.getKey());
+        try (ResultSet result = next.executeQuery()) {
+          if (!result.next() || result.getLong(1) > highest) {
+            continue;
+          }
+        }
+        statement.execute("ALTER SEQUENCE " + sequence.getKey() + " RESTART WITH " + (highest + 1));
+        logger.info("Restarted {} above the highest existing id {}", sequence.getKey(), highest);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not restart id sequences", e);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.chilborne.todoapi.persistance.bootstrap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts the tasks of lists saved before the task_count and active_task_count columns existed,
+ * from then on the counts are kept by the statements which add, complete, delete or archive tasks.
+ */
+@Component
+public class TaskCountInstaller implements SmartInitializingSingleton {
+
+  private final DataSource dataSource;
+  private final Logger logger = LoggerFactory.getLogger(TaskCountInstaller.class);
+
+  public TaskCountInstaller(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  // runs once the entity manager factory has added the columns
+  @Override
+  public void afterSingletonsInstantiated() {
+    try (Connection conn = dataSource.getConnection();
+        Statement statement = conn.createStatement()) {
+      int counted =
+          statement.executeUpdate(
+              "UPDATE lists l SET "
+                  + "task_count = (SELECT COUNT(*) FROM tasks t WHERE t.list_id = l.list_id), "
+                  + "active_task_count = (SELECT COUNT(*) FROM tasks t "
+                  + "WHERE t.list_id = l.list_id AND t.active = TRUE) "
+                  + "WHERE task_count IS NULL OR active_task_count IS NULL");
+      if (counted > 0) {
+        logger.info("Counted the tasks of {} existing lists", counted);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not count tasks of existing lists", e);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.chilborne.todoapi.persistance.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Exports size, eviction and removal counters of the second-level cache regions. Hit, miss and put
+ * counts per region are already exported by the Hibernate statistics binder.
+ */
+@Configuration
+public class CacheMetricsConfig {
+
+  // the entity manager factory has to be built before its cache regions exist
+  @Bean
+  public MeterBinder secondLevelCacheMetrics(
+      EntityManagerFactory entityManagerFactory,
+      @Value("${spring.jpa.properties.hibernate.javax.cache.provider}") String provider) {
+    return registry -> {
+      CacheManager cacheManager = Caching.getCachingProvider(provider).getCacheManager();
+      for (String name : cacheManager.getCacheNames()) {
+        JCacheMetrics.monitor(registry, cacheManager.getCache(name), "cache.manager", "hibernate");
+      }
+    };
+  }
+}
@@ -0,0 +1,55 @@
+package com.chilborne.todoapi.persistance.config;
+
+import com.chilborne.todoapi.persistance.replication.ReplicaRoutingDataSource;
+import com.chilborne.todoapi.persistance.replication.ReplicaSet;
+import com.chilborne.todoapi.persistance.replication.ReplicationShipper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured data source with one which routes read-only transactions to the
+ * replicas listed in {@code todo.datasource.replicas}. Without replicas nothing here is created.
+ */
+@Configuration
+@ConditionalOnExpression("!'${todo.datasource.replicas:}'.isBlank()")
+public class ReplicationConfig {
+
+  @Bean
+  public ReplicaSet replicaSet(
+      DataSourceProperties properties, @Value("${todo.datasource.replicas}") List<String> urls) {
+    HikariDataSource primary =
+        properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    primary.setPoolName("primary");
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    for (int i = 0; i < urls.size(); i++) {
+      HikariDataSource replica =
+          properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(urls.get(i)).build();
+      replica.setPoolName("replica-" + (i + 1));
+      replicas.put(replica.getPoolName(), replica);
+    }
+    return new ReplicaSet(primary, replicas);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaSet replicaSet) {
+    return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(replicaSet));
+  }
+
+  @Bean
+  public ReplicationShipper replicationShipper(
+      ReplicaSet replicaSet, @Value("${todo.datasource.replication.batch-size:500}") int batchSize) {
+    return new ReplicationShipper(replicaSet, batchSize);
+  }
+}
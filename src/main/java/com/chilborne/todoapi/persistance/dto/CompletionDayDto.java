@@ -0,0 +1,66 @@
+package com.chilborne.todoapi.persistance.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+
+@Schema(name = "Completion Day", description = "Number of tasks completed on one day")
+public class CompletionDayDto {
+
+    @JsonFormat(pattern = "dd-MM-yyyy")
+    private LocalDate date;
+
+    @Schema(description = "tasks completed on the day, including those archived since")
+    private long completions;
+
+    public CompletionDayDto() {
+    }
+
+    public CompletionDayDto(LocalDate date, long completions) {
+        this.date = date;
+        this.completions = completions;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public long getCompletions() {
+        return completions;
+    }
+
+    public void setCompletions(long completions) {
+        this.completions = completions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CompletionDayDto that = (CompletionDayDto) o;
+
+        if (completions != that.completions) return false;
+        return date != null ? date.equals(that.date) : that.date == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = date != null ? date.hashCode() : 0;
+        result = 31 * result + (int) (completions ^ (completions >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompletionDayDto{" +
+          "date=" + date +
+          ", completions=" + completions +
+          '}';
+    }
+}
@@ -0,0 +1,67 @@
+package com.chilborne.todoapi.persistance.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@Schema(name = "Import Error", description = "Why one line of an import was not imported")
+public class ImportErrorDto {
+
+    @Schema(description = "line number in the request body, starting at 1")
+    private long line;
+
+    @Schema(description = "one message per problem, the invalid property first where there is one")
+    private List<String> errors = new ArrayList<>();
+
+    public ImportErrorDto() {
+    }
+
+    public ImportErrorDto(long line, List<String> errors) {
+        this.line = line;
+        this.errors = errors;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ImportErrorDto that = (ImportErrorDto) o;
+
+        if (line != that.line) return false;
+        return Objects.equals(errors, that.errors);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (line ^ (line >>> 32));
+        result = 31 * result + (errors != null ? errors.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportErrorDto{" +
+          "line=" + line +
+          ", errors=" + errors +
+          '}';
+    }
+}
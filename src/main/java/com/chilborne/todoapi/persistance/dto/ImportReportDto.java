@@ -0,0 +1,90 @@
+package com.chilborne.todoapi.persistance.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@Schema(name = "Import Report", description = "What an import saved and which lines it skipped")
+public class ImportReportDto {
+
+    @Schema(name = "lists_imported")
+    private long listsImported;
+
+    @Schema(name = "tasks_imported")
+    private long tasksImported;
+
+    @Schema(name = "failed_lines", description = "lines which were not imported, blank lines aside")
+    private long failedLines;
+
+    @Schema(description = "why each failed line was not imported, only the first 1000 are listed")
+    private List<ImportErrorDto> errors = new ArrayList<>();
+
+    public ImportReportDto() {
+    }
+
+    public long getListsImported() {
+        return listsImported;
+    }
+
+    public void setListsImported(long listsImported) {
+        this.listsImported = listsImported;
+    }
+
+    public long getTasksImported() {
+        return tasksImported;
+    }
+
+    public void setTasksImported(long tasksImported) {
+        this.tasksImported = tasksImported;
+    }
+
+    public long getFailedLines() {
+        return failedLines;
+    }
+
+    public void setFailedLines(long failedLines) {
+        this.failedLines = failedLines;
+    }
+
+    public List<ImportErrorDto> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ImportErrorDto> errors) {
+        this.errors = errors;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ImportReportDto that = (ImportReportDto) o;
+
+        if (listsImported != that.listsImported) return false;
+        if (tasksImported != that.tasksImported) return false;
+        if (failedLines != that.failedLines) return false;
+        return Objects.equals(errors, that.errors);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (listsImported ^ (listsImported >>> 32));
+        result = 31 * result + (int) (tasksImported ^ (tasksImported >>> 32));
+        result = 31 * result + (int) (failedLines ^ (failedLines >>> 32));
+        result = 31 * result + (errors != null ? errors.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReportDto{" +
+          "listsImported=" + listsImported +
+          ", tasksImported=" + tasksImported +
+          ", failedLines=" + failedLines +
+          ", errors=" + errors +
+          '}';
+    }
+}
@@ -0,0 +1,90 @@
+package com.chilborne.todoapi.persistance.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Schema(
+    name = "Sync",
+    description = "to_do_lists and tasks created, changed or deleted after a cursor")
+public class SyncDto {
+
+    @Schema(description = "pass as {since} on the next request")
+    private long cursor;
+
+    @Schema(name = "has_more", description = "true when more changes are waiting after the cursor")
+    private boolean hasMore;
+
+    @Schema(description = "changed to_do_lists, without their tasks")
+    private List<ToDoListDto> lists = new ArrayList<>();
+
+    @Schema(description = "changed tasks, including tasks of unchanged lists")
+    private List<TaskDto> tasks = new ArrayList<>();
+
+    @Schema(description = "deleted to_do_lists and tasks, and those moved to the archive")
+    private List<TombstoneDto> deleted = new ArrayList<>();
+
+    public SyncDto() {
+    }
+
+    public SyncDto(long cursor, boolean hasMore, List<ToDoListDto> lists, List<TaskDto> tasks,
+                   List<TombstoneDto> deleted) {
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+        this.lists = lists;
+        this.tasks = tasks;
+        this.deleted = deleted;
+    }
+
+    public long getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(long cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public List<ToDoListDto> getLists() {
+        return lists;
+    }
+
+    public void setLists(List<ToDoListDto> lists) {
+        this.lists = lists;
+    }
+
+    public List<TaskDto> getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(List<TaskDto> tasks) {
+        this.tasks = tasks;
+    }
+
+    public List<TombstoneDto> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<TombstoneDto> deleted) {
+        this.deleted = deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncDto{" +
+          "cursor=" + cursor +
+          ", hasMore=" + hasMore +
+          ", lists=" + lists +
+          ", tasks=" + tasks +
+          ", deleted=" + deleted +
+          '}';
+    }
+}
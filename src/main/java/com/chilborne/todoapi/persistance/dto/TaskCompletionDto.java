@@ -0,0 +1,81 @@
+package com.chilborne.todoapi.persistance.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Schema(name = "Task Completion", description = "Outcome of completing several tasks at once")
+public class TaskCompletionDto {
+
+    @Schema(description = "ids of tasks completed by this request")
+    private List<Long> completed = new ArrayList<>();
+
+    @Schema(name = "already_completed", description = "ids of tasks which had been completed before")
+    private List<Long> alreadyCompleted = new ArrayList<>();
+
+    @Schema(name = "not_found", description = "ids which do not belong to a task of the authenticated user")
+    private List<Long> notFound = new ArrayList<>();
+
+    public TaskCompletionDto() {
+    }
+
+    public TaskCompletionDto(List<Long> completed, List<Long> alreadyCompleted, List<Long> notFound) {
+        this.completed = completed;
+        this.alreadyCompleted = alreadyCompleted;
+        this.notFound = notFound;
+    }
+
+    public List<Long> getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(List<Long> completed) {
+        this.completed = completed;
+    }
+
+    public List<Long> getAlreadyCompleted() {
+        return alreadyCompleted;
+    }
+
+    public void setAlreadyCompleted(List<Long> alreadyCompleted) {
+        this.alreadyCompleted = alreadyCompleted;
+    }
+
+    public List<Long> getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(List<Long> notFound) {
+        this.notFound = notFound;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        TaskCompletionDto that = (TaskCompletionDto) o;
+
+        if (!completed.equals(that.completed)) return false;
+        if (!alreadyCompleted.equals(that.alreadyCompleted)) return false;
+        return notFound.equals(that.notFound);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = completed.hashCode();
+        result = 31 * result + alreadyCompleted.hashCode();
+        result = 31 * result + notFound.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskCompletionDto{" +
+          "completed=" + completed +
+          ", alreadyCompleted=" + alreadyCompleted +
+          ", notFound=" + notFound +
+          '}';
+    }
+}
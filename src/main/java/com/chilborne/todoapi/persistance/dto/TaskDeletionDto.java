@@ -0,0 +1,78 @@
+package com.chilborne.todoapi.persistance.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "Task Deletion", description = "Summary of a task removed from a to_do_list")
+public class TaskDeletionDto {
+
+    @Schema(name = "list_id", description = "id of the to_do_list the task was removed from")
+    private long listId;
+
+    @Schema(name = "task_id", description = "id of the deleted task")
+    private long taskId;
+
+    @Schema(name = "remaining_tasks", description = "number of tasks left in the to_do_list")
+    private long remainingTasks;
+
+    public TaskDeletionDto() {
+    }
+
+    public TaskDeletionDto(long listId, long taskId, long remainingTasks) {
+        this.listId = listId;
+        this.taskId = taskId;
+        this.remainingTasks = remainingTasks;
+    }
+
+    public long getListId() {
+        return listId;
+    }
+
+    public void setListId(long listId) {
+        this.listId = listId;
+    }
+
+    public long getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(long taskId) {
+        this.taskId = taskId;
+    }
+
+    public long getRemainingTasks() {
+        return remainingTasks;
+    }
+
+    public void setRemainingTasks(long remainingTasks) {
+        this.remainingTasks = remainingTasks;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        TaskDeletionDto that = (TaskDeletionDto) o;
+
+        if (listId != that.listId) return false;
+        if (taskId != that.taskId) return false;
+        return remainingTasks == that.remainingTasks;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (listId ^ (listId >>> 32));
+        result = 31 * result + (int) (taskId ^ (taskId >>> 32));
+        result = 31 * result + (int) (remainingTasks ^ (remainingTasks >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskDeletionDto{" +
+          "listId=" + listId +
+          ", taskId=" + taskId +
+          ", remainingTasks=" + remainingTasks +
+          '}';
+    }
+}
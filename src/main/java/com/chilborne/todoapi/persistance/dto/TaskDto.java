@@ -4,16 +4,21 @@ import com.chilborne.todoapi.persistance.model.ToDoList;
 import com.chilborne.todoapi.persistance.validation.OnPersist;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.validator.constraints.Range;
 
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Null;
 import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 
+import static com.chilborne.todoapi.web.controller.v1.TaskController.TASK_ROOT_URL;
+
 @Schema(name = "Task")
 public class TaskDto {
 
     @Schema(name = "task_id")
+    @Range(max = 0, groups = OnPersist.class, message = "task_id is autogenerated on Task creation")
     private long taskId;
 
     @NotBlank(message = "name is compulsory")
@@ -36,12 +41,16 @@ public class TaskDto {
     private LocalDateTime dateTimeFinished;
 
     @Schema(description = "Task is automatically activated on Task creation")
-    @Null(groups = OnPersist.class, message = "active is automatically set to true on task creation")
+    @AssertTrue(groups = OnPersist.class, message = "active is automatically set to true on task creation")
     private boolean active = true;
 
     @Null(groups = OnPersist.class, message = "url is autogenerated on Task creation")
     private String url;
 
+    @Schema(description = "only present, and true, when read back from the archive")
+    @Null(groups = OnPersist.class, message = "archived is set when the task is archived")
+    private Boolean archived;
+
     public TaskDto() { }
 
     public TaskDto(ToDoList toDoList, String name) {
@@ -49,6 +58,19 @@ public class TaskDto {
         this.name = name;
     }
 
+    // used by repository projections, which select straight into the dto
+    public TaskDto(long taskId, String name, String description, long listId,
+                   LocalDateTime dateTimeMade, LocalDateTime dateTimeFinished, boolean active) {
+        this.taskId = taskId;
+        this.name = name;
+        this.description = description;
+        this.listId = listId;
+        this.dateTimeMade = dateTimeMade;
+        this.dateTimeFinished = dateTimeFinished;
+        this.active = active;
+        this.url = TASK_ROOT_URL + "/" + taskId;
+    }
+
     public long getTaskId() {
         return taskId;
     }
@@ -113,6 +135,14 @@ public class TaskDto {
         this.url = url;
     }
 
+    public Boolean getArchived() {
+        return archived;
+    }
+
+    public void setArchived(Boolean archived) {
+        this.archived = archived;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -153,6 +183,7 @@ public class TaskDto {
           ", dateTimeFinished=" + dateTimeFinished +
           ", active=" + active +
           ", url='" + url + '\'' +
+          ", archived=" + archived +
           '}';
     }
 }
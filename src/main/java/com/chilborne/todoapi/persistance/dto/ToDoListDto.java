@@ -3,7 +3,9 @@ package com.chilborne.todoapi.persistance.dto;
 import com.chilborne.todoapi.persistance.validation.OnPersist;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.validator.constraints.Range;
 
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Null;
 import javax.validation.constraints.Size;
@@ -12,10 +14,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import static com.chilborne.todoapi.web.controller.v1.ToDoListController.TO_DO_LIST_ROOT_URL;
+
 @Schema(title = "To-Do List")
 public class ToDoListDto {
 
-    @Null(groups = OnPersist.class, message = "to_do_list id is autogenerated on list creation")
+    // primitives are never null, so unset means zero
+    @Range(max = 0, groups = OnPersist.class, message = "to_do_list id is autogenerated on list creation")
     private long listId;
 
     @NotBlank(groups = OnPersist.class, message = "name is compulsory")
@@ -34,15 +39,47 @@ public class ToDoListDto {
     @Null(groups = OnPersist.class, message = "You must add tasks separately using /api/v1/list/{list_id}/task/add")
     private List<TaskDto> tasks = new ArrayList<>();
 
-    @Null(groups = OnPersist.class, message = "To-Do List is activated on creation")
+    @AssertTrue(groups = OnPersist.class, message = "To-Do List is activated on creation")
     private boolean active = true;
 
     @Null(groups = OnPersist.class, message = "url is autogenerated on list creation")
     private String url;
 
+    @Schema(description = "number of the list's current tasks, archived tasks are not counted")
+    @Null(groups = OnPersist.class, message = "task_count is kept up to date as tasks change")
+    private Integer taskCount;
+
+    @Schema(description = "number of the list's current tasks which have not been completed")
+    @Null(groups = OnPersist.class, message = "active_task_count is kept up to date as tasks change")
+    private Integer activeTaskCount;
+
+    @Schema(description = "only present, and true, when read back from the archive")
+    @Null(groups = OnPersist.class, message = "archived is set when the list is archived")
+    private Boolean archived;
+
     public ToDoListDto() {
     }
 
+    // used by repository projections, tasks are added separately
+    public ToDoListDto(long listId, String name, String description, String username,
+                       LocalDateTime dateTimeMade, boolean active) {
+        this.listId = listId;
+        this.name = name;
+        this.description = description;
+        this.username = username;
+        this.dateTimeMade = dateTimeMade;
+        this.active = active;
+        this.url = TO_DO_LIST_ROOT_URL + "/" + listId;
+    }
+
+    public ToDoListDto(long listId, String name, String description, String username,
+                       LocalDateTime dateTimeMade, boolean active, Integer taskCount,
+                       Integer activeTaskCount) {
+        this(listId, name, description, username, dateTimeMade, active);
+        this.taskCount = taskCount;
+        this.activeTaskCount = activeTaskCount;
+    }
+
     public long getListId() {
         return listId;
     }
@@ -107,6 +144,30 @@ public class ToDoListDto {
         this.url = url;
     }
 
+    public Integer getTaskCount() {
+        return taskCount;
+    }
+
+    public void setTaskCount(Integer taskCount) {
+        this.taskCount = taskCount;
+    }
+
+    public Integer getActiveTaskCount() {
+        return activeTaskCount;
+    }
+
+    public void setActiveTaskCount(Integer activeTaskCount) {
+        this.activeTaskCount = activeTaskCount;
+    }
+
+    public Boolean getArchived() {
+        return archived;
+    }
+
+    public void setArchived(Boolean archived) {
+        this.archived = archived;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -122,6 +183,9 @@ public class ToDoListDto {
         if (dateTimeMade != null ? !dateTimeMade.equals(listDto.dateTimeMade) : listDto.dateTimeMade != null)
             return false;
         if (tasks != null ? !tasks.equals(listDto.tasks) : listDto.tasks != null) return false;
+        if (!Objects.equals(taskCount, listDto.taskCount)) return false;
+        if (!Objects.equals(activeTaskCount, listDto.activeTaskCount)) return false;
+        if (!Objects.equals(archived, listDto.archived)) return false;
         return url != null ? url.equals(listDto.url) : listDto.url == null;
     }
 
@@ -135,6 +199,9 @@ public class ToDoListDto {
         result = 31 * result + (tasks != null ? tasks.hashCode() : 0);
         result = 31 * result + (active ? 1 : 0);
         result = 31 * result + (url != null ? url.hashCode() : 0);
+        result = 31 * result + (taskCount != null ? taskCount.hashCode() : 0);
+        result = 31 * result + (activeTaskCount != null ? activeTaskCount.hashCode() : 0);
+        result = 31 * result + (archived != null ? archived.hashCode() : 0);
         return result;
     }
 
@@ -149,6 +216,9 @@ public class ToDoListDto {
           ", tasks=" + tasks +
           ", active=" + active +
           ", url='" + url + '\'' +
+          ", taskCount=" + taskCount +
+          ", activeTaskCount=" + activeTaskCount +
+          ", archived=" + archived +
           '}';
     }
 }
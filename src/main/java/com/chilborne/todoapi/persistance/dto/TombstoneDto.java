@@ -0,0 +1,111 @@
+package com.chilborne.todoapi.persistance.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Schema(name = "Tombstone", description = "A to_do_list or task which has been deleted or archived")
+public class TombstoneDto {
+
+    @Schema(description = "list or task")
+    private String type;
+
+    @Schema(description = "list_id or task_id of the deleted row")
+    private long id;
+
+    @Schema(name = "list_id", description = "to_do_list the deleted task belonged to")
+    private Long listId;
+
+    @JsonFormat(pattern="dd-MM-yyyy HH:mm:ss")
+    private LocalDateTime dateTimeDeleted;
+
+    @Schema(description = "true when the row was moved to the archive, where it can still be read")
+    private boolean archived;
+
+    public TombstoneDto() {
+    }
+
+    public TombstoneDto(
+        String type, long id, Long listId, LocalDateTime dateTimeDeleted, boolean archived) {
+        this.type = type;
+        this.id = id;
+        this.listId = listId;
+        this.dateTimeDeleted = dateTimeDeleted;
+        this.archived = archived;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public Long getListId() {
+        return listId;
+    }
+
+    public void setListId(Long listId) {
+        this.listId = listId;
+    }
+
+    public LocalDateTime getDateTimeDeleted() {
+        return dateTimeDeleted != null ? dateTimeDeleted.withNano(0) : null;
+    }
+
+    public void setDateTimeDeleted(LocalDateTime dateTimeDeleted) {
+        this.dateTimeDeleted = dateTimeDeleted;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        TombstoneDto that = (TombstoneDto) o;
+
+        if (id != that.id) return false;
+        if (archived != that.archived) return false;
+        if (!Objects.equals(type, that.type)) return false;
+        return Objects.equals(listId, that.listId);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type != null ? type.hashCode() : 0;
+        result = 31 * result + (int) (id ^ (id >>> 32));
+        result = 31 * result + (listId != null ? listId.hashCode() : 0);
+        result = 31 * result + (archived ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "TombstoneDto{" +
+          "type='" + type + '\'' +
+          ", id=" + id +
+          ", listId=" + listId +
+          ", dateTimeDeleted=" + dateTimeDeleted +
+          ", archived=" + archived +
+          '}';
+    }
+}
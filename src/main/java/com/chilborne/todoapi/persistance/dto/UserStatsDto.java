@@ -0,0 +1,114 @@
+package com.chilborne.todoapi.persistance.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@Schema(name = "User Stats", description = "Counts of a user's tasks and how quickly they get done")
+public class UserStatsDto {
+
+    @Schema(name = "total_tasks", description = "active and completed tasks, archived ones included")
+    private long totalTasks;
+
+    @Schema(name = "active_tasks", description = "tasks which have not been completed yet")
+    private long activeTasks;
+
+    @Schema(name = "completed_tasks", description = "completed tasks, archived ones included")
+    private long completedTasks;
+
+    @Schema(
+        name = "completions_per_day",
+        description = "tasks completed on each of the last days, oldest first, today last")
+    private List<CompletionDayDto> completionsPerDay = new ArrayList<>();
+
+    @Schema(
+        name = "median_seconds_to_complete",
+        description = "median time from creating to completing a task, to within an eighth, "
+            + "absent until a task has been completed")
+    private Long medianSecondsToComplete;
+
+    public UserStatsDto() {
+    }
+
+    public UserStatsDto(long activeTasks, long completedTasks,
+                        List<CompletionDayDto> completionsPerDay, Long medianSecondsToComplete) {
+        this.totalTasks = activeTasks + completedTasks;
+        this.activeTasks = activeTasks;
+        this.completedTasks = completedTasks;
+        this.completionsPerDay = completionsPerDay;
+        this.medianSecondsToComplete = medianSecondsToComplete;
+    }
+
+    public long getTotalTasks() {
+        return totalTasks;
+    }
+
+    public void setTotalTasks(long totalTasks) {
+        this.totalTasks = totalTasks;
+    }
+
+    public long getActiveTasks() {
+        return activeTasks;
+    }
+
+    public void setActiveTasks(long activeTasks) {
+        this.activeTasks = activeTasks;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    public void setCompletedTasks(long completedTasks) {
+        this.completedTasks = completedTasks;
+    }
+
+    public List<CompletionDayDto> getCompletionsPerDay() {
+        return completionsPerDay;
+    }
+
+    public void setCompletionsPerDay(List<CompletionDayDto> completionsPerDay) {
+        this.completionsPerDay = completionsPerDay;
+    }
+
+    public Long getMedianSecondsToComplete() {
+        return medianSecondsToComplete;
+    }
+
+    public void setMedianSecondsToComplete(Long medianSecondsToComplete) {
+        this.medianSecondsToComplete = medianSecondsToComplete;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        UserStatsDto that = (UserStatsDto) o;
+
+        if (totalTasks != that.totalTasks) return false;
+        if (activeTasks != that.activeTasks) return false;
+        if (completedTasks != that.completedTasks) return false;
+        if (!Objects.equals(completionsPerDay, that.completionsPerDay)) return false;
+        return Objects.equals(medianSecondsToComplete, that.medianSecondsToComplete);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+            totalTasks, activeTasks, completedTasks, completionsPerDay, medianSecondsToComplete);
+    }
+
+    @Override
+    public String toString() {
+        return "UserStatsDto{" +
+          "totalTasks=" + totalTasks +
+          ", activeTasks=" + activeTasks +
+          ", completedTasks=" + completedTasks +
+          ", completionsPerDay=" + completionsPerDay +
+          ", medianSecondsToComplete=" + medianSecondsToComplete +
+          '}';
+    }
+}
@@ -0,0 +1,87 @@
+package com.chilborne.todoapi.persistance.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Task moved out of the tasks table by the archive job. Rows are only ever written with an
+ * INSERT ... SELECT and read back through dto projections, so there is no list or user association,
+ * the owner is kept alongside the list id instead.
+ */
+@Entity
+@Table(
+    name = "archived_tasks",
+    indexes = {
+        @Index(name = "archived_tasks_list", columnList = "list_id, task_id"),
+        @Index(name = "archived_tasks_owner", columnList = "owner_id"),
+        @Index(name = "archived_tasks_archived", columnList = "date_time_archived")
+    })
+public class ArchivedTask {
+
+    @Id
+    @Column(name = "task_id", nullable = false)
+    private long id;
+
+    @Column(name = "list_id", nullable = false)
+    private long listId;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "desc")
+    private String description;
+
+    @Column(name = "date_time_created", columnDefinition = "TIMESTAMP")
+    private LocalDateTime timeCreated;
+
+    @Column(name = "date_time_finished", columnDefinition = "TIMESTAMP")
+    private LocalDateTime timeCompleted;
+
+    @Column(name = "active", nullable = false)
+    private boolean active;
+
+    @Column(name = "date_time_archived", nullable = false, columnDefinition = "TIMESTAMP")
+    private LocalDateTime timeArchived;
+
+    public ArchivedTask() {}
+
+    public long getId() {
+        return id;
+    }
+
+    public long getListId() {
+        return listId;
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public LocalDateTime getTimeCreated() {
+        return timeCreated;
+    }
+
+    public LocalDateTime getTimeCompleted() {
+        return timeCompleted;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public LocalDateTime getTimeArchived() {
+        return timeArchived;
+    }
+}
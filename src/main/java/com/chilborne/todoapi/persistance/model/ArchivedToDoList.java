@@ -0,0 +1,71 @@
+package com.chilborne.todoapi.persistance.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * List moved out of the lists table by the archive job, its tasks are kept as {@link ArchivedTask}s.
+ * Like archived tasks the owner is a plain column, so archived rows never block deleting a user.
+ */
+@Entity
+@Table(
+    name = "archived_lists",
+    indexes = {
+        @Index(name = "archived_lists_owner", columnList = "owner_id, list_id"),
+        @Index(name = "archived_lists_archived", columnList = "date_time_archived")
+    })
+public class ArchivedToDoList {
+
+    @Id
+    @Column(name = "list_id", nullable = false)
+    private long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "desc")
+    private String description;
+
+    @Column(name = "date_time_made", columnDefinition = "TIMESTAMP")
+    private LocalDateTime timeCreated;
+
+    @Column(name = "date_time_deactivated", columnDefinition = "TIMESTAMP")
+    private LocalDateTime timeDeactivated;
+
+    @Column(name = "date_time_archived", nullable = false, columnDefinition = "TIMESTAMP")
+    private LocalDateTime timeArchived;
+
+    public ArchivedToDoList() {}
+
+    public long getId() {
+        return id;
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public LocalDateTime getTimeCreated() {
+        return timeCreated;
+    }
+
+    public LocalDateTime getTimeDeactivated() {
+        return timeDeactivated;
+    }
+
+    public LocalDateTime getTimeArchived() {
+        return timeArchived;
+    }
+}
@@ -0,0 +1,53 @@
+package com.chilborne.todoapi.persistance.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Number of a user's tasks completed on one day, see
+ * {@link com.chilborne.todoapi.persistance.stats.CompletionStatsTrigger}. Rows are only written by
+ * the trigger and the rebuild job, tasks still in the archive keep being counted.
+ */
+@Entity
+@Table(
+    name = "completion_days",
+    indexes = {
+        @Index(name = "completion_days_owner", columnList = "owner_id, completion_date", unique = true)
+    })
+public class CompletionDay {
+
+    // drawn by the trigger, shared with completion_times
+    @Id
+    @SequenceGenerator(name = "completion_stat_seq", sequenceName = "completion_stat_seq", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "completion_stat_seq")
+    @Column(name = "stat_id", nullable = false)
+    private long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "completion_date", nullable = false)
+    private LocalDate date;
+
+    @Column(name = "completions", nullable = false)
+    private long completions;
+
+    public CompletionDay() {}
+
+    public long getId() {
+        return id;
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public long getCompletions() {
+        return completions;
+    }
+}
@@ -0,0 +1,52 @@
+package com.chilborne.todoapi.persistance.model;
+
+import javax.persistence.*;
+import java.util.UUID;
+
+/**
+ * Number of a user's completed tasks whose time from creation to completion falls into one bucket,
+ * see {@link com.chilborne.todoapi.persistance.stats.CompletionStats#bucket}. Together a user's rows
+ * form a histogram of completion times which the median is read from.
+ */
+@Entity
+@Table(
+    name = "completion_times",
+    indexes = {
+        @Index(name = "completion_times_owner", columnList = "owner_id, bucket", unique = true)
+    })
+public class CompletionTime {
+
+    @Id
+    @SequenceGenerator(name = "completion_stat_seq", sequenceName = "completion_stat_seq", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "completion_stat_seq")
+    @Column(name = "stat_id", nullable = false)
+    private long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    // CompletionStats.UNTIMED for tasks missing either time
+    @Column(name = "bucket", nullable = false)
+    private int bucket;
+
+    @Column(name = "completions", nullable = false)
+    private long completions;
+
+    public CompletionTime() {}
+
+    public long getId() {
+        return id;
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public int getBucket() {
+        return bucket;
+    }
+
+    public long getCompletions() {
+        return completions;
+    }
+}
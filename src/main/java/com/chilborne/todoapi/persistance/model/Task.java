@@ -2,6 +2,8 @@ package com.chilborne.todoapi.persistance.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.DynamicUpdate;
 
@@ -11,11 +13,22 @@ import java.util.Objects;
 
 @Entity
 @DynamicUpdate
-@Table(name = "tasks")
+@Table(
+    name = "tasks",
+    indexes = {
+        @Index(name = "tasks_list_active", columnList = "list_id, active, task_id"),
+        @Index(name = "tasks_list_finished", columnList = "list_id, date_time_finished"),
+        @Index(name = "tasks_finished", columnList = "date_time_finished"),
+        @Index(name = "tasks_list_change", columnList = "list_id, change_seq")
+    })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "task")
 public class Task {
 
+    // sequence ids are allocated in blocks, which lets Hibernate batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_seq", allocationSize = 50)
     @Column(name = "task_id", unique = true, nullable = false)
     private long id;
 
@@ -42,6 +55,15 @@ public class Task {
     @Column(name = "active", columnDefinition = "boolean default true" , nullable = false)
     private boolean active = true;
 
+    // the task's etag, bulk statements increment it themselves
+    @Version
+    @Column(name = "version", columnDefinition = "BIGINT DEFAULT 0", nullable = false)
+    private long version;
+
+    // stamped by ChangeSequenceTrigger on every write, never written by Hibernate
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
+
     public Task() {}
 
     public Task(String name) {
@@ -116,6 +138,14 @@ public class Task {
         this.active = active;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
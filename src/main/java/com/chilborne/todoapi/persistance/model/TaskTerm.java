@@ -0,0 +1,62 @@
+package com.chilborne.todoapi.persistance.model;
+
+import javax.persistence.*;
+import java.util.UUID;
+
+/**
+ * One entry of the task search index: a term occurring in a task's name or description, see
+ * {@link com.chilborne.todoapi.persistance.search.TaskTermTrigger}. Rows are only written by the
+ * trigger, the owner is a plain column so a search never has to join tasks and lists.
+ */
+@Entity
+@Table(
+    name = "task_terms",
+    indexes = {
+        @Index(name = "task_terms_owner_term", columnList = "owner_id, term, task_id"),
+        @Index(name = "task_terms_task", columnList = "task_id")
+    })
+public class TaskTerm {
+
+    // drawn by the trigger, a sequence of its own rather than an identity column keeps the table
+    // restorable onto replicas
+    @Id
+    @SequenceGenerator(name = "task_term_seq", sequenceName = "task_term_seq", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_term_seq")
+    @Column(name = "term_id", nullable = false)
+    private long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "task_id", nullable = false)
+    private long taskId;
+
+    @Column(name = "term", nullable = false, length = 64)
+    private String term;
+
+    // higher for terms of the name than for terms of the description
+    @Column(name = "weight", nullable = false)
+    private int weight;
+
+    public TaskTerm() {}
+
+    public long getId() {
+        return id;
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public long getTaskId() {
+        return taskId;
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -4,6 +4,9 @@ import com.chilborne.todoapi.persistance.validation.OnPersist;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.DynamicUpdate;
 import javax.persistence.*;
@@ -11,17 +14,35 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Null;
 import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 @Entity
 @DynamicUpdate
-@Table(name = "lists")
+@Table(
+    name = "lists",
+    indexes = {
+        @Index(name = "lists_owner", columnList = "username, list_id"),
+        @Index(name = "lists_deactivated", columnList = "date_time_deactivated"),
+        @Index(name = "lists_owner_change", columnList = "username, change_seq")
+    })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "toDoList")
+@NamedEntityGraph(
+    name = ToDoList.WITH_TASKS_AND_USER,
+    attributeNodes = {@NamedAttributeNode("tasks"), @NamedAttributeNode("user")})
 public class ToDoList {
 
+    public static final String WITH_TASKS_AND_USER = "ToDoList.tasksAndUser";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "list_seq")
+    @SequenceGenerator(name = "list_seq", sequenceName = "list_seq", allocationSize = 50)
     @Column(name = "list_id", updatable = false, unique = true, nullable = false)
     private long id;
 
@@ -38,18 +59,55 @@ public class ToDoList {
     @Column(name = "date_time_made", updatable = false, columnDefinition = "TIMESTAMP")
     private LocalDateTime timeCreated;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, mappedBy = "toDoList", fetch = FetchType.EAGER)
+    // lazy by default - repository methods which need tasks ask for them with an entity graph,
+    // otherwise uninitialised collections are fetched in batches rather than one select per list
+    // keyed by task id so a single task can be found or removed without scanning the whole list
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, mappedBy = "toDoList", fetch = FetchType.LAZY)
+    @MapKey(name = "id")
+    @OrderBy("id")
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "toDoListTasks")
     @JsonManagedReference
-    private List<Task> tasks = new LinkedList<>();
+    private Map<Long, Task> tasks = new LinkedHashMap<>();
+
+    // tasks added before they had an id, under the placeholder key they have in tasks. They keep
+    // it until the list is loaded again, only lookups which miss tasks look through them
+    @Transient
+    private Map<Long, Task> unsavedTasks = new LinkedHashMap<>();
+
+    @Transient
+    private long placeholders;
 
     @JsonBackReference
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "username")
     private User user;
 
     @Column(name = "active", columnDefinition = "BOOLEAN DEFAULT TRUE", nullable = false)
     private boolean active = true;
 
+    // the list's etag, bulk statements on the list or its tasks increment it themselves
+    @Version
+    @Column(name = "version", columnDefinition = "BIGINT DEFAULT 0", nullable = false)
+    private long version;
+
+    // stamped by ChangeSequenceTrigger on every write, never written by Hibernate
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
+
+    // counts of the list's current tasks, set from its tasks when the list is first saved and from
+    // then on only moved by the bulk statements which add, complete, delete or archive tasks. Null
+    // until TaskCountInstaller has counted lists saved before the columns existed
+    @Column(name = "task_count", updatable = false)
+    private Integer taskCount;
+
+    @Column(name = "active_task_count", updatable = false)
+    private Integer activeTaskCount;
+
+    // when the list was last deactivated, the archive job moves lists which stayed inactive
+    @Column(name = "date_time_deactivated", columnDefinition = "TIMESTAMP")
+    private LocalDateTime timeDeactivated;
+
     public ToDoList() {}
 
     public ToDoList(String name) {
@@ -63,7 +121,7 @@ public class ToDoList {
 
     public ToDoList(String name, List<Task> tasks) {
         this(name);
-        this.tasks.addAll(tasks);
+        tasks.forEach(this::addTask);
     }
 
     public ToDoList(String name, String description, List<Task> tasks) {
@@ -71,13 +129,55 @@ public class ToDoList {
         this.description = description;
     }
 
+    @PrePersist
+    void countTasks() {
+        taskCount = tasks.size();
+        activeTaskCount = (int) tasks.values().stream().filter(Task::isActive).count();
+    }
+
     public void addTask(Task task) {
-        tasks.add(task);
+        if (task.getId() > 0) {
+            tasks.put(task.getId(), task);
+        } else {
+            long placeholder = -(++placeholders);
+            unsavedTasks.put(placeholder, task);
+            tasks.put(placeholder, task);
+        }
+    }
+
+    public Optional<Task> getTask(long taskId) {
+        Task task = tasks.get(taskId);
+        if (task == null) {
+            Long key = savedKey(taskId);
+            task = key == null ? null : unsavedTasks.get(key);
+        }
+        return Optional.ofNullable(task);
     }
 
     public boolean removeTask(long taskId) {
-        return this.tasks.removeIf(
-                task -> task.getId() == taskId);
+        if (tasks.remove(taskId) != null) {
+            return true;
+        }
+        Long key = savedKey(taskId);
+        if (key == null) {
+            return false;
+        }
+        tasks.remove(key);
+        unsavedTasks.remove(key);
+        return true;
+    }
+
+    // the placeholder key of an unsaved task which has since been given the id
+    private Long savedKey(long taskId) {
+        if (taskId <= 0) {
+            return null;
+        }
+        for (Map.Entry<Long, Task> unsaved : unsavedTasks.entrySet()) {
+            if (unsaved.getValue().getId() == taskId) {
+                return unsaved.getKey();
+            }
+        }
+        return null;
     }
 
     public long getId() {
@@ -115,17 +215,25 @@ public class ToDoList {
         this.timeCreated = timeCreated;
     }
 
-    public List<Task> getTasks() {
-        return tasks != null ? List.copyOf(tasks) : null;
+    public Collection<Task> getTasks() {
+        return Collections.unmodifiableCollection(tasks.values());
     }
 
-    public void setTasks(List<Task> tasks) {
+    public void setTasks(Collection<Task> tasks) {
         // Hibernate tracks collection to persist
         // therefore we must use the same collection instance throughout the life of a ToDoList
-        if (this.tasks != tasks) {
-            this.tasks.clear();
-            this.tasks.addAll(tasks);
-        }
+        List<Task> replacement = List.copyOf(tasks);
+        this.tasks.clear();
+        unsavedTasks.clear();
+        replacement.forEach(this::addTask);
+    }
+
+    public Integer getTaskCount() {
+        return taskCount;
+    }
+
+    public Integer getActiveTaskCount() {
+        return activeTaskCount;
     }
 
     public User getUser() {
@@ -141,9 +249,30 @@ public class ToDoList {
     }
 
     public void setActive(boolean active) {
+        if (!active && this.active) {
+            timeDeactivated = LocalDateTime.now();
+        } else if (active) {
+            timeDeactivated = null;
+        }
         this.active = active;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public LocalDateTime getTimeDeactivated() {
+        return timeDeactivated;
+    }
+
+    public void setTimeDeactivated(LocalDateTime timeDeactivated) {
+        this.timeDeactivated = timeDeactivated;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -176,7 +305,7 @@ public class ToDoList {
         return "ToDoList {" +
                 "name='" + name + '\'' +
                 ", dateCreated=" + timeCreated +
-                ", tasks=" + tasks +
+                ", tasks=" + tasks.values() +
                 ", active=" + active +
                 " }";
     }
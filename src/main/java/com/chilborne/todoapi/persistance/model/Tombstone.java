@@ -0,0 +1,71 @@
+package com.chilborne.todoapi.persistance.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Left behind when a list or task row is deleted or moved to the archive, see
+ * {@link com.chilborne.todoapi.persistance.sync.ChangeSequenceTrigger}. Rows are only written by
+ * the trigger, the owner is a plain column so tombstones outlive the list they belonged to.
+ */
+@Entity
+@Table(
+    name = "tombstones",
+    indexes = {@Index(name = "tombstones_owner", columnList = "owner_id, change_seq")})
+public class Tombstone {
+
+    @Id
+    @Column(name = "change_seq", nullable = false)
+    private long changeSeq;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    // list or task
+    @Column(name = "entity_type", nullable = false, length = 8)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private long entityId;
+
+    @Column(name = "list_id")
+    private Long listId;
+
+    @Column(name = "date_time_deleted", nullable = false, columnDefinition = "TIMESTAMP")
+    private LocalDateTime timeDeleted;
+
+    // the row still exists in the archive
+    @Column(name = "archived", nullable = false)
+    private boolean archived;
+
+    public Tombstone() {}
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public long getEntityId() {
+        return entityId;
+    }
+
+    public Long getListId() {
+        return listId;
+    }
+
+    public LocalDateTime getTimeDeleted() {
+        return timeDeleted;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+}
@@ -1,6 +1,10 @@
 package com.chilborne.todoapi.persistance.model;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,6 +16,9 @@ import java.util.UUID;
 @Table(
     name = "users",
     indexes = {@Index(name = "username", columnList = "username")})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
+@NaturalIdCache(region = "userNaturalId")
 public class User {
 
   @Id
@@ -19,6 +26,8 @@ public class User {
   @Column(name = "user_id", unique = true, insertable = false, nullable = false, updatable = false)
   private UUID userId;
 
+  // usernames can be changed, see UserService#changeUsername
+  @NaturalId(mutable = true)
   @Column(name = "username", unique = true, nullable = false)
   private String username;
 
@@ -28,6 +37,10 @@ public class User {
   @Column(name = "email")
   private String email;
 
+  @Version
+  @Column(name = "version", columnDefinition = "BIGINT DEFAULT 0", nullable = false)
+  private long version;
+
   @JsonManagedReference
   @OneToMany(mappedBy = "user", cascade = CascadeType.REMOVE, orphanRemoval = true)
   @Column(name = "to_do_lists")
@@ -85,6 +98,10 @@ public class User {
     this.email = email;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
   public List<ToDoList> getToDoLists() {
     return toDoLists != null ? List.copyOf(toDoLists) : null;
   }
@@ -0,0 +1,78 @@
+package com.chilborne.todoapi.persistance.replication;
+
+import org.h2.api.Trigger;
+import org.h2.util.StringUtils;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Row trigger installed on every replicated table of the primary. It appends the table and primary
+ * key of each changed row to the change log, the shipper later copies the current state of those
+ * rows to the replicas.
+ */
+public class ChangeLogTrigger implements Trigger {
+
+  static final String CHANGE_LOG = "CHANGE_LOG";
+
+  // triggers are persistent, they only record changes while a shipper is running in this JVM
+  static volatile boolean enabled;
+
+  private String tableName;
+  private String keyColumn;
+  private int keyIndex;
+
+  @Override
+  public void init(
+      Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+      throws SQLException {
+    this.tableName = tableName;
+    DatabaseMetaData metaData = conn.getMetaData();
+    try (ResultSet keys = metaData.getPrimaryKeys(null, schemaName, tableName)) {
+      if (!keys.next()) {
+        throw new SQLException("Table " + tableName + " has no primary key to replicate by");
+      }
+      keyColumn = keys.getString("COLUMN_NAME");
+    }
+    try (ResultSet columns = metaData.getColumns(null, schemaName, tableName, keyColumn)) {
+      columns.next();
+      keyIndex = columns.getInt("ORDINAL_POSITION") - 1;
+    }
+  }
+
+  @Override
+  public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+    if (!enabled) {
+      return;
+    }
+    Object key = (newRow != null ? newRow : oldRow)[keyIndex];
+    try (PreparedStatement insert =
+        conn.prepareStatement(
+            "INSERT INTO " + CHANGE_LOG + " (table_name, key_column, row_key) VALUES (?, ?, ?)",
+            Statement.RETURN_GENERATED_KEYS)) {
+      insert.setString(1, tableName);
+      insert.setString(2, keyColumn);
+      insert.setString(3, keyString(key));
+      insert.executeUpdate();
+      try (ResultSet seq = insert.getGeneratedKeys()) {
+        seq.next();
+        ReplicationPosition.recordWrite(seq.getLong(1));
+      }
+    }
+  }
+
+  // binary keys such as uuids are logged as hex, h2 converts them back when comparing
+  private static String keyString(Object key) {
+    return key instanceof byte[] ? StringUtils.convertBytesToHex((byte[]) key) : String.valueOf(key);
+  }
+
+  @Override
+  public void close() {}
+
+  @Override
+  public void remove() {}
+}
@@ -0,0 +1,97 @@
+package com.chilborne.todoapi.persistance.replication;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/** A replica database and how far it has caught up with the primary's change log. */
+class Replica {
+
+  private final String name;
+  private final DataSource dataSource;
+  // sequence numbers are handed out before commit, a missing one is either a transaction still in
+  // flight or one which rolled back. Each gap keeps the sessions which had a transaction open when
+  // it was found, once none of them still has that transaction open the gap can never be filled
+  private final NavigableMap<Long, Set<Integer>> gaps = new TreeMap<>();
+  private long applied;
+  private volatile boolean ready;
+  private volatile long safePosition;
+  private volatile long lagChanges;
+  private volatile double lagSeconds;
+
+  Replica(String name, DataSource dataSource) {
+    this.name = name;
+    this.dataSource = dataSource;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  DataSource getDataSource() {
+    return dataSource;
+  }
+
+  boolean isReady() {
+    return ready;
+  }
+
+  /** Every change up to and including this position has been applied. */
+  long getSafePosition() {
+    return safePosition;
+  }
+
+  long getApplied() {
+    return applied;
+  }
+
+  Set<Long> getGaps() {
+    return gaps.keySet();
+  }
+
+  long getLagChanges() {
+    return lagChanges;
+  }
+
+  double getLagSeconds() {
+    return lagSeconds;
+  }
+
+  synchronized void restoredAt(long position) {
+    gaps.clear();
+    applied = position;
+    safePosition = position;
+    ready = true;
+  }
+
+  /**
+   * Records the changes read from the change log up to {@code highest}.
+   *
+   * @param openBefore sessions with an open transaction before the change log was read, a
+   *     transaction which had ended by then is visible in what was read
+   * @param openAfter sessions with an open transaction after the change log was read, any
+   *     transaction holding a sequence number missing from what was read is among them or has
+   *     ended by the next read
+   */
+  synchronized void advance(
+      long highest, Set<Long> seen, Set<Integer> openBefore, Set<Integer> openAfter) {
+    gaps.keySet().removeAll(seen);
+    gaps.values().forEach(holders -> holders.retainAll(openBefore));
+    // every transaction which could have held these ended without their change showing up
+    gaps.values().removeIf(Set::isEmpty);
+    for (long seq = applied + 1; seq < highest; seq++) {
+      if (!seen.contains(seq)) {
+        gaps.put(seq, new HashSet<>(openAfter));
+      }
+    }
+    applied = Math.max(applied, highest);
+    safePosition = gaps.isEmpty() ? applied : gaps.firstKey() - 1;
+  }
+
+  void updateLag(long head, double seconds) {
+    lagChanges = Math.max(0, head - safePosition);
+    lagSeconds = seconds;
+  }
+}
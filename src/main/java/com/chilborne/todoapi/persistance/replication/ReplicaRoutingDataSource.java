@@ -0,0 +1,42 @@
+package com.chilborne.todoapi.persistance.replication;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to a replica which has caught up with everything the current thread
+ * depends on, see {@link ReplicationPosition}, and everything else to the primary.
+ *
+ * <p>The read-only flag is only known once the transaction has begun, so this has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  static final String PRIMARY = "primary";
+
+  private final ReplicaSet replicaSet;
+
+  public ReplicaRoutingDataSource(ReplicaSet replicaSet) {
+    this.replicaSet = replicaSet;
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, replicaSet.getPrimary());
+    replicaSet.getReplicas().forEach(replica -> targets.put(replica.getName(), replica.getDataSource()));
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(replicaSet.getPrimary());
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return PRIMARY;
+    }
+    return replicaSet
+        .pick(ReplicationPosition.required())
+        .map(Replica::getName)
+        .orElse(PRIMARY);
+  }
+}
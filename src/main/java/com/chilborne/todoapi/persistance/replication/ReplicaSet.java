@@ -0,0 +1,78 @@
+package com.chilborne.todoapi.persistance.replication;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.jetbrains.annotations.NotNull;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The primary and its replicas. Exports how far behind each replica is, both as the number of
+ * changes not yet applied and as the age of the oldest of them.
+ */
+public class ReplicaSet implements MeterBinder, Closeable {
+
+  private final DataSource primary;
+  private final List<Replica> replicas = new ArrayList<>();
+  private final AtomicInteger next = new AtomicInteger();
+
+  public ReplicaSet(DataSource primary, Map<String, DataSource> replicas) {
+    this.primary = primary;
+    replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  List<Replica> getReplicas() {
+    return replicas;
+  }
+
+  /** Picks a replica, round robin, which has applied every change up to {@code position}. */
+  Optional<Replica> pick(long position) {
+    int start = next.getAndIncrement() & Integer.MAX_VALUE;
+    for (int i = 0; i < replicas.size(); i++) {
+      Replica replica = replicas.get((start + i) % replicas.size());
+      if (replica.isReady() && replica.getSafePosition() >= position) {
+        return Optional.of(replica);
+      }
+    }
+    return Optional.empty();
+  }
+
+  @Override
+  public void bindTo(@NotNull MeterRegistry registry) {
+    for (Replica replica : replicas) {
+      Gauge.builder("replication.lag.changes", replica, Replica::getLagChanges)
+          .description("changes committed on the primary which the replica has not applied yet")
+          .tag("replica", replica.getName())
+          .register(registry);
+      Gauge.builder("replication.lag.seconds", replica, Replica::getLagSeconds)
+          .description("age of the oldest change the replica has not applied yet")
+          .tag("replica", replica.getName())
+          .baseUnit("seconds")
+          .register(registry);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Replica replica : replicas) {
+      if (replica.getDataSource() instanceof Closeable) {
+        ((Closeable) replica.getDataSource()).close();
+      }
+    }
+    if (primary instanceof Closeable) {
+      ((Closeable) primary).close();
+    }
+  }
+}
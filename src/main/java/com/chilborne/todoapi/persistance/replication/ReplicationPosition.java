@@ -0,0 +1,40 @@
+package com.chilborne.todoapi.persistance.replication;
+
+/**
+ * Change log positions the current thread depends on: the position a client last saw, sent back as
+ * a consistency token, and the position of the last change this thread wrote itself. A read is only
+ * sent to a replica which has caught up with both.
+ */
+public final class ReplicationPosition {
+
+  private static final ThreadLocal<Long> REQUIRED = ThreadLocal.withInitial(() -> 0L);
+  private static final ThreadLocal<Long> WRITTEN = ThreadLocal.withInitial(() -> 0L);
+
+  private ReplicationPosition() {}
+
+  public static void requireAtLeast(long position) {
+    REQUIRED.set(Math.max(REQUIRED.get(), position));
+  }
+
+  // no replica ever reaches this, for responses read in several transactions which have to agree
+  public static void requirePrimary() {
+    REQUIRED.set(Long.MAX_VALUE);
+  }
+
+  public static void recordWrite(long position) {
+    WRITTEN.set(Math.max(WRITTEN.get(), position));
+  }
+
+  public static long written() {
+    return WRITTEN.get();
+  }
+
+  public static long required() {
+    return Math.max(REQUIRED.get(), WRITTEN.get());
+  }
+
+  public static void clear() {
+    REQUIRED.remove();
+    WRITTEN.remove();
+  }
+}
@@ -0,0 +1,311 @@
+package com.chilborne.todoapi.persistance.replication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ships changes from the primary H2 database to its replicas.
+ *
+ * <p>Once the schema exists, a {@link ChangeLogTrigger} is installed on every table of the primary
+ * and each replica is restored from a {@code SCRIPT} of the primary. Startup runs before any
+ * request is served, so the snapshot matches the change log head exactly. From then on the rows
+ * named in the change log are copied from the primary to every replica in their current state,
+ * applying a change twice is harmless.
+ */
+public class ReplicationShipper implements SmartInitializingSingleton {
+
+  private final ReplicaSet replicaSet;
+  private final int batchSize;
+  private final Logger logger = LoggerFactory.getLogger(ReplicationShipper.class);
+  private List<String> tables = List.of();
+
+  public ReplicationShipper(ReplicaSet replicaSet, int batchSize) {
+    this.replicaSet = replicaSet;
+    this.batchSize = batchSize;
+  }
+
+  // runs once every singleton, including the entity manager factory which creates the schema,
+  // has been initialised
+  @Override
+  public void afterSingletonsInstantiated() {
+    try (Connection primary = replicaSet.getPrimary().getConnection()) {
+      installChangeLog(primary);
+      for (Replica replica : replicaSet.getReplicas()) {
+        restore(primary, replica);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not set up replication", e);
+    }
+  }
+
+  private void installChangeLog(Connection primary) throws SQLException {
+    try (Statement statement = primary.createStatement()) {
+      statement.execute(
+          "CREATE TABLE IF NOT EXISTS " + ChangeLogTrigger.CHANGE_LOG + " ("
+              + "seq BIGINT AUTO_INCREMENT PRIMARY KEY, "
+              + "table_name VARCHAR(255) NOT NULL, "
+              + "key_column VARCHAR(255) NOT NULL, "
+              + "row_key VARCHAR(255) NOT NULL, "
+              + "changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+      List<String> found = new ArrayList<>();
+      try (ResultSet names =
+          statement.executeQuery(
+              "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES "
+                  + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'TABLE' "
+                  + "AND TABLE_NAME <> '" + ChangeLogTrigger.CHANGE_LOG + "'")) {
+        while (names.next()) {
+          found.add(names.getString(1));
+        }
+      }
+      for (String table : found) {
+        statement.execute(
+            "CREATE TRIGGER IF NOT EXISTS " + quote(table + "_CHANGE_LOG")
+                + " AFTER INSERT, UPDATE, DELETE ON " + quote(table)
+                + " FOR EACH ROW CALL \"" + ChangeLogTrigger.class.getName() + "\"");
+      }
+      tables = found;
+    }
+    ChangeLogTrigger.enabled = true;
+    logger.info("Recording changes of tables {} for replication", tables);
+  }
+
+  private void restore(Connection primary, Replica replica) throws SQLException {
+    long head = head(primary);
+    List<String> script = new ArrayList<>();
+    try (Statement statement = primary.createStatement();
+        ResultSet lines =
+            statement.executeQuery(
+                "SCRIPT NOPASSWORDS NOSETTINGS TABLE "
+                    + tables.stream().map(this::quote).collect(Collectors.joining(", ")))) {
+      while (lines.next()) {
+        String sql = lines.getString(1);
+        // users and triggers belong to the primary, comments only hold row counts, and the only
+        // sequence belonging to a table is the one of the change log, which is not restored
+        if (!sql.startsWith("--")
+            && !sql.startsWith("CREATE USER")
+            && !sql.contains(" TRIGGER ")
+            && !sql.endsWith("BELONGS_TO_TABLE;")) {
+          script.add(sql);
+        }
+      }
+    }
+    try (Connection target = replica.getDataSource().getConnection();
+        Statement statement = target.createStatement()) {
+      statement.execute("DROP ALL OBJECTS");
+      for (String sql : script) {
+        statement.execute(sql);
+      }
+      // changes are applied in the order they were last made rather than the order of the
+      // foreign keys between them, replicas are never written to otherwise
+      statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+    }
+    replica.restoredAt(head);
+    logger.info("Restored replica {} at change log position {}", replica.getName(), head);
+  }
+
+  @Scheduled(
+      initialDelayString = "${todo.datasource.replication.interval-ms:200}",
+      fixedDelayString = "${todo.datasource.replication.interval-ms:200}")
+  public synchronized void shipChanges() {
+    try (Connection primary = replicaSet.getPrimary().getConnection()) {
+      long head = head(primary);
+      for (Replica replica : replicaSet.getReplicas()) {
+        if (!replica.isReady()) {
+          continue;
+        }
+        try {
+          ship(primary, replica);
+          replica.updateLag(head, lagSeconds(primary, replica.getSafePosition()));
+        } catch (SQLException e) {
+          logger.error("Shipping changes to replica {} failed", replica.getName(), e);
+        }
+      }
+      prune(primary);
+    } catch (SQLException e) {
+      logger.error("Reading the change log failed", e);
+    }
+  }
+
+  private void ship(Connection primary, Replica replica) throws SQLException {
+    String gaps =
+        replica.getGaps().isEmpty()
+            ? ""
+            : "OR seq IN ("
+                + replica.getGaps().stream().map(String::valueOf).collect(Collectors.joining(", "))
+                + ") ";
+    // only the latest change of a row matters, rows are applied in the order of that change
+    Map<String, ChangedRow> changed = new LinkedHashMap<>();
+    Set<Long> seen = new HashSet<>();
+    long highest = replica.getApplied();
+    Set<Integer> openBefore = openTransactions(primary);
+    try (PreparedStatement select =
+        primary.prepareStatement(
+            "SELECT seq, table_name, key_column, row_key FROM " + ChangeLogTrigger.CHANGE_LOG
+                + " WHERE seq > ? " + gaps + "ORDER BY seq LIMIT ?")) {
+      select.setLong(1, replica.getApplied());
+      select.setInt(2, batchSize);
+      try (ResultSet rows = select.executeQuery()) {
+        while (rows.next()) {
+          long seq = rows.getLong(1);
+          ChangedRow row = new ChangedRow(rows.getString(2), rows.getString(3), rows.getString(4));
+          seen.add(seq);
+          highest = Math.max(highest, seq);
+          changed.remove(row.id());
+          changed.put(row.id(), row);
+        }
+      }
+    }
+    Set<Integer> openAfter = openTransactions(primary);
+    if (seen.isEmpty()) {
+      replica.advance(highest, seen, openBefore, openAfter);
+      return;
+    }
+    try (Connection target = replica.getDataSource().getConnection()) {
+      target.setAutoCommit(false);
+      try {
+        for (ChangedRow row : changed.values()) {
+          copy(primary, target, row);
+        }
+        target.commit();
+      } catch (SQLException e) {
+        target.rollback();
+        throw e;
+      }
+    }
+    replica.advance(highest, seen, openBefore, openAfter);
+  }
+
+  // sessions of the primary in the middle of a transaction which has written something, only
+  // those can still commit a change log entry which has been given its sequence number
+  private Set<Integer> openTransactions(Connection primary) throws SQLException {
+    Set<Integer> open = new HashSet<>();
+    try (Statement statement = primary.createStatement();
+        ResultSet sessions =
+            statement.executeQuery(
+                "SELECT ID FROM INFORMATION_SCHEMA.SESSIONS "
+                    + "WHERE CONTAINS_UNCOMMITTED AND ID <> SESSION_ID()")) {
+      while (sessions.next()) {
+        open.add(sessions.getInt(1));
+      }
+    }
+    return open;
+  }
+
+  private void copy(Connection primary, Connection target, ChangedRow row) throws SQLException {
+    try (PreparedStatement select =
+        primary.prepareStatement(
+            "SELECT * FROM " + quote(row.table) + " WHERE " + quote(row.keyColumn) + " = ?")) {
+      select.setString(1, row.key);
+      try (ResultSet current = select.executeQuery()) {
+        if (!current.next()) {
+          try (PreparedStatement delete =
+              target.prepareStatement(
+                  "DELETE FROM " + quote(row.table) + " WHERE " + quote(row.keyColumn) + " = ?")) {
+            delete.setString(1, row.key);
+            delete.executeUpdate();
+          }
+          return;
+        }
+        ResultSetMetaData columns = current.getMetaData();
+        List<String> names = new ArrayList<>();
+        for (int i = 1; i <= columns.getColumnCount(); i++) {
+          names.add(quote(columns.getColumnName(i)));
+        }
+        try (PreparedStatement merge =
+            target.prepareStatement(
+                "MERGE INTO " + quote(row.table) + " (" + String.join(", ", names) + ") KEY ("
+                    + quote(row.keyColumn) + ") VALUES ("
+                    + names.stream().map(name -> "?").collect(Collectors.joining(", ")) + ")")) {
+          for (int i = 1; i <= names.size(); i++) {
+            merge.setObject(i, current.getObject(i));
+          }
+          merge.executeUpdate();
+        }
+      }
+    }
+  }
+
+  // entries every replica has applied are no longer needed, a replica's safe position stays below
+  // its oldest gap so entries which may still be committed into a gap are kept
+  private void prune(Connection primary) throws SQLException {
+    long applied = Long.MAX_VALUE;
+    for (Replica replica : replicaSet.getReplicas()) {
+      if (!replica.isReady()) {
+        return;
+      }
+      applied = Math.min(applied, replica.getSafePosition());
+    }
+    try (PreparedStatement delete =
+        primary.prepareStatement("DELETE FROM " + ChangeLogTrigger.CHANGE_LOG + " WHERE seq <= ?")) {
+      delete.setLong(1, applied);
+      delete.executeUpdate();
+    }
+  }
+
+  private long head(Connection primary) throws SQLException {
+    try (Statement statement = primary.createStatement();
+        ResultSet head =
+            statement.executeQuery(
+                "SELECT COALESCE(MAX(seq), 0) FROM " + ChangeLogTrigger.CHANGE_LOG)) {
+      head.next();
+      return head.getLong(1);
+    }
+  }
+
+  private double lagSeconds(Connection primary, long position) throws SQLException {
+    try (PreparedStatement select =
+        primary.prepareStatement(
+            "SELECT MIN(changed_at) FROM " + ChangeLogTrigger.CHANGE_LOG + " WHERE seq > ?")) {
+      select.setLong(1, position);
+      try (ResultSet oldest = select.executeQuery()) {
+        oldest.next();
+        Timestamp changedAt = oldest.getTimestamp(1);
+        if (changedAt == null) {
+          return 0;
+        }
+        Duration lag = Duration.between(changedAt.toLocalDateTime(), LocalDateTime.now());
+        return Math.max(0, lag.toMillis() / 1000.0);
+      }
+    }
+  }
+
+  private String quote(String identifier) {
+    return "\"" + identifier.replace("\"", "\"\"") + "\"";
+  }
+
+  private static class ChangedRow {
+
+    private final String table;
+    private final String keyColumn;
+    private final String key;
+
+    ChangedRow(String table, String keyColumn, String key) {
+      this.table = table;
+      this.keyColumn = keyColumn;
+      this.key = key;
+    }
+
+    String id() {
+      return table + '/' + key;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.model.ArchivedTask;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface ArchivedTaskRepository extends Repository<ArchivedTask, Long> {
+
+  // rows are copied and removed with bulk statements, nothing is loaded into the session
+  String COPY_TASKS =
+      "INSERT INTO ArchivedTask (id, listId, ownerId, name, description, "
+          + "timeCreated, timeCompleted, active, timeArchived) "
+          + "SELECT t.id, l.id, l.user.userId, t.name, t.description, "
+          + "t.timeCreated, t.timeCompleted, t.active, :archivedAt "
+          + "FROM Task t JOIN t.toDoList l ";
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(COPY_TASKS + "WHERE t.timeCompleted < :finishedBefore AND t.active = false")
+  int copyTasksFinishedBefore(
+      @Param("finishedBefore") LocalDateTime finishedBefore,
+      @Param("archivedAt") LocalDateTime archivedAt);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      COPY_TASKS
+          + "WHERE l.id IN (SELECT a.id FROM ArchivedToDoList a WHERE a.timeArchived = :archivedAt)")
+  int copyTasksOfListsArchivedAt(@Param("archivedAt") LocalDateTime archivedAt);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "DELETE FROM Task t WHERE t.id IN "
+          + "(SELECT a.id FROM ArchivedTask a WHERE a.timeArchived = :archivedAt)")
+  int deleteTasksArchivedAt(@Param("archivedAt") LocalDateTime archivedAt);
+
+  // a list embeds its tasks, so lists which lose tasks to the archive move to a new version, only
+  // completed tasks are archived so their active task counts stay as they are
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE ToDoList l SET l.version = l.version + 1, l.taskCount = l.taskCount - "
+          + "(SELECT COUNT(a) FROM ArchivedTask a WHERE a.listId = l.id AND a.timeArchived = :archivedAt) "
+          + "WHERE l.id IN "
+          + "(SELECT a.listId FROM ArchivedTask a WHERE a.timeArchived = :archivedAt)")
+  int incrementListVersionsArchivedAt(@Param("archivedAt") LocalDateTime archivedAt);
+
+  String TASK_DTO =
+      "SELECT new com.chilborne.todoapi.persistance.dto.TaskDto("
+          + "a.id, a.name, a.description, a.listId, a.timeCreated, a.timeCompleted, a.active) "
+          + "FROM ArchivedTask a ";
+
+  // callers check that the lists belong to the user
+  @Query(TASK_DTO + "WHERE a.listId IN :listIds ORDER BY a.id")
+  List<TaskDto> findDtosByListIds(@Param("listIds") Collection<Long> listIds);
+
+  // in list order, see TaskRepository.streamDtosByUsername
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = ToDoListRepository.STREAM_FETCH_SIZE))
+  @Query(
+      TASK_DTO
+          + "WHERE a.ownerId IN (SELECT u.userId FROM User u WHERE u.username = :username) "
+          + "ORDER BY a.listId, a.id")
+  Stream<TaskDto> streamDtosByUsername(@Param("username") String username);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "DELETE FROM ArchivedTask a WHERE a.listId = :listId "
+          + "AND a.ownerId IN (SELECT u.userId FROM User u WHERE u.username = :username)")
+  int deleteByListIdAndUsername(@Param("listId") long listId, @Param("username") String username);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "DELETE FROM ArchivedTask a "
+          + "WHERE a.ownerId IN (SELECT u.userId FROM User u WHERE u.username = :username)")
+  int deleteByUsername(@Param("username") String username);
+}
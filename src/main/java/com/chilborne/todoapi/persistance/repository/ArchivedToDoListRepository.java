@@ -0,0 +1,94 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.model.ArchivedToDoList;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface ArchivedToDoListRepository extends Repository<ArchivedToDoList, Long> {
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "INSERT INTO ArchivedToDoList (id, ownerId, name, description, "
+          + "timeCreated, timeDeactivated, timeArchived) "
+          + "SELECT l.id, l.user.userId, l.name, l.description, "
+          + "l.timeCreated, l.timeDeactivated, :archivedAt "
+          + "FROM ToDoList l WHERE l.timeDeactivated < :deactivatedBefore AND l.active = false")
+  int copyListsDeactivatedBefore(
+      @Param("deactivatedBefore") LocalDateTime deactivatedBefore,
+      @Param("archivedAt") LocalDateTime archivedAt);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "DELETE FROM ToDoList l WHERE l.id IN "
+          + "(SELECT a.id FROM ArchivedToDoList a WHERE a.timeArchived = :archivedAt)")
+  int deleteListsArchivedAt(@Param("archivedAt") LocalDateTime archivedAt);
+
+  String LIST_DTO =
+      "SELECT new com.chilborne.todoapi.persistance.dto.ToDoListDto("
+          + "a.id, a.name, a.description, u.username, a.timeCreated, false) "
+          + "FROM ArchivedToDoList a, User u "
+          + "WHERE a.ownerId = u.userId AND u.username = :username ";
+
+  @Query(LIST_DTO + "AND a.id = :id")
+  Optional<ToDoListDto> findDtoByIdAndUsername(
+      @Param("id") long id, @Param("username") String username);
+
+  @Query(LIST_DTO + "ORDER BY a.id ASC")
+  List<ToDoListDto> findDtosByUsername(@Param("username") String username);
+
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = ToDoListRepository.STREAM_FETCH_SIZE))
+  @Query(LIST_DTO + "ORDER BY a.id ASC")
+  Stream<ToDoListDto> streamDtosByUsername(@Param("username") String username);
+
+  @Query(
+      "SELECT u.version AS ownerVersion, COUNT(a) AS count, MAX(a.timeArchived) AS lastArchived "
+          + "FROM User u LEFT JOIN ArchivedToDoList a ON a.ownerId = u.userId "
+          + "WHERE u.username = :username GROUP BY u.version")
+  Optional<ArchiveSummary> summarizeByUsername(@Param("username") String username);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "DELETE FROM ArchivedToDoList a WHERE a.id = :id "
+          + "AND a.ownerId IN (SELECT u.userId FROM User u WHERE u.username = :username)")
+  int deleteByIdAndUsername(@Param("id") long id, @Param("username") String username);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "DELETE FROM ArchivedToDoList a "
+          + "WHERE a.ownerId IN (SELECT u.userId FROM User u WHERE u.username = :username)")
+  int deleteByUsername(@Param("username") String username);
+
+  /**
+   * Version of a user's archive. Archived lists never change, each archive run stamps a later
+   * time and archived lists show their owner's username, so the summary changes with any of them.
+   */
+  interface ArchiveSummary {
+
+    long getOwnerVersion();
+
+    long getCount();
+
+    LocalDateTime getLastArchived();
+
+    default String asVersion() {
+      LocalDateTime last = getLastArchived();
+      long lastMicros =
+          last != null ? last.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + last.getNano() / 1_000 : 0;
+      return getOwnerVersion() + "." + getCount() + "." + lastMicros;
+    }
+  }
+}
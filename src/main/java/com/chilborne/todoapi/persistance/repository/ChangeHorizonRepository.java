@@ -0,0 +1,10 @@
+package com.chilborne.todoapi.persistance.repository;
+
+public interface ChangeHorizonRepository {
+
+  /**
+   * Highest change sequence number below which every change to the database of the current
+   * transaction has been committed or rolled back.
+   */
+  long findChangeHorizon();
+}
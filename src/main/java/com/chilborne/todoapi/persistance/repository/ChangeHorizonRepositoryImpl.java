@@ -0,0 +1,22 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.sync.ChangeSequence;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+class ChangeHorizonRepositoryImpl implements ChangeHorizonRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // asked on the connection of the transaction, so it is the horizon of the database which the
+    // changes are read from
+    @Override
+    public long findChangeHorizon() {
+        return entityManager
+                .unwrap(Session.class)
+                .doReturningWork(conn -> ChangeSequence.of(conn).horizon(conn));
+    }
+}
@@ -0,0 +1,42 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.CompletionDayDto;
+import com.chilborne.todoapi.persistance.model.CompletionTime;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// the rollups are written by CompletionStatsTrigger, this only reads them back
+public interface CompletionStatsRepository extends Repository<CompletionTime, Long> {
+
+  String OWNER = "IN (SELECT u.userId FROM User u WHERE u.username = :username) ";
+
+  // rows whose tasks have all been deleted stay behind with no completions, they are left out
+  // along with days which never had any
+  @Query(
+      "SELECT new com.chilborne.todoapi.persistance.dto.CompletionDayDto(d.date, d.completions) "
+          + "FROM CompletionDay d WHERE d.ownerId " + OWNER
+          + "AND d.completions > 0 AND d.date >= :from ORDER BY d.date")
+  List<CompletionDayDto> findDaysByUsername(
+      @Param("username") String username, @Param("from") LocalDate from);
+
+  @Query(
+      "SELECT t.bucket AS bucket, t.completions AS completions "
+          + "FROM CompletionTime t WHERE t.ownerId " + OWNER + "AND t.completions > 0")
+  List<BucketCompletions> findTimesByUsername(@Param("username") String username);
+
+  // read from the counts kept on each list rather than from the tasks
+  @Query(
+      "SELECT COALESCE(SUM(l.activeTaskCount), 0) FROM ToDoList l WHERE l.user.username = :username")
+  long countActiveTasksByUsername(@Param("username") String username);
+
+  interface BucketCompletions {
+
+    int getBucket();
+
+    long getCompletions();
+  }
+}
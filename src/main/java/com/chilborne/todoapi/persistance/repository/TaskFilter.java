@@ -0,0 +1,146 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Which of a list's tasks to read, and in which order. Every condition left null is not applied,
+ * ranges include their start and exclude their end.
+ */
+public class TaskFilter {
+
+  public enum Sort {
+    TASK_ID("id"),
+    NAME("name"),
+    DATE_TIME_MADE("timeCreated"),
+    DATE_TIME_FINISHED("timeCompleted");
+
+    private final String attribute;
+
+    Sort(String attribute) {
+      this.attribute = attribute;
+    }
+
+    String getAttribute() {
+      return attribute;
+    }
+
+    /** Parses the snake_case name the api uses, such as date_time_made. */
+    public static Optional<Sort> fromParameter(String parameter) {
+      return Arrays.stream(values())
+          .filter(sort -> sort.name().equals(parameter.toUpperCase(Locale.ROOT)))
+          .findFirst();
+    }
+  }
+
+  private Boolean active;
+  private LocalDateTime createdFrom;
+  private LocalDateTime createdTo;
+  private LocalDateTime completedFrom;
+  private LocalDateTime completedTo;
+  private String namePrefix;
+  private Sort sort = Sort.TASK_ID;
+  private boolean descending;
+
+  public TaskFilter() {}
+
+  /** True when the filter returns every task in the default order. */
+  public boolean isUnfiltered() {
+    return active == null
+        && createdFrom == null
+        && createdTo == null
+        && completedFrom == null
+        && completedTo == null
+        && (namePrefix == null || namePrefix.isEmpty())
+        && sort == Sort.TASK_ID
+        && !descending;
+  }
+
+  public Boolean getActive() {
+    return active;
+  }
+
+  public TaskFilter setActive(Boolean active) {
+    this.active = active;
+    return this;
+  }
+
+  public LocalDateTime getCreatedFrom() {
+    return createdFrom;
+  }
+
+  public TaskFilter setCreatedFrom(LocalDateTime createdFrom) {
+    this.createdFrom = createdFrom;
+    return this;
+  }
+
+  public LocalDateTime getCreatedTo() {
+    return createdTo;
+  }
+
+  public TaskFilter setCreatedTo(LocalDateTime createdTo) {
+    this.createdTo = createdTo;
+    return this;
+  }
+
+  public LocalDateTime getCompletedFrom() {
+    return completedFrom;
+  }
+
+  public TaskFilter setCompletedFrom(LocalDateTime completedFrom) {
+    this.completedFrom = completedFrom;
+    return this;
+  }
+
+  public LocalDateTime getCompletedTo() {
+    return completedTo;
+  }
+
+  public TaskFilter setCompletedTo(LocalDateTime completedTo) {
+    this.completedTo = completedTo;
+    return this;
+  }
+
+  public String getNamePrefix() {
+    return namePrefix;
+  }
+
+  public TaskFilter setNamePrefix(String namePrefix) {
+    this.namePrefix = namePrefix;
+    return this;
+  }
+
+  public Sort getSort() {
+    return sort;
+  }
+
+  public TaskFilter setSort(Sort sort) {
+    this.sort = sort;
+    return this;
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  public TaskFilter setDescending(boolean descending) {
+    this.descending = descending;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "TaskFilter{" +
+        "active=" + active +
+        ", createdFrom=" + createdFrom +
+        ", createdTo=" + createdTo +
+        ", completedFrom=" + completedFrom +
+        ", completedTo=" + completedTo +
+        ", namePrefix='" + namePrefix + '\'' +
+        ", sort=" + sort +
+        ", descending=" + descending +
+        '}';
+  }
+}
@@ -0,0 +1,11 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+
+import java.util.List;
+
+public interface TaskFilterRepository {
+
+  /** Returns the tasks of a list matching the filter, in the filter's order. */
+  List<TaskDto> findDtosByListId(long listId, TaskFilter filter);
+}
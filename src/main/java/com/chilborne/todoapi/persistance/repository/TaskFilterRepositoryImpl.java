@@ -0,0 +1,87 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.model.Task;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+class TaskFilterRepositoryImpl implements TaskFilterRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // builds the same projection as TaskRepository.TASK_DTO, with only the conditions the filter
+    // sets, so h2 still finds the list's tasks through its list_id indexes
+    @Override
+    public List<TaskDto> findDtosByListId(long listId, TaskFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TaskDto> query = cb.createQuery(TaskDto.class);
+        Root<Task> task = query.from(Task.class);
+        Path<LocalDateTime> created = task.get("timeCreated");
+        Path<LocalDateTime> completed = task.get("timeCompleted");
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(task.get("toDoList").get("id"), listId));
+        if (filter.getActive() != null) {
+            where.add(cb.equal(task.get("active"), filter.getActive()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            where.add(cb.greaterThanOrEqualTo(created, filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            where.add(cb.lessThan(created, filter.getCreatedTo()));
+        }
+        if (filter.getCompletedFrom() != null) {
+            where.add(cb.greaterThanOrEqualTo(completed, filter.getCompletedFrom()));
+        }
+        if (filter.getCompletedTo() != null) {
+            where.add(cb.lessThan(completed, filter.getCompletedTo()));
+        }
+        if (filter.getNamePrefix() != null && !filter.getNamePrefix().isEmpty()) {
+            where.add(
+                cb.like(
+                    cb.lower(task.get("name")),
+                    escapeLike(filter.getNamePrefix().toLowerCase(Locale.ROOT)) + "%",
+                    '\\'));
+        }
+
+        Expression<?> sortBy = task.get(filter.getSort().getAttribute());
+        List<Order> order = new ArrayList<>();
+        order.add(filter.isDescending() ? cb.desc(sortBy) : cb.asc(sortBy));
+        // keeps tasks with equal names or times in a stable order
+        if (filter.getSort() != TaskFilter.Sort.TASK_ID) {
+            order.add(cb.asc(task.get("id")));
+        }
+
+        query
+            .select(
+                cb.construct(
+                    TaskDto.class,
+                    task.get("id"),
+                    task.get("name"),
+                    task.get("description"),
+                    task.get("toDoList").get("id"),
+                    created,
+                    completed,
+                    task.get("active")))
+            .where(where.toArray(new Predicate[0]))
+            .orderBy(order);
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
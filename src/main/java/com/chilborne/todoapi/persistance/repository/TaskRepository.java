@@ -1,11 +1,202 @@
 package com.chilborne.todoapi.persistance.repository;
 
+import com.chilborne.todoapi.persistance.dto.TaskDto;
 import com.chilborne.todoapi.persistance.model.Task;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
-public interface TaskRepository extends CrudRepository<Task, Long> {
+public interface TaskRepository
+    extends CrudRepository<Task, Long>, TaskSearchRepository, TaskFilterRepository {
 
+  // owner is needed for every access check
+  @EntityGraph(attributePaths = {"toDoList", "toDoList.user"})
   Optional<Task> findById(long id);
+
+  @EntityGraph(attributePaths = {"toDoList", "toDoList.user"})
+  Optional<Task> findByIdAndToDoListUserUsername(long id, String username);
+
+  String TASK_DTO =
+      "SELECT new com.chilborne.todoapi.persistance.dto.TaskDto("
+          + "t.id, t.name, t.description, t.toDoList.id, t.timeCreated, t.timeCompleted, t.active) "
+          + "FROM Task t ";
+
+  @Query(TASK_DTO + "WHERE t.id = :id AND t.toDoList.user.username = :username")
+  Optional<TaskDto> findDtoByIdAndUsername(@Param("id") long id, @Param("username") String username);
+
+  @Query(TASK_DTO + "WHERE t.toDoList.id IN :listIds ORDER BY t.id")
+  List<TaskDto> findDtosByListIds(@Param("listIds") Collection<Long> listIds);
+
+  @Query(TASK_DTO + "WHERE t.id IN :ids")
+  List<TaskDto> findDtosByIds(@Param("ids") Collection<Long> ids);
+
+  @Query(TASK_DTO + "WHERE t.toDoList.user.username = :username ORDER BY t.id")
+  List<TaskDto> findDtosByUsername(@Param("username") String username);
+
+  // in list order, so an export can write each list's tasks straight after the list
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = ToDoListRepository.STREAM_FETCH_SIZE))
+  @Query(TASK_DTO + "WHERE t.toDoList.user.username = :username ORDER BY t.toDoList.id, t.id")
+  Stream<TaskDto> streamDtosByUsername(@Param("username") String username);
+
+  // sync reads only see rows whose change sequence number lies in (since, until], tasks are
+  // reached through their lists so h2 can range scan tasks_list_change per list
+  String CHANGED_BETWEEN =
+      "JOIN t.toDoList l WHERE l.user.userId IN "
+          + "(SELECT u.userId FROM User u WHERE u.username = :username) "
+          + "AND t.changeSeq > :since AND t.changeSeq <= :until ";
+
+  @Query("SELECT t.changeSeq FROM Task t " + CHANGED_BETWEEN + "ORDER BY t.changeSeq")
+  List<Long> findChangeSeqsByUsername(
+      @Param("username") String username,
+      @Param("since") long since,
+      @Param("until") long until,
+      Pageable pageable);
+
+  @Query(TASK_DTO + CHANGED_BETWEEN + "ORDER BY t.changeSeq")
+  List<TaskDto> findDtosChangedBetween(
+      @Param("username") String username, @Param("since") long since, @Param("until") long until);
+
+  // bulk statements bypass @Version, so they increment the version themselves, see also
+  // incrementListVersionsOfTasks. A null expectedVersion updates whatever version the task is at
+  String AT_VERSION = "(:expectedVersion IS NULL OR t.version = :expectedVersion)";
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE Task t SET t.active = false, t.timeCompleted = :completedAt, "
+          + "t.version = t.version + 1 "
+          + "WHERE t.id = :id AND t.active = true AND " + AT_VERSION + " "
+          + "AND t.toDoList.id IN (SELECT l.id FROM ToDoList l WHERE l.user.username = :username)")
+  int completeActiveTask(
+      @Param("id") long id,
+      @Param("username") String username,
+      @Param("completedAt") LocalDateTime completedAt,
+      @Param("expectedVersion") Long expectedVersion);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE Task t SET t.active = false, t.timeCompleted = :completedAt, "
+          + "t.version = t.version + 1 "
+          + "WHERE t.id IN :ids AND t.active = true "
+          + "AND t.toDoList.id IN (SELECT l.id FROM ToDoList l WHERE l.user.username = :username)")
+  int completeActiveTasks(
+      @Param("ids") Collection<Long> ids,
+      @Param("username") String username,
+      @Param("completedAt") LocalDateTime completedAt);
+
+  // the rows stay locked until the transaction ends, so a bulk completion claims exactly these and
+  // one running at the same time waits and then finds them completed
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query(
+      "SELECT t.id FROM Task t WHERE t.id IN :ids AND t.active = true "
+          + "AND t.toDoList.id IN (SELECT l.id FROM ToDoList l WHERE l.user.username = :username) "
+          + "ORDER BY t.id")
+  List<Long> lockActiveIds(
+      @Param("ids") Collection<Long> ids, @Param("username") String username);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query(
+      "SELECT t.id FROM Task t "
+          + "WHERE t.toDoList.id = :listId AND t.active = true AND t.timeCreated < :createdBefore "
+          + "AND t.toDoList.id IN (SELECT l.id FROM ToDoList l WHERE l.user.username = :username) "
+          + "ORDER BY t.id")
+  List<Long> lockActiveIdsInList(
+      @Param("listId") long listId,
+      @Param("username") String username,
+      @Param("createdBefore") LocalDateTime createdBefore);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "DELETE FROM Task t WHERE t.id = :taskId AND t.toDoList.id = :listId "
+          + "AND t.toDoList.id IN (SELECT l.id FROM ToDoList l WHERE l.user.username = :username)")
+  int deleteByIdAndListIdAndUsername(
+      @Param("taskId") long taskId,
+      @Param("listId") long listId,
+      @Param("username") String username);
+
+  // only deletes the task while it is active, so the caller knows which counts the delete moved
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "DELETE FROM Task t WHERE t.id = :taskId AND t.toDoList.id = :listId AND t.active = true "
+          + "AND t.toDoList.id IN (SELECT l.id FROM ToDoList l WHERE l.user.username = :username)")
+  int deleteActiveByIdAndListIdAndUsername(
+      @Param("taskId") long taskId,
+      @Param("listId") long listId,
+      @Param("username") String username);
+
+  // a derived count joins lists and filters on the joined id, which scans tasks
+  @Query("SELECT COUNT(t) FROM Task t WHERE t.toDoList.id = :listId")
+  long countByToDoListId(@Param("listId") long listId);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "DELETE FROM Task t WHERE t.toDoList.id IN "
+          + "(SELECT l.id FROM ToDoList l WHERE l.id = :listId AND l.user.username = :username)")
+  int deleteByListIdAndUsername(@Param("listId") long listId, @Param("username") String username);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE Task t SET t.name = :name, t.description = :description, "
+          + "t.version = t.version + 1 "
+          + "WHERE t.id = :id AND " + AT_VERSION + " "
+          + "AND t.toDoList.id IN (SELECT l.id FROM ToDoList l WHERE l.user.username = :username)")
+  int updateNameAndDescription(
+      @Param("id") long id,
+      @Param("username") String username,
+      @Param("name") String name,
+      @Param("description") String description,
+      @Param("expectedVersion") Long expectedVersion);
+
+  // a list embeds its tasks, so changing tasks in bulk moves their lists' versions on as well
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE ToDoList l SET l.version = l.version + 1 "
+          + "WHERE l.id IN (SELECT t.toDoList.id FROM Task t WHERE t.id IN :ids)")
+  int incrementListVersionsOfTasks(@Param("ids") Collection<Long> ids);
+
+  // incrementListVersionsOfTasks for tasks which have just been completed, which also leaves their
+  // lists with fewer active tasks
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE ToDoList l SET l.version = l.version + 1, l.activeTaskCount = l.activeTaskCount - "
+          + "(SELECT COUNT(t) FROM Task t WHERE t.toDoList.id = l.id AND t.id IN :ids) "
+          + "WHERE l.id IN (SELECT t.toDoList.id FROM Task t WHERE t.id IN :ids)")
+  int countCompletionsInListsOfTasks(@Param("ids") Collection<Long> ids);
+
+  @Query(
+      "SELECT t.version FROM Task t WHERE t.id = :id "
+          + "AND t.toDoList.id IN (SELECT l.id FROM ToDoList l WHERE l.user.username = :username)")
+  Optional<Long> findVersionByIdAndUsername(
+      @Param("id") long id, @Param("username") String username);
+
+  @Query(
+      "SELECT t.id AS id, t.toDoList.id AS listId, t.timeCompleted AS timeCompleted FROM Task t "
+          + "WHERE t.id IN :ids "
+          + "AND t.toDoList.id IN (SELECT l.id FROM ToDoList l WHERE l.user.username = :username)")
+  List<CompletionState> findCompletionStates(
+      @Param("ids") Collection<Long> ids, @Param("username") String username);
+
+  interface CompletionState {
+
+    long getId();
+
+    long getListId();
+
+    LocalDateTime getTimeCompleted();
+  }
 }
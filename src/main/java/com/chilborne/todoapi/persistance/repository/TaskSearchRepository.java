@@ -0,0 +1,12 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import java.util.List;
+
+public interface TaskSearchRepository {
+
+  /**
+   * Returns the ids of the user's tasks containing a term starting with each of the given terms,
+   * best match first.
+   */
+  List<Long> searchIds(String username, List<String> terms, int offset, int limit);
+}
@@ -0,0 +1,47 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+class TaskSearchRepositoryImpl implements TaskSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // every term is looked up by its own range scan of task_terms_owner_term, a task has to match
+    // all of them and is ranked by the summed weight of the terms it matched
+    @Override
+    public List<Long> searchIds(String username, List<String> terms, int offset, int limit) {
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder sql = new StringBuilder("SELECT m.task_id FROM (");
+        for (int i = 0; i < terms.size(); i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT w.task_id, ").append(i).append(" AS matched, w.weight FROM task_terms w ")
+                .append("WHERE w.owner_id = (SELECT u.user_id FROM users u WHERE u.username = :username) ")
+                .append("AND w.term LIKE :term").append(i);
+        }
+        sql.append(") m GROUP BY m.task_id HAVING COUNT(DISTINCT m.matched) = :terms ")
+            .append("ORDER BY SUM(m.weight) DESC, m.task_id DESC");
+        Query query = entityManager.createNativeQuery(sql.toString());
+        query.setParameter("username", username);
+        query.setParameter("terms", terms.size());
+        for (int i = 0; i < terms.size(); i++) {
+            // terms hold letters and digits only, so they never contain a wildcard
+            query.setParameter("term" + i, terms.get(i) + "%");
+        }
+        query.setFirstResult(offset);
+        query.setMaxResults(limit);
+        List<Long> ids = new ArrayList<>();
+        for (Object id : query.getResultList()) {
+            ids.add(((Number) id).longValue());
+        }
+        return ids;
+    }
+}
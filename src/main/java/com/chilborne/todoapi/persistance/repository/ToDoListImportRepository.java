@@ -0,0 +1,14 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.model.ToDoList;
+
+import java.util.List;
+
+public interface ToDoListImportRepository {
+
+  /**
+   * Inserts new lists with their tasks, then empties the persistence context so a long import
+   * holds no more than one chunk of entities at a time. Must be called inside a transaction.
+   */
+  void insertAndDetach(List<ToDoList> lists);
+}
@@ -0,0 +1,22 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.model.ToDoList;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+class ToDoListImportRepositoryImpl implements ToDoListImportRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // tasks are persisted through the list's cascade, and the inserts go out in jdbc batches as
+    // ids come from pooled sequences
+    @Override
+    public void insertAndDetach(List<ToDoList> lists) {
+        lists.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -1,25 +1,181 @@
 package com.chilborne.todoapi.persistance.repository;
 
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
 import com.chilborne.todoapi.persistance.model.ToDoList;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
-public interface ToDoListRepository extends CrudRepository<ToDoList, Long> {
+public interface ToDoListRepository
+    extends JpaRepository<ToDoList, Long>, ToDoListImportRepository {
 
   void deleteById(long id);
 
   @NotNull
   List<ToDoList> findAll();
 
+  @EntityGraph(ToDoList.WITH_TASKS_AND_USER)
   Optional<ToDoList> findByIdAndUserUsername(
       long id, String username);
 
-  List<ToDoList> findByUserUsername(String username);
+
+  // read-only projections below select straight into dtos, tasks are fetched
+  // separately with TaskRepository.findDtosByListIds
+  String LIST_DTO =
+      "SELECT new com.chilborne.todoapi.persistance.dto.ToDoListDto("
+          + "l.id, l.name, l.description, u.username, l.timeCreated, l.active, "
+          + "l.taskCount, l.activeTaskCount) "
+          + "FROM ToDoList l JOIN l.user u ";
+
+  @Query(LIST_DTO + "WHERE l.id = :id AND u.username = :username")
+  Optional<ToDoListDto> findDtoByIdAndUserUsername(
+      @Param("id") long id, @Param("username") String username);
+
+  @Query(LIST_DTO + "WHERE u.username = :username ORDER BY l.id ASC")
+  List<ToDoListDto> findDtosByUserUsername(@Param("username") String username);
+
+  // rows fetched at a time by the streaming reads of an export, which must be consumed inside a
+  // transaction and hold only the current row
+  String STREAM_FETCH_SIZE = "500";
+
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+  @Query(LIST_DTO + "WHERE u.username = :username ORDER BY l.id ASC")
+  Stream<ToDoListDto> streamDtosByUsername(@Param("username") String username);
+
+  @Query(LIST_DTO + "WHERE u.username = :username AND l.id > :after ORDER BY l.id ASC")
+  List<ToDoListDto> findDtoPageByUserUsername(
+      @Param("username") String username, @Param("after") long after, Pageable pageable);
 
   boolean existsByIdAndUserUsername(long id, String username);
+
+  // bulk statements cannot join, so the owner is matched through the user's id, this
+  // also lets h2 drive the lookup from the lists_owner index
+  String OWNED_BY =
+      "l.user.userId IN (SELECT u.userId FROM User u WHERE u.username = :username)";
+
+  @EntityGraph(ToDoList.WITH_TASKS_AND_USER)
+  @Query("SELECT DISTINCT l FROM ToDoList l WHERE " + OWNED_BY)
+  List<ToDoList> findByUserUsername(@Param("username") String username);
+
+  // bulk statements bypass @Version, so they increment the version themselves. A null
+  // expectedVersion updates whatever version the list is at, otherwise a list at another version
+  // is left alone just like a list of another user
+  String AT_VERSION = "(:expectedVersion IS NULL OR l.version = :expectedVersion)";
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE ToDoList l SET l.name = :name, l.description = :description, "
+          + "l.version = l.version + 1 "
+          + "WHERE l.id = :id AND " + AT_VERSION + " AND " + OWNED_BY)
+  int updateNameAndDescription(
+      @Param("id") long id,
+      @Param("username") String username,
+      @Param("name") String name,
+      @Param("description") String description,
+      @Param("expectedVersion") Long expectedVersion);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE ToDoList l SET l.timeDeactivated = "
+          + "CASE WHEN :active = true THEN NULL "
+          + "WHEN l.active = true THEN CURRENT_TIMESTAMP ELSE l.timeDeactivated END, "
+          + "l.active = :active, l.version = l.version + 1 "
+          + "WHERE l.id = :id AND " + AT_VERSION + " AND " + OWNED_BY)
+  int updateActive(
+      @Param("id") long id,
+      @Param("username") String username,
+      @Param("active") boolean active,
+      @Param("expectedVersion") Long expectedVersion);
+
+  // also taken before a change to the list's tasks, or before deleting the list, the row stays
+  // locked until the transaction ends
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE ToDoList l SET l.version = l.version + 1 "
+          + "WHERE l.id = :id AND " + AT_VERSION + " AND " + OWNED_BY)
+  int incrementVersion(
+      @Param("id") long id,
+      @Param("username") String username,
+      @Param("expectedVersion") Long expectedVersion);
+
+  // moves the task counts along with adding or deleting tasks, also the ownership check and list
+  // lock of incrementVersion
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      "UPDATE ToDoList l SET l.taskCount = l.taskCount + :tasks, "
+          + "l.activeTaskCount = l.activeTaskCount + :activeTasks, l.version = l.version + 1 "
+          + "WHERE l.id = :id AND " + OWNED_BY)
+  int addToTaskCounts(
+      @Param("id") long id,
+      @Param("username") String username,
+      @Param("tasks") int tasks,
+      @Param("activeTasks") int activeTasks);
+
+  // lists show their owner's username
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE ToDoList l SET l.version = l.version + 1 WHERE " + OWNED_BY)
+  int incrementVersionsByUsername(@Param("username") String username);
+
+  @Query("SELECT l.version FROM ToDoList l WHERE l.id = :id AND " + OWNED_BY)
+  Optional<Long> findVersionByIdAndUsername(
+      @Param("id") long id, @Param("username") String username);
+
+  @Query(
+      "SELECT COUNT(l) AS count, MAX(l.id) AS maxId, SUM(l.version) AS versionSum "
+          + "FROM ToDoList l WHERE l.id > :after AND " + OWNED_BY)
+  VersionSummary summarizeVersionsByUsername(
+      @Param("username") String username, @Param("after") long after);
+
+  // sync reads only see rows whose change sequence number lies in (since, until], see SyncService
+  String CHANGED_BETWEEN = "l.changeSeq > :since AND l.changeSeq <= :until ";
+
+  @Query(
+      "SELECT l.changeSeq FROM ToDoList l WHERE " + OWNED_BY + " AND " + CHANGED_BETWEEN
+          + "ORDER BY l.changeSeq")
+  List<Long> findChangeSeqsByUsername(
+      @Param("username") String username,
+      @Param("since") long since,
+      @Param("until") long until,
+      Pageable pageable);
+
+  @Query(LIST_DTO + "WHERE u.username = :username AND " + CHANGED_BETWEEN + "ORDER BY l.changeSeq")
+  List<ToDoListDto> findDtosChangedBetween(
+      @Param("username") String username, @Param("since") long since, @Param("until") long until);
+
+  // tasks must be removed first, see TaskRepository.deleteByListIdAndUsername
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM ToDoList l WHERE l.id = :id AND " + OWNED_BY)
+  int deleteByIdAndUsername(@Param("id") long id, @Param("username") String username);
+
+  /**
+   * Version of a set of lists. Ids are handed out in ascending order and versions only grow, so
+   * adding, removing or changing any of the lists changes the summary.
+   */
+  interface VersionSummary {
+
+    long getCount();
+
+    Long getMaxId();
+
+    Long getVersionSum();
+
+    default String asVersion() {
+      return getCount() + "." + Objects.requireNonNullElse(getMaxId(), 0L) + "."
+          + Objects.requireNonNullElse(getVersionSum(), 0L);
+    }
+  }
 }
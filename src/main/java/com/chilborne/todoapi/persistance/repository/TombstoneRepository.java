@@ -0,0 +1,35 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.TombstoneDto;
+import com.chilborne.todoapi.persistance.model.Tombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+// tombstones are written by ChangeSequenceTrigger, this only reads them back
+public interface TombstoneRepository
+    extends Repository<Tombstone, Long>, ChangeHorizonRepository {
+
+  String CHANGED_BETWEEN =
+      "FROM Tombstone t WHERE t.ownerId IN "
+          + "(SELECT u.userId FROM User u WHERE u.username = :username) "
+          + "AND t.changeSeq > :since AND t.changeSeq <= :until ";
+
+  @Query("SELECT t.changeSeq " + CHANGED_BETWEEN + "ORDER BY t.changeSeq")
+  List<Long> findChangeSeqsByUsername(
+      @Param("username") String username,
+      @Param("since") long since,
+      @Param("until") long until,
+      Pageable pageable);
+
+  @Query(
+      "SELECT new com.chilborne.todoapi.persistance.dto.TombstoneDto("
+          + "t.entityType, t.entityId, t.listId, t.timeDeleted, t.archived) "
+          + CHANGED_BETWEEN
+          + "ORDER BY t.changeSeq")
+  List<TombstoneDto> findDtosChangedBetween(
+      @Param("username") String username, @Param("since") long since, @Param("until") long until);
+}
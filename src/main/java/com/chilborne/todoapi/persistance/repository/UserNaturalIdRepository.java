@@ -0,0 +1,11 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.model.User;
+
+import java.util.Optional;
+
+public interface UserNaturalIdRepository {
+
+    // resolved through the natural id cache, so repeated lookups of the same user skip the database
+    Optional<User> findByUsername(String username);
+}
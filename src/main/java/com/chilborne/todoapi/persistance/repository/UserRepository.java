@@ -1,15 +1,18 @@
 package com.chilborne.todoapi.persistance.repository;
 
 import com.chilborne.todoapi.persistance.model.User;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
-public interface UserRepository extends CrudRepository<User, String> {
-
-    Optional<User> findByUsername(String username);
+public interface UserRepository extends CrudRepository<User, String>, UserNaturalIdRepository {
 
     boolean existsByUsername(String username);
 
+    @Query("SELECT u.version FROM User u WHERE u.username = :username")
+    Optional<Long> findVersionByUsername(@Param("username") String username);
+
     void deleteByUsername(String username);
 }
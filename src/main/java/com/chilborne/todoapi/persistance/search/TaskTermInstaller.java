@@ -0,0 +1,60 @@
+package com.chilborne.todoapi.persistance.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Installs {@link TaskTermTrigger} on the tasks table once the schema exists, and indexes tasks
+ * written before it was installed.
+ */
+@Component
+public class TaskTermInstaller implements SmartInitializingSingleton {
+
+  private final DataSource dataSource;
+  private final Logger logger = LoggerFactory.getLogger(TaskTermInstaller.class);
+
+  public TaskTermInstaller(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    try (Connection conn = dataSource.getConnection();
+        Statement statement = conn.createStatement()) {
+      statement.execute(
+          "CREATE TRIGGER IF NOT EXISTS TASKS_TERMS AFTER INSERT, UPDATE, DELETE ON TASKS "
+              + "FOR EACH ROW CALL \"" + TaskTermTrigger.class.getName() + "\"");
+      // only tasks written before the trigger existed, or named by punctuation alone, have no terms
+      int indexed = 0;
+      try (ResultSet unindexed =
+          statement.executeQuery(
+              "SELECT l.username, t.task_id, t.name, t.desc FROM tasks t "
+                  + "JOIN lists l ON l.list_id = t.list_id "
+                  + "WHERE NOT EXISTS (SELECT 1 FROM " + TaskTermTrigger.TERMS + " w "
+                  + "WHERE w.task_id = t.task_id)")) {
+        while (unindexed.next()) {
+          TaskTermTrigger.index(
+              conn,
+              unindexed.getObject(1),
+              unindexed.getLong(2),
+              unindexed.getString(3),
+              unindexed.getString(4));
+          indexed++;
+        }
+      }
+      if (indexed > 0) {
+        logger.info("Indexed {} existing tasks for search", indexed);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not install task search index trigger", e);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.chilborne.todoapi.persistance.search;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Row trigger installed on the tasks table which keeps the task_terms search index up to date.
+ * Running inside the writing transaction, it sees every insert, rename and delete whichever code
+ * path made it, including bulk statements, archiving and deleting whole lists, and rolls back with
+ * it.
+ */
+public class TaskTermTrigger implements Trigger {
+
+  static final String TERMS = "TASK_TERMS";
+  static final String SEQUENCE = "TASK_TERM_SEQ";
+
+  private int keyIndex;
+  private int listIndex;
+  private int nameIndex;
+  private int descriptionIndex;
+
+  @Override
+  public void init(
+      Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+      throws SQLException {
+    DatabaseMetaData metaData = conn.getMetaData();
+    try (ResultSet columns = metaData.getColumns(null, schemaName, tableName, null)) {
+      while (columns.next()) {
+        int index = columns.getInt("ORDINAL_POSITION") - 1;
+        switch (columns.getString("COLUMN_NAME")) {
+          case "TASK_ID" -> keyIndex = index;
+          case "LIST_ID" -> listIndex = index;
+          case "NAME" -> nameIndex = index;
+          case "DESC" -> descriptionIndex = index;
+          default -> {}
+        }
+      }
+    }
+  }
+
+  @Override
+  public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+    // completing a task or moving its version on leaves its terms as they are
+    if (oldRow != null
+        && newRow != null
+        && Objects.equals(oldRow[nameIndex], newRow[nameIndex])
+        && Objects.equals(oldRow[descriptionIndex], newRow[descriptionIndex])
+        && Objects.equals(oldRow[listIndex], newRow[listIndex])) {
+      return;
+    }
+    if (oldRow != null) {
+      try (PreparedStatement delete =
+          conn.prepareStatement("DELETE FROM " + TERMS + " WHERE task_id = ?")) {
+        delete.setObject(1, oldRow[keyIndex]);
+        delete.executeUpdate();
+      }
+    }
+    if (newRow != null) {
+      Object owner = ownerOfList(conn, newRow[listIndex]);
+      // tasks without a list can not be searched by anyone
+      if (owner != null) {
+        index(
+            conn, owner, newRow[keyIndex], (String) newRow[nameIndex], (String) newRow[descriptionIndex]);
+      }
+    }
+  }
+
+  static void index(Connection conn, Object owner, Object taskId, String name, String description)
+      throws SQLException {
+    Map<String, Integer> weights = TaskTerms.weigh(name, description);
+    if (weights.isEmpty()) {
+      return;
+    }
+    try (PreparedStatement insert =
+        conn.prepareStatement(
+            "INSERT INTO " + TERMS + " (term_id, owner_id, task_id, term, weight) "
+                + "VALUES (NEXT VALUE FOR " + SEQUENCE + ", ?, ?, ?, ?)")) {
+      for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+        insert.setObject(1, owner);
+        insert.setObject(2, taskId);
+        insert.setString(3, weight.getKey());
+        insert.setInt(4, weight.getValue());
+        insert.addBatch();
+      }
+      insert.executeBatch();
+    }
+  }
+
+  private static Object ownerOfList(Connection conn, Object listId) throws SQLException {
+    if (listId == null) {
+      return null;
+    }
+    try (PreparedStatement select =
+        conn.prepareStatement("SELECT username FROM lists WHERE list_id = ?")) {
+      select.setObject(1, listId);
+      try (ResultSet owner = select.executeQuery()) {
+        return owner.next() ? owner.getObject(1) : null;
+      }
+    }
+  }
+
+  @Override
+  public void close() {}
+
+  @Override
+  public void remove() {}
+}
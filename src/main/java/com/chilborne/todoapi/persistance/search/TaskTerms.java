@@ -0,0 +1,58 @@
+package com.chilborne.todoapi.persistance.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits task text into the terms stored in the search index and search queries into the terms
+ * looked up in it. Both sides go through the same rules, so a query matches what was indexed.
+ */
+public final class TaskTerms {
+
+  public static final int MAX_LENGTH = 64;
+  public static final int MAX_QUERY_TERMS = 8;
+  static final int NAME_WEIGHT = 3;
+  static final int DESCRIPTION_WEIGHT = 1;
+
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private TaskTerms() {}
+
+  /** Returns each distinct term of a task with its weight, summed over every occurrence. */
+  public static Map<String, Integer> weigh(String name, String description) {
+    Map<String, Integer> weights = new LinkedHashMap<>();
+    for (String term : split(name)) {
+      weights.merge(term, NAME_WEIGHT, Integer::sum);
+    }
+    for (String term : split(description)) {
+      weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+    }
+    return weights;
+  }
+
+  /** Returns the distinct terms of a query, each of which is matched as a prefix. */
+  public static List<String> query(String query) {
+    Set<String> terms = new LinkedHashSet<>(split(query));
+    List<String> result = new ArrayList<>(terms);
+    return result.size() > MAX_QUERY_TERMS ? result.subList(0, MAX_QUERY_TERMS) : result;
+  }
+
+  private static List<String> split(String text) {
+    List<String> terms = new ArrayList<>();
+    if (text == null) {
+      return terms;
+    }
+    for (String term : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+      if (!term.isEmpty()) {
+        terms.add(term.length() > MAX_LENGTH ? term.substring(0, MAX_LENGTH) : term);
+      }
+    }
+    return terms;
+  }
+}
@@ -0,0 +1,183 @@
+package com.chilborne.todoapi.persistance.stats;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The completion rollups of a user: tasks completed per day in completion_days, and a histogram of
+ * the time from creation to completion in completion_times. Both count every completed task still
+ * in the tasks or archived_tasks table, so completing, importing, deleting and archiving tasks all
+ * move them, and {@link #rebuild} arrives at the same rows from scratch.
+ *
+ * <p>Completion times are bucketed by their power of two in seconds, split into four equal
+ * buckets, so a median read from the histogram is within an eighth of the exact one.
+ */
+public final class CompletionStats {
+
+  static final String DAYS = "COMPLETION_DAYS";
+  static final String TIMES = "COMPLETION_TIMES";
+  static final String SEQUENCE = "COMPLETION_STAT_SEQ";
+
+  // bucket of tasks without a creation or completion time, counted but left out of the median
+  public static final int UNTIMED = -1;
+
+  private static final String DUPLICATE_KEY = "23505";
+
+  private CompletionStats() {}
+
+  public static int bucket(LocalDateTime created, LocalDateTime completed) {
+    if (created == null || completed == null || completed.isBefore(created)) {
+      return UNTIMED;
+    }
+    long value = Duration.between(created, completed).getSeconds() + 1;
+    int power = 63 - Long.numberOfLeadingZeros(value);
+    long quarter = power >= 2 ? (value >> (power - 2)) & 3 : (value << (2 - power)) & 3;
+    return power * 4 + (int) quarter;
+  }
+
+  // middle of the bucket's range of seconds
+  public static long middleSeconds(int bucket) {
+    int power = bucket / 4;
+    long lower = ((4L + bucket % 4) << power) >> 2;
+    long upper = ((5L + bucket % 4) << power) >> 2;
+    return (lower + upper) / 2 - 1;
+  }
+
+  // null when none of the completions is timed
+  public static Long medianSeconds(Map<Integer, Long> completionsByBucket) {
+    TreeMap<Integer, Long> timed = new TreeMap<>(completionsByBucket);
+    timed.headMap(0).clear();
+    long total = timed.values().stream().mapToLong(Long::longValue).sum();
+    long seen = 0;
+    for (Map.Entry<Integer, Long> bucket : timed.entrySet()) {
+      seen += bucket.getValue();
+      if (seen * 2 >= total) {
+        return middleSeconds(bucket.getKey());
+      }
+    }
+    return null;
+  }
+
+  /** Counts one completed task of the owner, or no longer counts it when delta is -1. */
+  static void add(
+      Connection conn, Object owner, LocalDateTime created, LocalDateTime completed, long delta)
+      throws SQLException {
+    if (completed != null) {
+      add(conn, DAYS, "completion_date", owner, Date.valueOf(completed.toLocalDate()), delta);
+    }
+    add(conn, TIMES, "bucket", owner, bucket(created, completed), delta);
+  }
+
+  private static void add(
+      Connection conn, String table, String key, Object owner, Object value, long delta)
+      throws SQLException {
+    if (update(conn, table, key, owner, value, delta) > 0 || delta < 0) {
+      return;
+    }
+    try (PreparedStatement insert =
+        conn.prepareStatement(
+            "INSERT INTO " + table + " (stat_id, owner_id, " + key + ", completions) "
+                + "VALUES (NEXT VALUE FOR " + SEQUENCE + ", ?, ?, ?)")) {
+      insert.setObject(1, owner);
+      insert.setObject(2, value);
+      insert.setLong(3, delta);
+      insert.executeUpdate();
+    } catch (SQLException e) {
+      // another transaction added the row first
+      if (!DUPLICATE_KEY.equals(e.getSQLState())) {
+        throw e;
+      }
+      update(conn, table, key, owner, value, delta);
+    }
+  }
+
+  private static int update(
+      Connection conn, String table, String key, Object owner, Object value, long delta)
+      throws SQLException {
+    try (PreparedStatement update =
+        conn.prepareStatement(
+            "UPDATE " + table + " SET completions = completions + ? "
+                + "WHERE owner_id = ? AND " + key + " = ?")) {
+      update.setLong(1, delta);
+      update.setObject(2, owner);
+      update.setObject(3, value);
+      return update.executeUpdate();
+    }
+  }
+
+  /**
+   * Replaces the rollups of every user with counts of the completed tasks as they are now, returning
+   * how many tasks were counted. Tasks completed by transactions running alongside may be missed
+   * until the next rebuild, so it is meant for quiet hours.
+   */
+  public static int rebuild(Connection conn) throws SQLException {
+    Map<Object, Map<LocalDate, Long>> days = new HashMap<>();
+    Map<Object, Map<Integer, Long>> times = new HashMap<>();
+    int counted = 0;
+    try (Statement statement = conn.createStatement()) {
+      try (ResultSet completed =
+          statement.executeQuery(
+              "SELECT l.username, t.date_time_created, t.date_time_finished FROM tasks t "
+                  + "JOIN lists l ON l.list_id = t.list_id WHERE t.active = FALSE "
+                  + "UNION ALL "
+                  + "SELECT a.owner_id, a.date_time_created, a.date_time_finished "
+                  + "FROM archived_tasks a WHERE a.active = FALSE")) {
+        while (completed.next()) {
+          Object owner = completed.getObject(1);
+          LocalDateTime created = toLocalDateTime(completed.getTimestamp(2));
+          LocalDateTime finished = toLocalDateTime(completed.getTimestamp(3));
+          if (finished != null) {
+            days.computeIfAbsent(owner, o -> new HashMap<>())
+                .merge(finished.toLocalDate(), 1L, Long::sum);
+          }
+          times.computeIfAbsent(owner, o -> new HashMap<>())
+              .merge(bucket(created, finished), 1L, Long::sum);
+          counted++;
+        }
+      }
+      statement.executeUpdate("DELETE FROM " + DAYS);
+      statement.executeUpdate("DELETE FROM " + TIMES);
+    }
+    insertAll(conn, DAYS, "completion_date", days);
+    insertAll(conn, TIMES, "bucket", times);
+    return counted;
+  }
+
+  private static <K> void insertAll(
+      Connection conn, String table, String key, Map<Object, Map<K, Long>> completions)
+      throws SQLException {
+    try (PreparedStatement insert =
+        conn.prepareStatement(
+            "INSERT INTO " + table + " (stat_id, owner_id, " + key + ", completions) "
+                + "VALUES (NEXT VALUE FOR " + SEQUENCE + ", ?, ?, ?)")) {
+      for (Map.Entry<Object, Map<K, Long>> owner : completions.entrySet()) {
+        for (Map.Entry<K, Long> count : owner.getValue().entrySet()) {
+          insert.setObject(1, owner.getKey());
+          K value = count.getKey();
+          insert.setObject(2, value instanceof LocalDate ? Date.valueOf((LocalDate) value) : value);
+          insert.setLong(3, count.getValue());
+          insert.addBatch();
+        }
+      }
+      insert.executeBatch();
+    }
+  }
+
+  static LocalDateTime toLocalDateTime(Object value) {
+    if (value instanceof Timestamp) {
+      return ((Timestamp) value).toLocalDateTime();
+    }
+    return (LocalDateTime) value;
+  }
+}
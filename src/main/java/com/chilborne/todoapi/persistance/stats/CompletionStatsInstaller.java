@@ -0,0 +1,57 @@
+package com.chilborne.todoapi.persistance.stats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Installs {@link CompletionStatsTrigger} on the tasks and archived_tasks tables once the schema
+ * exists, and builds the rollups from scratch while they are still empty.
+ */
+@Component
+public class CompletionStatsInstaller implements SmartInitializingSingleton {
+
+  private static final List<String> TABLES = List.of("TASKS", "ARCHIVED_TASKS");
+
+  private final DataSource dataSource;
+  private final Logger logger = LoggerFactory.getLogger(CompletionStatsInstaller.class);
+
+  public CompletionStatsInstaller(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    try (Connection conn = dataSource.getConnection();
+        Statement statement = conn.createStatement()) {
+      for (String table : TABLES) {
+        statement.execute(
+            "CREATE TRIGGER IF NOT EXISTS " + table + "_COMPLETION_STATS "
+                + "AFTER INSERT, UPDATE, DELETE ON " + table
+                + " FOR EACH ROW CALL \"" + CompletionStatsTrigger.class.getName() + "\"");
+      }
+      // tasks completed before the trigger existed are only counted by a rebuild
+      try (ResultSet rollups =
+          statement.executeQuery("SELECT COUNT(*) FROM " + CompletionStats.TIMES)) {
+        rollups.next();
+        if (rollups.getLong(1) > 0) {
+          return;
+        }
+      }
+      int counted = CompletionStats.rebuild(conn);
+      if (counted > 0) {
+        logger.info("Counted {} existing completed tasks into the completion stats", counted);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not install completion stats triggers", e);
+    }
+  }
+}
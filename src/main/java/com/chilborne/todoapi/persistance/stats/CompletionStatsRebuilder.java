@@ -0,0 +1,46 @@
+package com.chilborne.todoapi.persistance.stats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Batch job recounting the completion rollups from the tasks and archived_tasks tables, which
+ * brings them back in line should they ever have drifted, e.g. after rows were changed by hand.
+ */
+@Component
+public class CompletionStatsRebuilder {
+
+  private final DataSource dataSource;
+  private final Logger logger = LoggerFactory.getLogger(CompletionStatsRebuilder.class);
+
+  public CompletionStatsRebuilder(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  @Scheduled(cron = "${todo.stats.rebuild-cron:0 30 3 * * SUN}")
+  public int rebuild() {
+    try (Connection conn = dataSource.getConnection()) {
+      boolean autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+      try {
+        int counted = CompletionStats.rebuild(conn);
+        conn.commit();
+        logger.info("Rebuilt completion stats from {} completed tasks", counted);
+        return counted;
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not rebuild completion stats", e);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.chilborne.todoapi.persistance.stats;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Row trigger installed on the tasks and archived_tasks tables which keeps the completion rollups of
+ * {@link CompletionStats} up to date. A completed row is counted when it is written and no longer
+ * counted when it goes, so archiving a task moves nothing while completing, importing or deleting
+ * one does, whichever code path made the change.
+ */
+public class CompletionStatsTrigger implements Trigger {
+
+  private int listIndex = -1;
+  private int ownerIndex = -1;
+  private int activeIndex;
+  private int createdIndex;
+  private int finishedIndex;
+
+  @Override
+  public void init(
+      Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+      throws SQLException {
+    DatabaseMetaData metaData = conn.getMetaData();
+    try (ResultSet columns = metaData.getColumns(null, schemaName, tableName, null)) {
+      while (columns.next()) {
+        int index = columns.getInt("ORDINAL_POSITION") - 1;
+        switch (columns.getString("COLUMN_NAME")) {
+          // tasks point at their list, archived tasks keep their owner
+          case "LIST_ID" -> listIndex = index;
+          case "OWNER_ID" -> ownerIndex = index;
+          case "ACTIVE" -> activeIndex = index;
+          case "DATE_TIME_CREATED" -> createdIndex = index;
+          case "DATE_TIME_FINISHED" -> finishedIndex = index;
+          default -> {}
+        }
+      }
+    }
+  }
+
+  @Override
+  public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+    boolean wasCompleted = isCompleted(oldRow);
+    boolean isCompleted = isCompleted(newRow);
+    // renames and version bumps leave a completed task where it was counted
+    if (wasCompleted
+        && isCompleted
+        && Objects.equals(oldRow[createdIndex], newRow[createdIndex])
+        && Objects.equals(oldRow[finishedIndex], newRow[finishedIndex])
+        && Objects.equals(owningColumn(oldRow), owningColumn(newRow))) {
+      return;
+    }
+    if (wasCompleted) {
+      count(conn, oldRow, -1);
+    }
+    if (isCompleted) {
+      count(conn, newRow, 1);
+    }
+  }
+
+  private boolean isCompleted(Object[] row) {
+    return row != null && Boolean.FALSE.equals(row[activeIndex]);
+  }
+
+  private Object owningColumn(Object[] row) {
+    return ownerIndex >= 0 ? row[ownerIndex] : row[listIndex];
+  }
+
+  private void count(Connection conn, Object[] row, long delta) throws SQLException {
+    Object owner = ownerIndex >= 0 ? row[ownerIndex] : ownerOfList(conn, row[listIndex]);
+    // tasks without a list belong to no one
+    if (owner != null) {
+      CompletionStats.add(
+          conn,
+          owner,
+          CompletionStats.toLocalDateTime(row[createdIndex]),
+          CompletionStats.toLocalDateTime(row[finishedIndex]),
+          delta);
+    }
+  }
+
+  private static Object ownerOfList(Connection conn, Object listId) throws SQLException {
+    if (listId == null) {
+      return null;
+    }
+    try (PreparedStatement select =
+        conn.prepareStatement("SELECT username FROM lists WHERE list_id = ?")) {
+      select.setObject(1, listId);
+      try (ResultSet owner = select.executeQuery()) {
+        return owner.next() ? owner.getObject(1) : null;
+      }
+    }
+  }
+
+  @Override
+  public void close() {}
+
+  @Override
+  public void remove() {}
+}
@@ -0,0 +1,103 @@
+package com.chilborne.todoapi.persistance.sync;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out the change sequence numbers of one database to {@link ChangeSequenceTrigger} and keeps
+ * track of the ones held by transactions which have not finished yet.
+ *
+ * <p>Numbers are taken when a row is written but only become visible when the transaction commits,
+ * so a later number can be seen before an earlier one. The {@link #horizon(Connection)} stops below
+ * the oldest unfinished number, a client which never reads past it cannot skip a change.
+ */
+public final class ChangeSequence {
+
+  static final String SEQUENCE = "CHANGE_SEQ";
+
+  // every connection to a database, whichever pool or application context it came from, finds the
+  // same numbers in flight
+  private static final Map<String, ChangeSequence> DATABASES = new ConcurrentHashMap<>();
+
+  private final TreeSet<Long> inFlight = new TreeSet<>();
+
+  private ChangeSequence() {}
+
+  /** The change sequence of the database {@code conn} is connected to. */
+  public static ChangeSequence of(Connection conn) throws SQLException {
+    try (Statement statement = conn.createStatement();
+        ResultSet database = statement.executeQuery("SELECT DATABASE()")) {
+      database.next();
+      return DATABASES.computeIfAbsent(database.getString(1), name -> new ChangeSequence());
+    }
+  }
+
+  // the database sequence and the bookkeeping move together, otherwise the horizon could pass a
+  // number which has been taken but not yet recorded
+  synchronized long next(Connection conn) throws SQLException {
+    long seq;
+    try (Statement statement = conn.createStatement();
+        ResultSet next = statement.executeQuery("SELECT NEXT VALUE FOR " + SEQUENCE)) {
+      next.next();
+      seq = next.getLong(1);
+    }
+    // without a spring transaction the statement commits on its own
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      inFlight.add(seq);
+      heldByCurrentTransaction().add(seq);
+    }
+    return seq;
+  }
+
+  /** Highest number below which every change has been committed or rolled back. */
+  public long horizon(Connection conn) throws SQLException {
+    // read first, every number up to it was recorded in flight when it was taken, so it is either
+    // still there or its transaction has finished
+    long highest;
+    try (PreparedStatement select =
+        conn.prepareStatement(
+            "SELECT CURRENT_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?")) {
+      select.setString(1, SEQUENCE);
+      try (ResultSet current = select.executeQuery()) {
+        highest = current.next() ? current.getLong(1) : 0;
+      }
+    }
+    synchronized (this) {
+      return inFlight.isEmpty() ? highest : Math.min(highest, inFlight.first() - 1);
+    }
+  }
+
+  private synchronized void release(List<Long> seqs) {
+    seqs.forEach(inFlight::remove);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Long> heldByCurrentTransaction() {
+    List<Long> held = (List<Long>) TransactionSynchronizationManager.getResource(this);
+    if (held == null) {
+      List<Long> seqs = new ArrayList<>();
+      TransactionSynchronizationManager.bindResource(this, seqs);
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              TransactionSynchronizationManager.unbindResourceIfPossible(ChangeSequence.this);
+              release(seqs);
+            }
+          });
+      held = seqs;
+    }
+    return held;
+  }
+}
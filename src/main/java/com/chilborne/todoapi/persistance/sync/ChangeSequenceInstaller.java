@@ -0,0 +1,55 @@
+package com.chilborne.todoapi.persistance.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Installs {@link ChangeSequenceTrigger} on the lists and tasks tables once the schema exists, and
+ * stamps rows written before it was installed, so a sync from the start returns every row.
+ */
+@Component
+public class ChangeSequenceInstaller implements SmartInitializingSingleton {
+
+  private static final List<String> TABLES = List.of("LISTS", "TASKS");
+
+  private final DataSource dataSource;
+  private final Logger logger = LoggerFactory.getLogger(ChangeSequenceInstaller.class);
+
+  public ChangeSequenceInstaller(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  // runs once every singleton, including the entity manager factory which creates the schema,
+  // has been initialised
+  @Override
+  public void afterSingletonsInstantiated() {
+    try (Connection conn = dataSource.getConnection();
+        Statement statement = conn.createStatement()) {
+      statement.execute("CREATE SEQUENCE IF NOT EXISTS " + ChangeSequence.SEQUENCE);
+      for (String table : TABLES) {
+        statement.execute(
+            "CREATE TRIGGER IF NOT EXISTS " + table + "_" + ChangeSequenceTrigger.COLUMN
+                + " BEFORE INSERT, UPDATE, DELETE ON " + table
+                + " FOR EACH ROW CALL \"" + ChangeSequenceTrigger.class.getName() + "\"");
+        // the trigger replaces the value with the next number
+        int stamped =
+            statement.executeUpdate(
+                "UPDATE " + table + " SET " + ChangeSequenceTrigger.COLUMN + " = 0 "
+                    + "WHERE " + ChangeSequenceTrigger.COLUMN + " IS NULL");
+        if (stamped > 0) {
+          logger.info("Stamped {} existing rows of {} with change sequence numbers", stamped, table);
+        }
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not install change sequence triggers", e);
+    }
+  }
+}
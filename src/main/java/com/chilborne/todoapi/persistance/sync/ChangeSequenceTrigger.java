@@ -0,0 +1,117 @@
+package com.chilborne.todoapi.persistance.sync;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Row trigger installed on the lists and tasks tables. Inserted and updated rows are stamped with
+ * the next change sequence number, deleted rows leave a tombstone carrying one, so clients can ask
+ * for everything which changed after the last number they saw. The archive job copies rows before
+ * deleting them, their tombstones say so.
+ */
+public class ChangeSequenceTrigger implements Trigger {
+
+  static final String COLUMN = "CHANGE_SEQ";
+  static final String TOMBSTONES = "TOMBSTONES";
+
+  private String archive;
+
+  private ChangeSequence sequence;
+  private String entity;
+  private int seqIndex;
+  private int keyIndex;
+  private int listIndex;
+  private int ownerIndex = -1;
+
+  @Override
+  public void init(
+      Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+      throws SQLException {
+    sequence = ChangeSequence.of(conn);
+    // lists are owned directly, tasks through their list
+    entity = "LISTS".equals(tableName) ? "list" : "task";
+    archive = "LISTS".equals(tableName) ? "ARCHIVED_LISTS" : "ARCHIVED_TASKS";
+    String key = "LISTS".equals(tableName) ? "LIST_ID" : "TASK_ID";
+    DatabaseMetaData metaData = conn.getMetaData();
+    try (ResultSet columns = metaData.getColumns(null, schemaName, tableName, null)) {
+      while (columns.next()) {
+        String name = columns.getString("COLUMN_NAME");
+        int index = columns.getInt("ORDINAL_POSITION") - 1;
+        if (COLUMN.equals(name)) {
+          seqIndex = index;
+        } else if (key.equals(name)) {
+          keyIndex = index;
+        } else if ("LIST_ID".equals(name)) {
+          listIndex = index;
+        } else if ("USERNAME".equals(name)) {
+          ownerIndex = index;
+        }
+      }
+    }
+    if ("list".equals(entity)) {
+      listIndex = keyIndex;
+    }
+  }
+
+  @Override
+  public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+    if (newRow != null) {
+      newRow[seqIndex] = sequence.next(conn);
+      return;
+    }
+    Object owner = ownerIndex >= 0 ? oldRow[ownerIndex] : ownerOfList(conn, oldRow[listIndex]);
+    // tasks without a list were never visible to anyone
+    if (owner == null) {
+      return;
+    }
+    try (PreparedStatement insert =
+        conn.prepareStatement(
+            "INSERT INTO " + TOMBSTONES
+                + " (change_seq, owner_id, entity_type, entity_id, list_id, date_time_deleted,"
+                + " archived) VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP, ?)")) {
+      insert.setLong(1, sequence.next(conn));
+      insert.setObject(2, owner);
+      insert.setString(3, entity);
+      insert.setObject(4, oldRow[keyIndex]);
+      insert.setObject(5, oldRow[listIndex]);
+      insert.setBoolean(6, isArchived(conn, oldRow[keyIndex]));
+      insert.executeUpdate();
+    }
+  }
+
+  // archived rows keep their id, and the copy is written in the same transaction as the delete
+  private boolean isArchived(Connection conn, Object id) throws SQLException {
+    String key = "list".equals(entity) ? "list_id" : "task_id";
+    try (PreparedStatement select =
+        conn.prepareStatement("SELECT 1 FROM " + archive + " WHERE " + key + " = ?")) {
+      select.setObject(1, id);
+      try (ResultSet archived = select.executeQuery()) {
+        return archived.next();
+      }
+    }
+  }
+
+  private static Object ownerOfList(Connection conn, Object listId) throws SQLException {
+    if (listId == null) {
+      return null;
+    }
+    try (PreparedStatement select =
+        conn.prepareStatement("SELECT username FROM lists WHERE list_id = ?")) {
+      select.setObject(1, listId);
+      try (ResultSet owner = select.executeQuery()) {
+        return owner.next() ? owner.getObject(1) : null;
+      }
+    }
+  }
+
+  @Override
+  public void close() {}
+
+  @Override
+  public void remove() {}
+}
@@ -13,7 +13,7 @@ public class UsernameAccessManager implements AccessManager<String> {
     try {
       UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
-      if (userDetails.getUsername().equals(username)) {
+      if (!userDetails.getUsername().equals(username)) {
         throw new AccessDeniedException("User: " + username + " does not have access");
       }
     } catch (ClassCastException e) {
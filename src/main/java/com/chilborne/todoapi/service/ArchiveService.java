@@ -0,0 +1,26 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ArchiveService {
+
+    int archiveFinishedBefore(LocalDateTime cutoff);
+
+    List<TaskDto> getArchivedTasks(Collection<Long> listIds);
+
+    Optional<ToDoListDto> getArchivedToDoList(long id, String username);
+
+    List<ToDoListDto> getArchivedToDoLists(String username);
+
+    String getArchiveVersion(String username);
+
+    boolean deleteArchivedToDoList(long id, String username);
+
+    void deleteArchiveOfUser(String username);
+}
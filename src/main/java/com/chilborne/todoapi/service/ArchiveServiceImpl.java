@@ -0,0 +1,136 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.repository.ArchivedTaskRepository;
+import com.chilborne.todoapi.persistance.repository.ArchivedToDoListRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Moves completed tasks and inactive lists out of the hot tables once they have been finished for
+ * longer than {@code todo.archive.after-days}, and reads them back for clients asking for archived
+ * data.
+ */
+@Service
+public class ArchiveServiceImpl implements ArchiveService {
+
+  private final ArchivedTaskRepository archivedTaskRepository;
+  private final ArchivedToDoListRepository archivedToDoListRepository;
+  private final long afterDays;
+  private final Logger logger = LoggerFactory.getLogger(ArchiveServiceImpl.class);
+
+  public ArchiveServiceImpl(
+      ArchivedTaskRepository archivedTaskRepository,
+      ArchivedToDoListRepository archivedToDoListRepository,
+      @Value("${todo.archive.after-days:30}") long afterDays) {
+    this.archivedTaskRepository = archivedTaskRepository;
+    this.archivedToDoListRepository = archivedToDoListRepository;
+    this.afterDays = afterDays;
+  }
+
+  @Scheduled(cron = "${todo.archive.cron:0 0 3 * * *}")
+  public void archiveExpired() {
+    archiveFinishedBefore(LocalDateTime.now().minusDays(afterDays));
+  }
+
+  @Override
+  @Transactional
+  public int archiveFinishedBefore(LocalDateTime cutoff) {
+    // every row copied by this run is stamped with the same time, which is what the deletes
+    // match on, so only rows which made it into the archive leave the hot tables
+    LocalDateTime archivedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    int lists = archivedToDoListRepository.copyListsDeactivatedBefore(cutoff, archivedAt);
+    int tasks = 0;
+    if (lists > 0) {
+      tasks += archivedTaskRepository.copyTasksOfListsArchivedAt(archivedAt);
+      archivedTaskRepository.deleteTasksArchivedAt(archivedAt);
+      archivedToDoListRepository.deleteListsArchivedAt(archivedAt);
+    }
+    int finished = archivedTaskRepository.copyTasksFinishedBefore(cutoff, archivedAt);
+    if (finished > 0) {
+      archivedTaskRepository.incrementListVersionsArchivedAt(archivedAt);
+      archivedTaskRepository.deleteTasksArchivedAt(archivedAt);
+    }
+    tasks += finished;
+    logger.info("Archived {} ToDoLists and {} Tasks finished before {}", lists, tasks, cutoff);
+    return lists + tasks;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<TaskDto> getArchivedTasks(Collection<Long> listIds) {
+    List<TaskDto> tasks = archivedTaskRepository.findDtosByListIds(listIds);
+    tasks.forEach(task -> task.setArchived(true));
+    return tasks;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<ToDoListDto> getArchivedToDoList(long id, String username) {
+    logger.info("Fetching archived ToDoList with id: {}", id);
+    Optional<ToDoListDto> list = archivedToDoListRepository.findDtoByIdAndUsername(id, username);
+    list.ifPresent(
+        found -> {
+          found.setArchived(true);
+          found.setTasks(getArchivedTasks(List.of(id)));
+        });
+    return list;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<ToDoListDto> getArchivedToDoLists(String username) {
+    logger.info("Fetching all archived ToDoLists for User:{}", username);
+    List<ToDoListDto> lists = archivedToDoListRepository.findDtosByUsername(username);
+    if (lists.isEmpty()) {
+      return lists;
+    }
+    Map<Long, ToDoListDto> listsById = new HashMap<>();
+    for (ToDoListDto list : lists) {
+      list.setArchived(true);
+      listsById.put(list.getListId(), list);
+    }
+    for (TaskDto task : getArchivedTasks(listsById.keySet())) {
+      listsById.get(task.getListId()).getTasks().add(task);
+    }
+    return lists;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public String getArchiveVersion(String username) {
+    return archivedToDoListRepository
+        .summarizeByUsername(username)
+        .map(ArchivedToDoListRepository.ArchiveSummary::asVersion)
+        .orElse("0");
+  }
+
+  @Override
+  @Transactional
+  public boolean deleteArchivedToDoList(long id, String username) {
+    // a list which is still in the lists table can have archived tasks too
+    archivedTaskRepository.deleteByListIdAndUsername(id, username);
+    return archivedToDoListRepository.deleteByIdAndUsername(id, username) > 0;
+  }
+
+  @Override
+  @Transactional
+  public void deleteArchiveOfUser(String username) {
+    logger.info("Deleting archived ToDoLists and Tasks of User:{}", username);
+    archivedTaskRepository.deleteByUsername(username);
+    archivedToDoListRepository.deleteByUsername(username);
+  }
+}
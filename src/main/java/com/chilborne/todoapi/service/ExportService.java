@@ -0,0 +1,41 @@
+package com.chilborne.todoapi.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+public interface ExportService {
+
+  enum Format {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    Format(String mediaType) {
+      this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+      return mediaType;
+    }
+
+    public String getExtension() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<Format> fromParameter(String parameter) {
+      return Arrays.stream(values())
+          .filter(format -> format.name().equals(parameter.toUpperCase(Locale.ROOT)))
+          .findFirst();
+    }
+  }
+
+  // throws before a response is started, exportUserData checks again when it runs
+  void checkAccess(String username);
+
+  // every list of the user, archived ones included, in list_id order with their tasks
+  void exportUserData(String username, Format format, OutputStream out) throws IOException;
+}
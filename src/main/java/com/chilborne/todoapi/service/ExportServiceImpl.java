@@ -0,0 +1,309 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.repository.ArchivedTaskRepository;
+import com.chilborne.todoapi.persistance.repository.ArchivedToDoListRepository;
+import com.chilborne.todoapi.persistance.repository.TaskRepository;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.security.access.UserAccessManager;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's lists and tasks as they are read. Lists and tasks come from four forward-only
+ * streams of DTOs in list order, current and archived rows are merged and each list is followed by
+ * its tasks, so only the current list and task are held however many the user has. DTO
+ * projections leave nothing in the persistence context.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+  static final String[] CSV_COLUMNS = {
+    "list_id", "list_name", "list_description", "list_date_time_made", "list_active",
+    "list_archived", "task_id", "task_name", "task_description", "task_date_time_made",
+    "task_date_time_finished", "task_active", "task_archived"
+  };
+  private static final DateTimeFormatter DATE_TIME_FORMAT =
+      DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+  private static final Comparator<ToDoListDto> LIST_ORDER =
+      Comparator.comparingLong(ToDoListDto::getListId);
+  private static final Comparator<TaskDto> TASK_ORDER =
+      Comparator.comparingLong(TaskDto::getListId).thenComparingLong(TaskDto::getTaskId);
+
+  private final ToDoListRepository toDoListRepository;
+  private final TaskRepository taskRepository;
+  private final ArchivedToDoListRepository archivedToDoListRepository;
+  private final ArchivedTaskRepository archivedTaskRepository;
+  private final UserAccessManager accessManager;
+  private final ObjectMapper objectMapper;
+  private final ObjectWriter lineWriter;
+  private final CsvMapper csvMapper = new CsvMapper();
+  private final Logger logger = LoggerFactory.getLogger(ExportServiceImpl.class);
+
+  public ExportServiceImpl(
+      ToDoListRepository toDoListRepository,
+      TaskRepository taskRepository,
+      ArchivedToDoListRepository archivedToDoListRepository,
+      ArchivedTaskRepository archivedTaskRepository,
+      UserAccessManager accessManager,
+      ObjectMapper objectMapper) {
+    this.toDoListRepository = toDoListRepository;
+    this.taskRepository = taskRepository;
+    this.archivedToDoListRepository = archivedToDoListRepository;
+    this.archivedTaskRepository = archivedTaskRepository;
+    this.accessManager = accessManager;
+    this.objectMapper = objectMapper;
+    // one list per line, flushed by the generator's buffer rather than after every task
+    this.lineWriter =
+        objectMapper
+            .writer()
+            .without(SerializationFeature.INDENT_OUTPUT)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  @Override
+  public void checkAccess(String username) {
+    accessManager.checkAccess(username);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void exportUserData(String username, Format format, OutputStream out)
+      throws IOException {
+    accessManager.checkAccess(username);
+    logger.info("Exporting lists and tasks of User:{} as {}", username, format);
+    long lists = 0;
+    long tasks = 0;
+    try (Stream<ToDoListDto> currentLists = toDoListRepository.streamDtosByUsername(username);
+        Stream<ToDoListDto> archivedLists =
+            archivedToDoListRepository.streamDtosByUsername(username);
+        Stream<TaskDto> currentTasks = taskRepository.streamDtosByUsername(username);
+        Stream<TaskDto> archivedTasks = archivedTaskRepository.streamDtosByUsername(username);
+        ListWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out)) {
+      Iterator<ToDoListDto> listIterator =
+          merge(
+              currentLists.iterator(),
+              archivedLists.peek(list -> list.setArchived(true)).iterator(),
+              LIST_ORDER);
+      PeekingIterator<TaskDto> taskIterator =
+          new PeekingIterator<>(
+              merge(
+                  currentTasks.iterator(),
+                  archivedTasks.peek(task -> task.setArchived(true)).iterator(),
+                  TASK_ORDER));
+      while (listIterator.hasNext()) {
+        ToDoListDto list = listIterator.next();
+        list.setTasks(null);
+        writer.startList(list);
+        // archived tasks whose list has since been deleted are skipped
+        while (taskIterator.hasNext() && taskIterator.peek().getListId() < list.getListId()) {
+          taskIterator.next();
+        }
+        while (taskIterator.hasNext() && taskIterator.peek().getListId() == list.getListId()) {
+          writer.writeTask(list, taskIterator.next());
+          tasks++;
+        }
+        writer.endList(list);
+        lists++;
+      }
+    }
+    logger.info("Exported {} lists and {} tasks of User:{}", lists, tasks, username);
+  }
+
+  // merges two iterators which are each in the given order
+  static <T> Iterator<T> merge(Iterator<T> first, Iterator<T> second, Comparator<T> order) {
+    PeekingIterator<T> left = new PeekingIterator<>(first);
+    PeekingIterator<T> right = new PeekingIterator<>(second);
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return left.hasNext() || right.hasNext();
+      }
+
+      @Override
+      public T next() {
+        if (!right.hasNext()
+            || (left.hasNext() && order.compare(left.peek(), right.peek()) <= 0)) {
+          return left.next();
+        }
+        return right.next();
+      }
+    };
+  }
+
+  private static class PeekingIterator<T> implements Iterator<T> {
+
+    private final Iterator<T> iterator;
+    private T next;
+    private boolean peeked;
+
+    PeekingIterator(Iterator<T> iterator) {
+      this.iterator = iterator;
+    }
+
+    T peek() {
+      if (!peeked) {
+        next = iterator.next();
+        peeked = true;
+      }
+      return next;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return peeked || iterator.hasNext();
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      T value = peek();
+      peeked = false;
+      next = null;
+      return value;
+    }
+  }
+
+  private interface ListWriter extends Closeable {
+
+    void startList(ToDoListDto list) throws IOException;
+
+    void writeTask(ToDoListDto list, TaskDto task) throws IOException;
+
+    void endList(ToDoListDto list) throws IOException;
+  }
+
+  // a list's fields followed by a tasks array written one task at a time, then a newline
+  private class NdjsonWriter implements ListWriter {
+
+    private final JsonGenerator generator;
+
+    NdjsonWriter(OutputStream out) throws IOException {
+      generator = lineWriter.createGenerator(out);
+      generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void startList(ToDoListDto list) throws IOException {
+      generator.writeStartObject();
+      Iterator<Map.Entry<String, JsonNode>> fields = objectMapper.valueToTree(list).fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        generator.writeFieldName(field.getKey());
+        lineWriter.writeValue(generator, field.getValue());
+      }
+      generator.writeArrayFieldStart("tasks");
+    }
+
+    @Override
+    public void writeTask(ToDoListDto list, TaskDto task) throws IOException {
+      lineWriter.writeValue(generator, task);
+    }
+
+    @Override
+    public void endList(ToDoListDto list) throws IOException {
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.writeRaw('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+      generator.close();
+    }
+  }
+
+  // one row per task repeating its list's columns, a list without tasks gets one row of its own
+  private class CsvWriter implements ListWriter {
+
+    private final SequenceWriter rows;
+    private boolean listHasTasks;
+
+    CsvWriter(OutputStream out) throws IOException {
+      CsvSchema schema =
+          CsvSchema.builder()
+              .addColumns(List.of(CSV_COLUMNS), CsvSchema.ColumnType.STRING)
+              .setUseHeader(true)
+              .build();
+      rows = csvMapper.writer(schema).writeValues(out);
+    }
+
+    @Override
+    public void startList(ToDoListDto list) {
+      listHasTasks = false;
+    }
+
+    @Override
+    public void writeTask(ToDoListDto list, TaskDto task) throws IOException {
+      rows.write(row(list, task));
+      listHasTasks = true;
+    }
+
+    @Override
+    public void endList(ToDoListDto list) throws IOException {
+      if (!listHasTasks) {
+        rows.write(row(list, null));
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      rows.close();
+    }
+
+    private Object[] row(ToDoListDto list, TaskDto task) {
+      Object[] row = new Object[CSV_COLUMNS.length];
+      row[0] = list.getListId();
+      row[1] = list.getName();
+      row[2] = list.getDescription();
+      row[3] = format(list.getDateTimeMade());
+      row[4] = list.isActive();
+      row[5] = Boolean.TRUE.equals(list.getArchived());
+      if (task != null) {
+        row[6] = task.getTaskId();
+        row[7] = task.getName();
+        row[8] = task.getDescription();
+        row[9] = format(task.getDateTimeMade());
+        row[10] = format(task.getDateTimeFinished());
+        row[11] = task.isActive();
+        row[12] = Boolean.TRUE.equals(task.getArchived());
+      }
+      // the generator drops null array elements, which would shift the later columns
+      for (int i = 0; i < row.length; i++) {
+        if (row[i] == null) {
+          row[i] = "";
+        }
+      }
+      return row;
+    }
+
+    private String format(LocalDateTime dateTime) {
+      return dateTime == null ? null : DATE_TIME_FORMAT.format(dateTime);
+    }
+  }
+}
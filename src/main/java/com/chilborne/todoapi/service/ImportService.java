@@ -0,0 +1,13 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.ImportReportDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImportService {
+
+  // one list with its tasks per line, lines which do not parse or validate are reported and
+  // skipped while the others are saved
+  ImportReportDto importToDoLists(String username, InputStream in) throws IOException;
+}
@@ -0,0 +1,287 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.exception.ToDoListNotFoundException;
+import com.chilborne.todoapi.persistance.dto.ImportErrorDto;
+import com.chilborne.todoapi.persistance.dto.ImportReportDto;
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.validation.OnPersist;
+import com.chilborne.todoapi.security.access.UserAccessManager;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads an import one line at a time, each line through its own {@link JsonParser} so a line which
+ * is not valid json is reported without losing the rest. Valid lists are saved in chunks of about
+ * {@link #CHUNK_ROWS} lists and tasks, each chunk in a transaction of its own which leaves the
+ * persistence context empty, so an import holds one chunk however long it is. A list with more
+ * tasks than fit in a chunk is saved with the first of them, and the rest are added to it a chunk
+ * at a time. A line is held with all of its tasks until it is saved, so lines longer than {@link
+ * #MAX_LINE_CHARS} are not read at all but reported.
+ */
+@Service
+public class ImportServiceImpl implements ImportService {
+
+  static final int CHUNK_ROWS = 500;
+  static final int MAX_REPORTED_ERRORS = 1000;
+  static final int MAX_LINE_CHARS = 4 * 1024 * 1024;
+
+  private final ToDoListService toDoListService;
+  private final UserAccessManager accessManager;
+  private final ObjectMapper objectMapper;
+  private final Validator validator;
+  private final Logger logger = LoggerFactory.getLogger(ImportServiceImpl.class);
+
+  public ImportServiceImpl(
+      ToDoListService toDoListService,
+      UserAccessManager accessManager,
+      ObjectMapper objectMapper,
+      Validator validator) {
+    this.toDoListService = toDoListService;
+    this.accessManager = accessManager;
+    this.objectMapper = objectMapper;
+    this.validator = validator;
+  }
+
+  @Override
+  public ImportReportDto importToDoLists(String username, InputStream in) throws IOException {
+    accessManager.checkAccess(username);
+    logger.info("Importing ToDoLists of User:{}", username);
+    ImportReportDto report = new ImportReportDto();
+    List<ToDoListDto> chunk = new ArrayList<>();
+    List<Long> chunkLines = new ArrayList<>();
+    int chunkRows = 0;
+    LineReader reader = new LineReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    long lineNumber = 0;
+    String line;
+    while ((line = reader.next()) != null) {
+      lineNumber++;
+      if (reader.wasCut()) {
+        fail(report, lineNumber, List.of("line is longer than " + MAX_LINE_CHARS + " characters"));
+        continue;
+      }
+      if (line.isBlank()) {
+        continue;
+      }
+      List<String> errors = new ArrayList<>();
+      ToDoListDto list = parse(line, errors);
+      if (list != null) {
+        validate(list, errors);
+      }
+      if (!errors.isEmpty()) {
+        fail(report, lineNumber, errors);
+        continue;
+      }
+      if (1 + list.getTasks().size() > CHUNK_ROWS) {
+        save(username, chunk, chunkLines, report);
+        chunk = new ArrayList<>();
+        chunkLines = new ArrayList<>();
+        chunkRows = 0;
+        saveInParts(username, list, lineNumber, report);
+        continue;
+      }
+      chunk.add(list);
+      chunkLines.add(lineNumber);
+      chunkRows += 1 + list.getTasks().size();
+      if (chunkRows >= CHUNK_ROWS) {
+        save(username, chunk, chunkLines, report);
+        chunk = new ArrayList<>();
+        chunkLines = new ArrayList<>();
+        chunkRows = 0;
+      }
+    }
+    save(username, chunk, chunkLines, report);
+    logger.info(
+        "Imported {} ToDoLists and {} Tasks of User:{}, {} lines failed",
+        report.getListsImported(),
+        report.getTasksImported(),
+        username,
+        report.getFailedLines());
+    return report;
+  }
+
+  // reads the list's own fields into a tree and its tasks one at a time, so the list is validated
+  // without them and each task on its own
+  private ToDoListDto parse(String line, List<String> errors) throws IOException {
+    try (JsonParser parser = objectMapper.createParser(line)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        errors.add("line is not a json object");
+        return null;
+      }
+      ObjectNode fields = objectMapper.createObjectNode();
+      List<TaskDto> tasks = new ArrayList<>();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        if (parser.nextToken() == JsonToken.START_ARRAY && "tasks".equals(name)) {
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            tasks.add(objectMapper.readValue(parser, TaskDto.class));
+          }
+        } else {
+          fields.set(name, objectMapper.readTree(parser));
+        }
+      }
+      if (parser.nextToken() != null) {
+        errors.add("line holds more than one json value");
+        return null;
+      }
+      ToDoListDto list = objectMapper.treeToValue(fields, ToDoListDto.class);
+      list.setTasks(tasks);
+      return list;
+    } catch (JsonProcessingException e) {
+      errors.add(e.getOriginalMessage());
+      return null;
+    }
+  }
+
+  private void validate(ToDoListDto list, List<String> errors) {
+    List<TaskDto> tasks = list.getTasks();
+    // OnPersist only allows tasks to be added to a list which exists
+    list.setTasks(null);
+    for (ConstraintViolation<ToDoListDto> violation : validator.validate(list, OnPersist.class)) {
+      errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+    }
+    list.setTasks(tasks);
+    for (int i = 0; i < tasks.size(); i++) {
+      for (ConstraintViolation<TaskDto> violation :
+          validator.validate(tasks.get(i), OnPersist.class)) {
+        errors.add(
+            "tasks[" + i + "]." + violation.getPropertyPath() + ": " + violation.getMessage());
+      }
+    }
+  }
+
+  private void save(
+      String username, List<ToDoListDto> chunk, List<Long> chunkLines, ImportReportDto report) {
+    if (chunk.isEmpty()) {
+      return;
+    }
+    try {
+      toDoListService.newToDoLists(chunk, username);
+      report.setListsImported(report.getListsImported() + chunk.size());
+      report.setTasksImported(
+          report.getTasksImported() + chunk.stream().mapToLong(list -> list.getTasks().size()).sum());
+    } catch (DataAccessException | TransactionException e) {
+      // the whole chunk was rolled back
+      logger.warn("Could not save ToDoLists of User:{} from lines {}", username, chunkLines, e);
+      String error = "not saved: " + e.getMostSpecificCause().getMessage();
+      for (long lineNumber : chunkLines) {
+        fail(report, lineNumber, List.of(error));
+      }
+    }
+  }
+
+  // the list and the tasks saved before a part which fails are kept, the line reports where the
+  // tasks which were not saved start
+  private void saveInParts(
+      String username, ToDoListDto list, long lineNumber, ImportReportDto report) {
+    List<TaskDto> tasks = list.getTasks();
+    int saved = CHUNK_ROWS - 1;
+    list.setTasks(new ArrayList<>(tasks.subList(0, saved)));
+    long listId;
+    try {
+      listId = toDoListService.newToDoLists(List.of(list), username).get(0);
+    } catch (DataAccessException | TransactionException e) {
+      logger.warn("Could not save ToDoList of User:{} from line {}", username, lineNumber, e);
+      fail(report, lineNumber, List.of("not saved: " + e.getMostSpecificCause().getMessage()));
+      return;
+    }
+    report.setListsImported(report.getListsImported() + 1);
+    report.setTasksImported(report.getTasksImported() + saved);
+    while (saved < tasks.size()) {
+      List<TaskDto> part =
+          new ArrayList<>(tasks.subList(saved, Math.min(saved + CHUNK_ROWS, tasks.size())));
+      try {
+        toDoListService.addTasksToDoList(listId, username, part);
+      } catch (DataAccessException | TransactionException | ToDoListNotFoundException e) {
+        logger.warn(
+            "Could not save Tasks of ToDoList (id: {}) of User:{} from line {}",
+            listId, username, lineNumber, e);
+        String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        fail(report, lineNumber, List.of("tasks[" + saved + "] and later not saved: " + cause));
+        return;
+      }
+      saved += part.size();
+      report.setTasksImported(report.getTasksImported() + part.size());
+    }
+  }
+
+  private void fail(ImportReportDto report, long lineNumber, List<String> errors) {
+    report.setFailedLines(report.getFailedLines() + 1);
+    if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+      report.getErrors().add(new ImportErrorDto(lineNumber, errors));
+    }
+  }
+
+  // lines end as for BufferedReader.readLine, but no more than MAX_LINE_CHARS of one are kept
+  private static final class LineReader {
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int end;
+    private boolean skipLineFeed;
+    private long length;
+
+    LineReader(Reader in) {
+      this.in = in;
+    }
+
+    String next() throws IOException {
+      StringBuilder line = new StringBuilder();
+      length = 0;
+      while (true) {
+        if (pos == end) {
+          end = Math.max(in.read(buffer), 0);
+          pos = 0;
+          if (end == 0) {
+            return length > 0 ? line.toString() : null;
+          }
+        }
+        if (skipLineFeed) {
+          skipLineFeed = false;
+          if (buffer[pos] == '\n') {
+            pos++;
+            continue;
+          }
+        }
+        int start = pos;
+        while (pos < end && buffer[pos] != '\n' && buffer[pos] != '\r') {
+          pos++;
+        }
+        if (length < MAX_LINE_CHARS) {
+          line.append(buffer, start, (int) Math.min(pos - start, MAX_LINE_CHARS - length));
+        }
+        length += pos - start;
+        if (pos < end) {
+          skipLineFeed = buffer[pos] == '\r';
+          pos++;
+          return line.toString();
+        }
+      }
+    }
+
+    // the line last returned was longer than MAX_LINE_CHARS and has been cut short
+    boolean wasCut() {
+      return length > MAX_LINE_CHARS;
+    }
+  }
+}
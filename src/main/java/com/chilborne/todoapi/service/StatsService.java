@@ -0,0 +1,9 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.UserStatsDto;
+
+public interface StatsService {
+
+  // task counts, completions on each of the last 30 days and the median completion time
+  UserStatsDto getUserStats(String username);
+}
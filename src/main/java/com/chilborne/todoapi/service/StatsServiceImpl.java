@@ -0,0 +1,76 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.CompletionDayDto;
+import com.chilborne.todoapi.persistance.dto.UserStatsDto;
+import com.chilborne.todoapi.persistance.repository.CompletionStatsRepository;
+import com.chilborne.todoapi.persistance.repository.CompletionStatsRepository.BucketCompletions;
+import com.chilborne.todoapi.persistance.stats.CompletionStats;
+import com.chilborne.todoapi.security.access.UserAccessManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a user's stats from the completion rollups kept by
+ * {@link com.chilborne.todoapi.persistance.stats.CompletionStatsTrigger} and the task counts kept
+ * on their lists, so a request reads a few dozen rows however many tasks the user has.
+ */
+@Service
+public class StatsServiceImpl implements StatsService {
+
+  static final int STATS_DAYS = 30;
+
+  private final CompletionStatsRepository completionStatsRepository;
+  private final UserAccessManager accessManager;
+  private final Logger logger = LoggerFactory.getLogger(StatsServiceImpl.class);
+
+  public StatsServiceImpl(
+      CompletionStatsRepository completionStatsRepository, UserAccessManager accessManager) {
+    this.completionStatsRepository = completionStatsRepository;
+    this.accessManager = accessManager;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public UserStatsDto getUserStats(String username) {
+    accessManager.checkAccess(username);
+    logger.info("Fetching stats of User:{}", username);
+    Map<Integer, Long> completionsByBucket = new HashMap<>();
+    long completed = 0;
+    for (BucketCompletions bucket : completionStatsRepository.findTimesByUsername(username)) {
+      completionsByBucket.put(bucket.getBucket(), bucket.getCompletions());
+      completed += bucket.getCompletions();
+    }
+    long active = completionStatsRepository.countActiveTasksByUsername(username);
+    return new UserStatsDto(
+        active,
+        completed,
+        completionsPerDay(username),
+        CompletionStats.medianSeconds(completionsByBucket));
+  }
+
+  private List<CompletionDayDto> completionsPerDay(String username) {
+    LocalDate today = today();
+    LocalDate from = today.minusDays(STATS_DAYS - 1);
+    Map<LocalDate, Long> completions = new HashMap<>();
+    for (CompletionDayDto day : completionStatsRepository.findDaysByUsername(username, from)) {
+      completions.put(day.getDate(), day.getCompletions());
+    }
+    List<CompletionDayDto> days = new ArrayList<>(STATS_DAYS);
+    for (LocalDate day = from; !day.isAfter(today); day = day.plusDays(1)) {
+      days.add(new CompletionDayDto(day, completions.getOrDefault(day, 0L)));
+    }
+    return days;
+  }
+
+  LocalDate today() {
+    return LocalDate.now();
+  }
+}
@@ -0,0 +1,9 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.SyncDto;
+
+public interface SyncService {
+
+  // up to limit changes with a change sequence number after since, oldest first
+  SyncDto getChangesSince(String username, long since, int limit);
+}
@@ -0,0 +1,94 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.SyncDto;
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.dto.TombstoneDto;
+import com.chilborne.todoapi.persistance.repository.TaskRepository;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.persistance.repository.TombstoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Answers delta sync requests from the change sequence numbers stamped on lists and tasks and the
+ * tombstones of deleted ones. Every lookup is a range scan from the client's cursor, so the cost of
+ * a request follows the number of changes rather than the size of the account.
+ */
+@Service
+public class SyncServiceImpl implements SyncService {
+
+  private final ToDoListRepository toDoListRepository;
+  private final TaskRepository taskRepository;
+  private final TombstoneRepository tombstoneRepository;
+  private final Logger logger = LoggerFactory.getLogger(SyncServiceImpl.class);
+
+  public SyncServiceImpl(
+      ToDoListRepository toDoListRepository,
+      TaskRepository taskRepository,
+      TombstoneRepository tombstoneRepository) {
+    this.toDoListRepository = toDoListRepository;
+    this.taskRepository = taskRepository;
+    this.tombstoneRepository = tombstoneRepository;
+  }
+
+  // not read-only, a replica may not have caught up with the horizon yet
+  @Override
+  @Transactional
+  public SyncDto getChangesSince(String username, long since, int limit) {
+    // changes past the horizon may still be joined by earlier ones, they are sent next time
+    long until = horizon();
+    if (since >= until) {
+      return new SyncDto(since, false, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
+    long pageUntil = pageEnd(username, since, until, limit);
+    List<ToDoListDto> lists = toDoListRepository.findDtosChangedBetween(username, since, pageUntil);
+    // tasks of a changed list are sent on their own, and only if they changed themselves
+    lists.forEach(list -> list.setTasks(null));
+    List<TaskDto> tasks = taskRepository.findDtosChangedBetween(username, since, pageUntil);
+    List<TombstoneDto> deleted = tombstoneRepository.findDtosChangedBetween(username, since, pageUntil);
+    logger.debug(
+        "Sync of User:{} from {} to {} found {} lists, {} tasks and {} deletions",
+        username, since, pageUntil, lists.size(), tasks.size(), deleted.size());
+    return new SyncDto(pageUntil, pageUntil < until, lists, tasks, deleted);
+  }
+
+  // the change sequence number of the limit-th change after since, or until when there are fewer
+  private long pageEnd(String username, long since, long until, int limit) {
+    Pageable page = PageRequest.of(0, limit);
+    List<List<Long>> found =
+        List.of(
+            toDoListRepository.findChangeSeqsByUsername(username, since, until, page),
+            taskRepository.findChangeSeqsByUsername(username, since, until, page),
+            tombstoneRepository.findChangeSeqsByUsername(username, since, until, page));
+    long end = until;
+    for (List<Long> kind : found) {
+      // a full page may have left out later changes of the same kind
+      if (kind.size() == limit) {
+        end = Math.min(end, kind.get(limit - 1));
+      }
+    }
+    List<Long> seqs = new ArrayList<>();
+    for (List<Long> kind : found) {
+      for (long seq : kind) {
+        if (seq <= end) {
+          seqs.add(seq);
+        }
+      }
+    }
+    Collections.sort(seqs);
+    return seqs.size() > limit ? seqs.get(limit - 1) : end;
+  }
+
+  long horizon() {
+    return tombstoneRepository.findChangeHorizon();
+  }
+}
@@ -2,16 +2,42 @@ package com.chilborne.todoapi.service;
 
 import com.chilborne.todoapi.exception.TaskAlreadyCompletedException;
 import com.chilborne.todoapi.exception.TaskNotFoundException;
+import com.chilborne.todoapi.exception.ToDoListNotFoundException;
+import com.chilborne.todoapi.exception.VersionMismatchException;
+import com.chilborne.todoapi.persistance.dto.TaskCompletionDto;
 import com.chilborne.todoapi.persistance.dto.TaskDto;
 import com.chilborne.todoapi.persistance.model.Task;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
 public interface TaskService {
 
-  TaskDto getTaskDtoById(long id) throws TaskNotFoundException;
+  TaskDto getTaskDtoById(long id, String username) throws TaskNotFoundException;
+
+  Optional<Long> findTaskVersion(long id, String username);
+
+  // version and task are read in one transaction, empty when notModified holds for the version
+  Optional<TaskDto> getTaskDtoIfModified(long id, String username, Predicate<String> notModified)
+      throws TaskNotFoundException;
+
+  // expectedVersion may be null, otherwise a task at another version is not changed
+  TaskDto completeTask(long id, String username, Long expectedVersion)
+      throws TaskNotFoundException, TaskAlreadyCompletedException, VersionMismatchException;
+
+  TaskCompletionDto completeTasks(Collection<Long> ids, String username);
+
+  TaskCompletionDto completeListTasks(long listId, String username, LocalDateTime createdBefore)
+      throws ToDoListNotFoundException;
 
-  TaskDto completeTask(long id) throws TaskNotFoundException, TaskAlreadyCompletedException;
+  TaskDto updateTaskNameAndDescription(long id, String username, TaskDto task, Long expectedVersion)
+      throws TaskNotFoundException, VersionMismatchException;
 
-  TaskDto updateTaskNameAndDescription(long id, TaskDto task);
+  // best match first, a task has to match every term of the query
+  List<TaskDto> searchTasks(String username, String query, int page, int size);
 
   void checkTaskAccess(Task task);
 
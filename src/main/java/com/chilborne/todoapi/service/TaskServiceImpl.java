@@ -2,85 +2,217 @@ package com.chilborne.todoapi.service;
 
 import com.chilborne.todoapi.exception.TaskAlreadyCompletedException;
 import com.chilborne.todoapi.exception.TaskNotFoundException;
+import com.chilborne.todoapi.exception.ToDoListNotFoundException;
+import com.chilborne.todoapi.exception.VersionMismatchException;
+import com.chilborne.todoapi.persistance.dto.TaskCompletionDto;
 import com.chilborne.todoapi.persistance.dto.TaskDto;
-import com.chilborne.todoapi.persistance.mapper.TaskMapper;
 import com.chilborne.todoapi.persistance.model.Task;
 import com.chilborne.todoapi.persistance.repository.TaskRepository;
+import com.chilborne.todoapi.persistance.search.TaskTerms;
 import com.chilborne.todoapi.security.access.TaskAccessManager;
+import com.chilborne.todoapi.service.event.ChangeEvent;
+import com.chilborne.todoapi.service.event.ChangeEvent.Action;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 public class TaskServiceImpl implements TaskService {
 
   private final TaskRepository taskRepository;
   private final TaskAccessManager taskAccessManager;
-  private final TaskMapper mapper;
   private final ToDoListService toDoListService;
+  private final ApplicationEventPublisher events;
   private final Logger logger = LoggerFactory.getLogger(TaskServiceImpl.class);
 
   public TaskServiceImpl(
     TaskRepository taskRepository,
     TaskAccessManager taskAccessManager,
-    TaskMapper mapper,
-    ToDoListService toDoListService) {
+    ToDoListService toDoListService,
+    ApplicationEventPublisher events) {
       this.taskRepository = taskRepository;
       this.taskAccessManager = taskAccessManager;
       this.toDoListService = toDoListService;
-      this.mapper = mapper;
+      this.events = events;
   }
 
   @Override
-  public TaskDto getTaskDtoById(long id) throws TaskNotFoundException {
+  @Transactional(readOnly = true)
+  public TaskDto getTaskDtoById(long id, String username) throws TaskNotFoundException {
     logger.info("Fetching Task id: " + id);
-    Task task = taskRepository.findById(id).orElseThrow(() -> new TaskNotFoundException(id));
-    taskAccessManager.checkAccess(task);
-    return mapper.convertTask(task);
+    return taskRepository
+        .findDtoByIdAndUsername(id, username)
+        .orElseThrow(() -> new TaskNotFoundException(id));
   }
 
-  private Task getTask(long id) throws TaskNotFoundException {
-    logger.info("Fetching Task id: {}", id);
-    Task task = taskRepository.findById(id).orElseThrow(() -> new TaskNotFoundException(id));
-    taskAccessManager.checkAccess(task);
-    return task;
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<Long> findTaskVersion(long id, String username) {
+    return taskRepository.findVersionByIdAndUsername(id, username);
   }
 
-  private TaskDto saveTask(Task task) {
-    logger.info("Saving task: " + task);
-    Task savedTask = taskRepository.save(task);
-    return mapper.convertTask(savedTask);
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<TaskDto> getTaskDtoIfModified(
+      long id, String username, Predicate<String> notModified) throws TaskNotFoundException {
+    Optional<Long> version = findTaskVersion(id, username);
+    if (version.isPresent() && notModified.test(String.valueOf(version.get()))) {
+      return Optional.empty();
+    }
+    return Optional.of(getTaskDtoById(id, username));
   }
 
   @Override
-  public TaskDto completeTask(long id) throws TaskNotFoundException, TaskAlreadyCompletedException {
+  @Transactional
+  public TaskDto completeTask(long id, String username, Long expectedVersion)
+      throws TaskNotFoundException, TaskAlreadyCompletedException, VersionMismatchException {
     logger.info("Completing task id: " + id);
-    Task toComplete = getTask(id);
-    if (toComplete.isActive()) {
-      toComplete.setActive(false);
-      toComplete.setTimeCompleted(LocalDateTime.now());
-      return saveTask(toComplete);
-    } else {
-      throw new TaskAlreadyCompletedException(
-          "This task was already completed at "
-              + toComplete
-                  .getTimeCompleted()
-                  .format(DateTimeFormatter.ofPattern("HH:mm:ss dd/MM/yy")));
+    // the conditional update is the only write to the task, so concurrent requests cannot both
+    // complete it
+    int updated = taskRepository.completeActiveTask(id, username, completionTime(), expectedVersion);
+    if (updated > 0) {
+      taskRepository.countCompletionsInListsOfTasks(List.of(id));
+      TaskDto completed =
+          taskRepository
+              .findDtoByIdAndUsername(id, username)
+              .orElseThrow(() -> new TaskNotFoundException(id));
+      events.publishEvent(ChangeEvent.task(username, Action.COMPLETED, completed.getListId(), id));
+      return completed;
+    }
+    // nothing was completed, the task as it is tells why
+    Task task =
+        taskRepository
+            .findByIdAndToDoListUserUsername(id, username)
+            .orElseThrow(() -> new TaskNotFoundException(id));
+    if (expectedVersion != null && task.getVersion() != expectedVersion) {
+      throw new VersionMismatchException("task", id, expectedVersion);
+    }
+    throw new TaskAlreadyCompletedException(
+        "This task was already completed at "
+            + task.getTimeCompleted().format(DateTimeFormatter.ofPattern("HH:mm:ss dd/MM/yy")));
+  }
+
+  @Override
+  @Transactional
+  public TaskCompletionDto completeTasks(Collection<Long> ids, String username) {
+    logger.info("Completing {} tasks belonging to User:{}", ids.size(), username);
+    TaskCompletionDto result = new TaskCompletionDto();
+    if (ids.isEmpty()) {
+      return result;
+    }
+    // locked, so exactly these are completed by this request, whatever else completes them too
+    List<Long> claimed = taskRepository.lockActiveIds(ids, username);
+    if (!claimed.isEmpty()) {
+      taskRepository.completeActiveTasks(claimed, username, completionTime());
+    }
+    logger.debug("Completed {} of {} tasks", claimed.size(), ids.size());
+
+    Map<Long, TaskRepository.CompletionState> states = new HashMap<>();
+    for (TaskRepository.CompletionState state : taskRepository.findCompletionStates(ids, username)) {
+      states.put(state.getId(), state);
+    }
+    Set<Long> completed = new HashSet<>(claimed);
+    for (Long id : new LinkedHashSet<>(ids)) {
+      TaskRepository.CompletionState state = states.get(id);
+      if (state == null) {
+        result.getNotFound().add(id);
+      } else if (completed.contains(id)) {
+        result.getCompleted().add(id);
+        events.publishEvent(ChangeEvent.task(username, Action.COMPLETED, state.getListId(), id));
+      } else {
+        result.getAlreadyCompleted().add(id);
+      }
+    }
+    if (!result.getCompleted().isEmpty()) {
+      taskRepository.countCompletionsInListsOfTasks(result.getCompleted());
     }
+    return result;
   }
 
   @Override
-  public TaskDto updateTaskNameAndDescription(long id, TaskDto taskDto)
-      throws TaskNotFoundException {
+  @Transactional
+  public TaskCompletionDto completeListTasks(
+      long listId, String username, LocalDateTime createdBefore) throws ToDoListNotFoundException {
+    logger.info("Completing tasks of ToDoList:{} created before {}", listId, createdBefore);
+    if (!toDoListService.listBelongsToUser(listId, username)) {
+      throw new ToDoListNotFoundException(listId, username);
+    }
+    LocalDateTime completedAt = completionTime();
+    List<Long> completed =
+        taskRepository.lockActiveIdsInList(
+            listId, username, createdBefore != null ? createdBefore : completedAt);
+    if (!completed.isEmpty()) {
+      taskRepository.completeActiveTasks(completed, username, completedAt);
+      taskRepository.countCompletionsInListsOfTasks(completed);
+    }
+    logger.debug("Completed {} tasks of ToDoList:{}", completed.size(), listId);
+    for (Long id : completed) {
+      events.publishEvent(ChangeEvent.task(username, Action.COMPLETED, listId, id));
+    }
+    return new TaskCompletionDto(completed, new ArrayList<>(), new ArrayList<>());
+  }
+
+  // truncated to the precision the database stores
+  private LocalDateTime completionTime() {
+    return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+  }
+
+  @Override
+  @Transactional
+  public TaskDto updateTaskNameAndDescription(
+      long id, String username, TaskDto taskDto, Long expectedVersion)
+      throws TaskNotFoundException, VersionMismatchException {
     logger.info("Updating task id: {} to {}", id, taskDto);
-    if (!taskRepository.existsById(id)) throw new TaskNotFoundException(id);
-    Task toUpdate = getTask(id);
-    toUpdate.setName(taskDto.getName());
-    toUpdate.setDescription(taskDto.getDescription());
-    return saveTask(toUpdate);
+    if (taskRepository.updateNameAndDescription(
+            id, username, taskDto.getName(), taskDto.getDescription(), expectedVersion)
+        == 0) {
+      // nothing changed either because the task is missing or because it moved on
+      if (expectedVersion != null && findTaskVersion(id, username).isPresent()) {
+        throw new VersionMismatchException("task", id, expectedVersion);
+      }
+      throw new TaskNotFoundException(id);
+    }
+    taskRepository.incrementListVersionsOfTasks(List.of(id));
+    TaskDto updated = getTaskDtoById(id, username);
+    events.publishEvent(ChangeEvent.task(username, Action.UPDATED, updated.getListId(), id));
+    return updated;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<TaskDto> searchTasks(String username, String query, int page, int size) {
+    logger.info("Searching tasks of User:{} for '{}'", username, query);
+    List<Long> ids = taskRepository.searchIds(username, TaskTerms.query(query), page * size, size);
+    if (ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+    Map<Long, TaskDto> tasksById =
+        taskRepository.findDtosByIds(ids).stream()
+            .collect(Collectors.toMap(TaskDto::getTaskId, Function.identity()));
+    // the index is only read in the same transaction as the tasks, so every id is found
+    List<TaskDto> result = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      result.add(tasksById.get(id));
+    }
+    return result;
   }
 
   @Override
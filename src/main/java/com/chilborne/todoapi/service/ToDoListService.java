@@ -2,35 +2,89 @@ package com.chilborne.todoapi.service;
 
 import com.chilborne.todoapi.exception.TaskNotFoundException;
 import com.chilborne.todoapi.exception.ToDoListNotFoundException;
+import com.chilborne.todoapi.exception.VersionMismatchException;
+import com.chilborne.todoapi.persistance.dto.TaskDeletionDto;
 import com.chilborne.todoapi.persistance.dto.TaskDto;
 import com.chilborne.todoapi.persistance.dto.ToDoListDto;
 import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.repository.TaskFilter;
 import org.springframework.data.repository.query.Param;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 public interface ToDoListService {
 
     //TODO implement authorization check without passing username to each method
     ToDoListDto getToDoListDtoById(long id, String username) throws ToDoListNotFoundException;
 
+    ToDoListDto getToDoListDtoById(long id, String username, boolean includeArchived)
+        throws ToDoListNotFoundException;
+
+    // only the list's current tasks are filtered, archived ones are never included
+    ToDoListDto getToDoListDtoById(long id, String username, TaskFilter filter)
+        throws ToDoListNotFoundException;
+
+    List<ToDoListDto> getArchivedToDoLists(String username);
+
+    // versions are cheap lookups for conditional requests, nothing is mapped
+    Optional<Long> findToDoListVersion(long id, String username);
+
+    String getToDoListsVersion(String username, long after);
+
+    String getArchivedToDoListsVersion(String username);
+
+    // conditional reads: the version and the lists are read in one transaction, so both come from
+    // the same database, and nothing is mapped when notModified holds for the version
+    Optional<ToDoListDto> getToDoListDtoIfModified(
+        long id, String username, TaskFilter filter, boolean includeArchived,
+        Predicate<String> notModified)
+        throws ToDoListNotFoundException;
+
+    Optional<List<ToDoListDto>> getArchivedToDoListsIfModified(
+        String username, Predicate<String> notModified);
+
+    Optional<List<ToDoListDto>> getToDoListPageIfModified(
+        String username, long after, int limit, boolean summary, Predicate<String> notModified);
+
     ToDoListDto saveToDoList(ToDoList list);
 
     ToDoListDto newToDoList(ToDoListDto listDto, String username);
 
+    // saves the lists with their tasks in one transaction and detaches them again, for imports
+    List<Long> newToDoLists(List<ToDoListDto> listDtos, String username);
+
     List<ToDoListDto> getAllToDoList(String username);
 
-    void deleteToDoList(long id, String username);
+    List<ToDoListDto> getToDoListPage(String username, long after, int limit);
+
+    // as getToDoListPage, but only the lists with their task counts, tasks are left null
+    List<ToDoListDto> getToDoListSummaryPage(String username, long after, int limit);
+
+    // expectedVersion may be null, otherwise a list at another version is not changed
+    void deleteToDoList(long id, String username, Long expectedVersion)
+        throws ToDoListNotFoundException, VersionMismatchException;
 
-    ToDoListDto updateToDoListNameAndDescription(long id, ToDoListDto toDoList, String username);
+    ToDoListDto updateToDoListNameAndDescription(
+        long id, ToDoListDto toDoList, String username, Long expectedVersion)
+        throws ToDoListNotFoundException, VersionMismatchException;
 
-    ToDoListDto setToDoListActive(long id, String username, boolean active) throws ToDoListNotFoundException;
+    ToDoListDto setToDoListActive(long id, String username, boolean active, Long expectedVersion)
+        throws ToDoListNotFoundException, VersionMismatchException;
 
     ToDoListDto addTaskToDoList(long id, String username, TaskDto task) throws ToDoListNotFoundException;
 
+    List<Long> addTasksToDoList(long id, String username, List<TaskDto> tasks) throws ToDoListNotFoundException;
+
     ToDoListDto removeTaskFromToDoList(long listId, String username, long taskId) throws TaskNotFoundException;
 
+    void deleteTaskFromToDoList(long listId, String username, long taskId) throws TaskNotFoundException;
+
+    TaskDeletionDto deleteTaskFromToDoListWithSummary(long listId, String username, long taskId)
+        throws TaskNotFoundException;
+
 
     boolean listBelongsToUser(long listId, String username);
 }
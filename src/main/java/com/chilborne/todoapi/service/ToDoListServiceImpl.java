@@ -2,6 +2,8 @@ package com.chilborne.todoapi.service;
 
 import com.chilborne.todoapi.exception.TaskNotFoundException;
 import com.chilborne.todoapi.exception.ToDoListNotFoundException;
+import com.chilborne.todoapi.exception.VersionMismatchException;
+import com.chilborne.todoapi.persistance.dto.TaskDeletionDto;
 import com.chilborne.todoapi.persistance.dto.TaskDto;
 import com.chilborne.todoapi.persistance.dto.ToDoListDto;
 import com.chilborne.todoapi.persistance.mapper.TaskMapper;
@@ -9,15 +11,26 @@ import com.chilborne.todoapi.persistance.mapper.ToDoListMapper;
 import com.chilborne.todoapi.persistance.model.Task;
 import com.chilborne.todoapi.persistance.model.ToDoList;
 import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.TaskFilter;
 import com.chilborne.todoapi.persistance.repository.TaskRepository;
 import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.service.event.ChangeEvent;
+import com.chilborne.todoapi.service.event.ChangeEvent.Action;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,21 +39,27 @@ public class ToDoListServiceImpl implements ToDoListService {
   private final ToDoListRepository toDoListRepository;
   private final TaskRepository taskRepository;
   private final UserService userService;
+  private final ArchiveService archiveService;
   private final ToDoListMapper toDoListMapper;
   private final TaskMapper taskMapper;
+  private final ApplicationEventPublisher events;
   private final Logger logger = LoggerFactory.getLogger(ToDoListServiceImpl.class);
 
   public ToDoListServiceImpl(
     ToDoListRepository toDoListRepository,
     TaskRepository taskRepository,
     UserService userService,
+    ArchiveService archiveService,
     ToDoListMapper toDoListMapper,
-    TaskMapper taskMapper) {
+    TaskMapper taskMapper,
+    ApplicationEventPublisher events) {
     this.toDoListRepository = toDoListRepository;
     this.taskRepository = taskRepository;
     this.userService = userService;
+    this.archiveService = archiveService;
     this.toDoListMapper = toDoListMapper;
     this.taskMapper = taskMapper;
+    this.events = events;
   }
 
   @Override
@@ -60,75 +79,318 @@ public class ToDoListServiceImpl implements ToDoListService {
     User user = userService.getUserIfAuthorized(username);
     toSave.setUser(user);
     ToDoList saved = toDoListRepository.save(toSave);
+    events.publishEvent(ChangeEvent.list(username, Action.CREATED, saved.getId()));
     return toDoListMapper.convertToDoList(saved);
   }
 
+  @Override
+  @Transactional
+  public List<Long> newToDoLists(List<ToDoListDto> listDtos, String username) {
+    logger.info("Saving {} ToDoLists to User: {}", listDtos.size(), username);
+    User user = userService.getUserIfAuthorized(username);
+    List<ToDoList> toSave = new ArrayList<>(listDtos.size());
+    for (ToDoListDto listDto : listDtos) {
+      ToDoList list = toDoListMapper.convertListDto(listDto);
+      list.setUser(user);
+      // the mapper converts the tasks too, but leaves them without their list
+      list.getTasks().forEach(task -> task.setToDoList(list));
+      toSave.add(list);
+    }
+    // the lists' task counts are set from their tasks as they are persisted
+    toDoListRepository.insertAndDetach(toSave);
+    List<Long> ids = new ArrayList<>(toSave.size());
+    for (ToDoList saved : toSave) {
+      ids.add(saved.getId());
+      events.publishEvent(ChangeEvent.list(username, Action.CREATED, saved.getId()));
+    }
+    return ids;
+  }
+
   @Override
   @Transactional(readOnly = true)
   public ToDoListDto getToDoListDtoById(long id, String username) throws ToDoListNotFoundException {
     logger.info("Fetching ToDoList with id: " + id);
-    ToDoList result = getToDoListByIdAndUsername(id, username);
-    return toDoListMapper.convertToDoList(result);
+    ToDoListDto result =
+        toDoListRepository
+            .findDtoByIdAndUserUsername(id, username)
+            .orElseThrow(() -> new ToDoListNotFoundException(id, username));
+    result.setTasks(taskRepository.findDtosByListIds(List.of(id)));
+    return result;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public ToDoListDto getToDoListDtoById(long id, String username, boolean includeArchived)
+      throws ToDoListNotFoundException {
+    if (!includeArchived) {
+      return getToDoListDtoById(id, username);
+    }
+    Optional<ToDoListDto> hot = toDoListRepository.findDtoByIdAndUserUsername(id, username);
+    if (hot.isEmpty()) {
+      return archiveService
+          .getArchivedToDoList(id, username)
+          .orElseThrow(() -> new ToDoListNotFoundException(id, username));
+    }
+    ToDoListDto result = hot.get();
+    List<TaskDto> tasks = new ArrayList<>(taskRepository.findDtosByListIds(List.of(id)));
+    tasks.addAll(archiveService.getArchivedTasks(List.of(id)));
+    tasks.sort(Comparator.comparingLong(TaskDto::getTaskId));
+    result.setTasks(tasks);
+    return result;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public ToDoListDto getToDoListDtoById(long id, String username, TaskFilter filter)
+      throws ToDoListNotFoundException {
+    if (filter.isUnfiltered()) {
+      return getToDoListDtoById(id, username);
+    }
+    logger.info("Fetching ToDoList with id: {} and tasks matching {}", id, filter);
+    ToDoListDto result =
+        toDoListRepository
+            .findDtoByIdAndUserUsername(id, username)
+            .orElseThrow(() -> new ToDoListNotFoundException(id, username));
+    result.setTasks(taskRepository.findDtosByListId(id, filter));
+    return result;
+  }
+
+  @Override
+  public List<ToDoListDto> getArchivedToDoLists(String username) {
+    return archiveService.getArchivedToDoLists(username);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<Long> findToDoListVersion(long id, String username) {
+    return toDoListRepository.findVersionByIdAndUsername(id, username);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public String getToDoListsVersion(String username, long after) {
+    return toDoListRepository.summarizeVersionsByUsername(username, after).asVersion();
+  }
+
+  @Override
+  public String getArchivedToDoListsVersion(String username) {
+    return archiveService.getArchiveVersion(username);
+  }
+
+  // lists which only exist in the archive have no version and are always read in full
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<ToDoListDto> getToDoListDtoIfModified(
+      long id, String username, TaskFilter filter, boolean includeArchived,
+      Predicate<String> notModified)
+      throws ToDoListNotFoundException {
+    Optional<Long> version = findToDoListVersion(id, username);
+    if (version.isPresent() && notModified.test(String.valueOf(version.get()))) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        includeArchived
+            ? getToDoListDtoById(id, username, true)
+            : getToDoListDtoById(id, username, filter));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<List<ToDoListDto>> getArchivedToDoListsIfModified(
+      String username, Predicate<String> notModified) {
+    if (notModified.test(getArchivedToDoListsVersion(username))) {
+      return Optional.empty();
+    }
+    return Optional.of(getArchivedToDoLists(username));
+  }
+
+  // the version covers every list after the cursor, not just this page, which is cheaper to look up
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<List<ToDoListDto>> getToDoListPageIfModified(
+      String username, long after, int limit, boolean summary, Predicate<String> notModified) {
+    if (notModified.test(getToDoListsVersion(username, after))) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        summary
+            ? getToDoListSummaryPage(username, after, limit)
+            : getToDoListPage(username, after, limit));
   }
 
   @Override
   @Transactional(readOnly = true)
   public List<ToDoListDto> getAllToDoList(String username) {
     logger.info("Fetching all ToDoLists for User:{}", username);
-    return toDoListRepository.findByUserUsername(username).stream()
-        .map(toDoListMapper::convertToDoList)
-        .collect(Collectors.toList());
+    List<ToDoListDto> lists = toDoListRepository.findDtosByUserUsername(username);
+    return addTasks(lists, taskRepository.findDtosByUsername(username));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<ToDoListDto> getToDoListPage(String username, long after, int limit) {
+    logger.info("Fetching {} ToDoLists after id:{} for User:{}", limit, after, username);
+    List<ToDoListDto> lists =
+        toDoListRepository.findDtoPageByUserUsername(username, after, PageRequest.of(0, limit));
+    if (lists.isEmpty()) {
+      return lists;
+    }
+    List<Long> listIds = lists.stream().map(ToDoListDto::getListId).collect(Collectors.toList());
+    return addTasks(lists, taskRepository.findDtosByListIds(listIds));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<ToDoListDto> getToDoListSummaryPage(String username, long after, int limit) {
+    logger.info("Fetching summaries of {} ToDoLists after id:{} for User:{}", limit, after, username);
+    List<ToDoListDto> lists =
+        toDoListRepository.findDtoPageByUserUsername(username, after, PageRequest.of(0, limit));
+    lists.forEach(list -> list.setTasks(null));
+    return lists;
+  }
+
+  private List<ToDoListDto> addTasks(List<ToDoListDto> lists, List<TaskDto> tasks) {
+    Map<Long, ToDoListDto> listsById = new HashMap<>();
+    for (ToDoListDto list : lists) {
+      listsById.put(list.getListId(), list);
+    }
+    for (TaskDto task : tasks) {
+      listsById.get(task.getListId()).getTasks().add(task);
+    }
+    return lists;
   }
 
   @Override
   @Transactional
-  public void deleteToDoList(long id, String username) {
+  public void deleteToDoList(long id, String username, Long expectedVersion)
+      throws ToDoListNotFoundException, VersionMismatchException {
     logger.info("Deleting ToDoList:{} belonging to User:{}", id, username);
-    if (existsByIdAndUsername(id, username)) {
-      toDoListRepository.deleteById(id);
+    // claiming the list at the expected version keeps it from changing until it is deleted
+    if (expectedVersion != null
+        && toDoListRepository.incrementVersion(id, username, expectedVersion) == 0) {
+      throw listNotUpdated(id, username, expectedVersion);
+    }
+    // tasks are deleted in bulk first, deleting the list itself then doubles as the ownership check
+    taskRepository.deleteByListIdAndUsername(id, username);
+    boolean archived = archiveService.deleteArchivedToDoList(id, username);
+    if (toDoListRepository.deleteByIdAndUsername(id, username) == 0 && !archived) {
+      throw new ToDoListNotFoundException(id, username);
     }
+    events.publishEvent(ChangeEvent.list(username, Action.DELETED, id));
   }
 
   @Override
+  @Transactional
   public ToDoListDto updateToDoListNameAndDescription(
-      long id, ToDoListDto listDto, String username) {
-    ToDoList toUpdate = getToDoListByIdAndUsername(id, username);
-    toUpdate.setName(listDto.getName());
-    toUpdate.setDescription(listDto.getDescription());
-    return saveToDoList(toUpdate);
+      long id, ToDoListDto listDto, String username, Long expectedVersion)
+      throws ToDoListNotFoundException, VersionMismatchException {
+    logger.info("Updating name and description of ToDoList:{}", id);
+    if (toDoListRepository.updateNameAndDescription(
+            id, username, listDto.getName(), listDto.getDescription(), expectedVersion)
+        == 0) {
+      throw listNotUpdated(id, username, expectedVersion);
+    }
+    events.publishEvent(ChangeEvent.list(username, Action.UPDATED, id));
+    return getToDoListDtoById(id, username);
   }
 
   @Override
-  public ToDoListDto setToDoListActive(long id, String username, boolean active)
-      throws ToDoListNotFoundException {
+  @Transactional
+  public ToDoListDto setToDoListActive(long id, String username, boolean active, Long expectedVersion)
+      throws ToDoListNotFoundException, VersionMismatchException {
     logger.info(String.format("Setting ToDoList (id: %d) Active to: %b", id, active));
-    ToDoList toUpdate = getToDoListByIdAndUsername(id, username);
-    toUpdate.setActive(active);
-    return saveToDoList(toUpdate);
+    if (toDoListRepository.updateActive(id, username, active, expectedVersion) == 0) {
+      throw listNotUpdated(id, username, expectedVersion);
+    }
+    events.publishEvent(ChangeEvent.list(username, Action.UPDATED, id));
+    return getToDoListDtoById(id, username);
+  }
+
+  // a conditional statement changes nothing both for a missing list and for a list which has
+  // moved on from the expected version
+  private RuntimeException listNotUpdated(long id, String username, Long expectedVersion) {
+    if (expectedVersion != null && toDoListRepository.existsByIdAndUserUsername(id, username)) {
+      return new VersionMismatchException("to_do_list", id, expectedVersion);
+    }
+    return new ToDoListNotFoundException(id, username);
   }
 
   @Override
+  @Transactional
   public ToDoListDto addTaskToDoList(long listId, String username, TaskDto taskDto)
       throws ToDoListNotFoundException {
     logger.info(
         String.format("Adding Task (name: %s) to ToDoList (id: %d)", taskDto.getName(), listId));
-    ToDoList toUpdate = getToDoListByIdAndUsername(listId, username);
     Task newTask = taskMapper.convertTaskDto(taskDto);
+    // a new task does not dirty the list itself, so its version is raised along with its counts
+    toDoListRepository.addToTaskCounts(listId, username, 1, newTask.isActive() ? 1 : 0);
+    ToDoList toUpdate = getToDoListByIdAndUsername(listId, username);
     newTask.setToDoList(toUpdate);
-    toUpdate.addTask(newTask);
-    return saveToDoList(toUpdate);
+    // persisted first, so it goes into the list's tasks under the id drawn from task_seq
+    toUpdate.addTask(taskRepository.save(newTask));
+    ToDoListDto saved = saveToDoList(toUpdate);
+    // the merged copy of the new task is not at hand, subscribers re-read the list
+    events.publishEvent(ChangeEvent.list(username, Action.UPDATED, listId));
+    return saved;
+  }
+
+  @Override
+  @Transactional
+  public List<Long> addTasksToDoList(long listId, String username, List<TaskDto> taskDtos)
+      throws ToDoListNotFoundException {
+    logger.info("Adding {} Tasks to ToDoList (id: {})", taskDtos.size(), listId);
+    List<Task> newTasks = new ArrayList<>(taskDtos.size());
+    for (TaskDto taskDto : taskDtos) {
+      newTasks.add(taskMapper.convertTaskDto(taskDto));
+    }
+    int active = (int) newTasks.stream().filter(Task::isActive).count();
+    // doubles as the ownership check
+    if (toDoListRepository.addToTaskCounts(listId, username, newTasks.size(), active) == 0) {
+      throw new ToDoListNotFoundException(listId, username);
+    }
+    // the list itself is only needed as a foreign key, its tasks are never loaded
+    ToDoList list = toDoListRepository.getById(listId);
+    newTasks.forEach(newTask -> newTask.setToDoList(list));
+    List<Long> ids = new ArrayList<>(newTasks.size());
+    taskRepository.saveAll(newTasks).forEach(task -> ids.add(task.getId()));
+    for (Long id : ids) {
+      events.publishEvent(ChangeEvent.task(username, Action.CREATED, listId, id));
+    }
+    return ids;
   }
 
   @Override
+  @Transactional
   public ToDoListDto removeTaskFromToDoList(long listId, String username, long taskId)
       throws TaskNotFoundException {
+    deleteTaskFromToDoList(listId, username, taskId);
+    return getToDoListDtoById(listId, username);
+  }
+
+  @Override
+  @Transactional
+  public void deleteTaskFromToDoList(long listId, String username, long taskId)
+      throws TaskNotFoundException {
     logger.info(String.format("Removing Task (id: %d) from ToDoList (id; %d)", taskId, listId));
-    ToDoList toUpdate = getToDoListByIdAndUsername(listId, username);
-    if (toUpdate.removeTask(taskId)) {
-      return saveToDoList(toUpdate);
-    } else
+    // tasks are never reactivated, so a task which is not deleted as active can only be deleted
+    // as completed
+    int active = taskRepository.deleteActiveByIdAndListIdAndUsername(taskId, listId, username);
+    if (active == 0 && taskRepository.deleteByIdAndListIdAndUsername(taskId, listId, username) == 0) {
+      // only a failed delete needs to find out which of list and task is missing
+      existsByIdAndUsername(listId, username);
       throw new TaskNotFoundException(
           String.format("list with id:%d does not contain task with id:%d", listId, taskId));
+    }
+    toDoListRepository.addToTaskCounts(listId, username, -1, -active);
+    events.publishEvent(ChangeEvent.task(username, Action.DELETED, listId, taskId));
+  }
+
+  @Override
+  @Transactional
+  public TaskDeletionDto deleteTaskFromToDoListWithSummary(long listId, String username, long taskId)
+      throws TaskNotFoundException {
+    deleteTaskFromToDoList(listId, username, taskId);
+    return new TaskDeletionDto(listId, taskId, taskRepository.countByToDoListId(listId));
   }
 
   ToDoList getToDoListByIdAndUsername(long id, String username) throws ToDoListNotFoundException {
@@ -1,6 +1,7 @@
 package com.chilborne.todoapi.service;
 
 import com.chilborne.todoapi.exception.UsernameAlreadyExistsException;
+import com.chilborne.todoapi.exception.VersionMismatchException;
 import com.chilborne.todoapi.persistance.dto.UserDto;
 import com.chilborne.todoapi.persistance.model.User;
 import org.springframework.security.access.AccessDeniedException;
@@ -9,6 +10,8 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.constraints.Email;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 public interface UserService {
 
@@ -17,20 +20,34 @@ public interface UserService {
 
   User getUserIfAuthorized(String username);
 
+  // the user's version also covers their lists, which are part of the user's representation
+  @Transactional(readOnly = true)
+  Optional<String> findUserVersion(String username) throws AccessDeniedException;
+
+  // version and user are read in one transaction, empty when notModified holds for the version
+  @Transactional(readOnly = true)
+  Optional<UserDto> getUserIfModified(String username, Predicate<String> notModified)
+      throws UsernameNotFoundException, AccessDeniedException;
+
   @Transactional
   UserDto createUser(UserDto dto) throws UsernameAlreadyExistsException;
 
+  // expectedVersion may be null, otherwise a user at another version is not changed
   @Transactional
-  UserDto changeUsername(String oldUsername, String newUsername) throws UsernameAlreadyExistsException, AccessDeniedException;
+  UserDto changeUsername(String oldUsername, String newUsername, String expectedVersion)
+      throws UsernameAlreadyExistsException, AccessDeniedException, VersionMismatchException;
 
   @Transactional
-  UserDto changeEmail(String username, @Email String email) throws AccessDeniedException;
+  UserDto changeEmail(String username, @Email String email, String expectedVersion)
+      throws AccessDeniedException, VersionMismatchException;
 
   @Transactional
-  void deleteUser(String username) throws UsernameNotFoundException, AccessDeniedException;
+  void deleteUser(String username, String expectedVersion)
+      throws UsernameNotFoundException, AccessDeniedException, VersionMismatchException;
 
   @Transactional
-  void changePassword(String username, String newPwd) throws AccessDeniedException;
+  void changePassword(String username, String newPwd, String expectedVersion)
+      throws AccessDeniedException, VersionMismatchException;
 
   @Transactional(readOnly = true)
   boolean isUsernameUnique(String username);
@@ -1,9 +1,11 @@
 package com.chilborne.todoapi.service;
 
 import com.chilborne.todoapi.exception.UsernameAlreadyExistsException;
+import com.chilborne.todoapi.exception.VersionMismatchException;
 import com.chilborne.todoapi.persistance.dto.UserDto;
 import com.chilborne.todoapi.persistance.mapper.UserMapper;
 import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
 import com.chilborne.todoapi.persistance.repository.UserRepository;
 import com.chilborne.todoapi.security.UserPrincipal;
 import com.chilborne.todoapi.security.access.UserAccessManager;
@@ -16,26 +18,34 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import javax.validation.constraints.Email;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 @Service
 public class UserServiceImpl implements UserDetailsService, UserService {
 
   private final UserRepository userRepository;
+  private final ToDoListRepository toDoListRepository;
   private final UserAccessManager accessManager;
   private final PasswordEncoder passwordEncoder;
   private final UserMapper mapper;
+  private final ArchiveService archiveService;
 
   private final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
   public UserServiceImpl(
       UserRepository userRepository,
+      ToDoListRepository toDoListRepository,
       UserAccessManager accessManager,
       PasswordEncoder passwordEncoder,
-      UserMapper mapper) {
+      UserMapper mapper,
+      ArchiveService archiveService) {
     this.userRepository = userRepository;
+    this.toDoListRepository = toDoListRepository;
     this.accessManager = accessManager;
     this.passwordEncoder = passwordEncoder;
     this.mapper = mapper;
+    this.archiveService = archiveService;
   }
 
   @Override
@@ -66,6 +76,36 @@ public class UserServiceImpl implements UserDetailsService, UserService {
     return user;
   }
 
+  @Override
+  public Optional<String> findUserVersion(String username) {
+    accessManager.checkAccess(username);
+    return userRepository
+        .findVersionByUsername(username)
+        .map(version -> userVersion(version, username));
+  }
+
+  @Override
+  public Optional<UserDto> getUserIfModified(String username, Predicate<String> notModified) {
+    Optional<String> version = findUserVersion(username);
+    if (version.isPresent() && notModified.test(version.get())) {
+      return Optional.empty();
+    }
+    return Optional.of(getUserByUsername(username));
+  }
+
+  private String userVersion(long version, String username) {
+    return version + "-" + toDoListRepository.summarizeVersionsByUsername(username, 0).asVersion();
+  }
+
+  // the user row is read at the expected version, @Version then makes sure it is still there
+  // when the change is flushed
+  private void checkVersion(long version, String username, String expectedVersion) {
+    if (expectedVersion != null && !expectedVersion.equals(userVersion(version, username))) {
+      throw new VersionMismatchException(
+          "User " + username + " is no longer at version " + expectedVersion);
+    }
+  }
+
   private UserDto saveUser(User user) {
     logger.info("Saving User {}", user.getUsername());
     return mapper.convertUser(userRepository.save(user));
@@ -83,38 +123,49 @@ public class UserServiceImpl implements UserDetailsService, UserService {
   }
 
   @Override
-  public UserDto changeUsername(String oldUsername, String newUsername) {
+  public UserDto changeUsername(String oldUsername, String newUsername, String expectedVersion) {
     if (!isUsernameUnique(newUsername)) {
       throw new UsernameAlreadyExistsException(newUsername);
     }
     logger.info("Changing username for User:{} to {}", oldUsername, newUsername);
     User toUpdate = getUserIfAuthorized(oldUsername);
+    checkVersion(toUpdate.getVersion(), oldUsername, expectedVersion);
     toUpdate.setUsername(newUsername);
-    return saveUser(toUpdate);
+    UserDto saved = saveUser(toUpdate);
+    // lists show their owner's username
+    toDoListRepository.incrementVersionsByUsername(newUsername);
+    return saved;
   }
 
   @Override
-  public UserDto changeEmail(String username, @Email String email) {
+  public UserDto changeEmail(String username, @Email String email, String expectedVersion) {
     logger.info("Changing User:{} email to {}", username, email);
     User toUpdate = getUserIfAuthorized(username);
+    checkVersion(toUpdate.getVersion(), username, expectedVersion);
     toUpdate.setEmail(email);
     return saveUser(toUpdate);
   }
 
   @Override
-  public void deleteUser(String username) {
+  public void deleteUser(String username, String expectedVersion) {
     if (!userRepository.existsByUsername(username)) {
       throw new UsernameNotFoundException(username);
     }
     accessManager.checkAccess(username);
+    if (expectedVersion != null) {
+      checkVersion(getUserIfAuthorized(username).getVersion(), username, expectedVersion);
+    }
     logger.info("Deleting User:{}", username);
+    // archived rows only keep the user's id, they are not removed by the cascade
+    archiveService.deleteArchiveOfUser(username);
     userRepository.deleteByUsername(username);
   }
 
   @Override
-  public void changePassword(String username, String newPwd) {
+  public void changePassword(String username, String newPwd, String expectedVersion) {
     logger.info("Changing password for User: {}", username);
     User toUpdate = getUserIfAuthorized(username);
+    checkVersion(toUpdate.getVersion(), username, expectedVersion);
     toUpdate.setPassword(passwordEncoder.encode(newPwd));
     saveUser(toUpdate);
   }
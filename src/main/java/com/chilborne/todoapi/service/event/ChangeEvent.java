@@ -0,0 +1,107 @@
+package com.chilborne.todoapi.service.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A change to a list or task, published by the services while their transaction is open and
+ * handed to subscribers once it has committed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+
+  public enum Action {
+    CREATED,
+    UPDATED,
+    COMPLETED,
+    DELETED;
+
+    @JsonValue
+    public String value() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private final String username;
+  private final String type;
+  private final Action action;
+  private final long listId;
+  private final Long taskId;
+
+  private ChangeEvent(String username, String type, Action action, long listId, Long taskId) {
+    this.username = username;
+    this.type = type;
+    this.action = action;
+    this.listId = listId;
+    this.taskId = taskId;
+  }
+
+  public static ChangeEvent list(String username, Action action, long listId) {
+    return new ChangeEvent(username, "list", action, listId, null);
+  }
+
+  public static ChangeEvent task(String username, Action action, long listId, long taskId) {
+    return new ChangeEvent(username, "task", action, listId, taskId);
+  }
+
+  // subscribers only ever see their own events
+  @JsonIgnore
+  public String getUsername() {
+    return username;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public Action getAction() {
+    return action;
+  }
+
+  public long getListId() {
+    return listId;
+  }
+
+  public Long getTaskId() {
+    return taskId;
+  }
+
+  @JsonIgnore
+  public boolean isListDeleted() {
+    return "list".equals(type) && action == Action.DELETED;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    ChangeEvent that = (ChangeEvent) o;
+
+    if (listId != that.listId) return false;
+    if (!Objects.equals(username, that.username)) return false;
+    if (!Objects.equals(type, that.type)) return false;
+    if (action != that.action) return false;
+    return Objects.equals(taskId, that.taskId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(username, type, action, listId, taskId);
+  }
+
+  @Override
+  public String toString() {
+    return "ChangeEvent{" +
+        "username='" + username + '\'' +
+        ", type='" + type + '\'' +
+        ", action=" + action +
+        ", listId=" + listId +
+        ", taskId=" + taskId +
+        '}';
+  }
+}
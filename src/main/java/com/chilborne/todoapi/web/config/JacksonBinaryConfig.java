@@ -0,0 +1,39 @@
+package com.chilborne.todoapi.web.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Smile and CBOR converters for callers which send or accept those instead of json. Both are
+ * built from Boot's builder, so they share the spring.jackson settings in application.yml and the
+ * dtos' date formats, and replace the converters Spring MVC would otherwise add with Jackson's
+ * defaults.
+ */
+@Configuration
+public class JacksonBinaryConfig {
+
+  public static final String JSON = MediaType.APPLICATION_JSON_VALUE;
+  public static final String SMILE = "application/x-jackson-smile";
+  public static final String CBOR = MediaType.APPLICATION_CBOR_VALUE;
+
+  // the builder bean is a prototype, each converter is given a builder of its own
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(
+        builder.factory(new SmileFactory()).indentOutput(false).build());
+  }
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(
+        builder.factory(new CBORFactory()).indentOutput(false).build());
+  }
+}
@@ -0,0 +1,26 @@
+package com.chilborne.todoapi.web.config;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hand-written serializers for the dtos every list and task read goes through. Boot registers the
+ * module with its builder, so the json, Smile and CBOR mappers all use them; mappers built
+ * elsewhere keep the bean serializers. The serializers assume the spring.jackson settings in
+ * application.yml, {@code DtoSerializerTest} checks their output against the bean serializers'.
+ */
+@Configuration
+public class JacksonSerializerConfig {
+
+  @Bean
+  public Module dtoSerializerModule() {
+    TaskDtoSerializer taskSerializer = new TaskDtoSerializer();
+    return new SimpleModule("DtoSerializerModule")
+        .addSerializer(TaskDto.class, taskSerializer)
+        .addSerializer(ToDoListDto.class, new ToDoListDtoSerializer(taskSerializer));
+  }
+}
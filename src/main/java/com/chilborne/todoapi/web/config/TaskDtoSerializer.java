@@ -0,0 +1,104 @@
+package com.chilborne.todoapi.web.config;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes a {@link TaskDto} straight to the generator, producing the same output as the bean
+ * serializer under the application's snake_case, non_null settings: fields in declaration order,
+ * nulls left out and dates in the dto's {@code dd-MM-yyyy HH:mm:ss} format.
+ */
+public class TaskDtoSerializer extends StdSerializer<TaskDto> {
+
+  static final String DATE_TIME_PATTERN = "dd-MM-yyyy HH:mm:ss";
+  // years the fixed-width formatting below cannot write the way the pattern does
+  private static final DateTimeFormatter DATE_TIME_FORMAT =
+      DateTimeFormatter.ofPattern(DATE_TIME_PATTERN);
+
+  private static final SerializableString TASK_ID = new SerializedString("task_id");
+  private static final SerializableString NAME = new SerializedString("name");
+  private static final SerializableString DESCRIPTION = new SerializedString("description");
+  private static final SerializableString LIST_ID = new SerializedString("list_id");
+  private static final SerializableString DATE_TIME_MADE = new SerializedString("date_time_made");
+  private static final SerializableString DATE_TIME_FINISHED =
+      new SerializedString("date_time_finished");
+  private static final SerializableString ACTIVE = new SerializedString("active");
+  private static final SerializableString URL = new SerializedString("url");
+  private static final SerializableString ARCHIVED = new SerializedString("archived");
+
+  public TaskDtoSerializer() {
+    super(TaskDto.class);
+  }
+
+  @Override
+  public void serialize(TaskDto task, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    generator.writeStartObject(task);
+    generator.writeFieldName(TASK_ID);
+    generator.writeNumber(task.getTaskId());
+    writeString(generator, NAME, task.getName());
+    writeString(generator, DESCRIPTION, task.getDescription());
+    generator.writeFieldName(LIST_ID);
+    generator.writeNumber(task.getListId());
+    writeDateTime(generator, DATE_TIME_MADE, task.getDateTimeMade());
+    writeDateTime(generator, DATE_TIME_FINISHED, task.getDateTimeFinished());
+    generator.writeFieldName(ACTIVE);
+    generator.writeBoolean(task.isActive());
+    writeString(generator, URL, task.getUrl());
+    if (task.getArchived() != null) {
+      generator.writeFieldName(ARCHIVED);
+      generator.writeBoolean(task.getArchived());
+    }
+    generator.writeEndObject();
+  }
+
+  static void writeString(JsonGenerator generator, SerializableString name, String value)
+      throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      generator.writeString(value);
+    }
+  }
+
+  static void writeDateTime(JsonGenerator generator, SerializableString name, LocalDateTime value)
+      throws IOException {
+    if (value == null) {
+      return;
+    }
+    generator.writeFieldName(name);
+    int year = value.getYear();
+    if (year < 1 || year > 9999) {
+      generator.writeString(DATE_TIME_FORMAT.format(value));
+      return;
+    }
+    char[] chars = new char[DATE_TIME_PATTERN.length()];
+    writeDigits(chars, 0, value.getDayOfMonth(), 2);
+    chars[2] = '-';
+    writeDigits(chars, 3, value.getMonthValue(), 2);
+    chars[5] = '-';
+    writeDigits(chars, 6, year, 4);
+    chars[10] = ' ';
+    writeDigits(chars, 11, value.getHour(), 2);
+    chars[13] = ':';
+    writeDigits(chars, 14, value.getMinute(), 2);
+    chars[16] = ':';
+    writeDigits(chars, 17, value.getSecond(), 2);
+    generator.writeString(chars, 0, chars.length);
+  }
+
+  // zero padded, value always fits in width
+  private static void writeDigits(char[] chars, int offset, int value, int width) {
+    for (int i = offset + width - 1; i >= offset; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.chilborne.todoapi.web.config;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.chilborne.todoapi.web.config.TaskDtoSerializer.writeDateTime;
+import static com.chilborne.todoapi.web.config.TaskDtoSerializer.writeString;
+
+/**
+ * Writes a {@link ToDoListDto} and its tasks straight to the generator, see {@link
+ * TaskDtoSerializer}. Tasks are handed to the task serializer directly rather than looked up
+ * through the provider once per element.
+ */
+public class ToDoListDtoSerializer extends StdSerializer<ToDoListDto> {
+
+  private static final SerializableString LIST_ID = new SerializedString("list_id");
+  private static final SerializableString NAME = new SerializedString("name");
+  private static final SerializableString DESCRIPTION = new SerializedString("description");
+  private static final SerializableString USERNAME = new SerializedString("username");
+  private static final SerializableString DATE_TIME_MADE = new SerializedString("date_time_made");
+  private static final SerializableString TASKS = new SerializedString("tasks");
+  private static final SerializableString ACTIVE = new SerializedString("active");
+  private static final SerializableString URL = new SerializedString("url");
+  private static final SerializableString TASK_COUNT = new SerializedString("task_count");
+  private static final SerializableString ACTIVE_TASK_COUNT =
+      new SerializedString("active_task_count");
+  private static final SerializableString ARCHIVED = new SerializedString("archived");
+
+  private final TaskDtoSerializer taskSerializer;
+
+  public ToDoListDtoSerializer(TaskDtoSerializer taskSerializer) {
+    super(ToDoListDto.class);
+    this.taskSerializer = taskSerializer;
+  }
+
+  @Override
+  public void serialize(ToDoListDto list, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    generator.writeStartObject(list);
+    generator.writeFieldName(LIST_ID);
+    generator.writeNumber(list.getListId());
+    writeString(generator, NAME, list.getName());
+    writeString(generator, DESCRIPTION, list.getDescription());
+    writeString(generator, USERNAME, list.getUsername());
+    writeDateTime(generator, DATE_TIME_MADE, list.getDateTimeMade());
+    List<TaskDto> tasks = list.getTasks();
+    if (tasks != null) {
+      generator.writeFieldName(TASKS);
+      generator.writeStartArray(tasks, tasks.size());
+      for (TaskDto task : tasks) {
+        if (task == null) {
+          generator.writeNull();
+        } else {
+          taskSerializer.serialize(task, generator, provider);
+        }
+      }
+      generator.writeEndArray();
+    }
+    generator.writeFieldName(ACTIVE);
+    generator.writeBoolean(list.isActive());
+    writeString(generator, URL, list.getUrl());
+    if (list.getTaskCount() != null) {
+      generator.writeFieldName(TASK_COUNT);
+      generator.writeNumber(list.getTaskCount());
+    }
+    if (list.getActiveTaskCount() != null) {
+      generator.writeFieldName(ACTIVE_TASK_COUNT);
+      generator.writeNumber(list.getActiveTaskCount());
+    }
+    if (list.getArchived() != null) {
+      generator.writeFieldName(ARCHIVED);
+      generator.writeBoolean(list.getArchived());
+    }
+    generator.writeEndObject();
+  }
+}
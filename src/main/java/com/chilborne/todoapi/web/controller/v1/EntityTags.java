@@ -0,0 +1,103 @@
+package com.chilborne.todoapi.web.controller.v1;
+
+import com.chilborne.todoapi.exception.VersionMismatchException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.Map;
+
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.CBOR;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.JSON;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.SMILE;
+
+/**
+ * Entity tags are the versions returned by the services, quoted, with a suffix naming the
+ * representation when it is not json. GET handlers hand them to {@link #checkNotModified}, updates
+ * read the expected version back from If-Match.
+ */
+final class EntityTags {
+
+  static final String ANY = "*";
+
+  // in the order spring's content negotiation prefers them when several are accepted
+  private static final List<MediaType> PRODUCED =
+      List.of(MediaType.valueOf(JSON), MediaType.valueOf(SMILE), MediaType.valueOf(CBOR));
+  private static final Map<MediaType, String> SUFFIXES =
+      Map.of(MediaType.valueOf(SMILE), "+smile", MediaType.valueOf(CBOR), "+cbor");
+
+  private EntityTags() {}
+
+  /**
+   * Conditional GET of a resource produced as json, smile and cbor. The representations share the
+   * version but each has a tag of its own, and caches are told the response varies with Accept.
+   */
+  static boolean checkNotModified(WebRequest request, String version) {
+    if (request instanceof NativeWebRequest) {
+      HttpServletResponse response =
+          ((NativeWebRequest) request).getNativeResponse(HttpServletResponse.class);
+      if (response != null) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+      }
+    }
+    return request.checkNotModified(version + suffix(request.getHeader(HttpHeaders.ACCEPT)));
+  }
+
+  // the first produced type compatible with the most specific accepted one, as spring picks it
+  private static String suffix(String accept) {
+    if (accept == null || accept.isBlank()) {
+      return "";
+    }
+    List<MediaType> accepted;
+    try {
+      accepted = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      return "";
+    }
+    MediaType.sortBySpecificityAndQuality(accepted);
+    for (MediaType type : accepted) {
+      for (MediaType produced : PRODUCED) {
+        if (type.isCompatibleWith(produced)) {
+          return SUFFIXES.getOrDefault(produced, "");
+        }
+      }
+    }
+    return "";
+  }
+
+  /** The version If-Match asks for, null when the header is missing or any version will do. */
+  static String expectedVersion(String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank() || ANY.equals(ifMatch.trim())) {
+      return null;
+    }
+    String tag = ifMatch.trim();
+    // a resource only ever has one strong tag, weak tags and lists of tags cannot be honoured
+    if (tag.length() < 2 || !tag.startsWith("\"") || tag.indexOf('"', 1) != tag.length() - 1) {
+      throw new VersionMismatchException("If-Match must hold a single strong entity tag");
+    }
+    String version = tag.substring(1, tag.length() - 1);
+    // any representation's tag names the version it was read at
+    for (String suffix : SUFFIXES.values()) {
+      if (version.endsWith(suffix)) {
+        return version.substring(0, version.length() - suffix.length());
+      }
+    }
+    return version;
+  }
+
+  static Long expectedLongVersion(String ifMatch) {
+    String version = expectedVersion(ifMatch);
+    if (version == null) {
+      return null;
+    }
+    try {
+      return Long.parseLong(version);
+    } catch (NumberFormatException e) {
+      throw new VersionMismatchException("If-Match holds an unknown entity tag: " + ifMatch);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.chilborne.todoapi.web.controller.v1;
+
+import com.chilborne.todoapi.service.ToDoListService;
+import com.chilborne.todoapi.web.event.ChangeEventBus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.security.Principal;
+
+@Tag(
+    name = "Event Controller",
+    description = "Server-sent events for changes to the authenticated user's to_do_lists and tasks")
+@RestController
+@RequestMapping(path = "api/v1")
+public class EventController {
+
+  private static final String EVENTS_DESCRIPTION =
+      "Sends a 'change' event with type, action, list_id and task_id once each write has "
+          + "committed. A client which falls too far behind is sent a 'resync' event instead of the "
+          + "events it missed, and should catch up through /api/v1/sync";
+
+  private final ChangeEventBus bus;
+  private final ToDoListService toDoListService;
+  private final Logger logger = LoggerFactory.getLogger(EventController.class);
+
+  public EventController(ChangeEventBus bus, ToDoListService toDoListService) {
+    this.bus = bus;
+    this.toDoListService = toDoListService;
+  }
+
+  @Operation(summary = "Stream changes to all to_do_lists", description = EVENTS_DESCRIPTION)
+  @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter getEvents(Principal principal) {
+    logger.debug("Opening event stream of User:{}", principal.getName());
+    return bus.subscribe(principal.getName(), null);
+  }
+
+  @Operation(
+      summary = "Stream changes to one to_do_list",
+      description = EVENTS_DESCRIPTION + ". The stream ends after the list is deleted",
+      responses = {
+        @ApiResponse(
+            responseCode = "404",
+            description =
+                "to_do_list with id:{id} belonging to User:{username} not found, without a body")
+      })
+  @GetMapping(path = "/list/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> getListEvents(@PathVariable long id, Principal principal) {
+    logger.debug("Opening event stream of ToDoList:{}", id);
+    // an error body could not be written as text/event-stream, and EventSource clients only look
+    // at the status before giving up
+    if (!toDoListService.listBelongsToUser(id, principal.getName())) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    return ResponseEntity.ok(bus.subscribe(principal.getName(), id));
+  }
+}
@@ -1,11 +1,14 @@
 package com.chilborne.todoapi.web.controller.v1;
 
 import com.chilborne.todoapi.exception.DataNotFoundException;
+import com.chilborne.todoapi.exception.InvalidDataException;
 import com.chilborne.todoapi.exception.TaskAlreadyCompletedException;
 import com.chilborne.todoapi.exception.UsernameAlreadyExistsException;
+import com.chilborne.todoapi.exception.VersionMismatchException;
 import com.chilborne.todoapi.web.error.ErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -51,6 +54,25 @@ public class ExceptionControllerAdvisor {
     return new ErrorResponse(HttpStatus.BAD_REQUEST, e);
   }
 
+  @ExceptionHandler({InvalidDataException.class})
+  public ErrorResponse handleInvalidDataException(HttpServletRequest req, Exception e) {
+    logger.error("Request: " + req.getRequestURI() + " raised " + e);
+    return new ErrorResponse(HttpStatus.BAD_REQUEST, e);
+  }
+
+  @ExceptionHandler({VersionMismatchException.class})
+  public ErrorResponse handleVersionMismatchException(HttpServletRequest req, Exception e) {
+    logger.error("Request: " + req.getRequestURI() + " raised " + e);
+    return new ErrorResponse(HttpStatus.PRECONDITION_FAILED, e);
+  }
+
+  // an entity was changed by another request between being read and being written
+  @ExceptionHandler({OptimisticLockingFailureException.class})
+  public ErrorResponse handleOptimisticLockingFailureException(HttpServletRequest req, Exception e) {
+    logger.error("Request: " + req.getRequestURI() + " raised " + e);
+    return new ErrorResponse(HttpStatus.CONFLICT, e);
+  }
+
   @ExceptionHandler({ConstraintViolationException.class})
   public ErrorResponse handleConstraintViolationException(
       HttpServletRequest req, ConstraintViolationException e) {
@@ -0,0 +1,49 @@
+package com.chilborne.todoapi.web.controller.v1;
+
+import com.chilborne.todoapi.persistance.dto.ImportReportDto;
+import com.chilborne.todoapi.service.ImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Principal;
+
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.CBOR;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.JSON;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.SMILE;
+
+@Tag(
+    name = "Import Controller",
+    description = "Create to_do_lists with their tasks in bulk for the authenticated user")
+@RestController
+@RequestMapping(path = "api/v1/import")
+public class ImportController {
+
+  public static final String NDJSON = "application/x-ndjson";
+  private final ImportService service;
+  private final Logger logger = LoggerFactory.getLogger(ImportController.class);
+
+  public ImportController(ImportService service) {
+    this.service = service;
+  }
+
+  @Operation(
+      summary = "Import to_do_lists with their tasks",
+      description =
+          "Takes one to_do_list per line, with its new tasks in a tasks array, each validated as "
+              + "if it were created on its own. Lines which fail are listed in the report by line "
+              + "number, every other line is saved")
+  @PostMapping(path = "", produces = {JSON, SMILE, CBOR}, consumes = NDJSON)
+  public ResponseEntity<ImportReportDto> importToDoLists(InputStream body, Principal principal)
+      throws IOException {
+    logger.info("Processing POST Request to import ToDoLists of User:{}", principal.getName());
+    return ResponseEntity.ok(service.importToDoLists(principal.getName(), body));
+  }
+}
@@ -0,0 +1,55 @@
+package com.chilborne.todoapi.web.controller.v1;
+
+import com.chilborne.todoapi.persistance.dto.SyncDto;
+import com.chilborne.todoapi.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.CBOR;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.JSON;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.SMILE;
+
+@Tag(
+    name = "Sync Controller",
+    description = "Changes to the authenticated user's to_do_lists and tasks since a cursor")
+@RestController
+@RequestMapping(path = "api/v1/sync")
+public class SyncController {
+
+  static final int MAX_CHANGES = 500;
+  private final SyncService service;
+  private final Logger logger = LoggerFactory.getLogger(SyncController.class);
+
+  public SyncController(SyncService service) {
+    this.service = service;
+  }
+
+  @Operation(
+      summary = "Find changes since a cursor",
+      description =
+          "Returns to_do_lists and tasks created, changed or completed after {since}, and "
+              + "tombstones of those deleted or archived, oldest first. Pass the returned cursor "
+              + "as {since} on the next request, straight away while has_more is true. A {since} "
+              + "of 0 returns every list and task")
+  @GetMapping(path = "", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<SyncDto> getChangesSince(
+      @Parameter(description = "cursor returned by the previous request")
+          @RequestParam(defaultValue = "0") long since,
+      @Parameter(description = "maximum number of changes, capped at " + MAX_CHANGES)
+          @RequestParam(defaultValue = "" + MAX_CHANGES) int limit,
+      Principal principal) {
+    logger.debug("Processing GET Request for changes since {} of User:{}", since, principal.getName());
+    int pageSize = Math.max(1, Math.min(limit, MAX_CHANGES));
+    return ResponseEntity.ok(service.getChangesSince(principal.getName(), since, pageSize));
+  }
+}
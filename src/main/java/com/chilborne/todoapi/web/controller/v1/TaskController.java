@@ -1,19 +1,31 @@
 package com.chilborne.todoapi.web.controller.v1;
 
+import com.chilborne.todoapi.persistance.dto.TaskCompletionDto;
 import com.chilborne.todoapi.persistance.dto.TaskDto;
 import com.chilborne.todoapi.service.TaskService;
 import com.chilborne.todoapi.service.ToDoListService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.CBOR;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.JSON;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.SMILE;
 
 @Tag(name = "Task Controller")
 @RestController
@@ -21,6 +33,9 @@ import javax.validation.Valid;
 public class TaskController {
 
   public static final String TASK_ROOT_URL = "http://localhost:8080/api/v1/task";
+  static final int MAX_SEARCH_RESULTS = 100;
+  // keeps the offset within an int
+  static final int MAX_SEARCH_PAGE = Integer.MAX_VALUE / MAX_SEARCH_RESULTS - 1;
   private final TaskService taskService;
   private final Logger logger = LoggerFactory.getLogger(TaskController.class);
 
@@ -28,13 +43,38 @@ public class TaskController {
     this.taskService = taskService;
   }
 
-  @Operation(summary = "Find Task by Id", responses =
-    @ApiResponse(responseCode = "404", description = "TaskNotFoundException -> Task with id:{task_id} not found"))
-  @GetMapping(path ="/{id}", produces = "application/json")
-  public ResponseEntity<TaskDto> getTaskById(@PathVariable long id) {
+  @Operation(
+      summary = "Search tasks",
+      description = "Finds the authenticated user's tasks whose name or description contain a word "
+          + "starting with each word of {q}, best match first. Matches in the name rank above "
+          + "matches in the description, archived tasks are not searched")
+  @GetMapping(path = "/search", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<List<TaskDto>> searchTasks(
+      @Parameter(description = "words to search for") @RequestParam String q,
+      @Parameter(description = "page of results, starting at 0")
+          @RequestParam(defaultValue = "0") int page,
+      @Parameter(description = "results per page, capped at " + MAX_SEARCH_RESULTS)
+          @RequestParam(defaultValue = "20") int size,
+      Principal principal) {
+    logger.info("Processing GET Request for Tasks matching '{}'", q);
+    int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_RESULTS));
+    return ResponseEntity.ok(
+        taskService.searchTasks(
+            principal.getName(), q, Math.max(0, Math.min(page, MAX_SEARCH_PAGE)), pageSize));
+  }
+
+  @Operation(summary = "Find Task by Id", responses = {
+    @ApiResponse(responseCode = "404", description = "TaskNotFoundException -> Task with id:{task_id} not found"),
+    @ApiResponse(responseCode = "304", description = "If-None-Match holds the task's current etag")})
+  @GetMapping(path ="/{id}", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<TaskDto> getTaskById(
+    @PathVariable long id, Principal principal, WebRequest request) {
     logger.info("Processing GET Request for Task id: " + id);
-    TaskDto result = taskService.getTaskDtoById(id);
-    return ResponseEntity.ok(result);
+    return taskService
+        .getTaskDtoIfModified(
+            id, principal.getName(), version -> EntityTags.checkNotModified(request, version))
+        .map(ResponseEntity::ok)
+        .orElse(null);
   }
 
   @Operation(summary= "Mark Task as Complete",
@@ -46,16 +86,51 @@ public class TaskController {
       @ApiResponse(
         responseCode = "208",
         description =
-          "TaskAlreadyCompletedException -> This task was already completed at {date_time_finished}")
+          "TaskAlreadyCompletedException -> This task was already completed at {date_time_finished}"),
+      @ApiResponse(
+        responseCode = "412",
+        description = "VersionMismatchException -> If-Match does not hold the task's current etag")
     })
-  @PatchMapping(path = "/{id}/complete", produces = "application/json")
-  public ResponseEntity<TaskDto> completeTask(@PathVariable long id) {
+  @PatchMapping(path = "/{id}/complete", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<TaskDto> completeTask(
+    @PathVariable long id,
+    @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+    Principal principal) {
     logger.info("Processing PATCH Request to Complete Task id: " + id);
-    TaskDto result = taskService.completeTask(id);
+    TaskDto result =
+      taskService.completeTask(id, principal.getName(), EntityTags.expectedLongVersion(ifMatch));
+    return ResponseEntity.ok(result);
+  }
+
+  @Operation(summary = "Mark several Tasks as Complete",
+    description = "Tasks which are already complete are left untouched and reported as already_completed, "
+      + "ids which are not tasks of the authenticated user are reported as not_found")
+  @PatchMapping(path = "/complete", consumes = {JSON, SMILE, CBOR}, produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<TaskCompletionDto> completeTasks(
+    @RequestBody List<Long> ids, Principal principal) {
+    logger.info("Processing PATCH Request to Complete {} Tasks", ids.size());
+    TaskCompletionDto result = taskService.completeTasks(ids, principal.getName());
     return ResponseEntity.ok(result);
   }
 
-  @PostMapping(path = "/", consumes = "application/json", produces = "application/json")
+  @Operation(summary = "Mark all active Tasks of a to_do_list as Complete",
+    description = "Only tasks created before created_before are completed, when given",
+    responses =
+      @ApiResponse(
+        responseCode = "404",
+        description = "ToDoListNotFoundException -> to_do_list with id:{id} belonging to User:{username} not found"))
+  @PatchMapping(path = "/complete/list/{listId}", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<TaskCompletionDto> completeListTasks(
+    @PathVariable long listId,
+    @RequestParam(name = "created_before", required = false)
+      @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") LocalDateTime createdBefore,
+    Principal principal) {
+    logger.info("Processing PATCH Request to Complete Tasks of ToDoList id: " + listId);
+    TaskCompletionDto result = taskService.completeListTasks(listId, principal.getName(), createdBefore);
+    return ResponseEntity.ok(result);
+  }
+
+  @PostMapping(path = "/", consumes = {JSON, SMILE, CBOR}, produces = {JSON, SMILE, CBOR})
   public ResponseEntity<TaskDto> newTask(
     @RequestBody @Valid TaskDto taskDto) {
     logger.info("Creating new Task:{} in ToDoList id:{}", taskDto.toString(), taskDto.getListId());
@@ -72,13 +147,21 @@ public class TaskController {
             description = "TaskNotFoundException -> Task with id:{task_id} not found"),
         @ApiResponse(
             responseCode = "400",
-            description = "InvalidDataException : { {task_property} : {constraint message} }")
+            description = "InvalidDataException : { {task_property} : {constraint message} }"),
+        @ApiResponse(
+            responseCode = "412",
+            description = "VersionMismatchException -> If-Match does not hold the task's current etag")
       })
-  @PatchMapping(path = "/{id}", produces = "application/json", consumes = "application/json")
+  @PatchMapping(path = "/{id}", produces = {JSON, SMILE, CBOR}, consumes = {JSON, SMILE, CBOR})
   public ResponseEntity<TaskDto> updateTaskNameAndDescription(
-      @PathVariable long id, @Valid @RequestBody TaskDto task) {
+      @PathVariable long id,
+      @Valid @RequestBody TaskDto task,
+      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      Principal principal) {
     logger.info("Processing PUT Request to update Task id: " + id);
-    TaskDto result = taskService.updateTaskNameAndDescription(id, task);
+    TaskDto result =
+        taskService.updateTaskNameAndDescription(
+            id, principal.getName(), task, EntityTags.expectedLongVersion(ifMatch));
     return ResponseEntity.ok(result);
   }
 }
@@ -1,24 +1,47 @@
 package com.chilborne.todoapi.web.controller.v1;
 
+import com.chilborne.todoapi.exception.InvalidDataException;
+import com.chilborne.todoapi.persistance.dto.TaskDeletionDto;
 import com.chilborne.todoapi.persistance.dto.TaskDto;
 import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.replication.ReplicationPosition;
+import com.chilborne.todoapi.persistance.repository.TaskFilter;
 import com.chilborne.todoapi.persistance.validation.OnPersist;
 import com.chilborne.todoapi.service.ToDoListService;
 import com.chilborne.todoapi.service.ToDoListServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import javax.validation.Validator;
 import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.CBOR;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.JSON;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.SMILE;
+import static com.chilborne.todoapi.web.filter.ConsistencyTokenFilter.requiringPosition;
 
 @Tag(
     name = "To Do List Controller",
@@ -28,37 +51,188 @@ import java.util.List;
 public class ToDoListController {
 
   public static final String TO_DO_LIST_ROOT_URL = "http://localhost:8080/v1/list";
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  static final int MAX_PAGE_SIZE = 500;
+  static final int STREAM_PAGE_SIZE = 100;
   private final ToDoListService service;
+  private final ObjectMapper objectMapper;
+  private final Validator validator;
   private final Logger logger = LoggerFactory.getLogger(ToDoListController.class);
 
-  public ToDoListController(ToDoListServiceImpl service) {
+  public ToDoListController(
+      ToDoListServiceImpl service, ObjectMapper objectMapper, Validator validator) {
     this.service = service;
+    this.objectMapper = objectMapper;
+    this.validator = validator;
   }
 
-  @Operation(description = "Find to_do_list by Id",
-    responses = @ApiResponse(
+  @Operation(description = "Find to_do_list by Id, optionally with only some of its tasks, in a chosen order. "
+      + "Date ranges include their start and exclude their end",
+    responses = {
+      @ApiResponse(
             responseCode = "404",
-            description = "ToDoListNotFoundException -> to_do_list with id:{id} belonging to User:{username} not found"))
-  @GetMapping(path = "/{id}", produces = "application/json")
-  public ResponseEntity<ToDoListDto> getToDoListById(@PathVariable long id, Principal principal) {
+            description = "ToDoListNotFoundException -> to_do_list with id:{id} belonging to User:{username} not found"),
+      @ApiResponse(
+            responseCode = "400",
+            description = "InvalidDataException -> unknown sort, or task filters combined with include_archived"),
+      @ApiResponse(
+            responseCode = "304",
+            description = "If-None-Match holds the list's current etag")})
+  @GetMapping(path = "/{id}", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<ToDoListDto> getToDoListById(
+      @PathVariable long id,
+      @Parameter(description = "also return archived tasks, or the list itself once archived")
+          @RequestParam(name = "include_archived", defaultValue = "false")
+          boolean includeArchived,
+      @Parameter(description = "only active, or only completed, tasks") @RequestParam(required = false)
+          Boolean active,
+      @RequestParam(name = "created_after", required = false)
+          @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") LocalDateTime createdAfter,
+      @RequestParam(name = "created_before", required = false)
+          @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") LocalDateTime createdBefore,
+      @RequestParam(name = "completed_after", required = false)
+          @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") LocalDateTime completedAfter,
+      @RequestParam(name = "completed_before", required = false)
+          @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") LocalDateTime completedBefore,
+      @Parameter(description = "only tasks whose name starts with this, ignoring case")
+          @RequestParam(name = "name_prefix", required = false) String namePrefix,
+      @Parameter(description = "task_id, name, date_time_made or date_time_finished")
+          @RequestParam(defaultValue = "task_id") String sort,
+      @Parameter(description = "asc or desc") @RequestParam(defaultValue = "asc") String order,
+      Principal principal,
+      WebRequest request) {
     logger.info("Processing GET Request for ToDoList (id: " + id + ")");
-    ToDoListDto result = service.getToDoListDtoById(id, principal.getName());
-    return ResponseEntity.ok(result);
+    TaskFilter filter =
+        new TaskFilter()
+            .setActive(active)
+            .setCreatedFrom(createdAfter)
+            .setCreatedTo(createdBefore)
+            .setCompletedFrom(completedAfter)
+            .setCompletedTo(completedBefore)
+            .setNamePrefix(namePrefix)
+            .setSort(
+                TaskFilter.Sort.fromParameter(sort)
+                    .orElseThrow(() -> new InvalidDataException("unknown sort: " + sort)))
+            .setDescending(descending(order));
+    if (includeArchived && !filter.isUnfiltered()) {
+      throw new InvalidDataException("tasks can not be filtered or sorted with include_archived");
+    }
+    return service
+        .getToDoListDtoIfModified(
+            id, principal.getName(), filter, includeArchived,
+            version -> EntityTags.checkNotModified(request, version))
+        .map(ResponseEntity::ok)
+        .orElse(null);
+  }
+
+  private static boolean descending(String order) {
+    if ("desc".equalsIgnoreCase(order)) {
+      return true;
+    }
+    if ("asc".equalsIgnoreCase(order)) {
+      return false;
+    }
+    throw new InvalidDataException("unknown order: " + order);
+  }
+
+  @Operation(
+      summary = "Find all archived to_do_lists belonging to authenticated user",
+      description =
+          "Lists are archived once they have been inactive for a while, "
+              + "each list is returned with its archived tasks")
+  @GetMapping(path = "/archived", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<List<ToDoListDto>> getArchivedToDoLists(
+      Principal principal, WebRequest request) {
+    logger.debug("Processing GET Request for archived ToDoLists of User:{}", principal.getName());
+    return service
+        .getArchivedToDoListsIfModified(
+            principal.getName(), version -> EntityTags.checkNotModified(request, version))
+        .map(ResponseEntity::ok)
+        .orElse(null);
   }
 
   @Operation(
-      summary = "Find all to_do_lists belonging to authenticated user")
-  @GetMapping(path = "/all", produces = "application/json")
-  public ResponseEntity<List<ToDoListDto>> getAllToDoLists(Principal principal) {
+      summary = "Find all to_do_lists belonging to authenticated user",
+      description =
+          "Lists are streamed in ascending list_id order, one page at a time. With summary=true "
+              + "lists are returned with their task_count and active_task_count but without tasks")
+  @GetMapping(path = "/all", params = "!limit", produces = "application/json")
+  public ResponseEntity<StreamingResponseBody> getAllToDoLists(
+      @RequestParam(defaultValue = "0") long after,
+      @RequestParam(defaultValue = "false") boolean summary,
+      Principal principal,
+      WebRequest request) {
     logger.debug(
         "Processing GET Request for all ToDoLists beloning to User:{}", principal.getName());
-    List<ToDoListDto> result = service.getAllToDoList(principal.getName());
-    return ResponseEntity.ok(result);
+    String username = principal.getName();
+    // the pages are read in transactions of their own, a replica could serve them at another
+    // position than the version, the primary serves every one at least at that version
+    ReplicationPosition.requirePrimary();
+    if (EntityTags.checkNotModified(request, service.getToDoListsVersion(username, after))) {
+      return null;
+    }
+    StreamingResponseBody body =
+        requiringPosition(
+            out -> {
+              try (SequenceWriter writer =
+                  objectMapper.writerFor(ToDoListDto.class).writeValuesAsArray(out)) {
+                long cursor = after;
+                List<ToDoListDto> page;
+                do {
+                  page =
+                      summary
+                          ? service.getToDoListSummaryPage(username, cursor, STREAM_PAGE_SIZE)
+                          : service.getToDoListPage(username, cursor, STREAM_PAGE_SIZE);
+                  for (ToDoListDto list : page) {
+                    writer.write(list);
+                    cursor = list.getListId();
+                  }
+                } while (page.size() == STREAM_PAGE_SIZE);
+              }
+            });
+    return ResponseEntity.ok(body);
+  }
+
+  @Operation(
+      summary = "Find a page of to_do_lists belonging to authenticated user",
+      description =
+          "Returns up to {limit} lists with list_id greater than {after}. "
+              + "When more lists remain the "
+              + NEXT_CURSOR_HEADER
+              + " header holds the value to pass as {after} for the next page. With summary=true "
+              + "lists are returned with their task_count and active_task_count but without tasks")
+  @GetMapping(path = "/all", params = "limit", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<List<ToDoListDto>> getToDoListPage(
+      @Parameter(description = "maximum page size, capped at " + MAX_PAGE_SIZE)
+          @RequestParam int limit,
+      @Parameter(description = "list_id of the last list of the previous page")
+          @RequestParam(defaultValue = "0") long after,
+      @RequestParam(defaultValue = "false") boolean summary,
+      Principal principal,
+      WebRequest request) {
+    logger.debug(
+        "Processing GET Request for {} ToDoLists after id:{} beloning to User:{}",
+        limit, after, principal.getName());
+    int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    Optional<List<ToDoListDto>> page =
+        service.getToDoListPageIfModified(
+            principal.getName(), after, pageSize, summary,
+            version -> EntityTags.checkNotModified(request, version));
+    if (page.isEmpty()) {
+      return null;
+    }
+    List<ToDoListDto> result = page.get();
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (result.size() == pageSize) {
+      long nextCursor = result.get(result.size() - 1).getListId();
+      response.header(NEXT_CURSOR_HEADER, String.valueOf(nextCursor));
+    }
+    return response.body(result);
   }
 
   @Operation( summary = "Create to_do_list")
   @ApiResponse( responseCode = "400", description = "InvalidDataException: { {to_do_list_property} : {constraint_message} }")
-  @PostMapping( path = "", produces = "application/json", consumes = "application/json")
+  @PostMapping( path = "", produces = {JSON, SMILE, CBOR}, consumes = {JSON, SMILE, CBOR})
   @Validated({OnPersist.class})
   public ResponseEntity<ToDoListDto> newToDoList(
       @RequestBody @Valid ToDoListDto list, Principal principal) {
@@ -70,36 +244,50 @@ public class ToDoListController {
   @Operation( summary = "Update to_do_list name and/or description",
    responses = {
     @ApiResponse( responseCode = "404", description = "ToDoListNotFoundException -> to_do_list with id:{id} not found"),
-    @ApiResponse( responseCode = "400", description = "InvalidDataException: { {to_do_list_property} : {constraint_message} }")})
-  @PutMapping(path = "/{id}", produces = "application/json", consumes = "application/json")
+    @ApiResponse( responseCode = "400", description = "InvalidDataException: { {to_do_list_property} : {constraint_message} }"),
+    @ApiResponse( responseCode = "412", description = "VersionMismatchException -> If-Match does not hold the list's current etag")})
+  @PutMapping(path = "/{id}", produces = {JSON, SMILE, CBOR}, consumes = {JSON, SMILE, CBOR})
   public ResponseEntity<ToDoListDto> updateToDoListNameAndDescription(
       @PathVariable long id,
       @RequestBody @Valid ToDoListDto toDoList,
+      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       Principal principal) {
     logger.info("Processing PUT Request to update ToDoList:{} to {}", id, toDoList.toString());
     ToDoListDto result =
-        service.updateToDoListNameAndDescription(id, toDoList, principal.getName());
+        service.updateToDoListNameAndDescription(
+            id, toDoList, principal.getName(), EntityTags.expectedLongVersion(ifMatch));
     return ResponseEntity.ok(result);
   }
 
   @Operation(summary = "Delete to_do_list",
-    responses = @ApiResponse( responseCode = "404", description = "ToDoListNotFoundException -> to_do_list with id:{id} belonging to User:{username} not found")
+    responses = {
+      @ApiResponse( responseCode = "404", description = "ToDoListNotFoundException -> to_do_list with id:{id} belonging to User:{username} not found"),
+      @ApiResponse( responseCode = "412", description = "VersionMismatchException -> If-Match does not hold the list's current etag")}
   )
   @DeleteMapping(value = "/{id}")
-  public ResponseEntity deleteToDoList(@PathVariable long id, Principal principal) {
+  public ResponseEntity deleteToDoList(
+      @PathVariable long id,
+      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      Principal principal) {
     logger.info("Processing DELETE Request for List id:" + id);
-    service.deleteToDoList(id, principal.getName());
+    service.deleteToDoList(id, principal.getName(), EntityTags.expectedLongVersion(ifMatch));
     return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
   }
 
   @Operation(summary = "Change whether to_do_list is active",
-  responses =
-        @ApiResponse( responseCode = "404", description = "ToDoListNotFoundException -> to_do_list with id:{id} belonging to User:{username} not found"))
-  @PatchMapping(path = "/{id}/active/{active}", produces = "application/json")
+  responses = {
+        @ApiResponse( responseCode = "404", description = "ToDoListNotFoundException -> to_do_list with id:{id} belonging to User:{username} not found"),
+        @ApiResponse( responseCode = "412", description = "VersionMismatchException -> If-Match does not hold the list's current etag")})
+  @PatchMapping(path = "/{id}/active/{active}", produces = {JSON, SMILE, CBOR})
   public ResponseEntity<ToDoListDto> setActive(
-      @PathVariable long id, @PathVariable boolean active, Principal principal) {
+      @PathVariable long id,
+      @PathVariable boolean active,
+      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      Principal principal) {
     logger.info(String.format("Setting Active of ToDoList (id: %d) to %b", id, active));
-    ToDoListDto result = service.setToDoListActive(id, principal.getName(), active);
+    ToDoListDto result =
+        service.setToDoListActive(
+            id, principal.getName(), active, EntityTags.expectedLongVersion(ifMatch));
     return ResponseEntity.ok(result);
   }
 
@@ -115,8 +303,8 @@ public class ToDoListController {
       })
   @PatchMapping(
       path = "/{id}/task/add",
-      produces = "application/json",
-      consumes = "application/json")
+      produces = {JSON, SMILE, CBOR},
+      consumes = {JSON, SMILE, CBOR})
   @Validated({OnPersist.class})
   public ResponseEntity<ToDoListDto> addTaskToList(
       @PathVariable long id,
@@ -130,6 +318,38 @@ public class ToDoListController {
     return ResponseEntity.ok(result);
   }
 
+  @Operation(
+      summary = "Add several new tasks to to_do_list in one request",
+      description = "Returns the task_id of each created task, in the order the tasks were sent",
+      responses = {
+        @ApiResponse(
+            responseCode = "404",
+            description = "ToDoListNotFoundException -> to_do_list with id:{id} not found"),
+        @ApiResponse(
+            responseCode= "400",
+            description = "ConstraintViolationException: { {task} : {constraint_message} }")
+      })
+  @PatchMapping(
+      path = "/{id}/task/add/bulk",
+      produces = {JSON, SMILE, CBOR},
+      consumes = {JSON, SMILE, CBOR})
+  public ResponseEntity<List<Long>> addTasksToList(
+      @PathVariable long id,
+      @RequestBody List<TaskDto> tasks,
+      Principal principal) {
+    logger.info("Processing PATCH Request to add {} new Tasks to ToDoList (id: {})", tasks.size(), id);
+    // @Valid does not cascade into a List request body
+    Set<ConstraintViolation<TaskDto>> violations = new HashSet<>();
+    for (TaskDto task : tasks) {
+      violations.addAll(validator.validate(task, OnPersist.class));
+    }
+    if (!violations.isEmpty()) {
+      throw new ConstraintViolationException(violations);
+    }
+    List<Long> result = service.addTasksToDoList(id, principal.getName(), tasks);
+    return ResponseEntity.ok(result);
+  }
+
   @Operation(summary = "Delete task from to_do_list",
       responses =
       {
@@ -140,11 +360,37 @@ public class ToDoListController {
             responseCode = "404",
             description = "TaskNotFoundException -> to_do_list with id:{list_id} does not contain task with id:{task_id}")
       })
-  @PatchMapping(path = "/{listId}/task/remove/{taskId}", produces = "application/json")
+  @PatchMapping(path = "/{listId}/task/remove/{taskId}", produces = {JSON, SMILE, CBOR})
   public ResponseEntity<ToDoListDto> removeTaskFromList(
       @PathVariable long listId, @PathVariable long taskId, Principal principal) {
     logger.info(String.format("Removing Task with id %d from ToDoList with id %d", taskId, listId));
     ToDoListDto result = service.removeTaskFromToDoList(listId, principal.getName(), taskId);
     return ResponseEntity.ok(result);
   }
+
+  @Operation(summary = "Delete task from to_do_list",
+      description = "Returns 204 No Content, or a summary of the deletion when summary=true",
+      responses =
+      {
+        @ApiResponse(
+            responseCode = "404",
+            description = "ToDoListNotFoundException -> to_do_list with id:{id} not found"),
+        @ApiResponse(
+            responseCode = "404",
+            description = "TaskNotFoundException -> to_do_list with id:{list_id} does not contain task with id:{task_id}")
+      })
+  @DeleteMapping(path = "/{listId}/task/{taskId}", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<TaskDeletionDto> deleteTaskFromList(
+      @PathVariable long listId,
+      @PathVariable long taskId,
+      @RequestParam(defaultValue = "false") boolean summary,
+      Principal principal) {
+    logger.info("Processing DELETE Request for Task with id {} of ToDoList with id {}", taskId, listId);
+    if (summary) {
+      return ResponseEntity.ok(
+          service.deleteTaskFromToDoListWithSummary(listId, principal.getName(), taskId));
+    }
+    service.deleteTaskFromToDoList(listId, principal.getName(), taskId);
+    return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+  }
 }
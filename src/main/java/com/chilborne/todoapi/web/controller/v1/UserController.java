@@ -1,75 +1,131 @@
 package com.chilborne.todoapi.web.controller.v1;
 
+import com.chilborne.todoapi.exception.InvalidDataException;
 import com.chilborne.todoapi.persistance.dto.UserDto;
+import com.chilborne.todoapi.persistance.dto.UserStatsDto;
+import com.chilborne.todoapi.service.ExportService;
+import com.chilborne.todoapi.service.StatsService;
 import com.chilborne.todoapi.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.CBOR;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.JSON;
+import static com.chilborne.todoapi.web.config.JacksonBinaryConfig.SMILE;
+import static com.chilborne.todoapi.web.filter.ConsistencyTokenFilter.requiringPosition;
+
 @Validated
 @RestController
 @RequestMapping(path = "api/v1/user")
 public class UserController {
 
   private final UserService service;
+  private final StatsService statsService;
+  private final ExportService exportService;
   private final Logger logger = LoggerFactory.getLogger(UserController.class);
 
-  public UserController(UserService service) {
+  public UserController(
+      UserService service, StatsService statsService, ExportService exportService) {
     this.service = service;
+    this.statsService = statsService;
+    this.exportService = exportService;
   }
 
-  @GetMapping(path = "/{username}", produces = "application/json")
-  public ResponseEntity<UserDto> getUser(@PathVariable String username) {
+  @GetMapping(path = "/{username}", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<UserDto> getUser(@PathVariable String username, WebRequest request) {
     logger.info("Fetching User: {}", username);
-    UserDto user = service.getUserByUsername(username);
-    return ResponseEntity.ok(user);
+    return service
+        .getUserIfModified(username, version -> EntityTags.checkNotModified(request, version))
+        .map(ResponseEntity::ok)
+        .orElse(null);
+  }
+
+  @GetMapping(path = "/{username}/stats", produces = {JSON, SMILE, CBOR})
+  public ResponseEntity<UserStatsDto> getUserStats(@PathVariable String username) {
+    logger.info("Fetching stats of User: {}", username);
+    return ResponseEntity.ok(statsService.getUserStats(username));
   }
 
-  @PostMapping(path = "/register", produces = "application/json", consumes = "application/json")
+  // lists and tasks are written as they are read, so the response is not buffered in memory
+  @GetMapping(path = "/{username}/export")
+  public ResponseEntity<StreamingResponseBody> exportUserData(
+      @PathVariable String username, @RequestParam(defaultValue = "ndjson") String format) {
+    logger.info("Exporting User: {} as {}", username, format);
+    ExportService.Format exportFormat =
+        ExportService.Format.fromParameter(format)
+            .orElseThrow(() -> new InvalidDataException("unknown format: " + format));
+    exportService.checkAccess(username);
+    StreamingResponseBody body =
+        requiringPosition(out -> exportService.exportUserData(username, exportFormat, out));
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment()
+                .filename(username + "." + exportFormat.getExtension())
+                .build()
+                .toString())
+        .body(body);
+  }
+
+  @PostMapping(path = "/register", produces = {JSON, SMILE, CBOR}, consumes = {JSON, SMILE, CBOR})
   public ResponseEntity<UserDto> createUser(@RequestBody @Valid UserDto user) {
     logger.info("Creating new User: {}", user.getUsername());
     UserDto newUser = service.createUser(user);
     return ResponseEntity.status(HttpStatus.CREATED).body(newUser);
   }
 
-  @PatchMapping(path = "/{username}/username", produces = "application/json")
+  @PatchMapping(path = "/{username}/username", produces = {JSON, SMILE, CBOR})
   public ResponseEntity<UserDto> changeUsername(
-      @PathVariable String username, @RequestBody @NotBlank(message = "username cannot be blank") String newUsername) {
+      @PathVariable String username,
+      @RequestBody @NotBlank(message = "username cannot be blank") String newUsername,
+      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     logger.info("Changing User: {} username to {}", username, newUsername);
-    UserDto updatedUser = service.changeUsername(username, newUsername);
+    UserDto updatedUser =
+        service.changeUsername(username, newUsername, EntityTags.expectedVersion(ifMatch));
     return ResponseEntity.ok(updatedUser);
   }
 
   @PatchMapping(path = "/{username}/password", produces = "application/json", consumes = "application/json")
   public ResponseEntity changePassword(
       @PathVariable String username,
-      @RequestBody @NotBlank(message = "password cannot be blank") String password) {
+      @RequestBody @NotBlank(message = "password cannot be blank") String password,
+      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     logger.info("Changing password for User: {}", username);
-    service.changePassword(username, password);
+    service.changePassword(username, password, EntityTags.expectedVersion(ifMatch));
     return ResponseEntity.ok().build();
   }
 
   @Validated
-  @PatchMapping(path = "/{username}/email", produces = "application/json")
+  @PatchMapping(path = "/{username}/email", produces = {JSON, SMILE, CBOR})
   public ResponseEntity<UserDto> changeEmail(
       @PathVariable String username,
-      @RequestBody @Email(message = "Email provided is not valid") String email) {
+      @RequestBody @Email(message = "Email provided is not valid") String email,
+      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     logger.info("Changing email for User: {} to {}", username, email);
-    UserDto updatedUser = service.changeEmail(username, email);
+    UserDto updatedUser = service.changeEmail(username, email, EntityTags.expectedVersion(ifMatch));
     return ResponseEntity.ok(updatedUser);
   }
 
   @DeleteMapping(path = "/{username}")
-  public ResponseEntity deleteUser(@PathVariable String username) {
+  public ResponseEntity deleteUser(
+      @PathVariable String username,
+      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     logger.info("Deleting User: {}", username);
-    service.deleteUser(username);
+    service.deleteUser(username, EntityTags.expectedVersion(ifMatch));
     return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
   }
 }
@@ -0,0 +1,126 @@
+package com.chilborne.todoapi.web.event;
+
+import com.chilborne.todoapi.service.event.ChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands committed {@link ChangeEvent}s to the open event streams of their user. Streams are
+ * servlet async requests, so they hold a connection but no thread while idle, writing is done by a
+ * small shared pool of sender threads.
+ */
+@Component
+public class ChangeEventBus implements DisposableBean {
+
+  private final Map<String, Set<ChangeSubscription>> subscriptions = new ConcurrentHashMap<>();
+  private final ExecutorService senders;
+  private final ObjectWriter writer;
+  private final int bufferSize;
+  private final long timeoutMs;
+  private final long sendTimeoutMs;
+  private final Logger logger = LoggerFactory.getLogger(ChangeEventBus.class);
+
+  public ChangeEventBus(
+      ObjectMapper objectMapper,
+      @Value("${todo.events.buffer-size:64}") int bufferSize,
+      @Value("${todo.events.timeout-ms:1800000}") long timeoutMs,
+      @Value("${todo.events.senders:4}") int senders,
+      @Value("${todo.events.send-timeout-ms:5000}") long sendTimeoutMs) {
+    this.bufferSize = bufferSize;
+    this.timeoutMs = timeoutMs;
+    this.sendTimeoutMs = sendTimeoutMs;
+    this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    AtomicInteger threads = new AtomicInteger();
+    this.senders =
+        Executors.newFixedThreadPool(
+            senders,
+            runnable -> {
+              Thread thread = new Thread(runnable, "event-sender-" + threads.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Opens a stream of the user's events, or only those of one of their lists. */
+  public SseEmitter subscribe(String username, Long listId) {
+    SseEmitter emitter = new SseEmitter(timeoutMs);
+    ChangeSubscription subscription =
+        new ChangeSubscription(username, listId, emitter, bufferSize, senders, writer);
+    subscriptions.computeIfAbsent(username, key -> ConcurrentHashMap.newKeySet()).add(subscription);
+    emitter.onCompletion(() -> unsubscribe(subscription));
+    emitter.onTimeout(() -> unsubscribe(subscription));
+    emitter.onError(e -> unsubscribe(subscription));
+    logger.debug("User:{} subscribed to events of {}", username, listId != null ? listId : "all lists");
+    return emitter;
+  }
+
+  // events of a rolled back transaction are never published
+  @TransactionalEventListener(fallbackExecution = true)
+  public void publish(ChangeEvent event) {
+    Set<ChangeSubscription> subscribers = subscriptions.get(event.getUsername());
+    if (subscribers != null) {
+      subscribers.forEach(subscription -> subscription.offer(event));
+    }
+  }
+
+  // keeps idle streams from being closed by proxies, and finds clients which went away
+  @Scheduled(
+      initialDelayString = "${todo.events.heartbeat-ms:30000}",
+      fixedDelayString = "${todo.events.heartbeat-ms:30000}")
+  public void heartbeat() {
+    subscriptions.values().forEach(subscribers -> subscribers.forEach(ChangeSubscription::heartbeat));
+  }
+
+  // a client which stopped reading would otherwise keep a sender blocked until its socket times out
+  @Scheduled(
+      initialDelayString = "${todo.events.stall-check-ms:1000}",
+      fixedDelayString = "${todo.events.stall-check-ms:1000}")
+  public void abortStalledSends() {
+    subscriptions.values().forEach(
+        subscribers ->
+            subscribers.forEach(
+                subscription -> {
+                  if (subscription.abortIfStalled(sendTimeoutMs)) {
+                    logger.info(
+                        "Closed event stream of User:{}, a write did not return within {} ms",
+                        subscription.getUsername(), sendTimeoutMs);
+                  }
+                }));
+  }
+
+  int subscriberCount(String username) {
+    Set<ChangeSubscription> subscribers = subscriptions.get(username);
+    return subscribers != null ? subscribers.size() : 0;
+  }
+
+  private void unsubscribe(ChangeSubscription subscription) {
+    subscription.close();
+    subscriptions.computeIfPresent(
+        subscription.getUsername(),
+        (username, subscribers) -> {
+          subscribers.remove(subscription);
+          return subscribers.isEmpty() ? null : subscribers;
+        });
+  }
+
+  @Override
+  public void destroy() {
+    senders.shutdownNow();
+  }
+}
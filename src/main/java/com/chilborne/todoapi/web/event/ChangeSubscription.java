@@ -0,0 +1,174 @@
+package com.chilborne.todoapi.web.event;
+
+import com.chilborne.todoapi.service.event.ChangeEvent;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One open event stream. Events wait in a bounded buffer until a sender thread writes them out, so
+ * an idle stream holds no thread. When the buffer is full its events are dropped in favour of a
+ * single resync event, the client then catches up through {@code GET /api/v1/sync}.
+ *
+ * <p>A write to a client which stopped reading blocks its sender until the socket gives up, which
+ * holds up every stream waiting for that sender. {@link ChangeEventBus} looks for writes which have
+ * been in progress for too long and {@link #abortIfStalled aborts} their streams, a client which
+ * reconnects has to resync just as after a resync event.
+ */
+class ChangeSubscription {
+
+  static final String CHANGE = "change";
+  static final String RESYNC = "resync";
+  private static final Object HEARTBEAT = new Object();
+  private static final Object RESYNC_MARKER = new Object();
+  private static final String RESYNC_DATA = "{\"reason\":\"buffer_full\"}";
+
+  private final String username;
+  private final Long listId;
+  private final SseEmitter emitter;
+  private final int bufferSize;
+  private final Executor senders;
+  private final ObjectWriter writer;
+  private final Queue<Object> buffer = new ArrayDeque<>();
+  private final AtomicBoolean sending = new AtomicBoolean();
+  private volatile boolean closed;
+  // System.nanoTime() when the write in progress began, 0 while none is
+  private volatile long writingSince;
+
+  ChangeSubscription(
+      String username,
+      Long listId,
+      SseEmitter emitter,
+      int bufferSize,
+      Executor senders,
+      ObjectWriter writer) {
+    this.username = username;
+    this.listId = listId;
+    this.emitter = emitter;
+    this.bufferSize = bufferSize;
+    this.senders = senders;
+    this.writer = writer;
+  }
+
+  String getUsername() {
+    return username;
+  }
+
+  SseEmitter getEmitter() {
+    return emitter;
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  void offer(ChangeEvent event) {
+    // a list stream only carries the events of its list
+    if (listId != null && listId != event.getListId()) {
+      return;
+    }
+    enqueue(event);
+  }
+
+  void heartbeat() {
+    synchronized (buffer) {
+      if (!buffer.isEmpty()) {
+        return;
+      }
+    }
+    enqueue(HEARTBEAT);
+  }
+
+  private void enqueue(Object item) {
+    if (closed) {
+      return;
+    }
+    synchronized (buffer) {
+      if (buffer.size() >= bufferSize) {
+        buffer.clear();
+        buffer.add(RESYNC_MARKER);
+      }
+      buffer.add(item);
+    }
+    if (sending.compareAndSet(false, true)) {
+      senders.execute(this::send);
+    }
+  }
+
+  private void send() {
+    while (true) {
+      Object item;
+      synchronized (buffer) {
+        item = buffer.poll();
+        if (item == null) {
+          sending.set(false);
+          break;
+        }
+      }
+      writingSince = System.nanoTime();
+      try {
+        write(item);
+      } catch (IOException | IllegalStateException e) {
+        // the client went away, the emitter's completion callback unsubscribes it
+        close();
+        emitter.completeWithError(e);
+        return;
+      } finally {
+        writingSince = 0;
+      }
+    }
+    // an event offered between the last poll and releasing the flag has to be picked up
+    synchronized (buffer) {
+      if (buffer.isEmpty() || !sending.compareAndSet(false, true)) {
+        return;
+      }
+    }
+    senders.execute(this::send);
+  }
+
+  private void write(Object item) throws IOException {
+    if (item == HEARTBEAT) {
+      emitter.send(SseEmitter.event().comment("heartbeat"));
+    } else if (item == RESYNC_MARKER) {
+      emitter.send(SseEmitter.event().name(RESYNC).data(RESYNC_DATA, MediaType.APPLICATION_JSON));
+    } else {
+      ChangeEvent event = (ChangeEvent) item;
+      // written as a single line, each line of the data would become a data field of its own
+      emitter.send(
+          SseEmitter.event().name(CHANGE).data(writer.writeValueAsString(event), MediaType.APPLICATION_JSON));
+      if (listId != null && event.isListDeleted()) {
+        close();
+        emitter.complete();
+      }
+    }
+  }
+
+  /**
+   * Completes the stream with an error when a write has been in progress for longer than {@code
+   * timeoutMs}. The container then closes the connection, which fails the blocked write and frees
+   * its sender.
+   */
+  boolean abortIfStalled(long timeoutMs) {
+    long since = writingSince;
+    if (since == 0 || System.nanoTime() - since < TimeUnit.MILLISECONDS.toNanos(timeoutMs)) {
+      return false;
+    }
+    close();
+    emitter.completeWithError(new IOException("write has not returned for " + timeoutMs + " ms"));
+    return true;
+  }
+
+  void close() {
+    closed = true;
+    synchronized (buffer) {
+      buffer.clear();
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.chilborne.todoapi.web.filter;
+
+import com.chilborne.todoapi.persistance.replication.ReplicationPosition;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Read-your-writes for clients of a replicated database. A response to a request which wrote
+ * carries the change log position of that write, a client sending it back in the same header is
+ * never served by a replica which has not applied it yet.
+ *
+ * <p>Runs ahead of the security filters, which already read the user.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+  public static final String CONSISTENCY_TOKEN_HEADER = "X-Consistency-Token";
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String token = request.getHeader(CONSISTENCY_TOKEN_HEADER);
+    if (token != null) {
+      try {
+        ReplicationPosition.requireAtLeast(Long.parseLong(token.trim()));
+      } catch (NumberFormatException e) {
+        logger.debug("Ignoring malformed " + CONSISTENCY_TOKEN_HEADER + ": " + token);
+      }
+    }
+    TokenWritingResponse tokenWriting = new TokenWritingResponse(response);
+    try {
+      filterChain.doFilter(request, tokenWriting);
+      if (!response.isCommitted()) {
+        tokenWriting.addToken();
+      }
+    } finally {
+      ReplicationPosition.clear();
+    }
+  }
+
+  /**
+   * A streamed body is written by another thread once the request thread has left this filter, it
+   * is given the position the request required.
+   */
+  public static StreamingResponseBody requiringPosition(StreamingResponseBody body) {
+    long required = ReplicationPosition.required();
+    return out -> {
+      ReplicationPosition.requireAtLeast(required);
+      try {
+        body.writeTo(out);
+      } finally {
+        ReplicationPosition.clear();
+      }
+    };
+  }
+
+  private static class TokenWritingResponse extends OnCommittedResponseWrapper {
+
+    TokenWritingResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    protected void onResponseCommitted() {
+      addToken();
+    }
+
+    void addToken() {
+      long written = ReplicationPosition.written();
+      if (written > 0 && !containsHeader(CONSISTENCY_TOKEN_HEADER)) {
+        setHeader(CONSISTENCY_TOKEN_HEADER, String.valueOf(written));
+      }
+    }
+  }
+}
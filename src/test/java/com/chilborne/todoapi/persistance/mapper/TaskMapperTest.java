@@ -26,7 +26,6 @@ class TaskMapperTest {
   void init() {
     toDoList = new ToDoList();
     toDoList.setId(LIST_ID);
-    toDoList.addTask(task);
 
     task = new Task();
     task.setId(TASK_ID);
@@ -36,6 +35,7 @@ class TaskMapperTest {
     task.setTimeCreated(TASK_DATE_MADE);
     task.setTimeCompleted(TASK_DATE_FINISHED);
     task.setToDoList(toDoList);
+    toDoList.addTask(task);
 
     taskDto = new TaskDto();
     taskDto.setTaskId(TASK_ID);
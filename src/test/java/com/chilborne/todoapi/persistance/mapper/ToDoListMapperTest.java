@@ -102,7 +102,7 @@ class ToDoListMapperTest {
     );
 
     assertAll("Nested TaskDto should also be properly mapped",
-      () -> assertEquals(toDoList.getTasks(), mappedListDto.getTasks())
+      () -> assertIterableEquals(toDoList.getTasks(), mappedListDto.getTasks())
     );
   }
 }
\ No newline at end of file
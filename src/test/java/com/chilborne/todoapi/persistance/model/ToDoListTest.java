@@ -3,7 +3,9 @@ package com.chilborne.todoapi.persistance.model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,7 +34,7 @@ class ToDoListTest {
         list.addTask(second);
 
         //verify
-        assertEquals(List.of(first, second), list.getTasks());
+        assertIterableEquals(List.of(first, second), list.getTasks());
     }
 
     @Test
@@ -44,7 +46,7 @@ class ToDoListTest {
         boolean removed = list.removeTask(second.getId());
 
         //verify
-        assertEquals(List.of(first), list.getTasks());
+        assertIterableEquals(List.of(first), list.getTasks());
         assertTrue(removed);
     }
 
@@ -57,23 +59,75 @@ class ToDoListTest {
         boolean removed = list.removeTask(5L);
 
         //verify
-        assertEquals(List.of(first, second), list.getTasks());
+        assertIterableEquals(List.of(first, second), list.getTasks());
         assertFalse(removed);
     }
 
     @Test
-    void getTasksShouldReturnAnUnmodifiableList() {
+    void getTasksShouldReturnAnUnmodifiableView() {
         //given
         list.addTask(first);
-        list.addTask(second);
 
         //when
-        List<Task> tasks = list.getTasks();
+        Collection<Task> tasks = list.getTasks();
+        list.addTask(second);
 
         //verify
+        assertIterableEquals(List.of(first, second), tasks);
         Exception e = assertThrows(UnsupportedOperationException.class,
                 () -> tasks.add(first));
     }
 
+    @Test
+    void getTaskShouldReturnTaskWithGivenId() {
+        //given
+        list.setTasks(List.of(first, second));
+
+        //when
+        Optional<Task> found = list.getTask(second.getId());
+
+        //verify
+        assertEquals(Optional.of(second), found);
+        assertTrue(list.getTask(5L).isEmpty());
+    }
+
+    @Test
+    void removeTaskShouldFindTaskWhichWasAddedBeforeItWasSaved() {
+        //given
+        Task unsaved = new Task(list, "Unsaved");
+        list.addTask(first);
+        list.addTask(unsaved);
+        unsaved.setId(3L);
+
+        //when
+        boolean removed = list.removeTask(3L);
+
+        //verify
+        assertTrue(removed);
+        assertIterableEquals(List.of(first), list.getTasks());
+    }
+
+    @Test
+    void getTaskShouldFindTaskWhichWasAddedBeforeItWasSavedWithoutMovingTasks() {
+        //given
+        Task unsaved = new Task(list, "Unsaved");
+        Task alsoUnsaved = new Task(list, "Also unsaved");
+        list.addTask(first);
+        list.addTask(unsaved);
+        list.addTask(alsoUnsaved);
+        list.removeTask(first.getId());
+        list.addTask(second);
+        unsaved.setId(3L);
+        alsoUnsaved.setId(4L);
+
+        //when
+        Optional<Task> found = list.getTask(4L);
+
+        //verify
+        assertEquals(Optional.of(alsoUnsaved), found);
+        assertEquals(Optional.of(unsaved), list.getTask(3L));
+        assertIterableEquals(List.of(unsaved, alsoUnsaved, second), list.getTasks());
+    }
+
 
 }
\ No newline at end of file
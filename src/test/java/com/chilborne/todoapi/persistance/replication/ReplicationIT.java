@@ -0,0 +1,323 @@
+package com.chilborne.todoapi.persistance.replication;
+
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.persistance.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+
+import static com.chilborne.todoapi.web.filter.ConsistencyTokenFilter.CONSISTENCY_TOKEN_HEADER;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        properties = {
+            "spring.datasource.url=jdbc:h2:mem:replicationPrimary",
+            "todo.datasource.replicas=jdbc:h2:mem:replicationReplica",
+            // shipping is driven by the tests
+            "todo.datasource.replication.interval-ms=3600000",
+            "todo.datasource.replication.batch-size=2"
+        })
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class ReplicationIT {
+
+    static final String USERNAME = "replicated";
+    @Autowired ReplicationShipper shipper;
+    @Autowired UserRepository userRepository;
+    @Autowired ToDoListRepository toDoListRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired MockMvc mvc;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void init() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        userRepository.save(new User(USERNAME, "secret"));
+        shipAll();
+        ReplicationPosition.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicationPosition.clear();
+        userRepository.deleteAll();
+        shipAll();
+        ReplicationPosition.clear();
+    }
+
+    @Test
+    void readOnlyTransactionShouldSeeChangeOnceItWasShipped() {
+        // given
+        saveList();
+        ReplicationPosition.clear();
+
+        // when
+        int beforeShipping = countLists();
+        shipAll();
+        int afterShipping = countLists();
+
+        // verify
+        assertEquals(0, beforeShipping);
+        assertEquals(1, afterShipping);
+    }
+
+    @Test
+    void readOnlyTransactionShouldSeeOwnWriteBeforeItWasShipped() {
+        // given
+        saveList();
+
+        // when
+        int count = countLists();
+
+        // verify
+        assertTrue(ReplicationPosition.written() > 0);
+        assertEquals(1, count);
+    }
+
+    @Test
+    void changeCommittedLongAfterItsSequenceWasTakenShouldStillBeShipped() throws Exception {
+        // given
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        TransactionTemplate writing = new TransactionTemplate(transactionManager);
+        Thread slowWriter =
+                new Thread(
+                        () ->
+                                writing.executeWithoutResult(
+                                        status -> {
+                                            saveList();
+                                            toDoListRepository.flush();
+                                            written.countDown();
+                                            awaitQuietly(commit);
+                                        }));
+        slowWriter.start();
+        written.await();
+        saveList();
+        ReplicationPosition.clear();
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            shipper.shipChanges();
+        }
+        int whileOpen = countLists();
+        commit.countDown();
+        slowWriter.join();
+        shipAll();
+
+        // verify
+        assertEquals(1, whileOpen);
+        assertEquals(2, countLists());
+    }
+
+    @Test
+    void lagShouldBeExportedUntilReplicaCaughtUp() {
+        // given
+        saveList();
+        saveList();
+        saveList();
+
+        // when
+        shipper.shipChanges();
+        double lagging = lag();
+        shipAll();
+
+        // verify
+        assertTrue(lagging > 0);
+        assertEquals(0, lag());
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void consistencyTokenShouldLetClientReadItsOwnWrite() throws Exception {
+        // given
+        long listId = saveList();
+        shipAll();
+        ReplicationPosition.clear();
+        MvcResult updated =
+                mvc.perform(
+                        put("/api/v1/list/{id}", listId)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\": \"renamed\"}")
+                                .accept(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isOk())
+                        .andReturn();
+        String token = updated.getResponse().getHeader(CONSISTENCY_TOKEN_HEADER);
+
+        // when
+        mvc.perform(get("/api/v1/list/{id}", listId).accept(MediaType.APPLICATION_JSON))
+        // verify
+                .andExpect(jsonPath("$.name").value("list"));
+        mvc.perform(
+                get("/api/v1/list/{id}", listId)
+                        .header(CONSISTENCY_TOKEN_HEADER, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.name").value("renamed"));
+        assertNotNull(token);
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void consistencyTokenShouldHoldForStreamedResponse() throws Exception {
+        // given
+        long listId = saveList();
+        shipAll();
+        ReplicationPosition.clear();
+        String token =
+                mvc.perform(
+                        put("/api/v1/list/{id}", listId)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\": \"renamed\"}")
+                                .accept(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getHeader(CONSISTENCY_TOKEN_HEADER);
+
+        // when
+        MvcResult streaming =
+                mvc.perform(
+                        get("/api/v1/user/{username}/export", USERNAME)
+                                .header(CONSISTENCY_TOKEN_HEADER, token))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+
+        // verify
+        mvc.perform(asyncDispatch(streaming))
+                .andExpect(content().string(containsString("\"renamed\"")));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void conditionalGetShouldTagBodyWithVersionItWasReadAt() throws Exception {
+        // given
+        long listId = saveList();
+        shipAll();
+        ReplicationPosition.clear();
+        String token = rename(listId);
+        String replicaTag =
+                mvc.perform(get("/api/v1/list/{id}", listId).accept(MediaType.APPLICATION_JSON))
+                        .andExpect(jsonPath("$.name").value("list"))
+                        .andReturn()
+                        .getResponse()
+                        .getHeader(HttpHeaders.ETAG);
+
+        // when
+        String primaryTag =
+                mvc.perform(
+                        get("/api/v1/list/{id}", listId)
+                                .header(CONSISTENCY_TOKEN_HEADER, token)
+                                .header(HttpHeaders.IF_NONE_MATCH, replicaTag)
+                                .accept(MediaType.APPLICATION_JSON))
+        // verify
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.name").value("renamed"))
+                        .andReturn()
+                        .getResponse()
+                        .getHeader(HttpHeaders.ETAG);
+        mvc.perform(
+                get("/api/v1/list/{id}", listId)
+                        .header(HttpHeaders.IF_NONE_MATCH, primaryTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("list"))
+                .andExpect(header().string(HttpHeaders.ETAG, replicaTag));
+        assertNotEquals(replicaTag, primaryTag);
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void streamedListsShouldBeReadFromPrimaryAtTheirTaggedVersion() throws Exception {
+        // given
+        long listId = saveList();
+        shipAll();
+        ReplicationPosition.clear();
+        rename(listId);
+
+        // when
+        MvcResult streaming =
+                mvc.perform(get("/api/v1/list/all"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+        String tag = streaming.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // verify
+        mvc.perform(asyncDispatch(streaming))
+                .andExpect(content().string(containsString("\"renamed\"")));
+        mvc.perform(get("/api/v1/list/all").header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isNotModified());
+    }
+
+    // leaves the replica behind, the consistency token returned asks for the new name
+    private String rename(long listId) throws Exception {
+        String token =
+                mvc.perform(
+                        put("/api/v1/list/{id}", listId)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\": \"renamed\"}")
+                                .accept(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getHeader(CONSISTENCY_TOKEN_HEADER);
+        ReplicationPosition.clear();
+        return token;
+    }
+
+    private long saveList() {
+        ToDoList list = new ToDoList("list");
+        list.setUser(userRepository.findByUsername(USERNAME).get());
+        return toDoListRepository.save(list).getId();
+    }
+
+    private int countLists() {
+        return readOnly.execute(
+                status -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM lists", Integer.class));
+    }
+
+    private double lag() {
+        return meterRegistry.get("replication.lag.changes").tag("replica", "replica-1").gauge().value();
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void shipAll() {
+        do {
+            shipper.shipChanges();
+        } while (lag() > 0);
+    }
+}
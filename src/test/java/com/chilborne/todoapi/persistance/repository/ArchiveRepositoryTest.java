@@ -0,0 +1,152 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ArchiveRepositoryTest {
+
+  static final String USERNAME = "user";
+  static final LocalDateTime LONG_AGO = LocalDateTime.of(2000, 1, 1, 0, 0);
+  static final LocalDateTime CUTOFF = LocalDateTime.of(2010, 1, 1, 0, 0);
+  @Autowired ArchivedTaskRepository archivedTaskRepository;
+  @Autowired ArchivedToDoListRepository archivedToDoListRepository;
+  @Autowired TaskRepository taskRepository;
+  @Autowired ToDoListRepository toDoListRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired TestEntityManager entityManager;
+  private ToDoList activeList;
+  private ToDoList inactiveList;
+  private Task finishedLongAgo;
+  private Task finishedRecently;
+  private Task stillActive;
+  private Task ofInactiveList;
+  private LocalDateTime archivedAt;
+
+  @BeforeEach
+  void initData() {
+    User user = new User(USERNAME, "secret");
+    activeList = new ToDoList("active");
+    activeList.setUser(user);
+    finishedLongAgo = new Task(activeList, "long ago");
+    finishedLongAgo.setActive(false);
+    finishedLongAgo.setTimeCompleted(LONG_AGO);
+    finishedRecently = new Task(activeList, "recently");
+    finishedRecently.setActive(false);
+    finishedRecently.setTimeCompleted(LocalDateTime.now());
+    stillActive = new Task(activeList, "active");
+    activeList.addTask(finishedLongAgo);
+    activeList.addTask(finishedRecently);
+    activeList.addTask(stillActive);
+
+    inactiveList = new ToDoList("inactive");
+    inactiveList.setUser(user);
+    inactiveList.setActive(false);
+    inactiveList.setTimeDeactivated(LONG_AGO);
+    ofInactiveList = new Task(inactiveList, "never done");
+    inactiveList.addTask(ofInactiveList);
+
+    userRepository.save(user);
+    toDoListRepository.save(activeList);
+    toDoListRepository.save(inactiveList);
+    entityManager.flush();
+    archivedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+  }
+
+  @Test
+  void copyTasksFinishedBeforeShouldOnlyMoveTasksCompletedBeforeCutoff() {
+    // when
+    int copied = archivedTaskRepository.copyTasksFinishedBefore(CUTOFF, archivedAt);
+    int deleted = archivedTaskRepository.deleteTasksArchivedAt(archivedAt);
+
+    // verify
+    List<TaskDto> archived = archivedTaskRepository.findDtosByListIds(List.of(activeList.getId()));
+    assertAll(
+        () -> assertEquals(1, copied),
+        () -> assertEquals(1, deleted),
+        () -> assertEquals(1, archived.size()),
+        () -> assertEquals(finishedLongAgo.getId(), archived.get(0).getTaskId()),
+        () -> assertEquals(LONG_AGO, archived.get(0).getDateTimeFinished()),
+        () -> assertTrue(taskRepository.findById(finishedLongAgo.getId()).isEmpty()),
+        () -> assertTrue(taskRepository.findById(finishedRecently.getId()).isPresent()),
+        () -> assertTrue(taskRepository.findById(stillActive.getId()).isPresent()));
+  }
+
+  @Test
+  void copyListsDeactivatedBeforeShouldMoveListWithAllItsTasks() {
+    // when
+    int lists = archivedToDoListRepository.copyListsDeactivatedBefore(CUTOFF, archivedAt);
+    int tasks = archivedTaskRepository.copyTasksOfListsArchivedAt(archivedAt);
+    archivedTaskRepository.deleteTasksArchivedAt(archivedAt);
+    archivedToDoListRepository.deleteListsArchivedAt(archivedAt);
+
+    // verify
+    Optional<ToDoListDto> archived =
+        archivedToDoListRepository.findDtoByIdAndUsername(inactiveList.getId(), USERNAME);
+    assertAll(
+        () -> assertEquals(1, lists),
+        () -> assertEquals(1, tasks),
+        () -> assertTrue(archived.isPresent()),
+        () -> assertEquals(USERNAME, archived.get().getUsername()),
+        () -> assertFalse(archived.get().isActive()),
+        () -> assertTrue(toDoListRepository.findById(inactiveList.getId()).isEmpty()),
+        () -> assertTrue(toDoListRepository.findById(activeList.getId()).isPresent()),
+        () -> assertTrue(taskRepository.findById(ofInactiveList.getId()).isEmpty()),
+        () ->
+            assertEquals(
+                ofInactiveList.getId(),
+                archivedTaskRepository
+                    .findDtosByListIds(List.of(inactiveList.getId()))
+                    .get(0)
+                    .getTaskId()));
+  }
+
+  @Test
+  void findDtoByIdAndUsernameShouldNotReturnListOfOtherUser() {
+    // given
+    archivedToDoListRepository.copyListsDeactivatedBefore(CUTOFF, archivedAt);
+
+    // when
+    Optional<ToDoListDto> result =
+        archivedToDoListRepository.findDtoByIdAndUsername(inactiveList.getId(), "other");
+
+    // verify
+    assertTrue(result.isEmpty());
+  }
+
+  @Test
+  void deleteByUsernameShouldRemoveArchivedListsAndTasksOfUser() {
+    // given
+    archivedToDoListRepository.copyListsDeactivatedBefore(CUTOFF, archivedAt);
+    archivedTaskRepository.copyTasksOfListsArchivedAt(archivedAt);
+
+    // when
+    int otherTasks = archivedTaskRepository.deleteByUsername("other");
+    int tasks = archivedTaskRepository.deleteByUsername(USERNAME);
+    int lists = archivedToDoListRepository.deleteByUsername(USERNAME);
+
+    // verify
+    assertAll(
+        () -> assertEquals(0, otherTasks),
+        () -> assertEquals(1, tasks),
+        () -> assertEquals(1, lists),
+        () -> assertTrue(archivedToDoListRepository.findDtosByUsername(USERNAME).isEmpty()));
+  }
+}
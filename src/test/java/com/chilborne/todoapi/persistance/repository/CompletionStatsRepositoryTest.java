@@ -0,0 +1,138 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.CompletionDayDto;
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.CompletionStatsRepository.BucketCompletions;
+import com.chilborne.todoapi.persistance.stats.CompletionStats;
+import com.chilborne.todoapi.persistance.stats.CompletionStatsInstaller;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(CompletionStatsInstaller.class)
+class CompletionStatsRepositoryTest {
+
+  static final String USERNAME = "user";
+  static final LocalDate FROM = LocalDate.of(2000, 1, 1);
+  @Autowired CompletionStatsRepository completionStatsRepository;
+  @Autowired ArchivedTaskRepository archivedTaskRepository;
+  @Autowired TaskRepository taskRepository;
+  @Autowired ToDoListRepository toDoListRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired TestEntityManager entityManager;
+  private ToDoList list;
+  private Task first;
+  private Task second;
+  private LocalDateTime completedAt;
+
+  @BeforeEach
+  void initData() {
+    User user = new User(USERNAME, "secret");
+    list = new ToDoList("list");
+    list.setUser(user);
+    first = new Task(list, "first");
+    second = new Task(list, "second");
+    list.addTask(first);
+    list.addTask(second);
+    list.addTask(new Task(list, "third"));
+    userRepository.save(user);
+    toDoListRepository.save(list);
+
+    User other = new User("other", "secret");
+    ToDoList otherList = new ToDoList("other");
+    otherList.setUser(other);
+    Task otherTask = new Task(otherList, "done");
+    otherTask.setActive(false);
+    otherTask.setTimeCompleted(LocalDateTime.now());
+    otherList.addTask(otherTask);
+    userRepository.save(other);
+    toDoListRepository.save(otherList);
+    entityManager.flush();
+    completedAt = LocalDateTime.now().plusHours(1).truncatedTo(ChronoUnit.SECONDS);
+  }
+
+  @Test
+  void completingTasksShouldCountThemOnTheirDayAndInTheirBucket() {
+    // when
+    taskRepository.completeActiveTask(first.getId(), USERNAME, completedAt, null);
+    taskRepository.completeActiveTask(second.getId(), USERNAME, completedAt, null);
+    taskRepository.countCompletionsInListsOfTasks(List.of(first.getId(), second.getId()));
+    // version bumps leave completed tasks counted once
+    taskRepository.updateNameAndDescription(first.getId(), USERNAME, "renamed", null, null);
+
+    // verify
+    assertEquals(
+        List.of(new CompletionDayDto(completedAt.toLocalDate(), 2)),
+        completionStatsRepository.findDaysByUsername(USERNAME, FROM));
+    Map<Integer, Long> times = times(USERNAME);
+    assertEquals(2, times.values().stream().mapToLong(Long::longValue).sum());
+    long median = CompletionStats.medianSeconds(times);
+    assertTrue(median > 3600 * 7 / 8 && median < 3600 * 9 / 8, "median was " + median);
+    assertEquals(1, completionStatsRepository.countActiveTasksByUsername(USERNAME));
+    assertEquals(1, completionStatsRepository.findDaysByUsername("other", FROM).size());
+  }
+
+  @Test
+  void deletingCompletedTaskShouldUncountItButArchivingShouldNot() {
+    // given
+    taskRepository.completeActiveTask(first.getId(), USERNAME, completedAt, null);
+    taskRepository.completeActiveTask(second.getId(), USERNAME, completedAt, null);
+
+    // when
+    taskRepository.deleteByIdAndListIdAndUsername(second.getId(), list.getId(), USERNAME);
+    LocalDateTime archivedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    archivedTaskRepository.copyTasksFinishedBefore(completedAt.plusSeconds(1), archivedAt);
+    archivedTaskRepository.deleteTasksArchivedAt(archivedAt);
+
+    // verify
+    assertTrue(taskRepository.findById(first.getId()).isEmpty());
+    assertEquals(
+        List.of(new CompletionDayDto(completedAt.toLocalDate(), 1)),
+        completionStatsRepository.findDaysByUsername(USERNAME, FROM));
+    assertEquals(1, times(USERNAME).values().stream().mapToLong(Long::longValue).sum());
+  }
+
+  @Test
+  void rebuildShouldArriveAtTheRollupsKeptByTheTrigger() {
+    // given
+    taskRepository.completeActiveTask(first.getId(), USERNAME, completedAt, null);
+    taskRepository.completeActiveTask(second.getId(), USERNAME, completedAt.plusDays(1), null);
+    taskRepository.deleteByIdAndListIdAndUsername(second.getId(), list.getId(), USERNAME);
+    List<CompletionDayDto> days = completionStatsRepository.findDaysByUsername(USERNAME, FROM);
+    Map<Integer, Long> times = times(USERNAME);
+
+    // when
+    entityManager
+        .getEntityManager()
+        .unwrap(Session.class)
+        .doWork(conn -> assertEquals(2, CompletionStats.rebuild(conn)));
+
+    // verify
+    assertEquals(days, completionStatsRepository.findDaysByUsername(USERNAME, FROM));
+    assertEquals(times, times(USERNAME));
+  }
+
+  private Map<Integer, Long> times(String username) {
+    return completionStatsRepository.findTimesByUsername(username).stream()
+        .collect(
+            Collectors.toMap(BucketCompletions::getBucket, BucketCompletions::getCompletions));
+  }
+}
@@ -0,0 +1,83 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.bootstrap.IdSequenceInstaller;
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the installer reads through a connection of its own, so the rows are committed
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(IdSequenceInstaller.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdSequenceInstallerTest {
+
+  @Autowired IdSequenceInstaller installer;
+  @Autowired ToDoListRepository toDoListRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void initData() {
+    User user = userRepository.save(new User("user", "secret"));
+    for (int l = 0; l < 3; l++) {
+      ToDoList list = new ToDoList("list " + l);
+      list.setUser(user);
+      list.addTask(new Task(list, "task " + l));
+      list.addTask(new Task(list, "another task " + l));
+      toDoListRepository.save(list);
+    }
+  }
+
+  @AfterEach
+  void tearDownData() {
+    toDoListRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void sequencesStartedBelowExistingIdsShouldBeRestartedAboveThem() {
+    // given
+    jdbcTemplate.execute("ALTER SEQUENCE task_seq RESTART WITH 1");
+    jdbcTemplate.execute("ALTER SEQUENCE list_seq RESTART WITH 1");
+
+    // when
+    installer.afterSingletonsInstantiated();
+
+    // verify
+    assertTrue(nextValue("task_seq") > maxId("task_id", "tasks"));
+    assertTrue(nextValue("list_seq") > maxId("list_id", "lists"));
+  }
+
+  @Test
+  void sequencesAlreadyAboveExistingIdsShouldBeLeftAlone() {
+    // given
+    jdbcTemplate.execute("ALTER SEQUENCE task_seq RESTART WITH 100000");
+
+    // when
+    installer.afterSingletonsInstantiated();
+
+    // verify
+    assertEquals(100000, nextValue("task_seq"));
+  }
+
+  private long nextValue(String sequence) {
+    return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+  }
+
+  private long maxId(String column, String table) {
+    return jdbcTemplate.queryForObject("SELECT MAX(" + column + ") FROM " + table, Long.class);
+  }
+}
@@ -0,0 +1,328 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every repository query against H2 and checks the {@code EXPLAIN} output of the generated
+ * SQL, an index comment without a condition means H2 reads the whole table.
+ */
+@DataJpaTest(
+    properties = {
+      "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+          + "com.chilborne.todoapi.persistance.repository.QueryPlanTest$RecordingInspector",
+      // every lookup has to reach the database to be explained
+      "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"
+    })
+@ActiveProfiles("test")
+class QueryPlanTest {
+
+  static final String USERNAME = "user";
+  static final Pattern FULL_SCAN = Pattern.compile("/\\* (PUBLIC\\.[A-Z0-9_.]+?)(\\.tableScan)? \\*/");
+
+  @Autowired TaskRepository taskRepository;
+  @Autowired ToDoListRepository toDoListRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired ArchivedTaskRepository archivedTaskRepository;
+  @Autowired ArchivedToDoListRepository archivedToDoListRepository;
+  @Autowired TombstoneRepository tombstoneRepository;
+  @Autowired CompletionStatsRepository completionStatsRepository;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired TestEntityManager entityManager;
+  private long listId;
+  private long taskId;
+
+  @BeforeEach
+  void initData() {
+    User user = new User(USERNAME, "secret");
+    ToDoList list = new ToDoList("list");
+    list.setUser(user);
+    Task task = new Task(list, "task");
+    list.addTask(task);
+    userRepository.save(user);
+    toDoListRepository.save(list);
+    entityManager.flush();
+    entityManager.clear();
+    listId = list.getId();
+    taskId = task.getId();
+    RecordingInspector.STATEMENTS.get().clear();
+  }
+
+  static Stream<Arguments> queries() {
+    LocalDateTime now = LocalDateTime.now();
+    return Stream.of(
+        query("TaskRepository.findById", t -> t.taskRepository.findById(t.taskId)),
+        query(
+            "TaskRepository.findByIdAndToDoListUserUsername",
+            t -> t.taskRepository.findByIdAndToDoListUserUsername(t.taskId, USERNAME)),
+        query(
+            "TaskRepository.findDtoByIdAndUsername",
+            t -> t.taskRepository.findDtoByIdAndUsername(t.taskId, USERNAME)),
+        query(
+            "TaskRepository.findDtosByListIds",
+            t -> t.taskRepository.findDtosByListIds(List.of(t.listId))),
+        query(
+            "TaskRepository.findDtosByUsername",
+            t -> t.taskRepository.findDtosByUsername(USERNAME)),
+        query(
+            "TaskRepository.streamDtosByUsername",
+            t -> drain(t.taskRepository.streamDtosByUsername(USERNAME))),
+        query(
+            "TaskRepository.findDtosByListId",
+            t ->
+                t.taskRepository.findDtosByListId(
+                    t.listId,
+                    new TaskFilter()
+                        .setActive(true)
+                        .setCreatedFrom(now.minusDays(1))
+                        .setNamePrefix("ta")
+                        .setSort(TaskFilter.Sort.DATE_TIME_MADE))),
+        query(
+            "TaskRepository.findDtosByIds",
+            t -> t.taskRepository.findDtosByIds(List.of(t.taskId))),
+        query(
+            "TaskRepository.searchIds",
+            t -> t.taskRepository.searchIds(USERNAME, List.of("task", "list"), 0, 20)),
+        query(
+            "TaskRepository.completeActiveTask",
+            t -> t.taskRepository.completeActiveTask(t.taskId, USERNAME, now, 0L)),
+        query(
+            "TaskRepository.completeActiveTasks",
+            t -> t.taskRepository.completeActiveTasks(List.of(t.taskId), USERNAME, now)),
+        query(
+            "TaskRepository.lockActiveIds",
+            t -> t.taskRepository.lockActiveIds(List.of(t.taskId), USERNAME)),
+        query(
+            "TaskRepository.lockActiveIdsInList",
+            t -> t.taskRepository.lockActiveIdsInList(t.listId, USERNAME, now)),
+        query(
+            "TaskRepository.deleteByIdAndListIdAndUsername",
+            t -> t.taskRepository.deleteByIdAndListIdAndUsername(t.taskId, t.listId, USERNAME)),
+        query(
+            "TaskRepository.deleteActiveByIdAndListIdAndUsername",
+            t -> t.taskRepository.deleteActiveByIdAndListIdAndUsername(
+                    t.taskId, t.listId, USERNAME)),
+        query(
+            "TaskRepository.countByToDoListId",
+            t -> t.taskRepository.countByToDoListId(t.listId)),
+        query(
+            "TaskRepository.deleteByListIdAndUsername",
+            t -> t.taskRepository.deleteByListIdAndUsername(t.listId, USERNAME)),
+        query(
+            "TaskRepository.updateNameAndDescription",
+            t -> t.taskRepository.updateNameAndDescription(
+                    t.taskId, USERNAME, "name", "description", 0L)),
+        query(
+            "TaskRepository.incrementListVersionsOfTasks",
+            t -> t.taskRepository.incrementListVersionsOfTasks(List.of(t.taskId))),
+        query(
+            "TaskRepository.countCompletionsInListsOfTasks",
+            t -> t.taskRepository.countCompletionsInListsOfTasks(List.of(t.taskId))),
+        query(
+            "TaskRepository.findVersionByIdAndUsername",
+            t -> t.taskRepository.findVersionByIdAndUsername(t.taskId, USERNAME)),
+        query(
+            "TaskRepository.findCompletionStates",
+            t -> t.taskRepository.findCompletionStates(List.of(t.taskId), USERNAME)),
+        query(
+            "ToDoListRepository.findByIdAndUserUsername",
+            t -> t.toDoListRepository.findByIdAndUserUsername(t.listId, USERNAME)),
+        query(
+            "ToDoListRepository.findByUserUsername",
+            t -> t.toDoListRepository.findByUserUsername(USERNAME)),
+        query(
+            "ToDoListRepository.findDtoByIdAndUserUsername",
+            t -> t.toDoListRepository.findDtoByIdAndUserUsername(t.listId, USERNAME)),
+        query(
+            "ToDoListRepository.findDtosByUserUsername",
+            t -> t.toDoListRepository.findDtosByUserUsername(USERNAME)),
+        query(
+            "ToDoListRepository.streamDtosByUsername",
+            t -> drain(t.toDoListRepository.streamDtosByUsername(USERNAME))),
+        query(
+            "ToDoListRepository.findDtoPageByUserUsername",
+            t -> t.toDoListRepository.findDtoPageByUserUsername(USERNAME, 0, PageRequest.of(0, 10))),
+        query(
+            "ToDoListRepository.existsByIdAndUserUsername",
+            t -> t.toDoListRepository.existsByIdAndUserUsername(t.listId, USERNAME)),
+        query(
+            "ToDoListRepository.updateNameAndDescription",
+            t -> t.toDoListRepository.updateNameAndDescription(
+                    t.listId, USERNAME, "name", "description", 0L)),
+        query(
+            "ToDoListRepository.updateActive",
+            t -> t.toDoListRepository.updateActive(t.listId, USERNAME, false, 0L)),
+        query(
+            "ToDoListRepository.incrementVersion",
+            t -> t.toDoListRepository.incrementVersion(t.listId, USERNAME, 0L)),
+        query(
+            "ToDoListRepository.addToTaskCounts",
+            t -> t.toDoListRepository.addToTaskCounts(t.listId, USERNAME, 1, 1)),
+        query(
+            "ToDoListRepository.incrementVersionsByUsername",
+            t -> t.toDoListRepository.incrementVersionsByUsername(USERNAME)),
+        query(
+            "ToDoListRepository.findVersionByIdAndUsername",
+            t -> t.toDoListRepository.findVersionByIdAndUsername(t.listId, USERNAME)),
+        query(
+            "ToDoListRepository.summarizeVersionsByUsername",
+            t -> t.toDoListRepository.summarizeVersionsByUsername(USERNAME, 0)),
+        query(
+            "ToDoListRepository.deleteByIdAndUsername",
+            t -> {
+              t.taskRepository.deleteByListIdAndUsername(t.listId, USERNAME);
+              t.toDoListRepository.deleteByIdAndUsername(t.listId, USERNAME);
+            }),
+        query(
+            "ArchivedTaskRepository.copyTasksFinishedBefore",
+            t -> t.archivedTaskRepository.copyTasksFinishedBefore(now, now)),
+        query(
+            "ArchivedTaskRepository.copyTasksOfListsArchivedAt",
+            t -> t.archivedTaskRepository.copyTasksOfListsArchivedAt(now)),
+        query(
+            "ArchivedTaskRepository.deleteTasksArchivedAt",
+            t -> t.archivedTaskRepository.deleteTasksArchivedAt(now)),
+        query(
+            "ArchivedTaskRepository.incrementListVersionsArchivedAt",
+            t -> t.archivedTaskRepository.incrementListVersionsArchivedAt(now)),
+        query(
+            "ArchivedTaskRepository.findDtosByListIds",
+            t -> t.archivedTaskRepository.findDtosByListIds(List.of(t.listId))),
+        query(
+            "ArchivedTaskRepository.streamDtosByUsername",
+            t -> drain(t.archivedTaskRepository.streamDtosByUsername(USERNAME))),
+        query(
+            "ArchivedTaskRepository.deleteByListIdAndUsername",
+            t -> t.archivedTaskRepository.deleteByListIdAndUsername(t.listId, USERNAME)),
+        query(
+            "ArchivedTaskRepository.deleteByUsername",
+            t -> t.archivedTaskRepository.deleteByUsername(USERNAME)),
+        query(
+            "ArchivedToDoListRepository.copyListsDeactivatedBefore",
+            t -> t.archivedToDoListRepository.copyListsDeactivatedBefore(now, now)),
+        query(
+            "ArchivedToDoListRepository.deleteListsArchivedAt",
+            t -> t.archivedToDoListRepository.deleteListsArchivedAt(now)),
+        query(
+            "ArchivedToDoListRepository.findDtoByIdAndUsername",
+            t -> t.archivedToDoListRepository.findDtoByIdAndUsername(t.listId, USERNAME)),
+        query(
+            "ArchivedToDoListRepository.findDtosByUsername",
+            t -> t.archivedToDoListRepository.findDtosByUsername(USERNAME)),
+        query(
+            "ArchivedToDoListRepository.streamDtosByUsername",
+            t -> drain(t.archivedToDoListRepository.streamDtosByUsername(USERNAME))),
+        query(
+            "ArchivedToDoListRepository.summarizeByUsername",
+            t -> t.archivedToDoListRepository.summarizeByUsername(USERNAME)),
+        query(
+            "ArchivedToDoListRepository.deleteByIdAndUsername",
+            t -> t.archivedToDoListRepository.deleteByIdAndUsername(t.listId, USERNAME)),
+        query(
+            "ArchivedToDoListRepository.deleteByUsername",
+            t -> t.archivedToDoListRepository.deleteByUsername(USERNAME)),
+        query(
+            "UserRepository.existsByUsername",
+            t -> t.userRepository.existsByUsername(USERNAME)),
+        query(
+            "UserRepository.findByUsername",
+            t -> t.userRepository.findByUsername(USERNAME)),
+        query(
+            "UserRepository.findVersionByUsername",
+            t -> t.userRepository.findVersionByUsername(USERNAME)),
+        query(
+            "ToDoListRepository.findChangeSeqsByUsername",
+            t -> t.toDoListRepository.findChangeSeqsByUsername(USERNAME, 0, 10, PageRequest.of(0, 10))),
+        query(
+            "ToDoListRepository.findDtosChangedBetween",
+            t -> t.toDoListRepository.findDtosChangedBetween(USERNAME, 0, 10)),
+        query(
+            "TaskRepository.findChangeSeqsByUsername",
+            t -> t.taskRepository.findChangeSeqsByUsername(USERNAME, 0, 10, PageRequest.of(0, 10))),
+        query(
+            "TaskRepository.findDtosChangedBetween",
+            t -> t.taskRepository.findDtosChangedBetween(USERNAME, 0, 10)),
+        query(
+            "TombstoneRepository.findChangeSeqsByUsername",
+            t -> t.tombstoneRepository.findChangeSeqsByUsername(USERNAME, 0, 10, PageRequest.of(0, 10))),
+        query(
+            "TombstoneRepository.findDtosChangedBetween",
+            t -> t.tombstoneRepository.findDtosChangedBetween(USERNAME, 0, 10)),
+        query(
+            "CompletionStatsRepository.findDaysByUsername",
+            t -> t.completionStatsRepository.findDaysByUsername(USERNAME, now.toLocalDate())),
+        query(
+            "CompletionStatsRepository.findTimesByUsername",
+            t -> t.completionStatsRepository.findTimesByUsername(USERNAME)),
+        query(
+            "CompletionStatsRepository.countActiveTasksByUsername",
+            t -> t.completionStatsRepository.countActiveTasksByUsername(USERNAME)));
+  }
+
+  static Arguments query(String name, Consumer<QueryPlanTest> query) {
+    return Arguments.of(name, query);
+  }
+
+  // streamed results are read inside the test's transaction
+  static void drain(Stream<?> results) {
+    try (results) {
+      results.forEach(result -> {});
+    }
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("queries")
+  void queryShouldNotScanWholeTable(String name, Consumer<QueryPlanTest> query) {
+    // when
+    query.accept(this);
+    List<String> statements = new ArrayList<>(RecordingInspector.STATEMENTS.get());
+
+    // verify
+    assertFalse(statements.isEmpty(), name + " did not reach the database");
+    for (String sql : statements) {
+      String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+      Matcher scan = FULL_SCAN.matcher(plan);
+      assertFalse(scan.find(), () -> name + " scans " + scan.group(1) + ":\n" + plan);
+    }
+  }
+
+  /** Collects the sql of queries and bulk statements issued on the current thread. */
+  public static class RecordingInspector implements StatementInspector {
+
+    static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+      String statement = sql.stripLeading().toLowerCase();
+      if (statement.startsWith("select")
+          || statement.startsWith("update")
+          || statement.startsWith("delete")
+          || statement.startsWith("insert") && statement.contains(" select ")) {
+        STATEMENTS.get().add(sql);
+      }
+      return sql;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures statement count and wall time of inserting a large number of tasks into one list.
+ *
+ * <p>Not part of the regular test run, execute with {@code mvn test -Dtest=TaskBatchInsertBenchmark}
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class TaskBatchInsertBenchmark {
+
+  static final int TASKS = 500;
+  static final int ITERATIONS = 10;
+  // must match allocationSize of the id generators and hibernate.jdbc.batch_size
+  static final int BATCH_SIZE = 50;
+
+  @Autowired ToDoListRepository toDoListRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired TestEntityManager entityManager;
+  private final Logger logger = LoggerFactory.getLogger(TaskBatchInsertBenchmark.class);
+  private User user;
+  private Statistics statistics;
+
+  @BeforeEach
+  void init() {
+    user = userRepository.save(new User("benchmark", "password"));
+    statistics =
+        entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  @Test
+  void insertTasksIntoList() {
+    long totalNanos = 0;
+    long statements = 0;
+
+    for (int i = 0; i < ITERATIONS; i++) {
+      entityManager.flush();
+      entityManager.clear();
+      statistics.clear();
+
+      long start = System.nanoTime();
+      ToDoList list = new ToDoList("benchmark " + i);
+      list.setUser(user);
+      for (int t = 0; t < TASKS; t++) {
+        list.addTask(new Task(list, "task " + t));
+      }
+      toDoListRepository.save(list);
+      entityManager.flush();
+      totalNanos += System.nanoTime() - start;
+
+      statements = statistics.getPrepareStatementCount();
+      assertEquals(TASKS + 1, statistics.getEntityInsertCount());
+    }
+
+    long expectedStatements = expectedStatements();
+    logger.info(
+        "Inserted {} tasks: {} statements, {} ms average over {} iterations",
+        TASKS, statements, totalNanos / ITERATIONS / 1_000_000, ITERATIONS);
+    assertTrue(
+        statements <= expectedStatements,
+        "expected at most " + expectedStatements + " statements but was " + statements);
+  }
+
+  // one sequence call and one insert batch per BATCH_SIZE tasks, plus the list itself
+  private static long expectedStatements() {
+    long taskBlocks = (TASKS + BATCH_SIZE - 1) / BATCH_SIZE;
+    return 2 * taskBlocks + 2 + 1;
+  }
+}
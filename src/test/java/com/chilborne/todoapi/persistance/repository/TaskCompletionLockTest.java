@@ -0,0 +1,95 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// two bulk completions of the same tasks, each in a transaction of its own
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TaskCompletionLockTest {
+
+  static final String USERNAME = "user";
+  @Autowired TaskRepository taskRepository;
+  @Autowired ToDoListRepository toDoListRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired PlatformTransactionManager transactionManager;
+  private List<Long> ids;
+
+  @BeforeEach
+  void initData() {
+    User user = userRepository.save(new User(USERNAME, "secret"));
+    ToDoList list = new ToDoList("list");
+    list.setUser(user);
+    list.addTask(new Task(list, "first"));
+    list.addTask(new Task(list, "second"));
+    toDoListRepository.save(list);
+    ids = list.getTasks().stream().map(Task::getId).sorted().toList();
+  }
+
+  @AfterEach
+  void tearDownData() {
+    toDoListRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void lockActiveIdsShouldNotReturnTasksCompletedWhileWaitingForLock() throws Exception {
+    // given
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    LocalDateTime completedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    CountDownLatch locked = new CountDownLatch(1);
+    CompletableFuture<List<Long>> first =
+        CompletableFuture.supplyAsync(
+            () ->
+                transaction.execute(
+                    status -> {
+                      List<Long> claimed = taskRepository.lockActiveIds(ids, USERNAME);
+                      locked.countDown();
+                      sleep(200);
+                      taskRepository.completeActiveTasks(claimed, USERNAME, completedAt);
+                      return claimed;
+                    }));
+    locked.await();
+
+    // when
+    List<Long> second =
+        transaction.execute(
+            status -> {
+              List<Long> claimed = taskRepository.lockActiveIds(ids, USERNAME);
+              taskRepository.completeActiveTasks(claimed, USERNAME, completedAt);
+              return claimed;
+            });
+
+    // verify
+    assertEquals(ids, first.get());
+    assertEquals(List.of(), second);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class TaskRepositoryTest {
+
+  static final String USERNAME = "user";
+  static final String PASSWORD = "secret";
+  @Autowired TaskRepository taskRepository;
+  @Autowired ToDoListRepository toDoListRepository;
+  @Autowired UserRepository userRepository;
+  private ToDoList list;
+  private Task active;
+  private Task completed;
+  private LocalDateTime completedAt;
+
+  @BeforeEach
+  void initData() {
+    User user = new User(USERNAME, PASSWORD);
+    list = new ToDoList("list");
+    list.setUser(user);
+    active = new Task(list, "active");
+    completed = new Task(list, "completed");
+    completed.setActive(false);
+    completed.setTimeCompleted(LocalDateTime.of(2000, 1, 1, 0, 0));
+    list.addTask(active);
+    list.addTask(completed);
+
+    userRepository.save(user);
+    toDoListRepository.save(list);
+    completedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+  }
+
+  @Test
+  void findDtoByIdAndUsernameShouldReturnDtoOfOwnedTask() {
+    // when
+    Optional<TaskDto> result = taskRepository.findDtoByIdAndUsername(active.getId(), USERNAME);
+
+    // verify
+    assertAll(
+        () -> assertTrue(result.isPresent()),
+        () -> assertEquals(active.getName(), result.get().getName()),
+        () -> assertEquals(list.getId(), result.get().getListId()),
+        () -> assertTrue(result.get().getUrl().endsWith("/" + active.getId())));
+  }
+
+  @Test
+  void findDtoByIdAndUsernameShouldReturnEmptyOptionalForOtherUser() {
+    // when
+    Optional<TaskDto> result = taskRepository.findDtoByIdAndUsername(active.getId(), "other");
+
+    // verify
+    assertTrue(result.isEmpty());
+  }
+
+  @Test
+  void findDtosByListIdsShouldReturnTasksOfListsInIdOrder() {
+    // when
+    List<TaskDto> result = taskRepository.findDtosByListIds(List.of(list.getId()));
+
+    // verify
+    assertAll(
+        () -> assertEquals(2, result.size()),
+        () -> assertEquals(active.getId(), result.get(0).getTaskId()),
+        () -> assertEquals(completed.getId(), result.get(1).getTaskId()),
+        () -> assertFalse(result.get(1).isActive()));
+  }
+
+  @Test
+  void findDtosByListIdShouldApplyEveryConditionOfFilter() {
+    // when
+    List<TaskDto> open = taskRepository.findDtosByListId(list.getId(), new TaskFilter().setActive(true));
+    List<TaskDto> completedIn2000 =
+        taskRepository.findDtosByListId(
+            list.getId(),
+            new TaskFilter()
+                .setCompletedFrom(LocalDateTime.of(2000, 1, 1, 0, 0))
+                .setCompletedTo(LocalDateTime.of(2001, 1, 1, 0, 0)));
+    List<TaskDto> named =
+        taskRepository.findDtosByListId(list.getId(), new TaskFilter().setNamePrefix("COMP"));
+
+    // verify
+    assertEquals(List.of(active.getId()), open.stream().map(TaskDto::getTaskId).toList());
+    assertEquals(List.of(completed.getId()), completedIn2000.stream().map(TaskDto::getTaskId).toList());
+    assertEquals(List.of(completed.getId()), named.stream().map(TaskDto::getTaskId).toList());
+    assertTrue(
+        taskRepository.findDtosByListId(list.getId(), new TaskFilter().setNamePrefix("%")).isEmpty());
+  }
+
+  @Test
+  void findDtosByListIdShouldSortByFilterOrder() {
+    // when
+    List<TaskDto> result =
+        taskRepository.findDtosByListId(
+            list.getId(), new TaskFilter().setSort(TaskFilter.Sort.NAME).setDescending(true));
+
+    // verify
+    assertEquals(
+        List.of(completed.getId(), active.getId()),
+        result.stream().map(TaskDto::getTaskId).toList());
+  }
+
+  @Test
+  void deleteByIdAndListIdAndUsernameShouldDeleteTaskOfOwner() {
+    // when
+    int deleted = taskRepository.deleteByIdAndListIdAndUsername(active.getId(), list.getId(), USERNAME);
+
+    // verify
+    assertEquals(1, deleted);
+    assertTrue(taskRepository.findById(active.getId()).isEmpty());
+    assertEquals(1, taskRepository.countByToDoListId(list.getId()));
+  }
+
+  @Test
+  void deleteByIdAndListIdAndUsernameShouldNotDeleteTaskOfOtherUserOrOtherList() {
+    // when
+    int otherUser = taskRepository.deleteByIdAndListIdAndUsername(active.getId(), list.getId(), "other");
+    int otherList = taskRepository.deleteByIdAndListIdAndUsername(active.getId(), list.getId() + 1, USERNAME);
+
+    // verify
+    assertEquals(0, otherUser);
+    assertEquals(0, otherList);
+    assertTrue(taskRepository.findById(active.getId()).isPresent());
+  }
+
+  @Test
+  void completeActiveTaskShouldUpdateActiveTaskOnce() {
+    // when
+    int first = taskRepository.completeActiveTask(active.getId(), USERNAME, completedAt, null);
+    int second = taskRepository.completeActiveTask(active.getId(), USERNAME, completedAt, null);
+
+    // verify
+    assertEquals(1, first);
+    assertEquals(0, second);
+  }
+
+  @Test
+  void completeActiveTaskShouldNotUpdateTaskOfOtherUser() {
+    // when
+    int updated = taskRepository.completeActiveTask(active.getId(), "other", completedAt, null);
+
+    // verify
+    assertEquals(0, updated);
+    assertTrue(taskRepository.findByIdAndToDoListUserUsername(active.getId(), "other").isEmpty());
+  }
+
+  @Test
+  void completeActiveTasksShouldOnlyUpdateActiveTasksOfOwner() {
+    // when
+    int updated =
+        taskRepository.completeActiveTasks(
+            List.of(active.getId(), completed.getId()), USERNAME, completedAt);
+
+    // verify
+    Task reloaded = taskRepository.findById(active.getId()).get();
+    assertAll(
+        () -> assertEquals(1, updated),
+        () -> assertFalse(reloaded.isActive()),
+        () -> assertNotNull(reloaded.getTimeCompleted()));
+  }
+
+  @Test
+  void completeActiveTasksShouldNotUpdateTasksOfOtherUsers() {
+    // when
+    int updated = taskRepository.completeActiveTasks(List.of(active.getId()), "other", completedAt);
+
+    // verify
+    assertEquals(0, updated);
+    assertTrue(taskRepository.findById(active.getId()).get().isActive());
+  }
+
+  @Test
+  void findCompletionStatesShouldReturnCompletionTimeWrittenByUpdate() {
+    // given
+    taskRepository.completeActiveTasks(List.of(active.getId()), USERNAME, completedAt);
+
+    // when
+    List<TaskRepository.CompletionState> states =
+        taskRepository.findCompletionStates(
+            List.of(active.getId(), completed.getId(), Long.MAX_VALUE), USERNAME);
+
+    // verify
+    assertEquals(2, states.size());
+    for (TaskRepository.CompletionState state : states) {
+      if (state.getId() == active.getId()) {
+        assertEquals(completedAt, state.getTimeCompleted());
+      } else {
+        assertNotEquals(completedAt, state.getTimeCompleted());
+      }
+    }
+  }
+
+  @Test
+  void lockActiveIdsShouldOnlyReturnActiveTasksOfOwner() {
+    // when
+    List<Long> locked =
+        taskRepository.lockActiveIds(List.of(active.getId(), completed.getId()), USERNAME);
+
+    // verify
+    assertEquals(List.of(active.getId()), locked);
+    assertTrue(taskRepository.lockActiveIds(List.of(active.getId()), "other").isEmpty());
+  }
+
+  @Test
+  void lockActiveIdsInListShouldReturnActiveTasksCreatedBeforeGivenTime() {
+    // when
+    List<Long> locked =
+        taskRepository.lockActiveIdsInList(list.getId(), USERNAME, completedAt.plusSeconds(1));
+
+    // verify
+    assertEquals(List.of(active.getId()), locked);
+  }
+
+  @Test
+  void lockActiveIdsInListShouldIgnoreTasksCreatedAfterGivenTime() {
+    // when
+    List<Long> locked =
+        taskRepository.lockActiveIdsInList(
+            list.getId(), USERNAME, LocalDateTime.of(2000, 1, 1, 0, 0));
+
+    // verify
+    assertTrue(locked.isEmpty());
+  }
+}
@@ -0,0 +1,98 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.search.TaskTermInstaller;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(TaskTermInstaller.class)
+class TaskSearchRepositoryTest {
+
+  static final String USERNAME = "user";
+  @Autowired TaskRepository taskRepository;
+  @Autowired ToDoListRepository toDoListRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired TestEntityManager entityManager;
+  private ToDoList list;
+  private Task milk;
+  private Task bread;
+
+  @BeforeEach
+  void initData() {
+    User user = new User(USERNAME, "secret");
+    list = new ToDoList("shopping");
+    list.setUser(user);
+    milk = new Task(list, "Buy milk");
+    milk.setDescription("semi-skimmed, from the corner shop");
+    bread = new Task(list, "Bake bread");
+    bread.setDescription("buy flour first");
+    list.addTask(milk);
+    list.addTask(bread);
+    userRepository.save(user);
+    toDoListRepository.save(list);
+
+    User other = new User("other", "secret");
+    ToDoList otherList = new ToDoList("other");
+    otherList.setUser(other);
+    otherList.addTask(new Task(otherList, "Buy milk"));
+    userRepository.save(other);
+    toDoListRepository.save(otherList);
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @Test
+  void searchIdsShouldRankNameMatchesAboveDescriptionMatches() {
+    // when
+    List<Long> ids = taskRepository.searchIds(USERNAME, List.of("buy"), 0, 10);
+
+    // verify
+    assertEquals(List.of(milk.getId(), bread.getId()), ids);
+  }
+
+  @Test
+  void searchIdsShouldMatchEveryTermAsPrefix() {
+    // verify
+    assertEquals(List.of(milk.getId()), taskRepository.searchIds(USERNAME, List.of("bu", "corn"), 0, 10));
+    assertEquals(List.of(), taskRepository.searchIds(USERNAME, List.of("bread", "milk"), 0, 10));
+  }
+
+  @Test
+  void searchIdsShouldPaginate() {
+    // verify
+    assertEquals(List.of(bread.getId()), taskRepository.searchIds(USERNAME, List.of("buy"), 1, 1));
+  }
+
+  @Test
+  void renameShouldReplaceTerms() {
+    // when
+    taskRepository.updateNameAndDescription(milk.getId(), USERNAME, "Buy oat drink", null, null);
+
+    // verify
+    assertEquals(List.of(milk.getId()), taskRepository.searchIds(USERNAME, List.of("oat"), 0, 10));
+    assertEquals(List.of(), taskRepository.searchIds(USERNAME, List.of("milk"), 0, 10));
+  }
+
+  @Test
+  void deleteShouldRemoveTerms() {
+    // when
+    taskRepository.deleteByListIdAndUsername(list.getId(), USERNAME);
+
+    // verify
+    assertEquals(List.of(), taskRepository.searchIds(USERNAME, List.of("buy"), 0, 10));
+    assertEquals(1, taskRepository.searchIds("other", List.of("buy"), 0, 10).size());
+  }
+}
@@ -1,15 +1,23 @@
 package com.chilborne.todoapi.persistance.repository;
 
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.model.Task;
 import com.chilborne.todoapi.persistance.model.ToDoList;
 import com.chilborne.todoapi.persistance.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +32,8 @@ class ToDoListRepositoryTest {
   static final String LIST_DESCRIPTION = "describing";
   @Autowired ToDoListRepository toDoListRepository;
   @Autowired UserRepository userRepository;
+  @Autowired TaskRepository taskRepository;
+  @Autowired TestEntityManager entityManager;
   private ToDoList list;
   private User user;
 
@@ -51,6 +61,173 @@ class ToDoListRepositoryTest {
         () -> assertEquals(list, result.get()));
   }
 
+  @Test
+  void removeTaskFromLoadedListShouldDeleteTask() {
+    // given
+    Task kept = new Task(list, "kept");
+    Task removed = new Task(list, "removed");
+    list.addTask(kept);
+    list.addTask(removed);
+    entityManager.flush();
+    entityManager.clear();
+    ToDoList loaded = toDoListRepository.findByIdAndUserUsername(list.getId(), USERNAME).get();
+
+    // when
+    boolean result = loaded.removeTask(removed.getId());
+    entityManager.flush();
+
+    // verify
+    assertAll(
+        () -> assertTrue(result),
+        () -> assertEquals(Optional.of(kept), loaded.getTask(kept.getId())),
+        () -> assertNull(entityManager.find(Task.class, removed.getId())));
+  }
+
+  @Test
+  void getTaskAddedBeforeItWasSavedShouldNotDirtyList() {
+    // given
+    Task added = new Task(list, "added");
+    list.addTask(added);
+    entityManager.flush();
+    long version = list.getVersion();
+
+    // when
+    Optional<Task> result = list.getTask(added.getId());
+    entityManager.flush();
+
+    // verify
+    assertAll(
+        () -> assertEquals(Optional.of(added), result),
+        () -> assertEquals(version, list.getVersion()));
+  }
+
+  @Test
+  void taskCountsShouldFollowTasksAddedCompletedAndDeleted() {
+    // given
+    Task first = new Task(list, "first");
+    Task second = new Task(list, "second");
+    taskRepository.saveAll(List.of(first, second));
+    toDoListRepository.addToTaskCounts(list.getId(), USERNAME, 2, 2);
+
+    // when
+    taskRepository.completeActiveTask(first.getId(), USERNAME, LocalDateTime.now(), null);
+    taskRepository.countCompletionsInListsOfTasks(List.of(first.getId()));
+    int deletedActive =
+        taskRepository.deleteActiveByIdAndListIdAndUsername(first.getId(), list.getId(), USERNAME);
+    taskRepository.deleteByIdAndListIdAndUsername(first.getId(), list.getId(), USERNAME);
+    toDoListRepository.addToTaskCounts(list.getId(), USERNAME, -1, -deletedActive);
+
+    // verify
+    ToDoListDto result = toDoListRepository.findDtoByIdAndUserUsername(list.getId(), USERNAME).get();
+    assertEquals(0, deletedActive);
+    assertEquals(1, result.getTaskCount());
+    assertEquals(1, result.getActiveTaskCount());
+    assertEquals(0, toDoListRepository.addToTaskCounts(list.getId(), "other", 1, 1));
+  }
+
+  @Test
+  void updateNameAndDescriptionShouldOnlyUpdateListOfOwner() {
+    // when
+    int otherUser = toDoListRepository.updateNameAndDescription(list.getId(), "other", "new", "new desc", null);
+    int owner = toDoListRepository.updateNameAndDescription(list.getId(), USERNAME, "new", "new desc", null);
+
+    // verify
+    ToDoList reloaded = entityManager.find(ToDoList.class, list.getId());
+    assertAll(
+        () -> assertEquals(0, otherUser),
+        () -> assertEquals(1, owner),
+        () -> assertEquals("new", reloaded.getName()),
+        () -> assertEquals("new desc", reloaded.getDescription()));
+  }
+
+  @Test
+  void updateActiveShouldOnlyUpdateListOfOwner() {
+    // when
+    int otherUser = toDoListRepository.updateActive(list.getId(), "other", false, null);
+    int owner = toDoListRepository.updateActive(list.getId(), USERNAME, false, null);
+
+    // verify
+    assertEquals(0, otherUser);
+    assertEquals(1, owner);
+    assertFalse(entityManager.find(ToDoList.class, list.getId()).isActive());
+  }
+
+  @Test
+  void updateNameAndDescriptionShouldIncrementVersionOnlyAtExpectedVersion() {
+    // given
+    entityManager.flush();
+    long version = list.getVersion();
+
+    // when
+    int stale = toDoListRepository.updateNameAndDescription(list.getId(), USERNAME, "new", null, version + 1);
+    int current = toDoListRepository.updateNameAndDescription(list.getId(), USERNAME, "new", null, version);
+
+    // verify
+    assertEquals(0, stale);
+    assertEquals(1, current);
+    assertEquals(Optional.of(version + 1), toDoListRepository.findVersionByIdAndUsername(list.getId(), USERNAME));
+  }
+
+  @Test
+  void summarizeVersionsByUsernameShouldChangeWhenAnyListChanges() {
+    // given
+    ToDoList second = new ToDoList("second");
+    second.setUser(user);
+    toDoListRepository.save(second);
+    entityManager.flush();
+    String before = toDoListRepository.summarizeVersionsByUsername(USERNAME, 0).asVersion();
+
+    // when
+    toDoListRepository.updateActive(list.getId(), USERNAME, false, null);
+    String after = toDoListRepository.summarizeVersionsByUsername(USERNAME, 0).asVersion();
+
+    // verify
+    assertNotEquals(before, after);
+    assertEquals(
+        toDoListRepository.summarizeVersionsByUsername(USERNAME, list.getId()).asVersion(),
+        toDoListRepository.summarizeVersionsByUsername(USERNAME, list.getId()).asVersion());
+  }
+
+  @Test
+  void updateActiveShouldKeepFirstDeactivationTimeAndClearItOnReactivation() {
+    // when
+    toDoListRepository.updateActive(list.getId(), USERNAME, false, null);
+    LocalDateTime deactivated = entityManager.find(ToDoList.class, list.getId()).getTimeDeactivated();
+    entityManager.clear();
+    toDoListRepository.updateActive(list.getId(), USERNAME, false, null);
+    LocalDateTime deactivatedAgain =
+        entityManager.find(ToDoList.class, list.getId()).getTimeDeactivated();
+    entityManager.clear();
+    toDoListRepository.updateActive(list.getId(), USERNAME, true, null);
+
+    // verify
+    assertNotNull(deactivated);
+    assertEquals(deactivated, deactivatedAgain);
+    assertNull(entityManager.find(ToDoList.class, list.getId()).getTimeDeactivated());
+  }
+
+  @Test
+  void deleteByIdAndUsernameShouldDeleteListAfterItsTasksWereDeleted() {
+    // given
+    list.addTask(new Task(list, "first"));
+    list.addTask(new Task(list, "second"));
+    entityManager.flush();
+
+    // when
+    int otherUserTasks = taskRepository.deleteByListIdAndUsername(list.getId(), "other");
+    int otherUserLists = toDoListRepository.deleteByIdAndUsername(list.getId(), "other");
+    int tasks = taskRepository.deleteByListIdAndUsername(list.getId(), USERNAME);
+    int lists = toDoListRepository.deleteByIdAndUsername(list.getId(), USERNAME);
+
+    // verify
+    assertAll(
+        () -> assertEquals(0, otherUserTasks),
+        () -> assertEquals(0, otherUserLists),
+        () -> assertEquals(2, tasks),
+        () -> assertEquals(1, lists),
+        () -> assertNull(entityManager.find(ToDoList.class, list.getId())));
+  }
+
   @Test
   void getToDoListByUsernameAndIdShouldReturnEmptyOptionalWhenToDoListWithIdDoesNotBelongToUser() {
     // when
@@ -119,4 +296,108 @@ class ToDoListRepositoryTest {
     // verify
     assertFalse(exists);
   }
+
+  @Test
+  void findDtoPageByUserUsernameShouldReturnListsAfterCursorInIdOrder() {
+    // given
+    ToDoList second = new ToDoList("second");
+    second.setUser(user);
+    ToDoList third = new ToDoList("third");
+    third.setUser(user);
+    toDoListRepository.save(second);
+    toDoListRepository.save(third);
+
+    // when
+    List<ToDoListDto> firstPage =
+        toDoListRepository.findDtoPageByUserUsername(USERNAME, 0L, PageRequest.of(0, 2));
+    List<ToDoListDto> secondPage =
+        toDoListRepository.findDtoPageByUserUsername(
+            USERNAME, firstPage.get(1).getListId(), PageRequest.of(0, 2));
+
+    // verify
+    assertAll(
+        "Pages contain lists in ascending id order without overlap",
+        () -> assertEquals(List.of(list.getId(), second.getId()), listIds(firstPage)),
+        () -> assertEquals(List.of(third.getId()), listIds(secondPage)));
+  }
+
+  @Test
+  void findDtoPageByUserUsernameShouldNotReturnListsBelongingToOtherUsers() {
+    // given
+    User secondUser = new User("second", "password", "email@gmail.es");
+    ToDoList secondList = new ToDoList("Somewhat important", "not that important");
+    secondList.setUser(secondUser);
+    userRepository.save(secondUser);
+    toDoListRepository.save(secondList);
+
+    // when
+    List<ToDoListDto> result =
+        toDoListRepository.findDtoPageByUserUsername(USERNAME, 0L, PageRequest.of(0, 10));
+
+    // verify
+    assertEquals(List.of(list.getId()), listIds(result));
+  }
+
+  @Test
+  void findByIdAndUserUsernameShouldFetchListTasksAndUserInOneStatement() {
+    // given
+    list.addTask(new Task(list, "first"));
+    list.addTask(new Task(list, "second"));
+    toDoListRepository.save(list);
+    Statistics statistics = clearedStatistics();
+
+    // when
+    ToDoList result = toDoListRepository.findByIdAndUserUsername(list.getId(), USERNAME).get();
+    int taskCount = result.getTasks().size();
+    String owner = result.getUser().getUsername();
+
+    // verify
+    assertAll(
+        () -> assertEquals(2, taskCount),
+        () -> assertEquals(USERNAME, owner),
+        () -> assertEquals(1, statistics.getPrepareStatementCount()));
+  }
+
+  @Test
+  void findDtoByIdAndUserUsernameShouldSelectDtoWithoutLoadingEntities() {
+    // given
+    Statistics statistics = clearedStatistics();
+
+    // when
+    Optional<ToDoListDto> result =
+        toDoListRepository.findDtoByIdAndUserUsername(list.getId(), USERNAME);
+
+    // verify
+    assertAll(
+        () -> assertTrue(result.isPresent()),
+        () -> assertEquals(TO_DO, result.get().getName()),
+        () -> assertEquals(USERNAME, result.get().getUsername()),
+        () -> assertEquals(1, statistics.getPrepareStatementCount()),
+        () -> assertEquals(0, statistics.getEntityLoadCount()));
+  }
+
+  @Test
+  void findDtoByIdAndUserUsernameShouldReturnEmptyOptionalWhenListDoesNotBelongToUser() {
+    // when
+    Optional<ToDoListDto> result = toDoListRepository.findDtoByIdAndUserUsername(list.getId(), "fails");
+
+    // verify
+    assertTrue(result.isEmpty());
+  }
+
+  private static List<Long> listIds(List<ToDoListDto> lists) {
+    return lists.stream().map(ToDoListDto::getListId).collect(Collectors.toList());
+  }
+
+  private Statistics clearedStatistics() {
+    entityManager.flush();
+    entityManager.clear();
+    Statistics statistics =
+        entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+    statistics.setStatisticsEnabled(true);
+    statistics.clear();
+    return statistics;
+  }
 }
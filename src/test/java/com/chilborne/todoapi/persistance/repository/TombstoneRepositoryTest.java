@@ -0,0 +1,126 @@
+package com.chilborne.todoapi.persistance.repository;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.dto.TombstoneDto;
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.sync.ChangeSequenceInstaller;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ChangeSequenceInstaller.class)
+class TombstoneRepositoryTest {
+
+  static final String USERNAME = "user";
+  @Autowired TombstoneRepository tombstoneRepository;
+  @Autowired ToDoListRepository toDoListRepository;
+  @Autowired TaskRepository taskRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired TestEntityManager entityManager;
+  private ToDoList list;
+  private Task task;
+  private long before;
+
+  @BeforeEach
+  void initData() {
+    before = currentChangeSeq();
+    User user = new User(USERNAME, "secret");
+    list = new ToDoList("list");
+    list.setUser(user);
+    task = new Task(list, "task");
+    list.addTask(task);
+    userRepository.save(user);
+    toDoListRepository.save(list);
+    userRepository.save(new User("other", "secret"));
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @Test
+  void insertsShouldBeFoundAfterTheChangeSequenceBeforeThem() {
+    // when
+    List<ToDoListDto> lists = toDoListRepository.findDtosChangedBetween(USERNAME, before, Long.MAX_VALUE);
+    List<TaskDto> tasks = taskRepository.findDtosChangedBetween(USERNAME, before, Long.MAX_VALUE);
+
+    // verify
+    assertEquals(List.of(list.getId()), lists.stream().map(ToDoListDto::getListId).toList());
+    assertEquals(List.of(task.getId()), tasks.stream().map(TaskDto::getTaskId).toList());
+    assertTrue(taskRepository.findDtosChangedBetween("other", before, Long.MAX_VALUE).isEmpty());
+  }
+
+  @Test
+  void updateShouldMoveRowPastEarlierCursor() {
+    // given
+    long cursor = currentChangeSeq();
+
+    // when
+    taskRepository.updateNameAndDescription(task.getId(), USERNAME, "renamed", null, null);
+
+    // verify
+    assertEquals(
+        List.of(task.getId()),
+        taskRepository.findDtosChangedBetween(USERNAME, cursor, Long.MAX_VALUE).stream()
+            .map(TaskDto::getTaskId)
+            .toList());
+    assertEquals(
+        1,
+        toDoListRepository
+            .findChangeSeqsByUsername(USERNAME, before, cursor, PageRequest.of(0, 10))
+            .size());
+  }
+
+  @Test
+  void deleteShouldLeaveTombstoneForOwner() {
+    // given
+    long cursor = currentChangeSeq();
+
+    // when
+    taskRepository.deleteByListIdAndUsername(list.getId(), USERNAME);
+    toDoListRepository.deleteByIdAndUsername(list.getId(), USERNAME);
+
+    // verify
+    assertEquals(
+        List.of(
+            new TombstoneDto("task", task.getId(), list.getId(), null, false),
+            new TombstoneDto("list", list.getId(), list.getId(), null, false)),
+        tombstoneRepository.findDtosChangedBetween(USERNAME, cursor, Long.MAX_VALUE));
+    assertEquals(
+        2,
+        tombstoneRepository
+            .findChangeSeqsByUsername(USERNAME, cursor, Long.MAX_VALUE, PageRequest.of(0, 10))
+            .size());
+    assertTrue(tombstoneRepository.findDtosChangedBetween("other", cursor, Long.MAX_VALUE).isEmpty());
+  }
+
+  @Test
+  void changeHorizonShouldStopBelowChangesOfOpenTransaction() {
+    // when
+    long horizon = tombstoneRepository.findChangeHorizon();
+
+    // verify
+    assertEquals(before, horizon);
+  }
+
+  private long currentChangeSeq() {
+    return ((Number)
+            entityManager
+                .getEntityManager()
+                .createNativeQuery("SELECT NEXT VALUE FOR CHANGE_SEQ")
+                .getSingleResult())
+        .longValue();
+  }
+}
@@ -1,13 +1,18 @@
 package com.chilborne.todoapi.persistance.repository;
 
 import com.chilborne.todoapi.persistance.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -19,6 +24,9 @@ class UserRepositoryTest {
     @Autowired
     UserRepository repository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     User user;
     static final String USERNAME = "USER";
     static final String PASSWORD = "PASSWORD";
@@ -54,6 +62,25 @@ class UserRepositoryTest {
         assertTrue(returned.isEmpty());
     }
 
+    @Test
+    // read-write regions are not read by the session which filled them, so every call needs its own
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void findByUsernameShouldBeServedFromSecondLevelCacheOnceLoaded() {
+        //given
+        repository.findByUsername(USERNAME);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //when
+        Optional<User> returned = repository.findByUsername(USERNAME);
+
+        //verify
+        assertTrue(returned.isPresent());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getNaturalIdCacheHitCount());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
     @Test
     void existsByUsernameShouldReturnTrueWhenUsernameExists() {
         //when
@@ -0,0 +1,54 @@
+package com.chilborne.todoapi.security.access;
+
+import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsernameAccessManagerTest {
+
+  static final String USERNAME = "USER";
+  UsernameAccessManager accessManager = new UsernameAccessManager();
+
+  @AfterEach
+  void clearContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void checkAccessShouldAllowUserToAccessTheirOwnUsername() {
+    // given
+    authenticate(new UserPrincipal(new User(USERNAME, "SECRET")));
+
+    // verify
+    assertDoesNotThrow(() -> accessManager.checkAccess(USERNAME));
+  }
+
+  @Test
+  void checkAccessShouldDenyUserAccessToAnotherUsername() {
+    // given
+    authenticate(new UserPrincipal(new User(USERNAME, "SECRET")));
+
+    // verify
+    assertThrows(AccessDeniedException.class, () -> accessManager.checkAccess("OTHER"));
+  }
+
+  @Test
+  void checkAccessShouldDenyPrincipalWhichIsNotUserDetails() {
+    // given
+    authenticate(USERNAME);
+
+    // verify
+    assertThrows(AccessDeniedException.class, () -> accessManager.checkAccess(USERNAME));
+  }
+
+  private void authenticate(Object principal) {
+    SecurityContextHolder.getContext()
+        .setAuthentication(new TestingAuthenticationToken(principal, null));
+  }
+}
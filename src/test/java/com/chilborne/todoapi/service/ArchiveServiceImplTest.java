@@ -0,0 +1,125 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.repository.ArchivedTaskRepository;
+import com.chilborne.todoapi.persistance.repository.ArchivedToDoListRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveServiceImplTest {
+
+  static final String USERNAME = "user";
+  static final LocalDateTime CUTOFF = LocalDateTime.of(2000, 1, 1, 0, 0);
+  static final long ID = 1L;
+  @Mock ArchivedTaskRepository archivedTaskRepository;
+  @Mock ArchivedToDoListRepository archivedToDoListRepository;
+  ArchiveServiceImpl service;
+
+  @BeforeEach
+  void init() {
+    service = new ArchiveServiceImpl(archivedTaskRepository, archivedToDoListRepository, 30);
+  }
+
+  @Test
+  void archiveFinishedBeforeShouldMoveListsBeforeFinishedTasksUsingOneArchiveTime() {
+    // given
+    given(archivedToDoListRepository.copyListsDeactivatedBefore(eq(CUTOFF), any())).willReturn(1);
+    given(archivedTaskRepository.copyTasksOfListsArchivedAt(any())).willReturn(2);
+    given(archivedTaskRepository.copyTasksFinishedBefore(eq(CUTOFF), any())).willReturn(3);
+
+    // when
+    int archived = service.archiveFinishedBefore(CUTOFF);
+
+    // verify
+    ArgumentCaptor<LocalDateTime> archivedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+    InOrder inOrder = inOrder(archivedToDoListRepository, archivedTaskRepository);
+    inOrder.verify(archivedToDoListRepository).copyListsDeactivatedBefore(eq(CUTOFF), archivedAt.capture());
+    inOrder.verify(archivedTaskRepository).copyTasksOfListsArchivedAt(archivedAt.getValue());
+    inOrder.verify(archivedTaskRepository).deleteTasksArchivedAt(archivedAt.getValue());
+    inOrder.verify(archivedToDoListRepository).deleteListsArchivedAt(archivedAt.getValue());
+    inOrder.verify(archivedTaskRepository).copyTasksFinishedBefore(CUTOFF, archivedAt.getValue());
+    inOrder.verify(archivedTaskRepository).incrementListVersionsArchivedAt(archivedAt.getValue());
+    inOrder.verify(archivedTaskRepository).deleteTasksArchivedAt(archivedAt.getValue());
+    assertEquals(6, archived);
+  }
+
+  @Test
+  void archiveFinishedBeforeShouldNotDeleteAnythingWhenNothingWasCopied() {
+    // when
+    int archived = service.archiveFinishedBefore(CUTOFF);
+
+    // verify
+    assertEquals(0, archived);
+    verify(archivedTaskRepository, never()).deleteTasksArchivedAt(any());
+    verify(archivedToDoListRepository, never()).deleteListsArchivedAt(any());
+  }
+
+  @Test
+  void getArchivedToDoListShouldMarkListAndTasksAsArchived() {
+    // given
+    ToDoListDto list = new ToDoListDto(ID, "list", "description", USERNAME, CUTOFF, false);
+    TaskDto task = new TaskDto(2, "task", "description", ID, CUTOFF, CUTOFF, false);
+    given(archivedToDoListRepository.findDtoByIdAndUsername(ID, USERNAME)).willReturn(Optional.of(list));
+    given(archivedTaskRepository.findDtosByListIds(List.of(ID))).willReturn(List.of(task));
+
+    // when
+    Optional<ToDoListDto> result = service.getArchivedToDoList(ID, USERNAME);
+
+    // verify
+    assertAll(
+        () -> assertTrue(result.isPresent()),
+        () -> assertTrue(result.get().getArchived()),
+        () -> assertEquals(List.of(task), result.get().getTasks()),
+        () -> assertTrue(task.getArchived()));
+  }
+
+  @Test
+  void getArchivedToDoListsShouldGroupTasksByList() {
+    // given
+    ToDoListDto first = new ToDoListDto(ID, "first", "description", USERNAME, CUTOFF, false);
+    ToDoListDto second = new ToDoListDto(ID + 1, "second", "description", USERNAME, CUTOFF, false);
+    TaskDto task = new TaskDto(3, "task", "description", ID + 1, CUTOFF, CUTOFF, false);
+    given(archivedToDoListRepository.findDtosByUsername(USERNAME)).willReturn(List.of(first, second));
+    given(archivedTaskRepository.findDtosByListIds(Set.of(ID, ID + 1))).willReturn(List.of(task));
+
+    // when
+    List<ToDoListDto> result = service.getArchivedToDoLists(USERNAME);
+
+    // verify
+    assertAll(
+        () -> assertEquals(List.of(first, second), result),
+        () -> assertTrue(first.getTasks().isEmpty()),
+        () -> assertEquals(List.of(task), second.getTasks()));
+  }
+
+  @Test
+  void deleteArchivedToDoListShouldReportWhetherArchivedListExisted() {
+    // given
+    given(archivedToDoListRepository.deleteByIdAndUsername(ID, USERNAME)).willReturn(0);
+
+    // when
+    boolean deleted = service.deleteArchivedToDoList(ID, USERNAME);
+
+    // verify
+    assertFalse(deleted);
+    verify(archivedTaskRepository).deleteByListIdAndUsername(ID, USERNAME);
+  }
+}
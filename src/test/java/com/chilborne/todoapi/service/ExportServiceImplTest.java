@@ -0,0 +1,136 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.repository.ArchivedTaskRepository;
+import com.chilborne.todoapi.persistance.repository.ArchivedToDoListRepository;
+import com.chilborne.todoapi.persistance.repository.TaskRepository;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.security.access.UserAccessManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceImplTest {
+
+  static final String USERNAME = "user";
+  static final LocalDateTime MADE = LocalDateTime.of(2022, 3, 1, 9, 30);
+  @Mock ToDoListRepository toDoListRepository;
+  @Mock TaskRepository taskRepository;
+  @Mock ArchivedToDoListRepository archivedToDoListRepository;
+  @Mock ArchivedTaskRepository archivedTaskRepository;
+  @Mock UserAccessManager accessManager;
+  ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+  ExportServiceImpl service;
+
+  @BeforeEach
+  void init() {
+    service =
+        new ExportServiceImpl(
+            toDoListRepository,
+            taskRepository,
+            archivedToDoListRepository,
+            archivedTaskRepository,
+            accessManager,
+            objectMapper);
+  }
+
+  @Test
+  void exportUserDataShouldMergeArchivedListsAndTasksInListOrder() throws Exception {
+    // given
+    givenListsAndTasks();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // when
+    service.exportUserData(USERNAME, ExportService.Format.NDJSON, out);
+
+    // verify
+    List<ToDoListDto> lists = new ArrayList<>();
+    for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+      lists.add(objectMapper.readValue(line, ToDoListDto.class));
+    }
+    assertEquals(3, lists.size());
+    assertEquals(List.of(1L, 2L, 3L), lists.stream().map(ToDoListDto::getListId).toList());
+    assertNull(lists.get(0).getArchived());
+    assertTrue(lists.get(1).getArchived());
+    assertEquals(
+        List.of(10L, 11L), lists.get(0).getTasks().stream().map(TaskDto::getTaskId).toList());
+    assertTrue(lists.get(0).getTasks().get(1).getArchived());
+    assertEquals(
+        List.of(20L), lists.get(1).getTasks().stream().map(TaskDto::getTaskId).toList());
+    assertTrue(lists.get(2).getTasks().isEmpty());
+  }
+
+  @Test
+  void exportUserDataAsCsvShouldWriteRowForListWithoutTasks() throws Exception {
+    // given
+    givenListsAndTasks();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // when
+    service.exportUserData(USERNAME, ExportService.Format.CSV, out);
+
+    // verify
+    String[] rows = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(String.join(",", ExportServiceImpl.CSV_COLUMNS), rows[0]);
+    assertEquals(5, rows.length);
+    assertEquals(
+        "1,first,,\"01-03-2022 09:30:00\",true,false,10,task,,\"01-03-2022 09:30:00\",,true,false",
+        rows[1]);
+    assertTrue(rows[4].startsWith("3,third,"));
+    assertTrue(rows[4].endsWith("false,,,,,,,"));
+  }
+
+  @Test
+  void exportUserDataShouldNotReadWhenAccessIsDenied() {
+    // given
+    willThrow(new AccessDeniedException("denied")).given(accessManager).checkAccess(USERNAME);
+
+    // when
+    assertThrows(
+        AccessDeniedException.class,
+        () ->
+            service.exportUserData(
+                USERNAME, ExportService.Format.NDJSON, new ByteArrayOutputStream()));
+
+    // verify
+    verifyNoInteractions(
+        toDoListRepository, taskRepository, archivedToDoListRepository, archivedTaskRepository);
+  }
+
+  private void givenListsAndTasks() {
+    given(toDoListRepository.streamDtosByUsername(USERNAME))
+        .willReturn(Stream.of(list(1L, "first"), list(3L, "third")));
+    given(archivedToDoListRepository.streamDtosByUsername(USERNAME))
+        .willReturn(Stream.of(list(2L, "second")));
+    given(taskRepository.streamDtosByUsername(USERNAME)).willReturn(Stream.of(task(10L, 1L)));
+    // task 5 belonged to a list deleted after it was archived
+    given(archivedTaskRepository.streamDtosByUsername(USERNAME))
+        .willReturn(Stream.of(task(5L, 0L), task(11L, 1L), task(20L, 2L)));
+  }
+
+  private ToDoListDto list(long listId, String name) {
+    return new ToDoListDto(listId, name, null, USERNAME, MADE, true);
+  }
+
+  private TaskDto task(long taskId, long listId) {
+    return new TaskDto(taskId, "task", null, listId, MADE, null, true);
+  }
+}
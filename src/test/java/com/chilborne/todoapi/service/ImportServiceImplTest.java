@@ -0,0 +1,169 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.ImportErrorDto;
+import com.chilborne.todoapi.persistance.dto.ImportReportDto;
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.security.access.UserAccessManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportServiceImplTest {
+
+  static final String USERNAME = "user";
+  @Mock ToDoListService toDoListService;
+  @Mock UserAccessManager accessManager;
+  @Captor ArgumentCaptor<List<ToDoListDto>> chunk;
+  @Captor ArgumentCaptor<List<TaskDto>> tasks;
+  ImportServiceImpl service;
+
+  @BeforeEach
+  void init() {
+    ObjectMapper objectMapper =
+        new ObjectMapper()
+            .findAndRegisterModules()
+            .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+    service =
+        new ImportServiceImpl(
+            toDoListService,
+            accessManager,
+            objectMapper,
+            Validation.buildDefaultValidatorFactory().getValidator());
+  }
+
+  @Test
+  void importToDoListsShouldSaveValidLinesAndReportTheOthers() throws Exception {
+    // given
+    String body =
+        "{\"name\":\"first\",\"tasks\":[{\"name\":\"task\"},{\"name\":\"other\"}]}\n"
+            + "\n"
+            + "{\"name\":\"\"}\n"
+            + "{\"name\":\"second\",\"tasks\":[{\"name\":\"done\",\"active\":false}]}\n"
+            + "{\"name\":\"broken\"\n"
+            + "{\"name\":\"third\"}\n";
+
+    // when
+    ImportReportDto report = service.importToDoLists(USERNAME, stream(body));
+
+    // verify
+    verify(toDoListService).newToDoLists(chunk.capture(), eq(USERNAME));
+    assertEquals(List.of("first", "third"), chunk.getValue().stream().map(ToDoListDto::getName).toList());
+    assertEquals(2, chunk.getValue().get(0).getTasks().size());
+    assertEquals(2, report.getListsImported());
+    assertEquals(2, report.getTasksImported());
+    assertEquals(3, report.getFailedLines());
+    assertEquals(List.of(3L, 4L, 5L), report.getErrors().stream().map(ImportErrorDto::getLine).toList());
+    assertEquals(List.of("name: name is compulsory"), report.getErrors().get(0).getErrors());
+    assertEquals(
+        List.of("tasks[0].active: active is automatically set to true on task creation"),
+        report.getErrors().get(1).getErrors());
+  }
+
+  @Test
+  void importToDoListsShouldReportLinesLongerThanLimitAndGoOnWithTheNext() throws Exception {
+    // given
+    String body =
+        "{\"name\":\"" + "x".repeat(ImportServiceImpl.MAX_LINE_CHARS) + "\"}\r\n"
+            + "{\"name\":\"first\"}\r\n"
+            + "{\"name\":\"second\"}";
+
+    // when
+    ImportReportDto report = service.importToDoLists(USERNAME, stream(body));
+
+    // verify
+    verify(toDoListService).newToDoLists(chunk.capture(), eq(USERNAME));
+    assertEquals(List.of("first", "second"), chunk.getValue().stream().map(ToDoListDto::getName).toList());
+    assertEquals(1, report.getFailedLines());
+    assertEquals(1L, report.getErrors().get(0).getLine());
+    assertEquals(
+        List.of("line is longer than " + ImportServiceImpl.MAX_LINE_CHARS + " characters"),
+        report.getErrors().get(0).getErrors());
+  }
+
+  @Test
+  void importToDoListsShouldSaveInChunksOfFixedSize() throws Exception {
+    // given
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < ImportServiceImpl.CHUNK_ROWS * 2 + 1; i++) {
+      body.append("{\"name\":\"list ").append(i).append("\"}\n");
+    }
+
+    // when
+    ImportReportDto report = service.importToDoLists(USERNAME, stream(body.toString()));
+
+    // verify
+    verify(toDoListService, times(3)).newToDoLists(chunk.capture(), eq(USERNAME));
+    assertEquals(
+        List.of(ImportServiceImpl.CHUNK_ROWS, ImportServiceImpl.CHUNK_ROWS, 1),
+        chunk.getAllValues().stream().map(List::size).toList());
+    assertEquals(ImportServiceImpl.CHUNK_ROWS * 2 + 1, report.getListsImported());
+  }
+
+  @Test
+  void importToDoListsShouldAddTasksOfLargeListInChunksOfTheirOwn() throws Exception {
+    // given
+    int taskCount = ImportServiceImpl.CHUNK_ROWS * 2;
+    StringBuilder body = new StringBuilder("{\"name\":\"small\"}\n{\"name\":\"large\",\"tasks\":[");
+    for (int i = 0; i < taskCount; i++) {
+      body.append(i == 0 ? "" : ",").append("{\"name\":\"task ").append(i).append("\"}");
+    }
+    body.append("]}\n");
+    given(toDoListService.newToDoLists(anyList(), eq(USERNAME))).willReturn(List.of(7L));
+
+    // when
+    ImportReportDto report = service.importToDoLists(USERNAME, stream(body.toString()));
+
+    // verify
+    verify(toDoListService, times(2)).newToDoLists(chunk.capture(), eq(USERNAME));
+    assertEquals("small", chunk.getAllValues().get(0).get(0).getName());
+    assertEquals(
+        ImportServiceImpl.CHUNK_ROWS - 1, chunk.getAllValues().get(1).get(0).getTasks().size());
+    verify(toDoListService, times(2)).addTasksToDoList(eq(7L), eq(USERNAME), tasks.capture());
+    assertEquals(
+        List.of(ImportServiceImpl.CHUNK_ROWS, 1),
+        tasks.getAllValues().stream().map(List::size).toList());
+    assertEquals("task " + (taskCount - 1), tasks.getValue().get(0).getName());
+    assertEquals(2, report.getListsImported());
+    assertEquals(taskCount, report.getTasksImported());
+    assertEquals(0, report.getFailedLines());
+  }
+
+  @Test
+  void importToDoListsShouldReportEveryLineOfChunkWhichCouldNotBeSaved() throws Exception {
+    // given
+    given(toDoListService.newToDoLists(anyList(), eq(USERNAME)))
+        .willThrow(new DataIntegrityViolationException("value too long"));
+
+    // when
+    ImportReportDto report =
+        service.importToDoLists(USERNAME, stream("{\"name\":\"a\"}\n{\"name\":\"b\"}\n"));
+
+    // verify
+    assertEquals(0, report.getListsImported());
+    assertEquals(2, report.getFailedLines());
+    assertEquals(List.of(1L, 2L), report.getErrors().stream().map(ImportErrorDto::getLine).toList());
+  }
+
+  private ByteArrayInputStream stream(String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,111 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.CompletionDayDto;
+import com.chilborne.todoapi.persistance.dto.UserStatsDto;
+import com.chilborne.todoapi.persistance.repository.CompletionStatsRepository;
+import com.chilborne.todoapi.persistance.repository.CompletionStatsRepository.BucketCompletions;
+import com.chilborne.todoapi.persistance.stats.CompletionStats;
+import com.chilborne.todoapi.security.access.UserAccessManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsServiceImplTest {
+
+  static final String USERNAME = "user";
+  static final LocalDate TODAY = LocalDate.of(2022, 5, 31);
+  static final LocalDateTime CREATED = LocalDateTime.of(2022, 5, 1, 12, 0);
+  @Mock CompletionStatsRepository completionStatsRepository;
+  @Mock UserAccessManager accessManager;
+  StatsServiceImpl service;
+
+  @BeforeEach
+  void init() {
+    service =
+        new StatsServiceImpl(completionStatsRepository, accessManager) {
+          @Override
+          LocalDate today() {
+            return TODAY;
+          }
+        };
+  }
+
+  @Test
+  void getUserStatsShouldFillInDaysWithoutCompletions() {
+    // given
+    given(completionStatsRepository.findDaysByUsername(USERNAME, TODAY.minusDays(29)))
+        .willReturn(List.of(new CompletionDayDto(TODAY.minusDays(1), 3)));
+
+    // when
+    UserStatsDto result = service.getUserStats(USERNAME);
+
+    // verify
+    List<CompletionDayDto> days = result.getCompletionsPerDay();
+    assertEquals(30, days.size());
+    assertEquals(new CompletionDayDto(TODAY.minusDays(29), 0), days.get(0));
+    assertEquals(new CompletionDayDto(TODAY.minusDays(1), 3), days.get(28));
+    assertEquals(new CompletionDayDto(TODAY, 0), days.get(29));
+    assertNull(result.getMedianSecondsToComplete());
+  }
+
+  @Test
+  void getUserStatsShouldCountUntimedCompletionsButLeaveThemOutOfTheMedian() {
+    // given
+    int hour = CompletionStats.bucket(CREATED, CREATED.plusHours(1));
+    int day = CompletionStats.bucket(CREATED, CREATED.plusDays(1));
+    given(completionStatsRepository.findTimesByUsername(USERNAME))
+        .willReturn(
+            List.of(
+                bucket(CompletionStats.UNTIMED, 5),
+                bucket(hour, 2),
+                bucket(day, 1)));
+    given(completionStatsRepository.countActiveTasksByUsername(USERNAME)).willReturn(4L);
+
+    // when
+    UserStatsDto result = service.getUserStats(USERNAME);
+
+    // verify
+    assertEquals(12, result.getTotalTasks());
+    assertEquals(4, result.getActiveTasks());
+    assertEquals(8, result.getCompletedTasks());
+    assertEquals(CompletionStats.middleSeconds(hour), result.getMedianSecondsToComplete());
+    long median = result.getMedianSecondsToComplete();
+    assertTrue(median > 3600 * 7 / 8 && median < 3600 * 9 / 8, "median was " + median);
+  }
+
+  @Test
+  void getUserStatsShouldNotReadStatsOfOtherUsers() {
+    // given
+    doThrow(new AccessDeniedException("denied")).when(accessManager).checkAccess(USERNAME);
+
+    // verify
+    assertThrows(AccessDeniedException.class, () -> service.getUserStats(USERNAME));
+    verifyNoInteractions(completionStatsRepository);
+  }
+
+  private static BucketCompletions bucket(int bucket, long completions) {
+    return new BucketCompletions() {
+      @Override
+      public int getBucket() {
+        return bucket;
+      }
+
+      @Override
+      public long getCompletions() {
+        return completions;
+      }
+    };
+  }
+}
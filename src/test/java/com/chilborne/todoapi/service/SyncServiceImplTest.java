@@ -0,0 +1,106 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.persistance.dto.SyncDto;
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.dto.TombstoneDto;
+import com.chilborne.todoapi.persistance.repository.TaskRepository;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.persistance.repository.TombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SyncServiceImplTest {
+
+  static final String USERNAME = "user";
+  static final long HORIZON = 100L;
+  @Mock ToDoListRepository toDoListRepository;
+  @Mock TaskRepository taskRepository;
+  @Mock TombstoneRepository tombstoneRepository;
+  SyncServiceImpl service;
+
+  @BeforeEach
+  void init() {
+    service =
+        new SyncServiceImpl(toDoListRepository, taskRepository, tombstoneRepository) {
+          @Override
+          long horizon() {
+            return HORIZON;
+          }
+        };
+  }
+
+  @Test
+  void getChangesSinceShouldReturnEverythingUpToHorizonWhenItFitsTheLimit() {
+    // given
+    ToDoListDto list = new ToDoListDto(1L, "list", "description", USERNAME, null, true);
+    TaskDto task = new TaskDto();
+    TombstoneDto tombstone = new TombstoneDto("task", 2L, 1L, null, false);
+    given(toDoListRepository.findChangeSeqsByUsername(USERNAME, 10L, HORIZON, PageRequest.of(0, 3)))
+        .willReturn(List.of(11L));
+    given(taskRepository.findChangeSeqsByUsername(USERNAME, 10L, HORIZON, PageRequest.of(0, 3)))
+        .willReturn(List.of(12L));
+    given(tombstoneRepository.findChangeSeqsByUsername(USERNAME, 10L, HORIZON, PageRequest.of(0, 3)))
+        .willReturn(List.of(13L));
+    given(toDoListRepository.findDtosChangedBetween(USERNAME, 10L, HORIZON))
+        .willReturn(new ArrayList<>(List.of(list)));
+    given(taskRepository.findDtosChangedBetween(USERNAME, 10L, HORIZON)).willReturn(List.of(task));
+    given(tombstoneRepository.findDtosChangedBetween(USERNAME, 10L, HORIZON))
+        .willReturn(List.of(tombstone));
+
+    // when
+    SyncDto result = service.getChangesSince(USERNAME, 10L, 3);
+
+    // verify
+    assertEquals(HORIZON, result.getCursor());
+    assertFalse(result.isHasMore());
+    assertEquals(List.of(list), result.getLists());
+    assertNull(result.getLists().get(0).getTasks());
+    assertEquals(List.of(task), result.getTasks());
+    assertEquals(List.of(tombstone), result.getDeleted());
+  }
+
+  @Test
+  void getChangesSinceShouldEndPageAtLimitAcrossListsTasksAndTombstones() {
+    // given
+    given(toDoListRepository.findChangeSeqsByUsername(USERNAME, 0L, HORIZON, PageRequest.of(0, 2)))
+        .willReturn(List.of(5L));
+    given(taskRepository.findChangeSeqsByUsername(USERNAME, 0L, HORIZON, PageRequest.of(0, 2)))
+        .willReturn(List.of(2L, 7L));
+    given(tombstoneRepository.findChangeSeqsByUsername(USERNAME, 0L, HORIZON, PageRequest.of(0, 2)))
+        .willReturn(List.of(3L));
+
+    // when
+    SyncDto result = service.getChangesSince(USERNAME, 0L, 2);
+
+    // verify
+    assertEquals(3L, result.getCursor());
+    assertTrue(result.isHasMore());
+    verify(toDoListRepository).findDtosChangedBetween(USERNAME, 0L, 3L);
+    verify(taskRepository).findDtosChangedBetween(USERNAME, 0L, 3L);
+    verify(tombstoneRepository).findDtosChangedBetween(USERNAME, 0L, 3L);
+  }
+
+  @Test
+  void getChangesSinceShouldNotQueryWhenCursorIsAtHorizon() {
+    // when
+    SyncDto result = service.getChangesSince(USERNAME, HORIZON, 10);
+
+    // verify
+    assertEquals(HORIZON, result.getCursor());
+    assertFalse(result.isHasMore());
+    verifyNoInteractions(toDoListRepository, taskRepository, tombstoneRepository);
+  }
+}
@@ -2,26 +2,30 @@ package com.chilborne.todoapi.service;
 
 import com.chilborne.todoapi.exception.TaskAlreadyCompletedException;
 import com.chilborne.todoapi.exception.TaskNotFoundException;
+import com.chilborne.todoapi.exception.ToDoListNotFoundException;
+import com.chilborne.todoapi.persistance.dto.TaskCompletionDto;
 import com.chilborne.todoapi.persistance.dto.TaskDto;
 import com.chilborne.todoapi.persistance.mapper.TaskMapper;
 import com.chilborne.todoapi.persistance.model.Task;
 import com.chilborne.todoapi.persistance.repository.TaskRepository;
 import com.chilborne.todoapi.security.access.TaskAccessManager;
+import com.chilborne.todoapi.service.event.ChangeEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 
@@ -30,10 +34,10 @@ class TaskServiceImplTest {
 
   @Mock TaskRepository taskRepository;
   @Mock TaskAccessManager taskAccessManager;
-  @Mock TaskMapper taskMapper;
+  @Mock ToDoListService toDoListService;
+  @Mock ApplicationEventPublisher events;
   @InjectMocks TaskServiceImpl taskService;
 
-  @Captor ArgumentCaptor<Task> taskCaptor;
   private Task task;
   private TaskDto taskDto;
   private long taskId;
@@ -49,23 +53,67 @@ class TaskServiceImplTest {
   @Test
   void getTaskDtoByIdShouldReturnDtoWhenTaskExists() {
     // given
-    given(taskRepository.findById(taskId)).willReturn(Optional.of(task));
-    given(taskMapper.convertTask(task)).willReturn(taskDto);
+    given(taskRepository.findDtoByIdAndUsername(taskId, "user")).willReturn(Optional.of(taskDto));
 
     // when
-    TaskDto result = taskService.getTaskDtoById(taskId);
+    TaskDto result = taskService.getTaskDtoById(taskId, "user");
 
     // verify
     assertEquals(taskDto, result);
   }
 
+  @Test
+  void getTaskDtoIfModifiedShouldNotReadTaskWhenVersionIsNotModified() {
+    // given
+    given(taskRepository.findVersionByIdAndUsername(taskId, "user")).willReturn(Optional.of(2L));
+
+    // when
+    Optional<TaskDto> result =
+        taskService.getTaskDtoIfModified(taskId, "user", version -> version.equals("2"));
+
+    // verify
+    assertTrue(result.isEmpty());
+    verify(taskRepository, never()).findDtoByIdAndUsername(taskId, "user");
+  }
+
+  @Test
+  void getTaskDtoIfModifiedShouldReadTaskWhenVersionIsModified() {
+    // given
+    given(taskRepository.findVersionByIdAndUsername(taskId, "user")).willReturn(Optional.of(3L));
+    given(taskRepository.findDtoByIdAndUsername(taskId, "user")).willReturn(Optional.of(taskDto));
+
+    // when
+    Optional<TaskDto> result =
+        taskService.getTaskDtoIfModified(taskId, "user", version -> version.equals("2"));
+
+    // verify
+    assertEquals(Optional.of(taskDto), result);
+  }
+
+  @Test
+  void searchTasksShouldReturnTasksInRankOrder() {
+    // given
+    TaskDto first = new TaskDto();
+    first.setTaskId(2L);
+    TaskDto second = new TaskDto();
+    second.setTaskId(1L);
+    given(taskRepository.searchIds("user", List.of("buy", "milk"), 20, 10)).willReturn(List.of(2L, 1L));
+    given(taskRepository.findDtosByIds(List.of(2L, 1L))).willReturn(List.of(second, first));
+
+    // when
+    List<TaskDto> result = taskService.searchTasks("user", "Buy MILK", 2, 10);
+
+    // verify
+    assertEquals(List.of(first, second), result);
+  }
+
   @Test
   void getTaskDtoByIdShouldThrowExceptionWHenTaskDoesNotExist() {
     // given
-    given(taskRepository.findById(taskId)).willReturn(Optional.empty());
+    given(taskRepository.findDtoByIdAndUsername(taskId, "user")).willReturn(Optional.empty());
 
     // verify
-    assertThrows(TaskNotFoundException.class, () -> taskService.getTaskDtoById(taskId));
+    assertThrows(TaskNotFoundException.class, () -> taskService.getTaskDtoById(taskId, "user"));
   }
 
   @Test
@@ -85,23 +133,22 @@ class TaskServiceImplTest {
   }
 
   @Test
-  void completeTaskShouldReturnedUpdatedTaskDtoWhenTaskHasNotBeenCompletedAlready() {
+  void completeTaskShouldReturnCompletedTaskDtoWhenConditionalUpdateChangesTask() {
     // given
-    given(taskRepository.findById(taskId)).willReturn(Optional.of(task));
-    given(taskRepository.save(any(Task.class))).willReturn(task);
-    given(taskMapper.convertTask(any(Task.class))).willReturn(taskDto);
+    given(taskRepository.completeActiveTask(eq(taskId), eq("user"), any(LocalDateTime.class), isNull()))
+        .willReturn(1);
+    given(taskRepository.findDtoByIdAndUsername(taskId, "user")).willReturn(Optional.of(taskDto));
 
     // when
-    TaskDto result = taskService.completeTask(taskId);
+    TaskDto result = taskService.completeTask(taskId, "user", null);
 
     // verify
-    assertFalse(task.isActive());
-    assertNotNull(task.getTimeCompleted());
-
-    verify(taskMapper).convertTask(taskCaptor.capture());
-    Task capturedTask = taskCaptor.getValue();
-    assertFalse(capturedTask.isActive());
-    assertNotNull(capturedTask.getTimeCompleted());
+    assertEquals(taskDto, result);
+    verify(taskRepository).countCompletionsInListsOfTasks(List.of(taskId));
+    verify(taskRepository, never()).findByIdAndToDoListUserUsername(anyLong(), anyString());
+    verify(taskRepository, never()).save(any(Task.class));
+    verify(events)
+        .publishEvent(ChangeEvent.task("user", ChangeEvent.Action.COMPLETED, taskDto.getListId(), taskId));
   }
 
   @Test
@@ -109,11 +156,26 @@ class TaskServiceImplTest {
     // given
     task.setActive(false);
     task.setTimeCompleted(LocalDateTime.now());
+    given(taskRepository.completeActiveTask(eq(taskId), eq("user"), any(LocalDateTime.class), isNull()))
+        .willReturn(0);
+    given(taskRepository.findByIdAndToDoListUserUsername(taskId, "user"))
+        .willReturn(Optional.of(task));
 
-    given(taskRepository.findById(taskId)).willReturn(Optional.of(task));
+    // verify
+    assertThrows(
+        TaskAlreadyCompletedException.class, () -> taskService.completeTask(taskId, "user", null));
+  }
+
+  @Test
+  void completeTaskShouldThrowTaskNotFoundExceptionWhenTaskDoesNotBelongToUser() {
+    // given
+    given(taskRepository.completeActiveTask(eq(taskId), eq("user"), any(LocalDateTime.class), isNull()))
+        .willReturn(0);
+    given(taskRepository.findByIdAndToDoListUserUsername(taskId, "user"))
+        .willReturn(Optional.empty());
 
     // verify
-    assertThrows(TaskAlreadyCompletedException.class, () -> taskService.completeTask(taskId));
+    assertThrows(TaskNotFoundException.class, () -> taskService.completeTask(taskId, "user", null));
   }
 
   @Test
@@ -122,17 +184,123 @@ class TaskServiceImplTest {
     taskDto.setName("New Name");
     taskDto.setDescription("Description");
 
-    given(taskRepository.findById(taskId)).willReturn(Optional.of(task));
-    given(taskRepository.existsById(taskId)).willReturn(true);
-    given(taskRepository.save(any(Task.class))).willReturn(task);
-    given(taskMapper.convertTask(any(Task.class)))
-        .willReturn(taskDto);
+    given(taskRepository.updateNameAndDescription(taskId, "user", "New Name", "Description", null))
+        .willReturn(1);
+    given(taskRepository.findDtoByIdAndUsername(taskId, "user")).willReturn(Optional.of(taskDto));
+
+    // when
+    TaskDto result = taskService.updateTaskNameAndDescription(taskId, "user", taskDto, null);
+
+    // verify
+    assertEquals(taskDto, result);
+    verify(taskRepository, never()).save(any(Task.class));
+  }
+
+  @Test
+  void updateTaskNameAndDescriptionShouldThrowTaskNotFoundExceptionWhenNothingWasUpdated() {
+    // given
+    given(taskRepository.updateNameAndDescription(taskId, "other", taskDto.getName(), taskDto.getDescription(), null))
+        .willReturn(0);
+
+    // verify
+    assertThrows(
+        TaskNotFoundException.class,
+        () -> taskService.updateTaskNameAndDescription(taskId, "other", taskDto, null));
+  }
+
+  @Test
+  void completeTasksShouldReportCompletedAlreadyCompletedAndNotFoundIds() {
+    // given
+    List<Long> ids = List.of(1L, 2L, 3L);
+    given(taskRepository.lockActiveIds(ids, "user")).willReturn(List.of(1L));
+    given(taskRepository.completeActiveTasks(eq(List.of(1L)), eq("user"), any())).willReturn(1);
+    given(taskRepository.findCompletionStates(ids, "user"))
+        .willReturn(
+            List.of(
+                completionState(1L, LocalDateTime.now()),
+                completionState(2L, LocalDateTime.of(2000, 1, 1, 0, 0))));
+
+    // when
+    TaskCompletionDto result = taskService.completeTasks(ids, "user");
+
+    // verify
+    assertEquals(new TaskCompletionDto(List.of(1L), List.of(2L), List.of(3L)), result);
+    verify(taskRepository).countCompletionsInListsOfTasks(List.of(1L));
+    verify(taskRepository, never()).save(any(Task.class));
+  }
+
+  @Test
+  void completeTasksShouldNotClaimTasksCompletedWhileWaitingForLock() {
+    // given
+    List<Long> ids = List.of(1L, 2L);
+    given(taskRepository.lockActiveIds(ids, "user")).willReturn(List.of());
+    given(taskRepository.findCompletionStates(ids, "user"))
+        .willReturn(
+            List.of(
+                completionState(1L, LocalDateTime.now()), completionState(2L, LocalDateTime.now())));
 
     // when
-    TaskDto result = taskService.updateTaskNameAndDescription(taskId, taskDto);
+    TaskCompletionDto result = taskService.completeTasks(ids, "user");
 
     // verify
-    assertEquals(taskDto.getName(), task.getName());
-    assertEquals(taskDto.getDescription(), task.getDescription());
+    assertEquals(new TaskCompletionDto(List.of(), List.of(1L, 2L), List.of()), result);
+    verify(taskRepository, never()).completeActiveTasks(anyCollection(), anyString(), any());
+    verify(taskRepository, never()).countCompletionsInListsOfTasks(anyCollection());
+  }
+
+  @Test
+  void completeTasksShouldNotQueryWhenNoIdsAreGiven() {
+    // when
+    TaskCompletionDto result = taskService.completeTasks(List.of(), "user");
+
+    // verify
+    assertTrue(result.getCompleted().isEmpty());
+    verifyNoInteractions(taskRepository);
+  }
+
+  @Test
+  void completeListTasksShouldThrowToDoListNotFoundExceptionWhenListDoesNotBelongToUser() {
+    // given
+    given(toDoListService.listBelongsToUser(1L, "user")).willReturn(false);
+
+    // verify
+    assertThrows(
+        ToDoListNotFoundException.class, () -> taskService.completeListTasks(1L, "user", null));
+    verifyNoInteractions(taskRepository);
+  }
+
+  @Test
+  void completeListTasksShouldReturnIdsCompletedByRequest() {
+    // given
+    given(toDoListService.listBelongsToUser(1L, "user")).willReturn(true);
+    given(taskRepository.lockActiveIdsInList(eq(1L), eq("user"), any()))
+        .willReturn(List.of(5L, 6L));
+
+    // when
+    TaskCompletionDto result = taskService.completeListTasks(1L, "user", null);
+
+    // verify
+    assertEquals(List.of(5L, 6L), result.getCompleted());
+    verify(taskRepository).completeActiveTasks(eq(List.of(5L, 6L)), eq("user"), any());
+    verify(taskRepository).countCompletionsInListsOfTasks(List.of(5L, 6L));
+  }
+
+  private static TaskRepository.CompletionState completionState(long id, LocalDateTime time) {
+    return new TaskRepository.CompletionState() {
+      @Override
+      public long getId() {
+        return id;
+      }
+
+      @Override
+      public long getListId() {
+        return 1L;
+      }
+
+      @Override
+      public LocalDateTime getTimeCompleted() {
+        return time;
+      }
+    };
   }
 }
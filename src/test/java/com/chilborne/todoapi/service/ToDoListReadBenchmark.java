@@ -0,0 +1,111 @@
+package com.chilborne.todoapi.service;
+
+import com.chilborne.todoapi.ToDoApiApplication;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.mapper.ToDoListMapper;
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.persistance.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a list with its tasks through the entity + MapStruct path against the DTO
+ * projection path used by {@link ToDoListServiceImpl#getToDoListDtoById(long, String)}.
+ *
+ * <p>Not part of the regular test run, execute with {@code mvn test -Dtest=ToDoListReadBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ToDoListReadBenchmark {
+
+  static final String USERNAME = "benchmark";
+
+  @Param({"10", "100"})
+  int tasks;
+
+  private ConfigurableApplicationContext context;
+  private ToDoListRepository toDoListRepository;
+  private ToDoListMapper toDoListMapper;
+  private ToDoListService toDoListService;
+  private TransactionTemplate readOnlyTransaction;
+  private long listId;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context =
+        new SpringApplicationBuilder(ToDoApiApplication.class)
+            .web(WebApplicationType.NONE)
+            .profiles("test")
+            .properties(
+                "logging.level.root=WARN", "spring.datasource.url=jdbc:h2:mem:benchmark" + tasks)
+            .run();
+    toDoListRepository = context.getBean(ToDoListRepository.class);
+    toDoListMapper = context.getBean(ToDoListMapper.class);
+    toDoListService = context.getBean(ToDoListService.class);
+    readOnlyTransaction =
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    readOnlyTransaction.setReadOnly(true);
+
+    User user = context.getBean(UserRepository.class).save(new User(USERNAME, "password"));
+    ToDoList list = new ToDoList("benchmark");
+    list.setUser(user);
+    for (int t = 0; t < tasks; t++) {
+      list.addTask(new Task(list, "task " + t));
+    }
+    listId = toDoListRepository.save(list).getId();
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public ToDoListDto mapper() {
+    return readOnlyTransaction.execute(
+        status ->
+            toDoListMapper.convertToDoList(
+                toDoListRepository.findByIdAndUserUsername(listId, USERNAME).orElseThrow()));
+  }
+
+  @Benchmark
+  public ToDoListDto projection() {
+    return toDoListService.getToDoListDtoById(listId, USERNAME);
+  }
+
+  @Test
+  void runBenchmark() throws RunnerException {
+    Options options =
+        new OptionsBuilder()
+            .include(ToDoListReadBenchmark.class.getSimpleName())
+            .forks(0)
+            .warmupIterations(3)
+            .measurementIterations(5)
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -1,6 +1,9 @@
 package com.chilborne.todoapi.service;
 
+import com.chilborne.todoapi.exception.TaskNotFoundException;
 import com.chilborne.todoapi.exception.ToDoListNotFoundException;
+import com.chilborne.todoapi.exception.VersionMismatchException;
+import com.chilborne.todoapi.persistance.dto.TaskDeletionDto;
 import com.chilborne.todoapi.persistance.dto.TaskDto;
 import com.chilborne.todoapi.persistance.dto.ToDoListDto;
 import com.chilborne.todoapi.persistance.mapper.TaskMapper;
@@ -8,8 +11,10 @@ import com.chilborne.todoapi.persistance.mapper.ToDoListMapper;
 import com.chilborne.todoapi.persistance.model.Task;
 import com.chilborne.todoapi.persistance.model.ToDoList;
 import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.TaskFilter;
 import com.chilborne.todoapi.persistance.repository.TaskRepository;
 import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.service.event.ChangeEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,6 +23,8 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -38,12 +45,16 @@ class ToDoListServiceImplTest {
   @Mock TaskRepository taskRepository;
   @Mock ToDoListMapper mockListMapper;
   @Mock TaskMapper mockTaskMapper;
+  @Mock ArchiveService archiveService;
+  @Mock ApplicationEventPublisher events;
+  @Mock UserService userService;
   @InjectMocks ToDoListServiceImpl service;
 
   private User user;
   private ToDoList testList;
   private ToDoListDto testListDto;
   @Captor private ArgumentCaptor<ToDoList> listCaptor;
+  @Captor private ArgumentCaptor<List<ToDoList>> listsCaptor;
 
   @BeforeEach
   void init() {
@@ -81,24 +92,148 @@ class ToDoListServiceImplTest {
     verifyNoMoreInteractions(mockListMapper);
   }
 
+  @Test
+  void newToDoListsShouldInsertListsWithTheirTasksAndPublishCreatedEvents() {
+    // given
+    Task task = new Task("task");
+    ToDoList converted = new ToDoList("test", List.of(task));
+    given(userService.getUserIfAuthorized(USERNAME)).willReturn(user);
+    given(mockListMapper.convertListDto(testListDto)).willReturn(converted);
+    doAnswer(invocation -> {
+          converted.setId(ID);
+          return null;
+        })
+        .when(toDoListRepository)
+        .insertAndDetach(anyList());
+
+    // when
+    List<Long> result = service.newToDoLists(List.of(testListDto), USERNAME);
+
+    // verify
+    verify(toDoListRepository).insertAndDetach(listsCaptor.capture());
+    ToDoList saved = listsCaptor.getValue().get(0);
+    assertEquals(user, saved.getUser());
+    assertEquals(1, saved.getTasks().size());
+    assertEquals(saved, task.getToDoList());
+    assertEquals(List.of(ID), result);
+    verify(events).publishEvent(ChangeEvent.list(USERNAME, ChangeEvent.Action.CREATED, ID));
+  }
+
   @Test
   void getToDoListById_Success() {
     // given
-    given(toDoListRepository.findByIdAndUserUsername(ID, USERNAME))
-        .willReturn(Optional.ofNullable(testList));
-    given(mockListMapper.convertToDoList(testList)).willReturn(testListDto);
+    TaskDto taskDto = new TaskDto(testList, "task");
+    given(toDoListRepository.findDtoByIdAndUserUsername(ID, USERNAME))
+        .willReturn(Optional.of(testListDto));
+    given(taskRepository.findDtosByListIds(List.of(ID))).willReturn(List.of(taskDto));
 
     // when
     ToDoListDto result = service.getToDoListDtoById(ID, USERNAME);
 
     // verify
     assertEquals(testListDto, result);
+    assertEquals(List.of(taskDto), result.getTasks());
+    verifyNoInteractions(mockListMapper);
+  }
+
+  @Test
+  void getToDoListDtoIfModifiedShouldNotReadListWhenVersionIsNotModified() {
+    // given
+    given(toDoListRepository.findVersionByIdAndUsername(ID, USERNAME)).willReturn(Optional.of(3L));
+
+    // when
+    Optional<ToDoListDto> result =
+        service.getToDoListDtoIfModified(
+            ID, USERNAME, new TaskFilter(), false, version -> version.equals("3"));
+
+    // verify
+    assertTrue(result.isEmpty());
+    verify(toDoListRepository, never()).findDtoByIdAndUserUsername(ID, USERNAME);
+    verifyNoInteractions(taskRepository);
+  }
+
+  @Test
+  void getToDoListDtoIfModifiedShouldReadListWhenVersionIsModified() {
+    // given
+    given(toDoListRepository.findVersionByIdAndUsername(ID, USERNAME)).willReturn(Optional.of(4L));
+    given(toDoListRepository.findDtoByIdAndUserUsername(ID, USERNAME))
+        .willReturn(Optional.of(testListDto));
+    given(taskRepository.findDtosByListIds(List.of(ID))).willReturn(List.of());
+
+    // when
+    Optional<ToDoListDto> result =
+        service.getToDoListDtoIfModified(
+            ID, USERNAME, new TaskFilter(), false, version -> version.equals("3"));
+
+    // verify
+    assertEquals(Optional.of(testListDto), result);
+  }
+
+  @Test
+  void getToDoListByIdWithFilterShouldReadOnlyMatchingTasks() {
+    // given
+    TaskFilter filter = new TaskFilter().setActive(true);
+    TaskDto taskDto = new TaskDto(testList, "task");
+    given(toDoListRepository.findDtoByIdAndUserUsername(ID, USERNAME))
+        .willReturn(Optional.of(testListDto));
+    given(taskRepository.findDtosByListId(ID, filter)).willReturn(List.of(taskDto));
+
+    // when
+    ToDoListDto result = service.getToDoListDtoById(ID, USERNAME, filter);
+
+    // verify
+    assertEquals(List.of(taskDto), result.getTasks());
+    verify(taskRepository, never()).findDtosByListIds(anyList());
+  }
+
+  @Test
+  void getToDoListByIdIncludingArchivedShouldMergeArchivedTasksInIdOrder() {
+    // given
+    TaskDto hotTask = new TaskDto(3, "hot", "description", ID, NOW, null, true);
+    TaskDto archivedTask = new TaskDto(2, "archived", "description", ID, NOW, NOW, false);
+    archivedTask.setArchived(true);
+    given(toDoListRepository.findDtoByIdAndUserUsername(ID, USERNAME))
+        .willReturn(Optional.of(testListDto));
+    given(taskRepository.findDtosByListIds(List.of(ID))).willReturn(List.of(hotTask));
+    given(archiveService.getArchivedTasks(List.of(ID))).willReturn(List.of(archivedTask));
+
+    // when
+    ToDoListDto result = service.getToDoListDtoById(ID, USERNAME, true);
+
+    // verify
+    assertEquals(List.of(archivedTask, hotTask), result.getTasks());
+  }
+
+  @Test
+  void getToDoListByIdIncludingArchivedShouldFallBackToArchivedList() {
+    // given
+    testListDto.setArchived(true);
+    given(toDoListRepository.findDtoByIdAndUserUsername(ID, USERNAME)).willReturn(Optional.empty());
+    given(archiveService.getArchivedToDoList(ID, USERNAME)).willReturn(Optional.of(testListDto));
+
+    // when
+    ToDoListDto result = service.getToDoListDtoById(ID, USERNAME, true);
+
+    // verify
+    assertEquals(testListDto, result);
+    verifyNoInteractions(taskRepository);
+  }
+
+  @Test
+  void getToDoListByIdIncludingArchivedShouldThrowWhenListIsNeitherHotNorArchived() {
+    // given
+    given(toDoListRepository.findDtoByIdAndUserUsername(ID, USERNAME)).willReturn(Optional.empty());
+    given(archiveService.getArchivedToDoList(ID, USERNAME)).willReturn(Optional.empty());
+
+    // verify
+    assertThrows(
+        ToDoListNotFoundException.class, () -> service.getToDoListDtoById(ID, USERNAME, true));
   }
 
   @Test
   void getToDoListById_Fail() {
     // given
-    given(toDoListRepository.findByIdAndUserUsername(ID, USERNAME)).willReturn(Optional.empty());
+    given(toDoListRepository.findDtoByIdAndUserUsername(ID, USERNAME)).willReturn(Optional.empty());
 
     // verify
     assertThrows(RuntimeException.class, () -> service.getToDoListDtoById(ID, USERNAME));
@@ -107,57 +242,152 @@ class ToDoListServiceImplTest {
   @Test
   void getAllToDoList() {
     // given
-    given(toDoListRepository.findByUserUsername(USERNAME)).willReturn(List.of(testList));
-    given(mockListMapper.convertToDoList(testList)).willReturn(testListDto);
+    TaskDto taskDto = new TaskDto(testList, "task");
+    given(toDoListRepository.findDtosByUserUsername(USERNAME)).willReturn(List.of(testListDto));
+    given(taskRepository.findDtosByUsername(USERNAME)).willReturn(List.of(taskDto));
 
     // when
     List<ToDoListDto> result = service.getAllToDoList(USERNAME);
 
     // verify
-    verify(toDoListRepository, times(1)).findByUserUsername(USERNAME);
+    verify(toDoListRepository, times(1)).findDtosByUserUsername(USERNAME);
     verifyNoMoreInteractions(toDoListRepository);
-
-    verify(mockListMapper).convertToDoList(testList);
-    verifyNoMoreInteractions(mockListMapper);
+    verifyNoInteractions(mockListMapper);
 
     assertEquals(result.size(), 1);
+    assertEquals(List.of(taskDto), result.get(0).getTasks());
+  }
+
+  @Test
+  void getToDoListPageShouldFetchLimitedPageAfterCursor() {
+    // given
+    TaskDto taskDto = new TaskDto(testList, "task");
+    given(toDoListRepository.findDtoPageByUserUsername(USERNAME, 0L, PageRequest.of(0, 10)))
+        .willReturn(List.of(testListDto));
+    given(taskRepository.findDtosByListIds(List.of(ID))).willReturn(List.of(taskDto));
+
+    // when
+    List<ToDoListDto> result = service.getToDoListPage(USERNAME, 0L, 10);
+
+    // verify
+    verify(toDoListRepository).findDtoPageByUserUsername(USERNAME, 0L, PageRequest.of(0, 10));
+    verifyNoMoreInteractions(toDoListRepository);
+
+    assertEquals(List.of(testListDto), result);
+    assertEquals(List.of(taskDto), result.get(0).getTasks());
+  }
+
+  @Test
+  void getToDoListSummaryPageShouldNotFetchTasks() {
+    // given
+    given(toDoListRepository.findDtoPageByUserUsername(USERNAME, 0L, PageRequest.of(0, 10)))
+        .willReturn(List.of(testListDto));
+
+    // when
+    List<ToDoListDto> result = service.getToDoListSummaryPage(USERNAME, 0L, 10);
+
+    // verify
+    assertEquals(List.of(testListDto), result);
+    assertNull(result.get(0).getTasks());
+    verifyNoInteractions(taskRepository);
+  }
+
+  @Test
+  void getToDoListPageShouldNotFetchTasksForEmptyPage() {
+    // given
+    given(toDoListRepository.findDtoPageByUserUsername(USERNAME, ID, PageRequest.of(0, 10)))
+        .willReturn(List.of());
+
+    // when
+    List<ToDoListDto> result = service.getToDoListPage(USERNAME, ID, 10);
+
+    // verify
+    assertTrue(result.isEmpty());
+    verifyNoInteractions(taskRepository);
   }
 
   @Test
   void deleteToDoListShouldDeleteListWhenItExistsAndBelongsToUser() {
     // given
-    given(toDoListRepository.existsByIdAndUserUsername(ID, USERNAME)).willReturn(true);
+    given(toDoListRepository.deleteByIdAndUsername(ID, USERNAME)).willReturn(1);
 
     // when
-    service.deleteToDoList(ID, USERNAME);
+    service.deleteToDoList(ID, USERNAME, null);
 
     // verify
-    verify(toDoListRepository, times(1)).deleteById(ID);
+    verify(taskRepository).deleteByListIdAndUsername(ID, USERNAME);
+    verify(toDoListRepository, never()).deleteById(anyLong());
+    verify(events).publishEvent(ChangeEvent.list(USERNAME, ChangeEvent.Action.DELETED, ID));
+  }
+
+  @Test
+  void deleteToDoListShouldDeleteArchivedList() {
+    // given
+    given(archiveService.deleteArchivedToDoList(ID, USERNAME)).willReturn(true);
+    given(toDoListRepository.deleteByIdAndUsername(ID, USERNAME)).willReturn(0);
+
+    // when
+    service.deleteToDoList(ID, USERNAME, null);
+
+    // verify
+    verify(archiveService).deleteArchivedToDoList(ID, USERNAME);
   }
 
   @Test
   void deleteToDoListShouldThrowToDoListNotFoundExceptionIfListDoesNotExist() {
     // given
-    given(toDoListRepository.existsByIdAndUserUsername(ID, user.getUsername())).willReturn(false);
+    given(toDoListRepository.deleteByIdAndUsername(ID, USERNAME)).willReturn(0);
+
+    // verify
+    assertThrows(ToDoListNotFoundException.class, () -> service.deleteToDoList(ID, USERNAME, null));
+    verifyNoInteractions(events);
+  }
+
+  @Test
+  void deleteToDoListShouldThrowVersionMismatchExceptionWhenListIsAtOtherVersion() {
+    // given
+    given(toDoListRepository.incrementVersion(ID, USERNAME, 3L)).willReturn(0);
+    given(toDoListRepository.existsByIdAndUserUsername(ID, USERNAME)).willReturn(true);
+
+    // verify
+    assertThrows(VersionMismatchException.class, () -> service.deleteToDoList(ID, USERNAME, 3L));
+    verifyNoInteractions(taskRepository);
+  }
+
+  @Test
+  void setActiveShouldThrowToDoListNotFoundExceptionWhenListAtExpectedVersionDoesNotExist() {
+    // given
+    given(toDoListRepository.updateActive(ID, USERNAME, false, 3L)).willReturn(0);
+    given(toDoListRepository.existsByIdAndUserUsername(ID, USERNAME)).willReturn(false);
 
     // verify
-    assertThrows(ToDoListNotFoundException.class, () -> service.deleteToDoList(ID, USERNAME));
+    assertThrows(
+        ToDoListNotFoundException.class, () -> service.setToDoListActive(ID, USERNAME, false, 3L));
   }
 
   @Test
   void setActive() {
     // given
-    given(toDoListRepository.findByIdAndUserUsername(ID, USERNAME)).willReturn(Optional.of(testList));
-    given(toDoListRepository.save(any(ToDoList.class))).willReturn(testList);
-    given(mockListMapper.convertToDoList(testList)).willReturn(testListDto);
+    given(toDoListRepository.updateActive(ID, USERNAME, false, null)).willReturn(1);
+    given(toDoListRepository.findDtoByIdAndUserUsername(ID, USERNAME))
+        .willReturn(Optional.of(testListDto));
 
     // when
-    ToDoListDto result = service.setToDoListActive(ID, USERNAME, false);
+    ToDoListDto result = service.setToDoListActive(ID, USERNAME, false, null);
 
     // verify
-    verify(toDoListRepository).save(listCaptor.capture());
-    ToDoList capturedList = listCaptor.getValue();
-    assertFalse(capturedList.isActive());
+    assertEquals(testListDto, result);
+    verify(toDoListRepository, never()).save(any(ToDoList.class));
+  }
+
+  @Test
+  void setActiveShouldThrowToDoListNotFoundExceptionIfListDoesNotBelongToUser() {
+    // given
+    given(toDoListRepository.updateActive(ID, USERNAME, false, null)).willReturn(0);
+
+    // verify
+    assertThrows(
+        ToDoListNotFoundException.class, () -> service.setToDoListActive(ID, USERNAME, false, null));
   }
 
   @Test
@@ -169,6 +399,12 @@ class ToDoListServiceImplTest {
     given(toDoListRepository.findByIdAndUserUsername(ID, USERNAME))
         .willReturn(Optional.of(testList));
     given(mockTaskMapper.convertTaskDto(testTaskDto)).willReturn(testTask);
+    given(taskRepository.save(testTask))
+        .will(
+            invocation -> {
+              testTask.setId(7L);
+              return testTask;
+            });
     given(toDoListRepository.save(any(ToDoList.class))).willReturn(testList);
     given(mockListMapper.convertToDoList(testList)).willReturn(testListDto);
 
@@ -176,44 +412,122 @@ class ToDoListServiceImplTest {
     service.addTaskToDoList(ID, USERNAME, testTaskDto);
 
     // verify
+    verify(toDoListRepository).addToTaskCounts(ID, USERNAME, 1, 1);
+    verify(taskRepository).save(testTask);
     verify(toDoListRepository).save(listCaptor.capture());
     ToDoList capturedList = listCaptor.getValue();
 
     assertEquals(1, capturedList.getTasks().size());
-    assertEquals(testTask, capturedList.getTasks().get(0));
+    assertEquals(testTask, capturedList.getTasks().iterator().next());
+    assertEquals(Optional.of(testTask), capturedList.getTask(7L));
   }
 
   @Test
-  void removeTask() {
+  void addTasksShouldSaveAllTasksAgainstListWithoutLoadingIt() {
     // given
-    Task testTask = new Task(testList, "test");
-    testList.addTask(testTask);
-    TaskDto testTaskDto = new TaskDto(testList, "test");
+    Task first = new Task("first");
+    first.setId(10L);
+    Task second = new Task("second");
+    second.setId(11L);
+    TaskDto firstDto = new TaskDto(testList, "first");
+    TaskDto secondDto = new TaskDto(testList, "second");
+
+    second.setActive(false);
+    given(toDoListRepository.addToTaskCounts(ID, USERNAME, 2, 1)).willReturn(1);
+    given(toDoListRepository.getById(ID)).willReturn(testList);
+    given(mockTaskMapper.convertTaskDto(firstDto)).willReturn(first);
+    given(mockTaskMapper.convertTaskDto(secondDto)).willReturn(second);
+    given(taskRepository.saveAll(List.of(first, second))).willReturn(List.of(first, second));
 
-    given(toDoListRepository.findByIdAndUserUsername(ID, USERNAME)).willReturn(Optional.of(testList));
-    given(toDoListRepository.save(any(ToDoList.class))).willReturn(testList);
-    given(mockListMapper.convertToDoList(testList)).willReturn(testListDto);
+    // when
+    List<Long> result = service.addTasksToDoList(ID, USERNAME, List.of(firstDto, secondDto));
+
+    // verify
+    assertEquals(List.of(10L, 11L), result);
+    assertSame(testList, first.getToDoList());
+    assertSame(testList, second.getToDoList());
+    verify(toDoListRepository, never()).findByIdAndUserUsername(anyLong(), anyString());
+  }
+
+  @Test
+  void addTasksShouldThrowToDoListNotFoundExceptionWhenListDoesNotBelongToUser() {
+    // given
+    TaskDto taskDto = new TaskDto(testList, "task");
+    given(mockTaskMapper.convertTaskDto(taskDto)).willReturn(new Task("task"));
+    given(toDoListRepository.addToTaskCounts(ID, USERNAME, 1, 1)).willReturn(0);
+
+    // verify
+    assertThrows(
+        ToDoListNotFoundException.class,
+        () -> service.addTasksToDoList(ID, USERNAME, List.of(taskDto)));
+    verifyNoInteractions(taskRepository);
+  }
+
+  @Test
+  void removeTask() {
+    // given
+    given(taskRepository.deleteByIdAndListIdAndUsername(5L, ID, USERNAME)).willReturn(1);
+    given(toDoListRepository.findDtoByIdAndUserUsername(ID, USERNAME))
+        .willReturn(Optional.of(testListDto));
+    given(taskRepository.findDtosByListIds(List.of(ID))).willReturn(List.of());
 
     // when
-    service.removeTaskFromToDoList(ID, USERNAME, testTask.getId());
+    ToDoListDto result = service.removeTaskFromToDoList(ID, USERNAME, 5L);
 
     // verify
-    verify(toDoListRepository).save(listCaptor.capture());
-    ToDoList capturedList = listCaptor.getValue();
+    assertEquals(testListDto, result);
+    verify(toDoListRepository, never()).save(any(ToDoList.class));
+    verify(toDoListRepository).addToTaskCounts(ID, USERNAME, -1, 0);
+  }
+
+  @Test
+  void removeTaskShouldCountActiveTaskOnlyOnceWhenDeletedAsActive() {
+    // given
+    given(taskRepository.deleteActiveByIdAndListIdAndUsername(5L, ID, USERNAME)).willReturn(1);
+
+    // when
+    service.deleteTaskFromToDoList(ID, USERNAME, 5L);
 
-    assertEquals(0, capturedList.getTasks().size());
+    // verify
+    verify(taskRepository, never()).deleteByIdAndListIdAndUsername(anyLong(), anyLong(), anyString());
+    verify(toDoListRepository).addToTaskCounts(ID, USERNAME, -1, -1);
   }
 
   @Test
   void removeTaskShouldThrowExceptionIfTaskIsNotPresentInList() {
-    // when
-    when(toDoListRepository.findByIdAndUserUsername(0L, USERNAME))
-        .thenReturn(Optional.ofNullable(testList));
+    // given
+    given(taskRepository.deleteByIdAndListIdAndUsername(500L, ID, USERNAME)).willReturn(0);
+    given(toDoListRepository.existsByIdAndUserUsername(ID, USERNAME)).willReturn(true);
 
     // verify
     assertThrows(
-        RuntimeException.class,
-        () -> service.removeTaskFromToDoList(testList.getId(), USERNAME, 500L));
+        TaskNotFoundException.class,
+        () -> service.removeTaskFromToDoList(ID, USERNAME, 500L));
+  }
+
+  @Test
+  void deleteTaskFromToDoListShouldThrowToDoListNotFoundExceptionIfListDoesNotBelongToUser() {
+    // given
+    given(taskRepository.deleteByIdAndListIdAndUsername(5L, ID, USERNAME)).willReturn(0);
+    given(toDoListRepository.existsByIdAndUserUsername(ID, USERNAME)).willReturn(false);
+
+    // verify
+    assertThrows(
+        ToDoListNotFoundException.class,
+        () -> service.deleteTaskFromToDoList(ID, USERNAME, 5L));
+  }
+
+  @Test
+  void deleteTaskFromToDoListWithSummaryShouldCountRemainingTasks() {
+    // given
+    given(taskRepository.deleteByIdAndListIdAndUsername(5L, ID, USERNAME)).willReturn(1);
+    given(taskRepository.countByToDoListId(ID)).willReturn(3L);
+
+    // when
+    TaskDeletionDto result = service.deleteTaskFromToDoListWithSummary(ID, USERNAME, 5L);
+
+    // verify
+    assertEquals(new TaskDeletionDto(ID, 5L, 3L), result);
   }
 
   @Test
@@ -224,33 +538,33 @@ class ToDoListServiceImplTest {
     long testListId = testList.getId();
 
     // when
-    when(toDoListRepository.findByIdAndUserUsername(testListId, USERNAME))
-        .thenReturn(Optional.of(testList));
-    when(toDoListRepository.save(any(ToDoList.class))).thenReturn(testList);
-    when(mockListMapper.convertToDoList(testList)).thenReturn(testListDto);
+    when(toDoListRepository.updateNameAndDescription(
+            testListId, USERNAME, "this is another name", "this is another description", null))
+        .thenReturn(1);
+    when(toDoListRepository.findDtoByIdAndUserUsername(testListId, USERNAME))
+        .thenReturn(Optional.of(testListDto));
 
-    ToDoListDto updated = service.updateToDoListNameAndDescription(testListId, testListDto, USERNAME);
+    ToDoListDto updated = service.updateToDoListNameAndDescription(testListId, testListDto, USERNAME, null);
 
     // verify
-    assertEquals(testListDto.getName(), testList.getName());
-    assertEquals(testListDto.getDescription(), testList.getDescription());
+    assertEquals(testListDto, updated);
+    verify(toDoListRepository, never()).save(any(ToDoList.class));
   }
 
   @Test
   void updateListShouldThrowToDoListNotFoundExceptionIfItDoesNotExist() {
     // given
-    testList.setName("this is another name");
-
     long testListId = testList.getId();
 
     // when
-    when(toDoListRepository.findByIdAndUserUsername(testListId, USERNAME))
-        .thenReturn(Optional.empty());
+    when(toDoListRepository.updateNameAndDescription(
+            testListId, USERNAME, testListDto.getName(), testListDto.getDescription(), null))
+        .thenReturn(0);
 
     // verify
     assertThrows(
         ToDoListNotFoundException.class,
-        () -> service.updateToDoListNameAndDescription(testListId, testListDto, USERNAME));
+        () -> service.updateToDoListNameAndDescription(testListId, testListDto, USERNAME, null));
   }
 
   @Test
@@ -4,6 +4,7 @@ import com.chilborne.todoapi.exception.UsernameAlreadyExistsException;
 import com.chilborne.todoapi.persistance.dto.UserDto;
 import com.chilborne.todoapi.persistance.mapper.UserMapper;
 import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
 import com.chilborne.todoapi.persistance.repository.UserRepository;
 import com.chilborne.todoapi.security.UserPrincipal;
 import com.chilborne.todoapi.security.access.UserAccessManager;
@@ -34,9 +35,11 @@ class UserServiceImplTest {
   static final String ENCODED_PASSWORD = "ESRETC";
   static final String EMAIL = "send@me.mail";
   @Mock UserRepository repository;
+  @Mock ToDoListRepository toDoListRepository;
   @Mock UserMapper mapper;
   @Mock UserAccessManager accessManager;
   @Mock PasswordEncoder passwordEncoder;
+  @Mock ArchiveService archiveService;
   @InjectMocks UserServiceImpl service;
   @Captor ArgumentCaptor<User> userCaptor;
   User user;
@@ -132,7 +135,7 @@ class UserServiceImplTest {
     given(mapper.convertUser(updatedUser)).willReturn(updatedDto);
 
     // when
-    UserDto returned = service.changeUsername(USERNAME, NEW_USERNAME);
+    UserDto returned = service.changeUsername(USERNAME, NEW_USERNAME, null);
 
     // verify
     verify(repository).existsByUsername(NEW_USERNAME);
@@ -156,7 +159,7 @@ class UserServiceImplTest {
 
     // verify
     assertThrows(
-        UsernameAlreadyExistsException.class, () -> service.changeUsername(USERNAME, USERNAME));
+        UsernameAlreadyExistsException.class, () -> service.changeUsername(USERNAME, USERNAME, null));
   }
 
   @Test
@@ -171,7 +174,7 @@ class UserServiceImplTest {
     given(mapper.convertUser(updatedUser)).willReturn(updatedDto);
 
     // when
-    UserDto returned = service.changeEmail(USERNAME, NEW_EMAIL);
+    UserDto returned = service.changeEmail(USERNAME, NEW_EMAIL, null);
 
     // verify
     verify(repository).findByUsername(USERNAME);
@@ -199,7 +202,7 @@ class UserServiceImplTest {
     given(passwordEncoder.encode(NEW_PASSWORD)).willReturn(ENCODED_NEW_PASSWORD);
 
     // when
-    service.changePassword(USERNAME, NEW_PASSWORD);
+    service.changePassword(USERNAME, NEW_PASSWORD, null);
 
     // verify
     verify(repository).findByUsername(USERNAME);
@@ -277,10 +280,11 @@ class UserServiceImplTest {
     given(repository.existsByUsername(USERNAME)).willReturn(true);
 
     // when
-    service.deleteUser(USERNAME);
+    service.deleteUser(USERNAME, null);
 
     // verify
     verify(repository).existsByUsername(USERNAME);
+    verify(archiveService).deleteArchiveOfUser(USERNAME);
     verify(repository).deleteByUsername(USERNAME);
     verifyNoMoreInteractions(repository);
   }
@@ -291,6 +295,6 @@ class UserServiceImplTest {
     given(repository.existsByUsername(USERNAME)).willReturn(false);
 
     // verify
-    assertThrows(UsernameNotFoundException.class, () -> service.deleteUser(USERNAME));
+    assertThrows(UsernameNotFoundException.class, () -> service.deleteUser(USERNAME, null));
   }
 }
@@ -0,0 +1,96 @@
+package com.chilborne.todoapi.web.config;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.chilborne.todoapi.web.config.DtoSerializerTest.mapper;
+
+/**
+ * Compares writing a list of 1000 tasks as json with the bean serializers against the serializers
+ * of {@link JacksonSerializerConfig}, both with the spring.jackson settings of application.yml.
+ * Setup fails if the two disagree on a single byte.
+ *
+ * <p>Not part of the regular test run, execute with {@code mvn test -Dtest=DtoSerializerBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DtoSerializerBenchmark {
+
+  static final int TASKS = 1000;
+
+  @Param({"bean", "hand-written"})
+  String serializers;
+
+  @Param({"true", "false"})
+  boolean indent;
+
+  private ObjectWriter writer;
+  private ToDoListDto list;
+
+  @Setup(Level.Trial)
+  public void buildList() throws IOException {
+    writer =
+        mapper(new JsonFactory(), indent, serializers.equals("hand-written"))
+            .writerFor(ToDoListDto.class);
+
+    LocalDateTime made = LocalDateTime.of(2022, 3, 1, 9, 30);
+    list = new ToDoListDto(1L, "benchmark", "a list of a thousand tasks", "benchmark", made, true);
+    List<TaskDto> tasks = new ArrayList<>(TASKS);
+    for (int t = 0; t < TASKS; t++) {
+      TaskDto task =
+          new TaskDto(t + 1, "task " + t, "description of task " + t, 1L, made.plusMinutes(t),
+              t % 2 == 0 ? made.plusHours(t) : null, t % 2 != 0);
+      tasks.add(task);
+    }
+    list.setTasks(tasks);
+    list.setTaskCount(TASKS);
+    list.setActiveTaskCount(TASKS / 2);
+
+    byte[] expected =
+        mapper(new JsonFactory(), indent, false).writerFor(ToDoListDto.class).writeValueAsBytes(list);
+    if (!Arrays.equals(expected, writer.writeValueAsBytes(list))) {
+      throw new IllegalStateException(serializers + " serializers differ from the bean serializers");
+    }
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return writer.writeValueAsBytes(list);
+  }
+
+  @Test
+  void runBenchmark() throws RunnerException {
+    Options options =
+        new OptionsBuilder()
+            .include(DtoSerializerBenchmark.class.getSimpleName())
+            .forks(0)
+            .warmupIterations(3)
+            .measurementIterations(5)
+            .build();
+    new Runner(options).run();
+  }
+}
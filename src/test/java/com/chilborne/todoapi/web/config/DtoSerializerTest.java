@@ -0,0 +1,110 @@
+package com.chilborne.todoapi.web.config;
+
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DtoSerializerTest {
+
+  static final LocalDateTime MADE = LocalDateTime.of(2022, 3, 1, 9, 5, 7, 123_456_789);
+
+  // the spring.jackson settings of application.yml, with and without the hand-written serializers
+  static ObjectMapper mapper(JsonFactory factory, boolean indent, boolean handWritten) {
+    Jackson2ObjectMapperBuilder builder =
+        new Jackson2ObjectMapperBuilder()
+            .factory(factory)
+            .propertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .indentOutput(indent);
+    if (handWritten) {
+      builder.modulesToInstall(new JacksonSerializerConfig().dtoSerializerModule());
+    }
+    return builder.build();
+  }
+
+  @Test
+  void jsonShouldBeIdenticalToBeanSerializers() throws Exception {
+    assertIdentical(new JsonFactory(), true);
+  }
+
+  @Test
+  void unindentedJsonShouldBeIdenticalToBeanSerializers() throws Exception {
+    assertIdentical(new JsonFactory(), false);
+  }
+
+  @Test
+  void smileShouldBeIdenticalToBeanSerializers() throws Exception {
+    assertIdentical(new SmileFactory(), false);
+  }
+
+  @Test
+  void cborShouldBeIdenticalToBeanSerializers() throws Exception {
+    assertIdentical(new CBORFactory(), false);
+  }
+
+  @Test
+  void datesShouldBeWrittenInDtoFormat() throws Exception {
+    // given
+    TaskDto task =
+        new TaskDto(1L, "task", null, 2L, MADE, LocalDateTime.of(987, 12, 31, 23, 59), true);
+
+    // when
+    String json = mapper(new JsonFactory(), false, true).writeValueAsString(task);
+
+    // verify
+    assertTrue(json.contains("\"date_time_made\":\"01-03-2022 09:05:07\""));
+    assertTrue(json.contains("\"date_time_finished\":\"31-12-0987 23:59:00\""));
+  }
+
+  private void assertIdentical(JsonFactory factory, boolean indent) throws Exception {
+    ObjectMapper beanMapper = mapper(factory, indent, false);
+    ObjectMapper handWrittenMapper = mapper(factory, indent, true);
+    for (Object value : values()) {
+      assertArrayEquals(
+          beanMapper.writeValueAsBytes(value),
+          handWrittenMapper.writeValueAsBytes(value),
+          () -> "differs for " + value);
+    }
+  }
+
+  private List<Object> values() {
+    List<Object> values = new ArrayList<>();
+    TaskDto finished =
+        new TaskDto(10L, "finished \"task\"", "ünïcode\n\ttext", 1L, MADE, MADE.plusDays(40), false);
+    TaskDto archived = new TaskDto(11L, "archived", null, 1L, MADE, null, true);
+    archived.setArchived(true);
+    TaskDto farFuture =
+        new TaskDto(12L, "far future", null, 1L, LocalDateTime.of(12345, 1, 1, 0, 0), null, true);
+    TaskDto empty = new TaskDto();
+    values.addAll(List.of(finished, archived, farFuture, empty));
+
+    ToDoListDto full = new ToDoListDto(1L, "list", "a description", "user", MADE, true);
+    full.setTasks(Arrays.asList(finished, archived, null, farFuture));
+    full.setTaskCount(4);
+    full.setActiveTaskCount(2);
+    full.setArchived(false);
+    ToDoListDto noTasks = new ToDoListDto(2L, "no tasks", null, "user", MADE, false);
+    noTasks.setTasks(List.of());
+    ToDoListDto nullTasks = new ToDoListDto(3L, "null tasks", null, null, null, true);
+    nullTasks.setTasks(null);
+    values.addAll(List.of(full, noTasks, nullTasks, new ToDoListDto()));
+    values.add(List.of(full, noTasks));
+    return values;
+  }
+}
@@ -0,0 +1,119 @@
+package com.chilborne.todoapi.web.config;
+
+import com.chilborne.todoapi.ToDoApiApplication;
+import com.chilborne.todoapi.persistance.dto.TaskDto;
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing and reading a list of 1000 tasks as the json the api serves by default against
+ * the Smile and CBOR encodings of {@link JacksonBinaryConfig}, using the application's own mappers.
+ * Payload sizes are printed once per format before the measurements.
+ *
+ * <p>Not part of the regular test run, execute with {@code mvn test -Dtest=JacksonBinaryBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JacksonBinaryBenchmark {
+
+  static final int TASKS = 1000;
+
+  @Param({"json", "smile", "cbor"})
+  String format;
+
+  private ConfigurableApplicationContext context;
+  private ObjectWriter writer;
+  private ObjectReader reader;
+  private ToDoListDto list;
+  private byte[] payload;
+
+  @Setup(Level.Trial)
+  public void encodeList() throws IOException {
+    context =
+        new SpringApplicationBuilder(ToDoApiApplication.class)
+            .web(WebApplicationType.NONE)
+            .profiles("test")
+            .properties(
+                "logging.level.root=WARN", "spring.datasource.url=jdbc:h2:mem:benchmark-" + format)
+            .run();
+    ObjectMapper mapper;
+    switch (format) {
+      case "smile" -> mapper =
+          context.getBean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+      case "cbor" -> mapper =
+          context.getBean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+      default -> mapper = context.getBean(ObjectMapper.class);
+    }
+    writer = mapper.writerFor(ToDoListDto.class);
+    reader = mapper.readerFor(ToDoListDto.class);
+
+    LocalDateTime made = LocalDateTime.of(2022, 3, 1, 9, 30);
+    list = new ToDoListDto(1L, "benchmark", "a list of a thousand tasks", "benchmark", made, true);
+    List<TaskDto> tasks = new ArrayList<>(TASKS);
+    for (int t = 0; t < TASKS; t++) {
+      TaskDto task =
+          new TaskDto(t + 1, "task " + t, "description of task " + t, 1L, made.plusMinutes(t),
+              t % 2 == 0 ? made.plusHours(t) : null, t % 2 != 0);
+      tasks.add(task);
+    }
+    list.setTasks(tasks);
+    payload = writer.writeValueAsBytes(list);
+    System.out.printf("%s payload of %d tasks: %d bytes%n", format, TASKS, payload.length);
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return writer.writeValueAsBytes(list);
+  }
+
+  @Benchmark
+  public ToDoListDto deserialize() throws IOException {
+    return reader.readValue(payload);
+  }
+
+  @Test
+  void runBenchmark() throws RunnerException {
+    Options options =
+        new OptionsBuilder()
+            .include(JacksonBinaryBenchmark.class.getSimpleName())
+            .forks(0)
+            .warmupIterations(3)
+            .measurementIterations(5)
+            .build();
+    new Runner(options).run();
+  }
+}
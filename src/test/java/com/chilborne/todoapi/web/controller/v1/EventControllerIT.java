@@ -0,0 +1,102 @@
+package com.chilborne.todoapi.web.controller.v1;
+
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.TaskRepository;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.persistance.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class EventControllerIT {
+
+    private static final String USERNAME = "user name";
+    private ToDoList testList;
+    private Task testTask;
+
+    @Autowired MockMvc mvc;
+    @Autowired TaskRepository taskRepository;
+    @Autowired ToDoListRepository toDoListRepository;
+    @Autowired UserRepository userRepository;
+
+    @BeforeEach
+    void initialiseEventData() {
+        User testUser = new User(USERNAME, "secr3t");
+        testList = new ToDoList("test list");
+        testTask = new Task(testList, "test task");
+        testList.addTask(testTask);
+        testList.setUser(testUser);
+        testUser.addToDoList(testList);
+
+        userRepository.save(testUser);
+        toDoListRepository.save(testList);
+    }
+
+    @AfterEach
+    void tearDownEventData() {
+        taskRepository.deleteAll();
+        toDoListRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void listEventsShouldPushCommittedTaskCompletion() throws Exception {
+        //given
+        MockHttpServletResponse stream =
+                mvc.perform(
+                        get("/api/v1/list/{id}/events", testList.getId())
+                                .accept(MediaType.TEXT_EVENT_STREAM)
+                ).andExpect(request().asyncStarted())
+                        .andReturn()
+                        .getResponse();
+
+        //when
+        mvc.perform(
+                patch("/api/v1/task/{id}/complete", testTask.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isOk());
+
+        //verify
+        String events = awaitContent(stream);
+        assertTrue(events.startsWith("event:change"));
+        assertTrue(events.contains("data:{\"type\":\"task\",\"action\":\"completed\""));
+        assertTrue(events.contains("\"task_id\":" + testTask.getId()));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void listEventsShouldReturn404WhenListDoesNotBelongToUser() throws Exception {
+        //verify
+        mvc.perform(
+                get("/api/v1/list/{id}/events", testList.getId() + 1000)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+        ).andExpect(status().isNotFound());
+    }
+
+    // events are written by a sender thread after the completing request has returned
+    private String awaitContent(MockHttpServletResponse stream) throws Exception {
+        for (int i = 0; i < 50 && stream.getContentAsString().isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        return stream.getContentAsString();
+    }
+}
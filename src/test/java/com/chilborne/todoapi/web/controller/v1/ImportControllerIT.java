@@ -0,0 +1,95 @@
+package com.chilborne.todoapi.web.controller.v1;
+
+import com.chilborne.todoapi.persistance.dto.ToDoListDto;
+import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.TaskRepository;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.persistance.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ImportControllerIT {
+
+    private static final String USERNAME = "importer";
+
+    @Autowired MockMvc mvc;
+    @Autowired TaskRepository taskRepository;
+    @Autowired ToDoListRepository toDoListRepository;
+    @Autowired UserRepository userRepository;
+
+    @BeforeEach
+    void initialiseUser() {
+        userRepository.save(new User(USERNAME, "secr3t"));
+    }
+
+    @AfterEach
+    void tearDownImportData() {
+        taskRepository.deleteAll();
+        toDoListRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void importShouldSaveValidLinesWithTaskCountsAndReportInvalidOnes() throws Exception {
+        //given
+        String body =
+            "{\"name\":\"groceries\",\"description\":\"weekly shop\","
+                + "\"tasks\":[{\"name\":\"milk\"},{\"name\":\"bread\"}]}\n"
+                + "{\"name\":\"chores\",\"tasks\":[{\"name\":\"done\",\"date_time_finished\":\"01-01-2022 10:00:00\"}]}\n"
+                + "{\"name\":\"empty\"}\n";
+
+        //when
+        mvc.perform(
+                post("/api/v1/import")
+                        .contentType(ImportController.NDJSON)
+                        .content(body)
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                //verify
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lists_imported").value(2))
+                .andExpect(jsonPath("$.tasks_imported").value(2))
+                .andExpect(jsonPath("$.failed_lines").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].errors[0]").value(
+                        "tasks[0].dateTimeFinished: date_time_finished is autogenerated on task completion"));
+        List<ToDoListDto> lists = toDoListRepository.findDtosByUserUsername(USERNAME);
+        assertEquals(List.of("groceries", "empty"), lists.stream().map(ToDoListDto::getName).toList());
+        assertEquals(2, lists.get(0).getTaskCount());
+        assertEquals(2, lists.get(0).getActiveTaskCount());
+        assertEquals(0, lists.get(1).getTaskCount());
+        assertEquals(2, taskRepository.findDtosByUsername(USERNAME).size());
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void importShouldReturn415WhenBodyIsNotNdjson() throws Exception {
+        //when
+        mvc.perform(
+                post("/api/v1/import")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]")
+        )
+                //verify
+                .andExpect(status().isUnsupportedMediaType());
+    }
+}
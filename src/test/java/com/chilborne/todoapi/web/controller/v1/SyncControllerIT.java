@@ -0,0 +1,139 @@
+package com.chilborne.todoapi.web.controller.v1;
+
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
+import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.TaskRepository;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
+import com.chilborne.todoapi.persistance.repository.UserRepository;
+import com.chilborne.todoapi.service.ArchiveService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class SyncControllerIT {
+
+    private static final String USERNAME = "user name";
+    private ToDoList testList;
+    private Task testTask;
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired TaskRepository taskRepository;
+    @Autowired ToDoListRepository toDoListRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired ArchiveService archiveService;
+
+    @BeforeEach
+    void initialiseSyncData() {
+        User testUser = new User(USERNAME, "secr3t");
+        testList = new ToDoList("test list");
+        testTask = new Task(testList, "test task");
+        testList.addTask(testTask);
+        testList.setUser(testUser);
+        testUser.addToDoList(testList);
+
+        userRepository.save(testUser);
+        toDoListRepository.save(testList);
+    }
+
+    @AfterEach
+    void tearDownSyncData() {
+        archiveService.deleteArchiveOfUser(USERNAME);
+        taskRepository.deleteAll();
+        toDoListRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void syncShouldReturnOnlyChangesAfterCursor() throws Exception {
+        //given
+        JsonNode first = sync(0);
+        long cursor = first.get("cursor").asLong();
+
+        //when
+        mvc.perform(
+                patch("/api/v1/task/{id}/complete", testTask.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isOk());
+        JsonNode second = sync(cursor);
+
+        //verify
+        assertEquals(testList.getId(), first.get("lists").get(0).get("list_id").asLong());
+        assertEquals(testTask.getId(), first.get("tasks").get(0).get("task_id").asLong());
+        assertTrue(second.get("cursor").asLong() > cursor);
+        assertEquals(1, second.get("tasks").size());
+        assertFalse(second.get("tasks").get(0).get("active").asBoolean());
+        assertEquals(0, sync(second.get("cursor").asLong()).get("tasks").size());
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void syncShouldReturnTombstonesOfDeletedRows() throws Exception {
+        //given
+        long cursor = sync(0).get("cursor").asLong();
+
+        //when
+        mvc.perform(delete("/api/v1/list/{id}", testList.getId()))
+                .andExpect(status().isNoContent());
+        JsonNode result = sync(cursor);
+
+        //verify
+        assertEquals(0, result.get("lists").size());
+        assertEquals(2, result.get("deleted").size());
+        assertEquals("list", result.get("deleted").get(1).get("type").asText());
+        assertEquals(testList.getId(), result.get("deleted").get(1).get("id").asLong());
+        assertFalse(result.get("deleted").get(1).get("archived").asBoolean());
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void syncShouldTellArchivedRowsFromDeletedOnes() throws Exception {
+        //given
+        long cursor = sync(0).get("cursor").asLong();
+        testList.setActive(false);
+        testList.setTimeDeactivated(LocalDateTime.of(2000, 1, 1, 0, 0));
+        toDoListRepository.save(testList);
+
+        //when
+        archiveService.archiveFinishedBefore(LocalDateTime.of(2010, 1, 1, 0, 0));
+        JsonNode result = sync(cursor);
+
+        //verify
+        assertEquals(0, result.get("lists").size());
+        assertEquals(2, result.get("deleted").size());
+        assertEquals("task", result.get("deleted").get(0).get("type").asText());
+        assertTrue(result.get("deleted").get(0).get("archived").asBoolean());
+        assertEquals("list", result.get("deleted").get(1).get("type").asText());
+        assertTrue(result.get("deleted").get(1).get("archived").asBoolean());
+    }
+
+    private JsonNode sync(long since) throws Exception {
+        String body =
+                mvc.perform(get("/api/v1/sync").param("since", String.valueOf(since)))
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
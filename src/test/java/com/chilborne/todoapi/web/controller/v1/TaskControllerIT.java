@@ -6,6 +6,7 @@ import com.chilborne.todoapi.persistance.model.User;
 import com.chilborne.todoapi.persistance.repository.TaskRepository;
 import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
 import com.chilborne.todoapi.persistance.repository.UserRepository;
+import com.chilborne.todoapi.web.config.JacksonBinaryConfig;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,6 +15,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
@@ -21,7 +23,10 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -82,6 +87,21 @@ public class TaskControllerIT {
                 .andExpect(jsonPath("$.task_id").value(ID));
     }
 
+    @Test
+    @WithMockUser(username = USERNAME)
+    void searchTasksShouldReturnTasksMatchingQuery() throws Exception {
+        //when
+        mvc.perform(
+                get("/api/v1/task/search")
+                        .param("q", "TEST ta")
+                        .accept("application/json")
+        )
+        //verify
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].task_id").value(ID));
+    }
+
     @Test
     @WithMockUser(username = USERNAME)
     void getTaskByIdShouldReturn404WithErrorMessageWhenTaskDoesNotExist() throws Exception {
@@ -213,4 +233,106 @@ public class TaskControllerIT {
                 .andExpect(jsonPath("$.error").isNotEmpty());
     }
 
+    @Test
+    @WithMockUser(username = USERNAME)
+    void completeTasksShouldReportWhichTasksWereCompleted() throws Exception {
+        //when
+        mvc.perform(
+                patch("/api/v1/task/complete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + ID + ", 500]")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+        //verify
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed[0]").value(ID))
+                .andExpect(jsonPath("$.already_completed").isEmpty())
+                .andExpect(jsonPath("$.not_found[0]").value(500));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void completeListTasksShouldCompleteActiveTasksOfList() throws Exception {
+        //when
+        mvc.perform(
+                patch("/api/v1/task/complete/list/{listId}", testList.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+        //verify
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed[0]").value(ID));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void getTaskShouldReturn304WhenIfNoneMatchHoldsCurrentEtag() throws Exception {
+        //given
+        String etag =
+                mvc.perform(get("/api/v1/task/" + ID).accept(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isOk())
+                        .andExpect(header().exists(HttpHeaders.ETAG))
+                        .andReturn()
+                        .getResponse()
+                        .getHeader(HttpHeaders.ETAG);
+
+        //when
+        mvc.perform(
+                get("/api/v1/task/" + ID)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+        //verify
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void getTaskShouldNotReturn304ForEtagOfOtherRepresentation() throws Exception {
+        //given
+        String etag =
+                mvc.perform(get("/api/v1/task/" + ID).accept(MediaType.APPLICATION_JSON))
+                        .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                        .andReturn()
+                        .getResponse()
+                        .getHeader(HttpHeaders.ETAG);
+
+        //when
+        mvc.perform(
+                get("/api/v1/task/" + ID)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(JacksonBinaryConfig.CBOR)
+        )
+        //verify
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + testTask.getVersion() + "+cbor\""))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void completeTaskShouldAcceptEtagOfOtherRepresentationInIfMatch() throws Exception {
+        //when
+        mvc.perform(
+                patch("/api/v1/task/{id}/complete", ID)
+                        .header(HttpHeaders.IF_MATCH, "\"" + testTask.getVersion() + "+smile\"")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+        //verify
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void completeTaskShouldReturn412IfIfMatchHoldsStaleEtag() throws Exception {
+        //when
+        mvc.perform(
+                patch("/api/v1/task/{id}/complete", ID)
+                        .header(HttpHeaders.IF_MATCH, "\"" + (testTask.getVersion() + 1) + "\"")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+        //verify
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error").isNotEmpty());
+    }
 }
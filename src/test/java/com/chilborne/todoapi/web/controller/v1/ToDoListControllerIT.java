@@ -5,6 +5,12 @@ import com.chilborne.todoapi.persistance.model.ToDoList;
 import com.chilborne.todoapi.persistance.model.User;
 import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
 import com.chilborne.todoapi.persistance.repository.UserRepository;
+import com.chilborne.todoapi.service.ArchiveService;
+import com.chilborne.todoapi.web.config.JacksonBinaryConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,10 +23,17 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -36,6 +49,7 @@ public class ToDoListControllerIT {
     @Autowired MockMvc mvc;
     @Autowired ToDoListRepository listRepository;
     @Autowired UserRepository userRepository;
+    @Autowired ArchiveService archiveService;
     ToDoList list;
     long listId;
     Task task;
@@ -61,6 +75,7 @@ public class ToDoListControllerIT {
 
     @AfterEach
     void tearDownData() {
+        archiveService.deleteArchiveOfUser(USERNAME);
         userRepository.deleteAll();
         listRepository.deleteAll();
     }
@@ -80,6 +95,43 @@ public class ToDoListControllerIT {
                 .andExpect(jsonPath("$.list_id").value(listId));
     }
 
+    @Test
+    @WithMockUser(username = USERNAME, password = PASSWORD)
+    void getToDoListByIdShouldReturnOnlyTasksMatchingFilter() throws Exception {
+        //when
+        mvc.perform(
+                get("/api/v1/list/{id}", listId)
+                        .param("active", "false")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+        //verify
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.list_id").value(listId))
+                .andExpect(jsonPath("$.tasks.length()").value(0));
+        mvc.perform(
+                get("/api/v1/list/{id}", listId)
+                        .param("name_prefix", "TA")
+                        .param("sort", "date_time_made")
+                        .param("order", "desc")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].task_id").value(taskId));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME, password = PASSWORD)
+    void getToDoListByIdShouldReturn400ForUnknownSort() throws Exception {
+        //when
+        mvc.perform(
+                get("/api/v1/list/{id}", listId)
+                        .param("sort", "colour")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+        //verify
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "fails", password = PASSWORD)
     void getToDoListByIdShouldReturnNotFoundStatusWhenDoesNotBelongToAuthenticatedUser() throws Exception {
@@ -107,6 +159,79 @@ public class ToDoListControllerIT {
                 .andExpect(jsonPath("$.error").isNotEmpty());
     }
 
+    @Test
+    @WithMockUser(username = USERNAME)
+    void getAllToDoListsShouldStreamAllListsBelongingToAuthenticatedUser() throws Exception {
+        //given
+        ToDoList second = new ToDoList("second");
+        second.setUser(user);
+        listRepository.save(second);
+
+        //when
+        MvcResult result = mvc.perform(
+                get("/api/v1/list/all")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //verify
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].list_id").value(listId))
+                .andExpect(jsonPath("$[1].list_id").value(second.getId()));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void getAllToDoListsWithSummaryShouldReturnTaskCountsWithoutTasks() throws Exception {
+        //when
+        mvc.perform(
+                get("/api/v1/list/all")
+                        .param("limit", "10")
+                        .param("summary", "true")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+        //verify
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].list_id").value(listId))
+                .andExpect(jsonPath("$[0].task_count").value(1))
+                .andExpect(jsonPath("$[0].active_task_count").value(1))
+                .andExpect(jsonPath("$[0].tasks").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void getAllToDoListsWithLimitShouldReturnPageAndNextCursor() throws Exception {
+        //given
+        ToDoList second = new ToDoList("second");
+        second.setUser(user);
+        listRepository.save(second);
+
+        //when
+        mvc.perform(
+                get("/api/v1/list/all")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+        //verify
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].list_id").value(listId))
+                .andExpect(header().string(ToDoListController.NEXT_CURSOR_HEADER, String.valueOf(listId)));
+
+        mvc.perform(
+                get("/api/v1/list/all")
+                        .param("limit", "1")
+                        .param("after", String.valueOf(listId))
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].list_id").value(second.getId()))
+                .andExpect(header().exists(ToDoListController.NEXT_CURSOR_HEADER));
+    }
+
     @Test
     @WithMockUser(username = USERNAME)
     void newToDoListShouldReturnCreatedListBelongingToAuthenticatedUser() throws Exception {
@@ -133,6 +258,53 @@ public class ToDoListControllerIT {
                 .andExpect(jsonPath("$.username").value(USERNAME));
     }
 
+    @Test
+    @WithMockUser(username = USERNAME, password = PASSWORD)
+    void getToDoListByIdShouldReturnSmileWithJsonNamesAndDatesWhenAccepted() throws Exception {
+        //when
+        byte[] body = mvc.perform(
+                get("/api/v1/list/{id}", listId)
+                        .accept(JacksonBinaryConfig.SMILE)
+        )
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", JacksonBinaryConfig.SMILE))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        //verify
+        JsonNode result = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertEquals(listId, result.get("list_id").asLong());
+        assertEquals(taskId, result.get("tasks").get(0).get("task_id").asLong());
+        assertTrue(result.get("date_time_made").asText().matches("\\d{2}-\\d{2}-\\d{4} \\d{2}:\\d{2}:\\d{2}"));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME, password = PASSWORD)
+    void newToDoListShouldAcceptCborAndAnswerInCbor() throws Exception {
+        //given
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        byte[] newList = cbor.writeValueAsBytes(
+                cbor.createObjectNode().put("name", "binary").put("description", "sent as cbor"));
+
+        //when
+        byte[] body = mvc.perform(
+                post("/api/v1/list")
+                        .contentType(JacksonBinaryConfig.CBOR)
+                        .content(newList)
+                        .accept(JacksonBinaryConfig.CBOR)
+        )
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        //verify
+        JsonNode result = cbor.readTree(body);
+        assertEquals("binary", result.get("name").asText());
+        assertEquals(USERNAME, result.get("username").asText());
+    }
+
     @Test
     @WithMockUser(username = USERNAME)
     void newToDoListShouldReturnBadRequestIfInputsAreNotValid() throws Exception {
@@ -280,6 +452,56 @@ public class ToDoListControllerIT {
     }
 
 
+    @Test
+    @WithMockUser(username = USERNAME)
+    void addTasksShouldReturnIdsOfCreatedTasks() throws Exception {
+        //given
+        String tasksJson = """
+                [
+                    { "name" : "task 2", "description" : "task description" },
+                    { "name" : "task 3" }
+                ]
+                """;
+
+        //when
+        mvc.perform(
+                patch("/api/v1/list/{id}/task/add/bulk", listId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(tasksJson)
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        mvc.perform(
+                get("/api/v1/list/{id}", listId)
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(jsonPath("$.tasks.length()").value(3));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void addTasksShouldReturn400WhenAnyTaskIsNotValid() throws Exception {
+        //given
+        String tasksJson = """
+                [
+                    { "name" : "task 2" },
+                    { "name" : "", "active" : false }
+                ]
+                """;
+
+        //when
+        mvc.perform(
+                patch("/api/v1/list/{id}/task/add/bulk", listId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(tasksJson)
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").isNotEmpty());
+    }
+
     @Test
     @WithMockUser(username = USERNAME)
     void removeTaskShouldRemoveUpdatedToDoList() throws Exception {
@@ -324,6 +546,43 @@ public class ToDoListControllerIT {
                 .andExpect(jsonPath("$.error").isNotEmpty());
     }
 
+    @Test
+    @WithMockUser(username = USERNAME)
+    void deleteTaskShouldReturn204WithoutBody() throws Exception {
+        //when
+        mvc.perform(
+                delete("/api/v1/list/{listId}/task/{taskId}", listId, taskId)
+        )
+                .andExpect(status().isNoContent())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void deleteTaskShouldReturnSummaryWhenAskedFor() throws Exception {
+        //when
+        mvc.perform(
+                delete("/api/v1/list/{listId}/task/{taskId}", listId, taskId)
+                        .param("summary", "true")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.task_id").value(taskId))
+                .andExpect(jsonPath("$.remaining_tasks").value(0));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME)
+    void deleteTaskShouldReturn404WhenTaskDoesNotExist() throws Exception {
+        //when
+        mvc.perform(
+                delete("/api/v1/list/{listId}/task/{taskId}", listId, 50)
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").isNotEmpty());
+    }
+
     @Test
     @WithMockUser(username = USERNAME)
     void updatedToDoListShouldReturnUpdatedToDoList() throws Exception {
@@ -392,4 +651,44 @@ public class ToDoListControllerIT {
                 .andExpect(jsonPath("$.error").isNotEmpty());
     }
 
+    @Test
+    @WithMockUser(username = USERNAME, password = PASSWORD)
+    void getToDoListByIdShouldOnlyReturnArchivedListWhenAskedFor() throws Exception {
+        //given
+        list.setActive(false);
+        list.setTimeDeactivated(LocalDateTime.of(2000, 1, 1, 0, 0));
+        listRepository.save(list);
+        archiveService.archiveFinishedBefore(LocalDateTime.of(2010, 1, 1, 0, 0));
+
+        //when
+        mvc.perform(get("/api/v1/list/{id}", listId).accept(MediaType.APPLICATION_JSON))
+        //verify
+                .andExpect(status().isNotFound());
+        mvc.perform(
+                get("/api/v1/list/{id}", listId)
+                        .param("include_archived", "true")
+                        .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.archived").value(true))
+                .andExpect(jsonPath("$.tasks[0].task_id").value(taskId))
+                .andExpect(jsonPath("$.tasks[0].archived").value(true));
+    }
+
+    @Test
+    @WithMockUser(username = USERNAME, password = PASSWORD)
+    void getArchivedToDoListsShouldReturnArchivedListsOfAuthenticatedUser() throws Exception {
+        //given
+        list.setActive(false);
+        list.setTimeDeactivated(LocalDateTime.of(2000, 1, 1, 0, 0));
+        listRepository.save(list);
+        archiveService.archiveFinishedBefore(LocalDateTime.of(2010, 1, 1, 0, 0));
+
+        //when
+        mvc.perform(get("/api/v1/list/archived").accept(MediaType.APPLICATION_JSON))
+        //verify
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].list_id").value(listId))
+                .andExpect(jsonPath("$[0].tasks[0].task_id").value(taskId));
+    }
 }
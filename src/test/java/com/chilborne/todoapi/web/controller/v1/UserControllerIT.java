@@ -1,7 +1,10 @@
 package com.chilborne.todoapi.web.controller.v1;
 
 import com.chilborne.todoapi.persistance.dto.UserDto;
+import com.chilborne.todoapi.persistance.model.Task;
+import com.chilborne.todoapi.persistance.model.ToDoList;
 import com.chilborne.todoapi.persistance.model.User;
+import com.chilborne.todoapi.persistance.repository.ToDoListRepository;
 import com.chilborne.todoapi.persistance.repository.UserRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,10 +20,13 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -37,6 +43,7 @@ class UserControllerIT {
   static final String NEW_EMAIL = "new@email.com";
   @Autowired MockMvc mvc;
   @Autowired UserRepository userRepository;
+  @Autowired ToDoListRepository listRepository;
   @Autowired PasswordEncoder encoder;
   private User user;
   private UserDto dto;
@@ -72,6 +79,133 @@ class UserControllerIT {
         .andExpect(jsonPath("$.email").value(EMAIL));
   }
 
+  @Test
+  @WithMockUser(
+          username = USERNAME,
+          password = PASSWORD
+  )
+  void getUserStatsShouldReturnCountsAndCompletionsOfLast30Days() throws Exception {
+    //when
+    mvc.perform(
+            get("/api/v1/user/{username}/stats", USERNAME)
+                .accept(MediaType.APPLICATION_JSON))
+        //verify
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.total_tasks").value(0))
+        .andExpect(jsonPath("$.completed_tasks").value(0))
+        .andExpect(jsonPath("$.completions_per_day.length()").value(30))
+        .andExpect(jsonPath("$.completions_per_day[29].completions").value(0))
+        .andExpect(jsonPath("$.median_seconds_to_complete").doesNotExist());
+  }
+
+  @Test
+  @WithMockUser(
+      username = "fails",
+      password = PASSWORD)
+  void getUserStatsShouldReturn403WhenUserWithDifferentUsernameMakesRequest() throws Exception {
+    //when
+    mvc.perform(
+            get("/api/v1/user/{username}/stats", USERNAME)
+                .accept(MediaType.APPLICATION_JSON))
+        //verify
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  @WithMockUser(
+          username = USERNAME,
+          password = PASSWORD
+  )
+  void exportUserDataShouldStreamOneLinePerListWithItsTasks() throws Exception {
+    //given
+    ToDoList list = new ToDoList("list");
+    list.setUser(user);
+    list.addTask(new Task(list, "first"));
+    list.addTask(new Task(list, "second"));
+    listRepository.save(list);
+    ToDoList empty = new ToDoList("empty");
+    empty.setUser(user);
+    listRepository.save(empty);
+
+    //when
+    MvcResult result = mvc.perform(get("/api/v1/user/{username}/export", USERNAME))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    //verify
+    String body = mvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "application/x-ndjson"))
+        .andExpect(header().string("Content-Disposition", "attachment; filename=\"name.ndjson\""))
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    String[] lines = body.split("\n");
+    assertEquals(2, lines.length);
+    assertTrue(body.endsWith("\n"));
+    assertTrue(lines[0].startsWith("{\"list_id\":" + list.getId() + ","));
+    assertTrue(lines[0].contains("\"tasks\":[{"));
+    assertTrue(lines[0].contains("\"name\":\"second\""));
+    assertTrue(lines[1].contains("\"name\":\"empty\""));
+    assertTrue(lines[1].endsWith("\"tasks\":[]}"));
+  }
+
+  @Test
+  @WithMockUser(
+          username = USERNAME,
+          password = PASSWORD
+  )
+  void exportUserDataAsCsvShouldWriteOneRowPerTaskAfterHeader() throws Exception {
+    //given
+    ToDoList list = new ToDoList("list");
+    list.setUser(user);
+    list.addTask(new Task(list, "first"));
+    list.addTask(new Task(list, "second"));
+    listRepository.save(list);
+
+    //when
+    MvcResult result = mvc.perform(
+            get("/api/v1/user/{username}/export", USERNAME).param("format", "csv"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    //verify
+    String[] rows = mvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "text/csv"))
+        .andReturn()
+        .getResponse()
+        .getContentAsString()
+        .split("\n");
+    assertEquals(3, rows.length);
+    assertTrue(rows[0].startsWith("list_id,list_name,"));
+    assertTrue(rows[1].startsWith(list.getId() + ",list,"));
+    assertTrue(rows[2].contains(",second,"));
+  }
+
+  @Test
+  @WithMockUser(
+          username = USERNAME,
+          password = PASSWORD
+  )
+  void exportUserDataShouldReturn400WhenFormatIsUnknown() throws Exception {
+    //when
+    mvc.perform(get("/api/v1/user/{username}/export", USERNAME).param("format", "xml"))
+        //verify
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @WithMockUser(
+      username = "fails",
+      password = PASSWORD)
+  void exportUserDataShouldReturn403WhenUserWithDifferentUsernameMakesRequest() throws Exception {
+    //when
+    mvc.perform(get("/api/v1/user/{username}/export", USERNAME))
+        //verify
+        .andExpect(status().isForbidden());
+  }
+
   @Test
   @WithMockUser(
       username = "fails",
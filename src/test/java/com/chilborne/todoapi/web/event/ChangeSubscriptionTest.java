@@ -0,0 +1,190 @@
+package com.chilborne.todoapi.web.event;
+
+import com.chilborne.todoapi.service.event.ChangeEvent;
+import com.chilborne.todoapi.service.event.ChangeEvent.Action;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeSubscriptionTest {
+
+  static final String USERNAME = "user";
+  static final ObjectWriter WRITER = new ObjectMapper().writer();
+  // runs the sender tasks only when the test says so, standing in for a slow client
+  Queue<Runnable> senders;
+  RecordingEmitter emitter;
+
+  @BeforeEach
+  void init() {
+    senders = new ArrayDeque<>();
+    emitter = new RecordingEmitter();
+  }
+
+  @Test
+  void offerShouldSendEventsInOrder() {
+    // given
+    ChangeSubscription subscription = new ChangeSubscription(USERNAME, null, emitter, 4, senders::add, WRITER);
+
+    // when
+    subscription.offer(ChangeEvent.list(USERNAME, Action.UPDATED, 1L));
+    subscription.offer(ChangeEvent.task(USERNAME, Action.COMPLETED, 1L, 2L));
+    runSenders();
+
+    // verify
+    assertEquals(2, emitter.sent.size());
+    assertTrue(emitter.sent.get(0).startsWith("event:change"));
+    assertTrue(emitter.sent.get(1).contains("\"taskId\":2"));
+  }
+
+  @Test
+  void offerShouldReplaceBufferWithResyncWhenItOverflows() {
+    // given
+    ChangeSubscription subscription = new ChangeSubscription(USERNAME, null, emitter, 2, senders::add, WRITER);
+
+    // when
+    for (long taskId = 1; taskId <= 5; taskId++) {
+      subscription.offer(ChangeEvent.task(USERNAME, Action.CREATED, 1L, taskId));
+    }
+    runSenders();
+
+    // verify
+    assertTrue(emitter.sent.get(0).startsWith("event:resync"));
+    assertTrue(emitter.sent.size() <= 2);
+    assertTrue(emitter.sent.get(emitter.sent.size() - 1).contains("\"taskId\":5"));
+  }
+
+  @Test
+  void offerShouldOnlySendEventsOfSubscribedList() {
+    // given
+    ChangeSubscription subscription = new ChangeSubscription(USERNAME, 1L, emitter, 4, senders::add, WRITER);
+
+    // when
+    subscription.offer(ChangeEvent.list(USERNAME, Action.UPDATED, 2L));
+    subscription.offer(ChangeEvent.list(USERNAME, Action.DELETED, 1L));
+    subscription.offer(ChangeEvent.list(USERNAME, Action.CREATED, 1L));
+    runSenders();
+
+    // verify
+    assertEquals(1, emitter.sent.size());
+    assertTrue(emitter.completed);
+    assertTrue(subscription.isClosed());
+  }
+
+  @Test
+  void heartbeatShouldNotQueueBehindPendingEvents() {
+    // given
+    ChangeSubscription subscription = new ChangeSubscription(USERNAME, null, emitter, 4, senders::add, WRITER);
+    subscription.offer(ChangeEvent.list(USERNAME, Action.UPDATED, 1L));
+
+    // when
+    subscription.heartbeat();
+    runSenders();
+    subscription.heartbeat();
+    runSenders();
+
+    // verify
+    assertEquals(2, emitter.sent.size());
+    assertTrue(emitter.sent.get(1).startsWith(":heartbeat"));
+  }
+
+  @Test
+  void abortIfStalledShouldCompleteStreamWhoseWriteDoesNotReturn() throws Exception {
+    // given
+    StalledEmitter stalled = new StalledEmitter();
+    ChangeSubscription subscription = new ChangeSubscription(USERNAME, null, stalled, 4, senders::add, WRITER);
+    subscription.offer(ChangeEvent.list(USERNAME, Action.UPDATED, 1L));
+    Thread sender = new Thread(this::runSenders);
+    sender.start();
+    stalled.writing.await();
+    Thread.sleep(20);
+
+    // when
+    boolean aborted = subscription.abortIfStalled(10);
+    stalled.release.countDown();
+    sender.join();
+
+    // verify
+    assertTrue(aborted);
+    assertTrue(subscription.isClosed());
+    assertTrue(stalled.error.getMessage().startsWith("write has not returned"));
+  }
+
+  @Test
+  void abortIfStalledShouldLeaveIdleStreamOpen() {
+    // given
+    ChangeSubscription subscription = new ChangeSubscription(USERNAME, null, emitter, 4, senders::add, WRITER);
+    subscription.offer(ChangeEvent.list(USERNAME, Action.UPDATED, 1L));
+    runSenders();
+
+    // when
+    boolean aborted = subscription.abortIfStalled(0);
+
+    // verify
+    assertFalse(aborted);
+    assertFalse(subscription.isClosed());
+  }
+
+  private void runSenders() {
+    Runnable sender;
+    while ((sender = senders.poll()) != null) {
+      sender.run();
+    }
+  }
+
+  static class RecordingEmitter extends SseEmitter {
+
+    final List<String> sent = new ArrayList<>();
+    boolean completed;
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      sent.add(
+          builder.build().stream()
+              .map(data -> String.valueOf(data.getData()))
+              .collect(Collectors.joining()));
+    }
+
+    @Override
+    public synchronized void complete() {
+      completed = true;
+    }
+  }
+
+  // a client which stopped reading, its write only returns once the test releases it
+  static class StalledEmitter extends SseEmitter {
+
+    final CountDownLatch writing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    volatile Throwable error;
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      writing.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new IOException("connection closed");
+    }
+
+    @Override
+    public synchronized void completeWithError(Throwable ex) {
+      if (error == null) {
+        error = ex;
+      }
+    }
+  }
+}